@@ -16,14 +16,21 @@ fi
 
 (aws s3 cp s3://$CONFIG_BUCKET/dp-dd-dimensional-metadata-api/$CONFIG_DIRECTORY/$CONFIG.asc . && gpg --decrypt $CONFIG.asc > $CONFIG) || exit $?
 
+# Hierarchy snapshots are kept on the host, so that they outlive the container
+HIERARCHY_SNAPSHOT_VOLUME=/var/lib/dp-dd-dimensional-metadata-api/hierarchies
+HIERARCHY_SNAPSHOT_DIRECTORY=/var/lib/dd-metadata-api/hierarchies
+mkdir -p $HIERARCHY_SNAPSHOT_VOLUME || exit $?
+
 source $CONFIG && docker run -d         \
   --env=BASE_URL=$BASE_URL              \
   --env=DB_DRIVER=$DB_DRIVER            \
   --env=DB_PASSWORD=$DB_PASSWORD        \
   --env=DB_URL=$DB_URL                  \
   --env=DB_USER=$DB_USER                \
+  --env=HIERARCHY_SNAPSHOT_DIRECTORY=$HIERARCHY_SNAPSHOT_DIRECTORY \
   --env=SERVER_PORT=$SERVER_PORT        \
   --name=dp-dd-dimensional-metadata-api \
   --net=$DOCKER_NETWORK                 \
   --restart=always                      \
+  --volume=$HIERARCHY_SNAPSHOT_VOLUME:$HIERARCHY_SNAPSHOT_DIRECTORY \
   $ECR_REPOSITORY_URI/dp-dd-dimensional-metadata-api:$GIT_COMMIT
@@ -0,0 +1,66 @@
+package uk.co.onsdigital.discovery.metadata.api.service;
+
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Warmup;
+import uk.co.onsdigital.discovery.metadata.api.dto.common.DimensionOption;
+import uk.co.onsdigital.discovery.model.DimensionValue;
+
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Collections;
+import java.util.List;
+import java.util.Random;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Measures {@link DimensionOption#compareTo(DimensionOption)}, which orders every option set and dominates the cost of
+ * building large option lists.
+ */
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.MILLISECONDS)
+@Warmup(iterations = 5, time = 1)
+@Measurement(iterations = 5, time = 1)
+@Fork(1)
+public class DimensionOptionBenchmark {
+
+    @Param({"FLAT_100K", "GEOGRAPHY"})
+    public String shape;
+
+    private DimensionOption[] options;
+
+    @Setup
+    public void generateOptions() {
+        final List<DimensionValue> values = SyntheticDimensions.generate(SyntheticDimensions.Shape.valueOf(shape)).getValues();
+        final List<DimensionOption> sorted = DimensionViewType.LIST.convertValues(values);
+        // Shuffle so that sorting does real work
+        final List<DimensionOption> shuffled = new ArrayList<>(sorted);
+        Collections.shuffle(shuffled, new Random(shuffled.size()));
+        options = shuffled.toArray(new DimensionOption[shuffled.size()]);
+    }
+
+    @Benchmark
+    public int compareAdjacent() {
+        int result = 0;
+        for (int i = 1; i < options.length; ++i) {
+            result += options[i - 1].compareTo(options[i]);
+        }
+        return result;
+    }
+
+    @Benchmark
+    public DimensionOption[] sort() {
+        final DimensionOption[] sorted = options.clone();
+        Arrays.sort(sorted);
+        return sorted;
+    }
+}
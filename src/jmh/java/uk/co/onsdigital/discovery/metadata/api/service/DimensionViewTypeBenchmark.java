@@ -0,0 +1,92 @@
+package uk.co.onsdigital.discovery.metadata.api.service;
+
+import com.fasterxml.jackson.core.JsonProcessingException;
+import com.fasterxml.jackson.databind.ObjectMapper;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Warmup;
+import uk.co.onsdigital.discovery.metadata.api.dto.common.DimensionOption;
+import uk.co.onsdigital.discovery.model.DimensionValue;
+
+import java.util.List;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Measures the conversion of raw dimension values into the options rendered by the dimension endpoints, and the JSON
+ * serialization of the result. Run with {@code -prof gc} (the default in the {@code benchmark} profile) to also report
+ * the allocation rate.
+ */
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.Throughput)
+@OutputTimeUnit(TimeUnit.SECONDS)
+@Warmup(iterations = 5, time = 1)
+@Measurement(iterations = 5, time = 1)
+@Fork(1)
+public class DimensionViewTypeBenchmark {
+
+    @Param({"FLAT_100K", "GEOGRAPHY", "SPARSE"})
+    public String shape;
+
+    private List<DimensionValue> values;
+    private HierarchyIndexCache hierarchyIndexes;
+    private List<DimensionOption> listOptions;
+    private List<DimensionOption> hierarchyOptions;
+    private ObjectMapper objectMapper;
+
+    @Setup
+    public void generateDimension() {
+        final SyntheticDimensions dimension = SyntheticDimensions.generate(SyntheticDimensions.Shape.valueOf(shape));
+        values = dimension.getValues();
+
+        final HierarchyIndex index = dimension.getEntries().isEmpty() ? null
+                : HierarchyIndex.build(dimension.getHierarchy(), dimension.getEntries());
+        hierarchyIndexes = new HierarchyIndexCache(null) {
+            @Override
+            public HierarchyIndex getIndex(String hierarchyId) {
+                return index;
+            }
+        };
+
+        listOptions = DimensionViewType.LIST.convertValues(values);
+        hierarchyOptions = DimensionViewType.HIERARCHY.convertValues(values, hierarchyIndexes);
+        objectMapper = new ObjectMapper();
+    }
+
+    @Benchmark
+    public List<DimensionOption> none() {
+        return DimensionViewType.NONE.convertValues(values);
+    }
+
+    @Benchmark
+    public List<DimensionOption> list() {
+        return DimensionViewType.LIST.convertValues(values);
+    }
+
+    @Benchmark
+    public List<DimensionOption> hierarchy() {
+        return DimensionViewType.HIERARCHY.convertValues(values);
+    }
+
+    @Benchmark
+    public List<DimensionOption> hierarchyWithIndex() {
+        return DimensionViewType.HIERARCHY.convertValues(values, hierarchyIndexes);
+    }
+
+    @Benchmark
+    public byte[] serializeList() throws JsonProcessingException {
+        return objectMapper.writeValueAsBytes(listOptions);
+    }
+
+    @Benchmark
+    public byte[] serializeHierarchy() throws JsonProcessingException {
+        return objectMapper.writeValueAsBytes(hierarchyOptions);
+    }
+}
@@ -0,0 +1,142 @@
+package uk.co.onsdigital.discovery.metadata.api.service;
+
+import uk.co.onsdigital.discovery.model.DimensionValue;
+import uk.co.onsdigital.discovery.model.Hierarchy;
+import uk.co.onsdigital.discovery.model.HierarchyEntry;
+import uk.co.onsdigital.discovery.model.HierarchyLevelType;
+
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.List;
+import java.util.Random;
+import java.util.UUID;
+
+/**
+ * Generates synthetic dimension values and hierarchies with the shapes seen in real datasets. Generation is seeded, so
+ * every benchmark run sees the same data.
+ */
+final class SyntheticDimensions {
+    private static final long SEED = 20170301L;
+    private static final String[] LEVEL_NAMES = {"Country", "Region", "County", "Local Authority", "Ward"};
+
+    /**
+     * The shape of a synthetic dimension.
+     */
+    enum Shape {
+        /**
+         * 100,000 values that are not part of any hierarchy, such as a product or NACE code list.
+         */
+        FLAT_100K,
+        /**
+         * A complete five-level geography (1 country, 10 regions, 50 counties, 400 local authorities and 8,000 wards),
+         * with a value for every entry.
+         */
+        GEOGRAPHY,
+        /**
+         * The same five-level geography, but with values for only one ward in ten, so most intermediate levels are
+         * empty.
+         */
+        SPARSE
+    }
+
+    private static final int[] GEOGRAPHY_FAN_OUT = {1, 10, 5, 8, 20};
+
+    private final Hierarchy hierarchy;
+    private final List<HierarchyEntry> entries = new ArrayList<>();
+    private final List<DimensionValue> values = new ArrayList<>();
+
+    private SyntheticDimensions(Shape shape) {
+        final Random random = new Random(SEED);
+        hierarchy = new Hierarchy();
+        hierarchy.setId("BENCH");
+        hierarchy.setName("Benchmark geography");
+        hierarchy.setType("geography");
+
+        switch (shape) {
+            case FLAT_100K:
+                for (int i = 0; i < 100_000; ++i) {
+                    values.add(new DimensionValue(randomWord(random) + " " + i));
+                }
+                Collections.shuffle(values, random);
+                break;
+            case GEOGRAPHY:
+                buildGeography(random);
+                entries.forEach(entry -> values.add(value(entry)));
+                Collections.shuffle(values, random);
+                break;
+            case SPARSE:
+                buildGeography(random);
+                final Integer leafLevel = GEOGRAPHY_FAN_OUT.length - 1;
+                entries.stream()
+                        .filter(entry -> leafLevel.equals(entry.getLevelType().getLevel()) && random.nextInt(10) == 0)
+                        .forEach(entry -> values.add(value(entry)));
+                break;
+        }
+    }
+
+    static SyntheticDimensions generate(Shape shape) {
+        return new SyntheticDimensions(shape);
+    }
+
+    /**
+     * @return the values of the dimension, in no particular order.
+     */
+    List<DimensionValue> getValues() {
+        return values;
+    }
+
+    /**
+     * @return all entries of the hierarchy that the values belong to, or an empty list for flat dimensions.
+     */
+    List<HierarchyEntry> getEntries() {
+        return entries;
+    }
+
+    Hierarchy getHierarchy() {
+        return hierarchy;
+    }
+
+    private void buildGeography(Random random) {
+        final HierarchyLevelType[] levelTypes = new HierarchyLevelType[GEOGRAPHY_FAN_OUT.length];
+        for (int level = 0; level < levelTypes.length; ++level) {
+            levelTypes[level] = new HierarchyLevelType();
+            levelTypes[level].setLevel(level);
+            levelTypes[level].setName(LEVEL_NAMES[level]);
+        }
+
+        List<HierarchyEntry> parents = Collections.singletonList(null);
+        for (int level = 0; level < GEOGRAPHY_FAN_OUT.length; ++level) {
+            final List<HierarchyEntry> children = new ArrayList<>();
+            for (HierarchyEntry parent : parents) {
+                for (int i = 0; i < GEOGRAPHY_FAN_OUT[level]; ++i) {
+                    final HierarchyEntry entry = new HierarchyEntry();
+                    entry.setId(new UUID(random.nextLong(), random.nextLong()));
+                    entry.setHierarchy(hierarchy);
+                    entry.setCode(String.format("E%02d%06d", level, entries.size()));
+                    entry.setName(randomWord(random) + " " + LEVEL_NAMES[level]);
+                    entry.setDisplayOrder(entries.size());
+                    entry.setLevelType(levelTypes[level]);
+                    entry.setParent(parent);
+                    entries.add(entry);
+                    children.add(entry);
+                }
+            }
+            parents = children;
+        }
+    }
+
+    private static DimensionValue value(HierarchyEntry entry) {
+        final DimensionValue value = new DimensionValue(entry.getCode());
+        value.setHierarchyEntry(entry);
+        return value;
+    }
+
+    private static String randomWord(Random random) {
+        final char[] word = new char[4 + random.nextInt(8)];
+        word[0] = (char) ('A' + random.nextInt(26));
+        for (int i = 1; i < word.length; ++i) {
+            word[i] = (char) ('a' + random.nextInt(26));
+        }
+        return new String(word);
+    }
+}
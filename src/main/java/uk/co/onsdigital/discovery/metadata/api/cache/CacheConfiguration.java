@@ -0,0 +1,165 @@
+package uk.co.onsdigital.discovery.metadata.api.cache;
+
+import com.fasterxml.jackson.databind.ObjectMapper;
+import com.github.benmanes.caffeine.cache.Caffeine;
+import com.github.benmanes.caffeine.cache.RemovalListener;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.beans.factory.annotation.Qualifier;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.cache.Cache;
+import org.springframework.cache.CacheManager;
+import org.springframework.cache.caffeine.CaffeineCache;
+import org.springframework.cache.concurrent.ConcurrentMapCacheManager;
+import org.springframework.cache.support.SimpleCacheManager;
+import org.springframework.context.annotation.Bean;
+import org.springframework.context.annotation.Configuration;
+import org.springframework.core.env.Environment;
+
+import java.io.IOException;
+import java.nio.file.Paths;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.ArrayBlockingQueue;
+import java.util.concurrent.Executor;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.ThreadPoolExecutor;
+import java.util.concurrent.TimeUnit;
+
+import static java.util.Arrays.asList;
+import static uk.co.onsdigital.discovery.metadata.api.controller.MetadataController.DATASETS;
+import static uk.co.onsdigital.discovery.metadata.api.controller.MetadataController.DATASETS_TEMP;
+import static uk.co.onsdigital.discovery.metadata.api.controller.MetadataController.DIMENSIONS;
+import static uk.co.onsdigital.discovery.metadata.api.controller.MetadataController.HIERARCHIES;
+import static uk.co.onsdigital.discovery.metadata.api.controller.MetadataController.HIERARCHIES_TEMP;
+
+/**
+ * Configures the Spring caches used by the API. By default each cache is bounded by the estimated size of its
+ * serialized entries and uses Caffeine's W-TinyLFU eviction policy. Setting {@code cache.provider} to
+ * {@code concurrent-map} restores the previous unbounded behaviour.
+ * <p>
+ * With Caffeine, the dataset listings are kept for {@code cache.datasets-temp.stale.while.revalidate.seconds} after
+ * they expire or are invalidated, and served from the cache while they are reloaded in the background (see
+ * {@link StaleWhileRevalidateCache}).
+ * <p>
+ * Caches with a {@code cache.<name>.offheap.max.weight.mb} also have an off-heap tier, which holds the serialized
+ * responses of at least {@code cache.offheap.min.size.kb} (see {@link TieredCache}). By default this is the case for
+ * the hierarchies and dimensions, whose geography responses run to tens of megabytes. If the off-heap tiers add up to
+ * more than the {@linkplain OffHeapStore#capacity() capacity} of the store, they are scaled down in proportion to fit.
+ */
+@Configuration
+public class CacheConfiguration {
+    private static final Logger logger = LoggerFactory.getLogger(CacheConfiguration.class);
+
+    static final String PROVIDER_CAFFEINE = "caffeine";
+    static final String PROVIDER_CONCURRENT_MAP = "concurrent-map";
+
+    static final List<String> CACHE_NAMES = asList(HIERARCHIES, DIMENSIONS, DATASETS, DATASETS_TEMP, HIERARCHIES_TEMP);
+
+    public static final String STALE_WHILE_REVALIDATE_SECONDS = "cache.datasets-temp.stale.while.revalidate.seconds";
+
+    private static final long BYTES_PER_MB = 1024L * 1024L;
+
+    @Bean
+    public CacheManager getCacheManager(@Value("${cache.provider:caffeine}") String provider,
+                                        Environment environment, ObjectMapper objectMapper,
+                                        @Qualifier("cacheRefreshExecutor") Executor refreshExecutor,
+                                        OffHeapStore offHeapStore) {
+        logger.info("Using {} cache provider", provider);
+        switch (provider) {
+            case PROVIDER_CAFFEINE:
+                return caffeineCacheManager(environment, new SerializedSizeWeigher(objectMapper), refreshExecutor,
+                        offHeapStore);
+            case PROVIDER_CONCURRENT_MAP:
+                return new ConcurrentMapCacheManager(CACHE_NAMES.toArray(new String[CACHE_NAMES.size()]));
+            default:
+                throw new IllegalArgumentException("Unknown cache provider: " + provider);
+        }
+    }
+
+    /**
+     * Reloads stale dataset listings. Refreshes beyond the queue are dropped, and the stale entries served until a later
+     * request finds a free slot.
+     */
+    @Bean(destroyMethod = "shutdownNow")
+    public ExecutorService cacheRefreshExecutor(@Value("${cache.refresh.threads:2}") int threads,
+                                                @Value("${cache.refresh.queue.size:100}") int queueSize) {
+        return new ThreadPoolExecutor(threads, threads, 0L, TimeUnit.MILLISECONDS, new ArrayBlockingQueue<>(queueSize),
+                runnable -> {
+                    final Thread thread = new Thread(runnable, "cache-refresh");
+                    thread.setDaemon(true);
+                    return thread;
+                });
+    }
+
+    /**
+     * Holds the off-heap tiers, in files under {@code cache.offheap.directory} if it is set, and otherwise in direct
+     * buffers.
+     */
+    @Bean(destroyMethod = "close")
+    public OffHeapStore offHeapStore(@Value("${cache.offheap.directory:}") String directory) throws IOException {
+        return new OffHeapStore(directory.isEmpty() ? null : Paths.get(directory));
+    }
+
+    private static CacheManager caffeineCacheManager(Environment environment, SerializedSizeWeigher weigher,
+                                                     Executor refreshExecutor, OffHeapStore offHeapStore) {
+        final long minOffHeapKb = environment.getProperty("cache.offheap.min.size.kb", Long.class, 256L);
+        final long staleSeconds = environment.getProperty(STALE_WHILE_REVALIDATE_SECONDS, Long.class, 60L);
+        final long totalOffHeapWeightMb = CACHE_NAMES.stream()
+                .mapToLong(name -> cacheProperty(environment, name, "offheap.max.weight.mb", 0L))
+                .sum();
+        final long offHeapCapacity = offHeapStore.capacity();
+        if (totalOffHeapWeightMb * BYTES_PER_MB > offHeapCapacity) {
+            logger.warn("Off-heap caches of {} MB in total do not fit in {} MB, scaling them down to fit",
+                    totalOffHeapWeightMb, offHeapCapacity / BYTES_PER_MB);
+        }
+        final List<Cache> caches = new ArrayList<>(CACHE_NAMES.size());
+        for (String name : CACHE_NAMES) {
+            final long maxWeightMb = cacheProperty(environment, name, "max.weight.mb", 64L);
+            final long expireMinutes = cacheProperty(environment, name, "expire.after.write.minutes", 60L);
+            final long offHeapWeightMb = cacheProperty(environment, name, "offheap.max.weight.mb", 0L);
+            final long offHeapWeight = totalOffHeapWeightMb * BYTES_PER_MB > offHeapCapacity
+                    ? (long) (offHeapCapacity * ((double) offHeapWeightMb / totalOffHeapWeightMb))
+                    : offHeapWeightMb * BYTES_PER_MB;
+            final long graceSeconds = DATASETS_TEMP.equals(name) ? staleSeconds : 0L;
+            logger.info("Cache {}: max weight {} MB, off-heap max weight {} MB, expire after write {} minutes, " +
+                    "stale while revalidate {} seconds", name, maxWeightMb, offHeapWeight / BYTES_PER_MB, expireMinutes,
+                    graceSeconds);
+
+            final long expireSeconds = TimeUnit.MINUTES.toSeconds(expireMinutes) + graceSeconds;
+            Cache cache = new CaffeineCache(name, Caffeine.newBuilder()
+                    .maximumWeight(maxWeightMb * BYTES_PER_MB)
+                    .weigher(weigher)
+                    .expireAfterWrite(expireSeconds, TimeUnit.SECONDS)
+                    .recordStats()
+                    .build());
+            if (offHeapWeight > 0) {
+                final RemovalListener<Object, SerializedResponse> release = (key, response, cause) -> offHeapStore.release(response);
+                cache = new TieredCache(cache, Caffeine.newBuilder()
+                        .maximumWeight(offHeapWeight)
+                        .<Object, SerializedResponse>weigher((key, response) -> response.size())
+                        .expireAfterWrite(expireSeconds, TimeUnit.SECONDS)
+                        .removalListener(release)
+                        .recordStats()
+                        .build(), offHeapStore, (int) Math.min(Integer.MAX_VALUE, minOffHeapKb * 1024L));
+            }
+            caches.add(graceSeconds > 0
+                    ? new StaleWhileRevalidateCache(cache, TimeUnit.MINUTES.toMillis(expireMinutes),
+                            TimeUnit.SECONDS.toMillis(graceSeconds), refreshExecutor)
+                    : cache);
+        }
+
+        final SimpleCacheManager cacheManager = new SimpleCacheManager();
+        cacheManager.setCaches(caches);
+        return cacheManager;
+    }
+
+    /**
+     * Looks up a per-cache setting (e.g. {@code cache.hierarchies.max.weight.mb}), falling back to the default for
+     * all caches (e.g. {@code cache.max.weight.mb}) and then to the given value.
+     */
+    private static long cacheProperty(Environment environment, String cacheName, String property, long defaultValue) {
+        final Long fallback = environment.getProperty("cache." + property, Long.class, defaultValue);
+        return environment.getProperty("cache." + cacheName + "." + property, Long.class, fallback);
+    }
+}
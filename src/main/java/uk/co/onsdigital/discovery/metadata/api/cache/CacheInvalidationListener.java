@@ -0,0 +1,162 @@
+package uk.co.onsdigital.discovery.metadata.api.cache;
+
+import org.postgresql.PGConnection;
+import org.postgresql.PGNotification;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.core.env.Environment;
+import org.springframework.stereotype.Component;
+
+import javax.annotation.PostConstruct;
+import javax.annotation.PreDestroy;
+import java.sql.Connection;
+import java.sql.DriverManager;
+import java.sql.SQLException;
+import java.sql.Statement;
+import java.util.Arrays;
+import java.util.concurrent.Executors;
+import java.util.concurrent.ScheduledExecutorService;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Invalidates cached responses when the importer announces a change with PostgreSQL {@code NOTIFY}, so that caches can
+ * be kept for hours without serving stale metadata. The listener holds its own connection outside the pool, which it
+ * checks for notifications every {@code cache.invalidation.poll.ms}. Payloads name what changed:
+ * <ul>
+ *     <li>{@code dataset:<id>[,<id>...]}: a dataset, by UUID and/or dataresource id.</li>
+ *     <li>{@code hierarchy:<id>}: a hierarchy.</li>
+ *     <li>anything else: everything is invalidated.</li>
+ * </ul>
+ * Notifications sent while the connection is down are lost, so everything is invalidated once it is re-established.
+ * <p>
+ * If {@code cache.invalidation.enabled} is {@code false}, the dataset and hierarchy listings are instead discarded
+ * every {@code cache.invalidation.fallback.interval.ms}, and other responses only expire.
+ */
+@Component
+public class CacheInvalidationListener {
+    private static final Logger logger = LoggerFactory.getLogger(CacheInvalidationListener.class);
+
+    static final String DATASET = "dataset";
+    static final String HIERARCHY = "hierarchy";
+
+    private final CacheInvalidator invalidator;
+    private final Environment environment;
+    private final boolean enabled;
+    private final String channel;
+    private final long pollMillis;
+    private final long fallbackIntervalMillis;
+    private ScheduledExecutorService scheduler;
+
+    private Connection connection;
+    private boolean listenedBefore;
+    private boolean failing;
+
+    @Autowired
+    public CacheInvalidationListener(CacheInvalidator invalidator, Environment environment,
+                                     @Value("${cache.invalidation.enabled:false}") boolean enabled,
+                                     @Value("${cache.invalidation.channel:metadata_changed}") String channel,
+                                     @Value("${cache.invalidation.poll.ms:1000}") long pollMillis,
+                                     @Value("${cache.invalidation.fallback.interval.ms:15000}") long fallbackIntervalMillis) {
+        this.invalidator = invalidator;
+        this.environment = environment;
+        this.enabled = enabled;
+        this.channel = channel;
+        this.pollMillis = pollMillis;
+        this.fallbackIntervalMillis = fallbackIntervalMillis;
+    }
+
+    @PostConstruct
+    public void start() {
+        scheduler = Executors.newSingleThreadScheduledExecutor(runnable -> {
+            final Thread thread = new Thread(runnable, "cache-invalidation");
+            thread.setDaemon(true);
+            return thread;
+        });
+        if (enabled) {
+            logger.info("Listening for changes on channel {}", channel);
+            scheduler.scheduleWithFixedDelay(this::poll, 0, pollMillis, TimeUnit.MILLISECONDS);
+        } else {
+            logger.info("Change notifications disabled; discarding listings every {} ms", fallbackIntervalMillis);
+            scheduler.scheduleAtFixedRate(invalidator::invalidateListings, fallbackIntervalMillis,
+                    fallbackIntervalMillis, TimeUnit.MILLISECONDS);
+        }
+    }
+
+    @PreDestroy
+    public void stop() {
+        scheduler.shutdownNow();
+        closeConnection();
+    }
+
+    /**
+     * Checks for notifications, connecting first if necessary.
+     */
+    void poll() {
+        try {
+            if (connection == null) {
+                connect();
+            }
+            // The driver only reads notifications when it talks to the server
+            try (Statement statement = connection.createStatement()) {
+                statement.execute("select 1");
+            }
+            final PGNotification[] notifications = connection.unwrap(PGConnection.class).getNotifications();
+            if (notifications != null) {
+                for (PGNotification notification : notifications) {
+                    handle(notification.getParameter());
+                }
+            }
+            failing = false;
+        } catch (SQLException | RuntimeException e) {
+            if (!failing) {
+                logger.warn("Not listening for changes, will retry: {}", e.getMessage());
+                failing = true;
+            }
+            closeConnection();
+        }
+    }
+
+    private void connect() throws SQLException {
+        connection = DriverManager.getConnection(environment.getProperty("db.url"), environment.getProperty("db.user"),
+                environment.getProperty("db.password"));
+        try (Statement statement = connection.createStatement()) {
+            statement.execute("listen " + channel);
+        }
+        if (listenedBefore) {
+            // Changes made while disconnected were not announced to us
+            invalidator.invalidateAll();
+        }
+        listenedBefore = true;
+        logger.info("Listening for changes on channel {}", channel);
+    }
+
+    /**
+     * Invalidates the caches according to the payload of a notification.
+     */
+    void handle(String payload) {
+        final int separator = payload != null ? payload.indexOf(':') : -1;
+        final String type = separator > 0 ? payload.substring(0, separator).trim() : "";
+        final String ids = separator > 0 ? payload.substring(separator + 1).trim() : "";
+        if (DATASET.equals(type) && !ids.isEmpty()) {
+            invalidator.invalidateDataSets(Arrays.asList(ids.split("\\s*,\\s*")));
+        } else if (HIERARCHY.equals(type) && !ids.isEmpty()) {
+            invalidator.invalidateHierarchy(ids);
+        } else {
+            logger.info("Change notification '{}' does not name a dataset or hierarchy", payload);
+            invalidator.invalidateAll();
+        }
+    }
+
+    private void closeConnection() {
+        if (connection != null) {
+            try {
+                connection.close();
+            } catch (SQLException e) {
+                logger.debug("Error closing listener connection: {}", e.getMessage());
+            }
+            connection = null;
+        }
+    }
+}
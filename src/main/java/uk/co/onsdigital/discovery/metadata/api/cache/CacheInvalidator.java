@@ -0,0 +1,133 @@
+package uk.co.onsdigital.discovery.metadata.api.cache;
+
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.cache.Cache;
+import org.springframework.cache.CacheManager;
+import org.springframework.stereotype.Component;
+import uk.co.onsdigital.discovery.metadata.api.service.DimensionOptionIndexCache;
+import uk.co.onsdigital.discovery.metadata.api.service.HierarchyIndexCache;
+import uk.co.onsdigital.discovery.metadata.api.service.ResultCountCache;
+
+import java.util.Collection;
+import java.util.Collections;
+import java.util.List;
+import java.util.Map;
+import java.util.function.Predicate;
+
+import static uk.co.onsdigital.discovery.metadata.api.controller.MetadataController.DATASETS;
+import static uk.co.onsdigital.discovery.metadata.api.controller.MetadataController.DATASETS_TEMP;
+import static uk.co.onsdigital.discovery.metadata.api.controller.MetadataController.DIMENSIONS;
+import static uk.co.onsdigital.discovery.metadata.api.controller.MetadataController.HIERARCHIES;
+import static uk.co.onsdigital.discovery.metadata.api.controller.MetadataController.HIERARCHIES_TEMP;
+
+/**
+ * Discards the cached responses and indexes that a change to the metadata makes stale. Entries of a single dataset or
+ * hierarchy are found by the first parameter of their keys (see {@link ParameterListKeyGenerator}), which is the
+ * dataset, dataresource or hierarchy id of every cached method. Listings are always discarded in full, as any change
+ * may add to, remove from or reorder them.
+ */
+@Component
+public class CacheInvalidator {
+    private static final Logger logger = LoggerFactory.getLogger(CacheInvalidator.class);
+
+    private final CacheManager cacheManager;
+    private final HierarchyIndexCache hierarchyIndexes;
+    private final DimensionOptionIndexCache optionIndexes;
+    private final ResultCountCache resultCounts;
+
+    @Autowired
+    public CacheInvalidator(CacheManager cacheManager, HierarchyIndexCache hierarchyIndexes,
+                            DimensionOptionIndexCache optionIndexes, ResultCountCache resultCounts) {
+        this.cacheManager = cacheManager;
+        this.hierarchyIndexes = hierarchyIndexes;
+        this.optionIndexes = optionIndexes;
+        this.resultCounts = resultCounts;
+    }
+
+    /**
+     * Discards everything cached about some datasets, along with the dataset listings and counts.
+     *
+     * @param ids the ids of the datasets, as UUIDs and/or dataresource ids, depending on how they are requested.
+     */
+    public void invalidateDataSets(Collection<String> ids) {
+        logger.info("Invalidating datasets {}", ids);
+        final Predicate<Object> keys = firstParameterIn(ids);
+        evictIf(DATASETS, keys);
+        evictIf(DIMENSIONS, keys);
+        optionIndexes.invalidateIf(keys);
+        invalidateListings();
+    }
+
+    /**
+     * Discards a hierarchy, its index and the hierarchy listing. As any dimension may be rendered with the hierarchy,
+     * all dimension responses and indexes are discarded too.
+     *
+     * @param hierarchyId the id of the hierarchy.
+     */
+    public void invalidateHierarchy(String hierarchyId) {
+        logger.info("Invalidating hierarchy {}", hierarchyId);
+        evictIf(HIERARCHIES, firstParameterIn(Collections.singleton(hierarchyId)));
+        hierarchyIndexes.invalidate(hierarchyId);
+        clear(DIMENSIONS);
+        optionIndexes.invalidateAll();
+        clear(HIERARCHIES_TEMP);
+    }
+
+    /**
+     * Discards the dataset and hierarchy listings and the dataset counts, which change whenever anything is added.
+     */
+    public void invalidateListings() {
+        clear(DATASETS_TEMP);
+        clear(HIERARCHIES_TEMP);
+        resultCounts.invalidate();
+    }
+
+    /**
+     * Discards everything, for when changes may have been missed.
+     */
+    public void invalidateAll() {
+        logger.info("Invalidating all caches");
+        for (String name : cacheManager.getCacheNames()) {
+            clear(name);
+        }
+        hierarchyIndexes.invalidateAll();
+        optionIndexes.invalidateAll();
+        resultCounts.invalidate();
+    }
+
+    private void clear(String cacheName) {
+        final Cache cache = cacheManager.getCache(cacheName);
+        if (cache != null) {
+            cache.clear();
+        }
+    }
+
+    /**
+     * Evicts the entries of a cache whose keys match. Only Caffeine, concurrent map and tiered caches can be searched;
+     * any other cache is cleared.
+     */
+    private void evictIf(String cacheName, Predicate<Object> keys) {
+        final Cache cache = cacheManager.getCache(cacheName);
+        if (cache == null) {
+            return;
+        }
+        if (cache instanceof TieredCache) {
+            ((TieredCache) cache).evictIf(keys);
+            return;
+        }
+        final Object nativeCache = cache.getNativeCache();
+        if (nativeCache instanceof com.github.benmanes.caffeine.cache.Cache) {
+            ((com.github.benmanes.caffeine.cache.Cache<?, ?>) nativeCache).asMap().keySet().removeIf(keys);
+        } else if (nativeCache instanceof Map) {
+            ((Map<?, ?>) nativeCache).keySet().removeIf(keys);
+        } else {
+            cache.clear();
+        }
+    }
+
+    private static Predicate<Object> firstParameterIn(Collection<String> ids) {
+        return key -> key instanceof List && !((List<?>) key).isEmpty() && ids.contains(((List<?>) key).get(0));
+    }
+}
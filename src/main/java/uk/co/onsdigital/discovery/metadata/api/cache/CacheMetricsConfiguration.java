@@ -0,0 +1,39 @@
+package uk.co.onsdigital.discovery.metadata.api.cache;
+
+import com.codahale.metrics.MetricRegistry;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.cache.CacheManager;
+import org.springframework.cache.annotation.CachingConfigurerSupport;
+import org.springframework.cache.interceptor.CacheResolver;
+import org.springframework.cache.interceptor.KeyGenerator;
+import org.springframework.context.annotation.Bean;
+import org.springframework.context.annotation.Configuration;
+
+/**
+ * Counts the hits and misses of every cache used through the caching annotations, and keys their entries by the list
+ * of method parameters so that they can be invalidated selectively.
+ */
+@Configuration
+public class CacheMetricsConfiguration extends CachingConfigurerSupport {
+
+    private final CacheManager cacheManager;
+    private final MetricRegistry metricRegistry;
+
+    @Autowired
+    public CacheMetricsConfiguration(CacheManager cacheManager, MetricRegistry metricRegistry) {
+        this.cacheManager = cacheManager;
+        this.metricRegistry = metricRegistry;
+    }
+
+    @Bean
+    @Override
+    public CacheResolver cacheResolver() {
+        return new InstrumentedCacheResolver(cacheManager, metricRegistry);
+    }
+
+    @Bean
+    @Override
+    public KeyGenerator keyGenerator() {
+        return new ParameterListKeyGenerator();
+    }
+}
@@ -0,0 +1,185 @@
+package uk.co.onsdigital.discovery.metadata.api.cache;
+
+import com.fasterxml.jackson.databind.JsonNode;
+import com.fasterxml.jackson.databind.node.MissingNode;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.boot.context.event.ApplicationReadyEvent;
+import org.springframework.boot.web.client.RestTemplateBuilder;
+import org.springframework.context.event.EventListener;
+import org.springframework.stereotype.Component;
+import org.springframework.web.client.RestClientException;
+import org.springframework.web.client.RestTemplate;
+import org.springframework.web.util.UriComponentsBuilder;
+
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.ThreadFactory;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
+
+/**
+ * Fills the response caches once the application has started, by requesting every hierarchy and the dimensions of the
+ * latest version of every dataset from this server, so that the first client requests after a deploy do not all miss
+ * at once. The requests go through HTTP rather than calling the service directly so that they take exactly the same
+ * path as client requests, warming everything from the database connections to the serialized responses.
+ * <p>
+ * Until warm-up has finished (or timed out) {@link #isWarm()} returns {@code false}, which the health check reports so
+ * that the load balancer only routes traffic to warm nodes.
+ */
+@Component
+public class CacheWarmer {
+    private static final Logger logger = LoggerFactory.getLogger(CacheWarmer.class);
+
+    static final int PAGE_SIZE = 100;
+
+    private final RestTemplate restTemplate;
+    private final boolean enabled;
+    private final int threads;
+    private final long timeoutMinutes;
+
+    private volatile boolean warm;
+
+    @Autowired
+    public CacheWarmer(RestTemplateBuilder restTemplateBuilder,
+                       @Value("${cache.warmup.enabled:true}") boolean enabled,
+                       @Value("${cache.warmup.threads:4}") int threads,
+                       @Value("${cache.warmup.timeout.minutes:10}") long timeoutMinutes) {
+        this(restTemplateBuilder.build(), enabled, threads, timeoutMinutes);
+    }
+
+    CacheWarmer(RestTemplate restTemplate, boolean enabled, int threads, long timeoutMinutes) {
+        this.restTemplate = restTemplate;
+        this.enabled = enabled;
+        this.threads = threads;
+        this.timeoutMinutes = timeoutMinutes;
+        this.warm = !enabled;
+    }
+
+    /**
+     * @return whether warm-up has finished, or is disabled.
+     */
+    public boolean isWarm() {
+        return warm;
+    }
+
+    @EventListener
+    public void onApplicationReady(ApplicationReadyEvent event) {
+        if (!enabled) {
+            logger.info("Cache warm-up is disabled");
+            return;
+        }
+
+        final String port = event.getApplicationContext().getEnvironment().getProperty("local.server.port");
+        if (port == null) {
+            logger.info("Not running in a web server, skipping cache warm-up");
+            warm = true;
+            return;
+        }
+
+        final Thread thread = new Thread(() -> warmUp("http://localhost:" + port), "cache-warmup");
+        thread.setDaemon(true);
+        thread.start();
+    }
+
+    /**
+     * Requests every resource to be cached, with at most the configured number of requests in flight, and then marks
+     * the caches as warm. Failed requests are logged and skipped.
+     *
+     * @param baseUrl the URL of this server.
+     */
+    void warmUp(String baseUrl) {
+        logger.info("Warming caches with {} threads", threads);
+        final long start = System.currentTimeMillis();
+        final long deadline = start + TimeUnit.MINUTES.toMillis(timeoutMinutes);
+        final AtomicInteger requests = new AtomicInteger();
+        final AtomicInteger failures = new AtomicInteger();
+        final ExecutorService executor = Executors.newFixedThreadPool(threads, daemonThreads());
+
+        try {
+            for (JsonNode hierarchy : get(requests, failures, baseUrl + "/hierarchies")) {
+                final String hierarchyId = hierarchy.path("id").asText();
+                executor.execute(() -> get(requests, failures, baseUrl + "/hierarchies/{id}", hierarchyId));
+            }
+
+            for (String after = ""; after != null && System.currentTimeMillis() < deadline; ) {
+                final JsonNode page = get(requests, failures, baseUrl + "/datasets?after={after}&size={size}&totals=false",
+                        after, PAGE_SIZE);
+                for (JsonNode dataResource : page.path("items")) {
+                    final JsonNode latest = dataResource.path("latest");
+                    if (latest.hasNonNull("edition") && latest.hasNonNull("version")) {
+                        final String datasetId = dataResource.path("datasetId").asText();
+                        final String edition = latest.path("edition").asText();
+                        final String version = latest.path("version").asText();
+                        executor.execute(() -> warmDimensions(requests, failures, baseUrl, datasetId, edition, version));
+                    }
+                }
+                after = nextCursor(page);
+            }
+
+            executor.shutdown();
+            if (!executor.awaitTermination(Math.max(deadline - System.currentTimeMillis(), 0), TimeUnit.MILLISECONDS)) {
+                logger.warn("Cache warm-up did not finish within {} minutes, abandoning it", timeoutMinutes);
+            }
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+        } catch (RuntimeException e) {
+            logger.error("Cache warm-up failed", e);
+        } finally {
+            executor.shutdownNow();
+            warm = true;
+            logger.info("Cache warm-up finished after {} requests ({} failed) in {} ms", requests.get(), failures.get(),
+                    System.currentTimeMillis() - start);
+        }
+    }
+
+    private void warmDimensions(AtomicInteger requests, AtomicInteger failures, String baseUrl, String datasetId,
+                                String edition, String version) {
+        final String dimensionsUrl = baseUrl + "/datasets/{id}/editions/{edition}/versions/{version}/dimensions";
+        for (JsonNode dimension : get(requests, failures, dimensionsUrl, datasetId, edition, version)) {
+            if (Thread.currentThread().isInterrupted()) {
+                return;
+            }
+            get(requests, failures, dimensionsUrl + "/{dimension}", datasetId, edition, version,
+                    dimension.path("name").asText());
+        }
+    }
+
+    /**
+     * Gets a resource from this server, returning a missing node rather than throwing if the request fails, so that
+     * one bad dataset does not stop the rest of the caches from being warmed.
+     */
+    private JsonNode get(AtomicInteger requests, AtomicInteger failures, String url, Object... uriVariables) {
+        requests.incrementAndGet();
+        try {
+            final JsonNode result = restTemplate.getForObject(url, JsonNode.class, uriVariables);
+            return result != null ? result : MissingNode.getInstance();
+        } catch (RestClientException e) {
+            failures.incrementAndGet();
+            logger.warn("Cache warm-up request failed: {}", e.getMessage());
+            return MissingNode.getInstance();
+        }
+    }
+
+    /**
+     * Extracts the cursor from the {@code next} link of a page. The link itself points at the public URL of the API,
+     * which may not be reachable from here.
+     */
+    private static String nextCursor(JsonNode page) {
+        if (!page.hasNonNull("next")) {
+            return null;
+        }
+        return UriComponentsBuilder.fromHttpUrl(page.get("next").asText()).build().getQueryParams().getFirst("after");
+    }
+
+    private static ThreadFactory daemonThreads() {
+        final AtomicInteger count = new AtomicInteger();
+        return runnable -> {
+            final Thread thread = new Thread(runnable, "cache-warmup-" + count.incrementAndGet());
+            thread.setDaemon(true);
+            return thread;
+        };
+    }
+}
@@ -0,0 +1,138 @@
+package uk.co.onsdigital.discovery.metadata.api.cache;
+
+import com.codahale.metrics.Meter;
+import com.codahale.metrics.MetricRegistry;
+import org.springframework.cache.Cache;
+
+import java.util.concurrent.Callable;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ConcurrentMap;
+import java.util.concurrent.ExecutionException;
+
+/**
+ * Counts the hits and misses of a Spring cache as {@code cache.<name>.hits} and {@code cache.<name>.misses}, whatever
+ * the cache provider.
+ * <p>
+ * Loads through {@link #get(Object, Callable)}, as made by {@code @Cacheable(sync = true)}, are also coalesced: while
+ * a value is being loaded, other requests for the same key wait for it instead of loading it again, and are counted as
+ * {@code cache.<name>.coalesced}. The value is loaded outside the provider and then put: a concurrent map cache
+ * locks the whole cache while loading, and a Caffeine cache part of its map, so loads of other keys would wait.
+ */
+public class InstrumentedCache implements Cache {
+
+    private final Cache delegate;
+    private final Meter hits;
+    private final Meter misses;
+    private final Meter coalesced;
+    private final ConcurrentMap<Object, CompletableFuture<Object>> loading = new ConcurrentHashMap<>();
+
+    public InstrumentedCache(Cache delegate, MetricRegistry metricRegistry) {
+        this.delegate = delegate;
+        this.hits = metricRegistry.meter(MetricRegistry.name("cache", delegate.getName(), "hits"));
+        this.misses = metricRegistry.meter(MetricRegistry.name("cache", delegate.getName(), "misses"));
+        this.coalesced = metricRegistry.meter(MetricRegistry.name("cache", delegate.getName(), "coalesced"));
+    }
+
+    @Override
+    public String getName() {
+        return delegate.getName();
+    }
+
+    @Override
+    public Object getNativeCache() {
+        return delegate.getNativeCache();
+    }
+
+    @Override
+    public ValueWrapper get(Object key) {
+        return record(delegate.get(key));
+    }
+
+    @Override
+    public <T> T get(Object key, Class<T> type) {
+        return record(delegate.get(key, type));
+    }
+
+    @Override
+    @SuppressWarnings("unchecked")
+    public <T> T get(Object key, Callable<T> valueLoader) {
+        final ValueWrapper cached = delegate.get(key);
+        if (cached != null) {
+            hits.mark();
+            return (T) cached.get();
+        }
+
+        final CompletableFuture<Object> load = new CompletableFuture<>();
+        final CompletableFuture<Object> inProgress = loading.putIfAbsent(key, load);
+        if (inProgress != null) {
+            coalesced.mark();
+            return (T) await(inProgress, key, valueLoader);
+        }
+        try {
+            // Another load may have finished between the first lookup and registering this one
+            final ValueWrapper loaded = delegate.get(key);
+            if (loaded != null) {
+                hits.mark();
+                load.complete(loaded.get());
+                return (T) loaded.get();
+            }
+            misses.mark();
+            // Load outside the provider, which would otherwise hold a lock while loading
+            final T value;
+            try {
+                value = valueLoader.call();
+            } catch (Exception e) {
+                throw new ValueRetrievalException(key, valueLoader, e);
+            }
+            delegate.put(key, value);
+            load.complete(value);
+            return value;
+        } catch (RuntimeException | Error e) {
+            // Waiting requests fail with the same exception, so that the caching aspect unwraps it in the same way
+            load.completeExceptionally(e);
+            throw e;
+        } finally {
+            loading.remove(key, load);
+        }
+    }
+
+    private static Object await(CompletableFuture<Object> load, Object key, Callable<?> valueLoader) {
+        try {
+            return load.get();
+        } catch (ExecutionException e) {
+            if (e.getCause() instanceof RuntimeException) {
+                throw (RuntimeException) e.getCause();
+            }
+            throw (Error) e.getCause();
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+            throw new ValueRetrievalException(key, valueLoader, e);
+        }
+    }
+
+    @Override
+    public void put(Object key, Object value) {
+        delegate.put(key, value);
+    }
+
+    @Override
+    public ValueWrapper putIfAbsent(Object key, Object value) {
+        return delegate.putIfAbsent(key, value);
+    }
+
+    @Override
+    public void evict(Object key) {
+        delegate.evict(key);
+    }
+
+    @Override
+    public void clear() {
+        delegate.clear();
+    }
+
+    private <T> T record(T value) {
+        (value != null ? hits : misses).mark();
+        return value;
+    }
+}
@@ -0,0 +1,35 @@
+package uk.co.onsdigital.discovery.metadata.api.cache;
+
+import com.codahale.metrics.MetricRegistry;
+import org.springframework.cache.Cache;
+import org.springframework.cache.CacheManager;
+import org.springframework.cache.interceptor.CacheOperationInvocationContext;
+import org.springframework.cache.interceptor.SimpleCacheResolver;
+
+import java.util.Collection;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ConcurrentMap;
+
+import static java.util.stream.Collectors.toList;
+
+/**
+ * Resolves the caches named in caching annotations as usual, wrapped in an {@link InstrumentedCache}. Only cache
+ * operations made through the annotations are counted; the cache manager itself still returns the underlying caches.
+ */
+public class InstrumentedCacheResolver extends SimpleCacheResolver {
+
+    private final MetricRegistry metricRegistry;
+    private final ConcurrentMap<Cache, Cache> instrumentedCaches = new ConcurrentHashMap<>();
+
+    public InstrumentedCacheResolver(CacheManager cacheManager, MetricRegistry metricRegistry) {
+        super(cacheManager);
+        this.metricRegistry = metricRegistry;
+    }
+
+    @Override
+    public Collection<? extends Cache> resolveCaches(CacheOperationInvocationContext<?> context) {
+        return super.resolveCaches(context).stream()
+                .map(cache -> instrumentedCaches.computeIfAbsent(cache, c -> new InstrumentedCache(c, metricRegistry)))
+                .collect(toList());
+    }
+}
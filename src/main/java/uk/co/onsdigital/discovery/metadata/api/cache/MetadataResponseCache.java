@@ -0,0 +1,176 @@
+package uk.co.onsdigital.discovery.metadata.api.cache;
+
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.cache.annotation.Cacheable;
+import org.springframework.stereotype.Component;
+import uk.co.onsdigital.discovery.metadata.api.exception.DataSetNotFoundException;
+import uk.co.onsdigital.discovery.metadata.api.exception.DimensionNotFoundException;
+import uk.co.onsdigital.discovery.metadata.api.service.DimensionViewType;
+import uk.co.onsdigital.discovery.metadata.api.service.MetadataService;
+import uk.co.onsdigital.discovery.metadata.api.service.OptionFilter;
+
+import static uk.co.onsdigital.discovery.metadata.api.controller.MetadataController.DATASETS;
+import static uk.co.onsdigital.discovery.metadata.api.controller.MetadataController.DATASETS_TEMP;
+import static uk.co.onsdigital.discovery.metadata.api.controller.MetadataController.DIMENSIONS;
+import static uk.co.onsdigital.discovery.metadata.api.controller.MetadataController.HIERARCHIES;
+import static uk.co.onsdigital.discovery.metadata.api.controller.MetadataController.HIERARCHIES_TEMP;
+
+/**
+ * Caches the serialized form of {@link MetadataService} responses, so that a cache hit only needs to copy bytes to the
+ * client (or compare ETags) rather than re-serializing the response. Every cached method is synchronized, so
+ * concurrent misses for the same response wait for a single load (see {@link InstrumentedCache}).
+ */
+@Component
+public class MetadataResponseCache {
+
+    private final MetadataService metadataService;
+    private final ResponseSerializer responseSerializer;
+
+    @Autowired
+    public MetadataResponseCache(MetadataService metadataService, ResponseSerializer responseSerializer) {
+        this.metadataService = metadataService;
+        this.responseSerializer = responseSerializer;
+    }
+
+    @Cacheable(value = DATASETS_TEMP, sync = true, key = "{#root.methodName, #p0, #p1, #p2}")
+    public SerializedResponse listAvailableDataResources(int pageNumber, int pageSize, boolean includeTotal) {
+        return responseSerializer.serialize(metadataService.listAvailableDataResources(pageNumber, pageSize, includeTotal));
+    }
+
+    @Cacheable(value = DATASETS_TEMP, sync = true, key = "{#root.methodName, #p0, #p1, #p2}")
+    public SerializedResponse listAvailableVersions(int pageNumber, int pageSize, boolean includeTotal) {
+        return responseSerializer.serialize(metadataService.listAvailableVersions(pageNumber, pageSize, includeTotal));
+    }
+
+    @Cacheable(value = DATASETS_TEMP, sync = true, key = "{#root.methodName, #p0, #p1, #p2}")
+    public SerializedResponse listAvailableDataResourcesAfter(String cursor, int pageSize, boolean includeTotal) {
+        return responseSerializer.serialize(metadataService.listAvailableDataResourcesAfter(cursor, pageSize, includeTotal));
+    }
+
+    @Cacheable(value = DATASETS_TEMP, sync = true, key = "{#root.methodName, #p0, #p1, #p2}")
+    public SerializedResponse listAvailableVersionsAfter(String cursor, int pageSize, boolean includeTotal) {
+        return responseSerializer.serialize(metadataService.listAvailableVersionsAfter(cursor, pageSize, includeTotal));
+    }
+
+    @Cacheable(value = DATASETS_TEMP, sync = true)
+    public SerializedResponse findDataSetByUuid(String dataSetId) throws DataSetNotFoundException {
+        return responseSerializer.serialize(metadataService.findDataSetByUuid(dataSetId));
+    }
+
+    @Cacheable(value = DATASETS, sync = true)
+    public SerializedResponse findDataResource(String dataResourceId) throws DataSetNotFoundException {
+        return responseSerializer.serialize(metadataService.findDataResource(dataResourceId));
+    }
+
+    @Cacheable(value = DATASETS, sync = true)
+    public SerializedResponse findDataSetByEditionAndVersion(String dataResourceId, String edition, int version)
+            throws DataSetNotFoundException {
+        return responseSerializer.serialize(metadataService.findDataSetByEditionAndVersion(dataResourceId, edition, version));
+    }
+
+    @Cacheable(value = DIMENSIONS, sync = true)
+    public SerializedResponse listDimensionsForDataSetUuid(String dataSetId) throws DataSetNotFoundException {
+        return responseSerializer.serialize(metadataService.listDimensionsForDataSetUuid(dataSetId));
+    }
+
+    @Cacheable(value = DIMENSIONS, sync = true)
+    public SerializedResponse listDimensionsForDataSetEditionVersion(String dataResourceId, String edition, int version)
+            throws DataSetNotFoundException {
+        return responseSerializer.serialize(metadataService.listDimensionsForDataSetEditionVersion(dataResourceId, edition, version));
+    }
+
+    @Cacheable(value = DIMENSIONS, sync = true)
+    public SerializedResponse findDimensionByIdWithDatasetUuid(String dataSetId, String dimensionId, DimensionViewType viewType)
+            throws DataSetNotFoundException, DimensionNotFoundException {
+        return responseSerializer.serialize(metadataService.findDimensionByIdWithDatasetUuid(dataSetId, dimensionId, viewType));
+    }
+
+    @Cacheable(value = DIMENSIONS, sync = true)
+    public SerializedResponse findDimensionByIdWithEditionVersion(String dataSetId, String edition, int version,
+                                                                  String dimensionId, DimensionViewType viewType)
+            throws DataSetNotFoundException, DimensionNotFoundException {
+        return responseSerializer.serialize(
+                metadataService.findDimensionByIdWithEditionVersion(dataSetId, edition, version, dimensionId, viewType));
+    }
+
+    /**
+     * Serializes a filtered page of the options of a dimension. This is not cached, as there are too many combinations
+     * of filters for any one of them to be requested often; the index that the options are selected from is cached by
+     * the service instead.
+     */
+    public SerializedResponse findDimensionOptionsWithDatasetUuid(String dataSetId, String dimensionId, OptionFilter filter)
+            throws DataSetNotFoundException, DimensionNotFoundException {
+        return responseSerializer.serialize(metadataService.findDimensionOptionsWithDatasetUuid(dataSetId, dimensionId, filter));
+    }
+
+    /**
+     * Serializes a filtered page of the options of a dimension, without caching it, as for
+     * {@link #findDimensionOptionsWithDatasetUuid(String, String, OptionFilter)}.
+     */
+    public SerializedResponse findDimensionOptionsWithEditionVersion(String dataSetId, String edition, int version,
+                                                                     String dimensionId, OptionFilter filter)
+            throws DataSetNotFoundException, DimensionNotFoundException {
+        return responseSerializer.serialize(
+                metadataService.findDimensionOptionsWithEditionVersion(dataSetId, edition, version, dimensionId, filter));
+    }
+
+    /**
+     * Serializes a slice of the hierarchy view of a dimension, caching it like the full view.
+     */
+    @Cacheable(value = DIMENSIONS, sync = true)
+    public SerializedResponse findDimensionSliceWithDatasetUuid(String dataSetId, String dimensionId, String rootCode,
+                                                                int depth)
+            throws DataSetNotFoundException, DimensionNotFoundException {
+        return responseSerializer.serialize(
+                metadataService.findDimensionSliceWithDatasetUuid(dataSetId, dimensionId, rootCode, depth));
+    }
+
+    @Cacheable(value = DIMENSIONS, sync = true)
+    public SerializedResponse findDimensionSliceWithEditionVersion(String dataSetId, String edition, int version,
+                                                                   String dimensionId, String rootCode, int depth)
+            throws DataSetNotFoundException, DimensionNotFoundException {
+        return responseSerializer.serialize(
+                metadataService.findDimensionSliceWithEditionVersion(dataSetId, edition, version, dimensionId, rootCode, depth));
+    }
+
+    /**
+     * Serializes the options of a dimension that start with a prefix. Like filtered options, this is not cached; the
+     * index that is searched is cached by the service.
+     */
+    public SerializedResponse searchDimensionOptionsWithDatasetUuid(String dataSetId, String dimensionId, String prefix,
+                                                                    int limit)
+            throws DataSetNotFoundException, DimensionNotFoundException {
+        return responseSerializer.serialize(
+                metadataService.searchDimensionOptionsWithDatasetUuid(dataSetId, dimensionId, prefix, limit));
+    }
+
+    /**
+     * Serializes the options of a dimension that start with a prefix, without caching it, as for
+     * {@link #searchDimensionOptionsWithDatasetUuid(String, String, String, int)}.
+     */
+    public SerializedResponse searchDimensionOptionsWithEditionVersion(String dataSetId, String edition, int version,
+                                                                       String dimensionId, String prefix, int limit)
+            throws DataSetNotFoundException, DimensionNotFoundException {
+        return responseSerializer.serialize(
+                metadataService.searchDimensionOptionsWithEditionVersion(dataSetId, edition, version, dimensionId, prefix, limit));
+    }
+
+    @Cacheable(value = HIERARCHIES_TEMP, sync = true)
+    public SerializedResponse listHierarchies() {
+        return responseSerializer.serialize(metadataService.listHierarchies());
+    }
+
+    @Cacheable(value = HIERARCHIES, sync = true)
+    public SerializedResponse getHierarchy(String hierarchyId) throws DimensionNotFoundException {
+        return responseSerializer.serialize(metadataService.getHierarchy(hierarchyId));
+    }
+
+    /**
+     * Serializes a slice of a hierarchy. Slices are small, and clients expanding a tree one entry at a time request
+     * the same few of them, so they are cached alongside the full hierarchies.
+     */
+    @Cacheable(value = HIERARCHIES, sync = true)
+    public SerializedResponse getHierarchySlice(String hierarchyId, String rootCode, int depth) throws DimensionNotFoundException {
+        return responseSerializer.serialize(metadataService.getHierarchySlice(hierarchyId, rootCode, depth));
+    }
+}
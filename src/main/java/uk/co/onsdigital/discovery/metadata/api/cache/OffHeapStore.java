@@ -0,0 +1,207 @@
+package uk.co.onsdigital.discovery.metadata.api.cache;
+
+import com.sun.management.HotSpotDiagnosticMXBean;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+
+import java.io.IOException;
+import java.lang.management.ManagementFactory;
+import java.nio.ByteBuffer;
+import java.nio.MappedByteBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.file.DirectoryStream;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.StandardOpenOption;
+import java.util.Queue;
+import java.util.concurrent.ConcurrentLinkedQueue;
+import java.util.concurrent.Executors;
+import java.util.concurrent.ScheduledExecutorService;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Copies serialized responses off the heap, so that large responses do not fill the old generation and lengthen
+ * garbage collection pauses. Responses are copied into direct buffers, or, if a directory is given, into files that are
+ * mapped into memory. Mapped responses are paged in and out by the operating system, and can be sent to clients
+ * straight from their files.
+ * <p>
+ * Direct buffers are freed when they are garbage collected, and count towards {@code -XX:MaxDirectMemorySize}; see
+ * {@link #capacity()}. Files are deleted a while after they are {@linkplain #release(SerializedResponse) released}, as
+ * a response may still be being sent from them, and the directory that holds them is deleted on {@link #close()}.
+ */
+public class OffHeapStore implements AutoCloseable {
+    private static final Logger logger = LoggerFactory.getLogger(OffHeapStore.class);
+
+    private static final long DELETE_DELAY_MILLIS = TimeUnit.MINUTES.toMillis(1);
+
+    private final Path directory;
+    private final long deleteDelayMillis;
+    private final Queue<Released> released = new ConcurrentLinkedQueue<>();
+    private final ScheduledExecutorService deleter;
+
+    /**
+     * @param parentDirectory the directory to create files under, or {@code null} to use direct buffers.
+     */
+    public OffHeapStore(Path parentDirectory) throws IOException {
+        this(parentDirectory, DELETE_DELAY_MILLIS);
+    }
+
+    OffHeapStore(Path parentDirectory, long deleteDelayMillis) throws IOException {
+        this.deleteDelayMillis = deleteDelayMillis;
+        if (parentDirectory != null) {
+            Files.createDirectories(parentDirectory);
+            this.directory = Files.createTempDirectory(parentDirectory, "responses-");
+            // Released files are otherwise only deleted when a later response is released
+            this.deleter = Executors.newSingleThreadScheduledExecutor(runnable -> {
+                final Thread thread = new Thread(runnable, "offheap-deleter");
+                thread.setDaemon(true);
+                return thread;
+            });
+            deleter.scheduleWithFixedDelay(() -> deleteReleasedFiles(System.currentTimeMillis() - deleteDelayMillis),
+                    deleteDelayMillis, deleteDelayMillis, TimeUnit.MILLISECONDS);
+            logger.info("Storing large responses in {}", directory);
+        } else {
+            this.directory = null;
+            this.deleter = null;
+            logger.info("Storing large responses in direct buffers, up to {} MB", capacity() / (1024L * 1024L));
+        }
+    }
+
+    /**
+     * The number of bytes of responses that can be held. Direct buffers may take up to three quarters of the
+     * {@code -XX:MaxDirectMemorySize} limit (which defaults to the maximum heap size), leaving the rest for I/O.
+     * Files are only limited by the disk.
+     */
+    public long capacity() {
+        return directory != null ? Long.MAX_VALUE : maxDirectMemory() / 4L * 3L;
+    }
+
+    /**
+     * Copies a response off the heap.
+     *
+     * @param response the response to copy.
+     * @return a response with the same content and ETag, held off the heap.
+     * @throws IOException if the response cannot be written to a file, or there is not enough direct memory for it.
+     */
+    public SerializedResponse copy(SerializedResponse response) throws IOException {
+        final byte[] content = response.getContent().toByteArray();
+        final byte[] gzippedContent = response.getGzippedContent() != null
+                ? response.getGzippedContent().toByteArray() : null;
+        return directory != null
+                ? map(content, gzippedContent, response.getEtag())
+                : allocate(content, gzippedContent, response.getEtag());
+    }
+
+    /**
+     * Gives up the storage of a response returned by {@link #copy(SerializedResponse)}.
+     */
+    public void release(SerializedResponse response) {
+        final Path file = response.getContent().getFile();
+        if (file != null) {
+            released.add(new Released(file, System.currentTimeMillis()));
+        }
+        deleteReleasedFiles(System.currentTimeMillis() - deleteDelayMillis);
+    }
+
+    @Override
+    public void close() {
+        if (directory != null) {
+            deleter.shutdownNow();
+            deleteReleasedFiles(Long.MAX_VALUE);
+            try (DirectoryStream<Path> files = Files.newDirectoryStream(directory)) {
+                for (Path file : files) {
+                    Files.deleteIfExists(file);
+                }
+                Files.deleteIfExists(directory);
+            } catch (IOException e) {
+                logger.warn("Unable to delete {}: {}", directory, e.toString());
+            }
+        }
+    }
+
+    private static SerializedResponse allocate(byte[] content, byte[] gzippedContent, String etag) throws IOException {
+        return new SerializedResponse(new ResponseContent(direct(content), null, 0L),
+                gzippedContent != null ? new ResponseContent(direct(gzippedContent), null, 0L) : null, etag);
+    }
+
+    private static ByteBuffer direct(byte[] bytes) throws IOException {
+        final ByteBuffer buffer;
+        try {
+            buffer = ByteBuffer.allocateDirect(bytes.length);
+        } catch (OutOfMemoryError e) {
+            // Thrown when the direct memory limit is reached, which leaves the heap and the rest of the JVM usable
+            throw new IOException("Unable to allocate " + bytes.length + " bytes of direct memory", e);
+        }
+        buffer.put(bytes).flip();
+        return buffer;
+    }
+
+    private static long maxDirectMemory() {
+        try {
+            final HotSpotDiagnosticMXBean diagnostics = ManagementFactory.getPlatformMXBean(HotSpotDiagnosticMXBean.class);
+            final long configured = Long.parseLong(diagnostics.getVMOption("MaxDirectMemorySize").getValue());
+            if (configured > 0) {
+                return configured;
+            }
+        } catch (RuntimeException e) {
+            logger.debug("Unable to read MaxDirectMemorySize: {}", e.toString());
+        }
+        return Runtime.getRuntime().maxMemory();
+    }
+
+    /**
+     * Writes the content and gzipped content one after the other into a new file, and maps the file.
+     */
+    private SerializedResponse map(byte[] content, byte[] gzippedContent, String etag) throws IOException {
+        final Path file = Files.createTempFile(directory, "response-", ".json");
+        final MappedByteBuffer mapped;
+        try (FileChannel channel = FileChannel.open(file, StandardOpenOption.READ, StandardOpenOption.WRITE)) {
+            write(channel, content);
+            if (gzippedContent != null) {
+                write(channel, gzippedContent);
+            }
+            mapped = channel.map(FileChannel.MapMode.READ_ONLY, 0L, channel.size());
+        } catch (IOException | RuntimeException e) {
+            Files.deleteIfExists(file);
+            throw e;
+        }
+        return new SerializedResponse(new ResponseContent(slice(mapped, 0, content.length), file, 0L),
+                gzippedContent != null ? new ResponseContent(slice(mapped, content.length, gzippedContent.length),
+                        file, content.length) : null, etag);
+    }
+
+    private static void write(FileChannel channel, byte[] bytes) throws IOException {
+        final ByteBuffer buffer = ByteBuffer.wrap(bytes);
+        while (buffer.hasRemaining()) {
+            channel.write(buffer);
+        }
+    }
+
+    private static ByteBuffer slice(ByteBuffer buffer, int offset, int length) {
+        final ByteBuffer duplicate = buffer.duplicate();
+        duplicate.position(offset).limit(offset + length);
+        return duplicate.slice();
+    }
+
+    private void deleteReleasedFiles(long releasedBefore) {
+        for (Released file = released.peek(); file != null && file.millis <= releasedBefore; file = released.peek()) {
+            if (released.remove(file)) {
+                try {
+                    Files.deleteIfExists(file.path);
+                } catch (IOException e) {
+                    logger.warn("Unable to delete {}: {}", file.path, e.toString());
+                }
+            }
+        }
+    }
+
+    private static final class Released {
+        private final Path path;
+        private final long millis;
+
+        private Released(Path path, long millis) {
+            this.path = path;
+            this.millis = millis;
+        }
+    }
+}
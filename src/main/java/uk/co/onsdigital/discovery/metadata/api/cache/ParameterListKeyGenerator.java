@@ -0,0 +1,20 @@
+package uk.co.onsdigital.discovery.metadata.api.cache;
+
+import org.springframework.cache.interceptor.KeyGenerator;
+
+import java.lang.reflect.Method;
+import java.util.Arrays;
+import java.util.Collections;
+
+/**
+ * Generates the key of a cached method call as the list of its parameters. Unlike Spring's default keys, the
+ * parameters of a list can be read back, so that {@link CacheInvalidator} can find every entry for a given dataset or
+ * hierarchy by its first parameter.
+ */
+public class ParameterListKeyGenerator implements KeyGenerator {
+
+    @Override
+    public Object generate(Object target, Method method, Object... params) {
+        return Collections.unmodifiableList(Arrays.asList(params.clone()));
+    }
+}
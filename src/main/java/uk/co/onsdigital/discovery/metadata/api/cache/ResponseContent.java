@@ -0,0 +1,93 @@
+package uk.co.onsdigital.discovery.metadata.api.cache;
+
+import java.io.IOException;
+import java.io.OutputStream;
+import java.nio.ByteBuffer;
+import java.nio.channels.Channels;
+import java.nio.file.Path;
+
+import static java.util.Objects.requireNonNull;
+
+/**
+ * The bytes of a serialized response body, held either in a heap array or off the heap (see {@link OffHeapStore}),
+ * in a direct buffer or in a region of a file that is mapped into memory. File-backed content can be sent to the
+ * client straight from the file, without being copied through the JVM.
+ */
+public final class ResponseContent {
+    private final byte[] array;
+    private final ByteBuffer buffer;
+    private final Path file;
+    private final long fileOffset;
+
+    ResponseContent(byte[] array) {
+        this.array = requireNonNull(array);
+        this.buffer = null;
+        this.file = null;
+        this.fileOffset = 0L;
+    }
+
+    /**
+     * @param buffer the content, from position zero to the limit.
+     * @param file the file that the buffer is mapped from, or {@code null}.
+     * @param fileOffset the position of the content in the file.
+     */
+    ResponseContent(ByteBuffer buffer, Path file, long fileOffset) {
+        this.array = null;
+        this.buffer = buffer.asReadOnlyBuffer();
+        this.file = file;
+        this.fileOffset = fileOffset;
+    }
+
+    /**
+     * @return the number of bytes of content.
+     */
+    public int length() {
+        return array != null ? array.length : buffer.limit();
+    }
+
+    /**
+     * @return whether the content is held off the heap.
+     */
+    public boolean isOffHeap() {
+        return array == null;
+    }
+
+    /**
+     * @return the content as an array, which is copied onto the heap if the content is held off it. Heap arrays are
+     * returned as they are and must not be modified.
+     */
+    public byte[] toByteArray() {
+        if (array != null) {
+            return array;
+        }
+        final byte[] copy = new byte[buffer.limit()];
+        buffer.duplicate().get(copy);
+        return copy;
+    }
+
+    /**
+     * Writes the content to a stream. Off-heap content is copied through a small buffer rather than onto the heap in
+     * one piece.
+     */
+    public void writeTo(OutputStream out) throws IOException {
+        if (array != null) {
+            out.write(array);
+        } else {
+            Channels.newChannel(out).write(buffer.duplicate());
+        }
+    }
+
+    /**
+     * @return the file that holds the content, or {@code null} if it is not held in a file.
+     */
+    public Path getFile() {
+        return file;
+    }
+
+    /**
+     * @return the position of the content in its {@linkplain #getFile() file}.
+     */
+    public long getFileOffset() {
+        return fileOffset;
+    }
+}
@@ -0,0 +1,67 @@
+package uk.co.onsdigital.discovery.metadata.api.cache;
+
+import com.fasterxml.jackson.core.JsonProcessingException;
+import com.fasterxml.jackson.databind.ObjectMapper;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.stereotype.Component;
+import org.springframework.util.DigestUtils;
+
+import java.io.ByteArrayOutputStream;
+import java.io.IOException;
+import java.util.zip.GZIPOutputStream;
+
+import static java.util.Objects.requireNonNull;
+
+/**
+ * Serializes response bodies to the bytes that will be cached and sent to clients, using the same
+ * {@link ObjectMapper} as Spring MVC so that the output is identical to a normal controller response.
+ */
+@Component
+public class ResponseSerializer {
+    /**
+     * Responses smaller than this are not worth compressing.
+     */
+    static final int MIN_GZIP_SIZE = 1024;
+
+    private final ObjectMapper objectMapper;
+    private final boolean gzipEnabled;
+
+    @Autowired
+    public ResponseSerializer(ObjectMapper objectMapper, @Value("${cache.gzip.responses:true}") boolean gzipEnabled) {
+        this.objectMapper = requireNonNull(objectMapper);
+        this.gzipEnabled = gzipEnabled;
+    }
+
+    /**
+     * Serializes the given response body.
+     *
+     * @param body the object to serialize.
+     * @return the serialized response with its ETag, including a gzipped copy if compression is enabled and worthwhile.
+     */
+    public SerializedResponse serialize(Object body) {
+        try {
+            final byte[] content = objectMapper.writeValueAsBytes(body);
+            final byte[] gzippedContent = gzipEnabled && content.length >= MIN_GZIP_SIZE ? gzip(content) : null;
+            return new SerializedResponse(new ResponseContent(content),
+                    gzippedContent != null ? new ResponseContent(gzippedContent) : null, etag(content));
+        } catch (JsonProcessingException e) {
+            throw new IllegalStateException("Unable to serialize response", e);
+        }
+    }
+
+    private static String etag(byte[] content) {
+        return '"' + DigestUtils.md5DigestAsHex(content) + '"';
+    }
+
+    private static byte[] gzip(byte[] content) {
+        final ByteArrayOutputStream out = new ByteArrayOutputStream(content.length / 4);
+        try (GZIPOutputStream gzip = new GZIPOutputStream(out)) {
+            gzip.write(content);
+        } catch (IOException e) {
+            // Cannot happen when writing to a byte array
+            throw new IllegalStateException(e);
+        }
+        return out.toByteArray();
+    }
+}
@@ -0,0 +1,66 @@
+package uk.co.onsdigital.discovery.metadata.api.cache;
+
+import static java.util.Objects.requireNonNull;
+
+/**
+ * A response body that has already been serialized to UTF-8 JSON, and optionally gzip-compressed, so that it can be
+ * cached and written straight to the client without walking the original object graph again. A strong ETag is
+ * computed from the content when the response is serialized, so conditional requests can be answered from the cache.
+ * The content may be held off the heap (see {@link ResponseContent}).
+ */
+public final class SerializedResponse {
+    private final ResponseContent content;
+    private final ResponseContent gzippedContent;
+    private final String etag;
+
+    SerializedResponse(ResponseContent content, ResponseContent gzippedContent, String etag) {
+        this.content = requireNonNull(content);
+        this.gzippedContent = gzippedContent;
+        this.etag = requireNonNull(etag);
+    }
+
+    /**
+     * @return the uncompressed UTF-8 JSON bytes.
+     */
+    public ResponseContent getContent() {
+        return content;
+    }
+
+    /**
+     * @return the gzip-compressed JSON bytes, or {@code null} if the response was not compressed.
+     */
+    public ResponseContent getGzippedContent() {
+        return gzippedContent;
+    }
+
+    /**
+     * @return the quoted strong entity tag for the uncompressed content.
+     */
+    public String getEtag() {
+        return etag;
+    }
+
+    /**
+     * @return the quoted strong entity tag for the gzip-compressed content, which must differ from the uncompressed one.
+     */
+    public String getGzippedEtag() {
+        return etag.substring(0, etag.length() - 1) + "-gzip\"";
+    }
+
+    /**
+     * @return the number of bytes held by this response, used to weigh cache entries.
+     */
+    public int size() {
+        return content.length() + (gzippedContent != null ? gzippedContent.length() : 0);
+    }
+
+    @Override
+    public String toString() {
+        return "SerializedResponse{" +
+                "etag=" + etag +
+                ", contentLength=" + content.length() +
+                ", gzippedContentLength=" + (gzippedContent != null ? gzippedContent.length() : null) +
+                ", offHeap=" + content.isOffHeap() +
+                '}';
+    }
+}
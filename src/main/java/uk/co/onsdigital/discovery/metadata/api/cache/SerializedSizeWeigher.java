@@ -0,0 +1,47 @@
+package uk.co.onsdigital.discovery.metadata.api.cache;
+
+import com.fasterxml.jackson.databind.ObjectMapper;
+import com.github.benmanes.caffeine.cache.Weigher;
+import com.google.common.io.ByteStreams;
+import com.google.common.io.CountingOutputStream;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.http.HttpEntity;
+
+import java.io.IOException;
+
+import static java.util.Objects.requireNonNull;
+
+/**
+ * Estimates the weight of a cache entry as the number of bytes in its JSON serialization. Pre-serialized responses are
+ * weighed by their actual size; anything else is serialized into a counting stream rather than buffered, so weighing an
+ * entry does not allocate a copy of the response. Entries of a {@link StaleWhileRevalidateCache} are weighed by their
+ * value.
+ */
+class SerializedSizeWeigher implements Weigher<Object, Object> {
+    private static final Logger logger = LoggerFactory.getLogger(SerializedSizeWeigher.class);
+
+    private final ObjectMapper objectMapper;
+
+    SerializedSizeWeigher(ObjectMapper objectMapper) {
+        this.objectMapper = requireNonNull(objectMapper);
+    }
+
+    @Override
+    public int weigh(Object key, Object value) {
+        if (value instanceof StaleWhileRevalidateCache.Entry) {
+            return weigh(key, ((StaleWhileRevalidateCache.Entry) value).getValue());
+        }
+        if (value instanceof SerializedResponse) {
+            return ((SerializedResponse) value).size();
+        }
+        final Object body = value instanceof HttpEntity ? ((HttpEntity<?>) value).getBody() : value;
+        final CountingOutputStream out = new CountingOutputStream(ByteStreams.nullOutputStream());
+        try {
+            objectMapper.writeValue(out, body);
+        } catch (IOException e) {
+            logger.debug("Unable to estimate size of cache entry {}", key, e);
+        }
+        return (int) Math.min(Integer.MAX_VALUE, Math.max(1L, out.getCount()));
+    }
+}
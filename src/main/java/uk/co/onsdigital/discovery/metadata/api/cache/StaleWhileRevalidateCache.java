@@ -0,0 +1,186 @@
+package uk.co.onsdigital.discovery.metadata.api.cache;
+
+import com.google.common.base.Throwables;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.cache.Cache;
+import org.springframework.cache.support.SimpleValueWrapper;
+
+import java.util.Set;
+import java.util.concurrent.Callable;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.Executor;
+import java.util.concurrent.RejectedExecutionException;
+import java.util.function.LongSupplier;
+
+/**
+ * Serves entries of a Spring cache for a grace period after they go stale, while they are reloaded in the background,
+ * so that requests do not wait for the reload. An entry goes stale when it is older than the fresh period, or when the
+ * cache is {@linkplain #clear() cleared}. Stale entries are only served by {@link #get(Object, Callable)}, i.e. to
+ * {@code @Cacheable(sync = true)} methods, which provide the loader to refresh them with; other lookups see them as
+ * missing. Once the grace period has passed, the entry is loaded by the request, as for any miss.
+ * <p>
+ * The underlying cache should keep entries for at least the fresh period plus the grace period. Entries are stored in
+ * it wrapped in an {@link Entry} that records when they were loaded.
+ */
+public class StaleWhileRevalidateCache implements Cache {
+    private static final Logger logger = LoggerFactory.getLogger(StaleWhileRevalidateCache.class);
+
+    private final Cache delegate;
+    private final long freshMillis;
+    private final long graceMillis;
+    private final Executor refreshExecutor;
+    private final LongSupplier clock;
+
+    private final Set<Object> refreshing = ConcurrentHashMap.newKeySet();
+    private volatile long clearedMillis = Long.MIN_VALUE;
+
+    /**
+     * @param delegate the cache to store entries in.
+     * @param freshMillis how long an entry is served as it is after being loaded.
+     * @param graceMillis how long a stale entry may still be served while it is reloaded.
+     * @param refreshExecutor runs the reloads. If it rejects one, the stale entry is served and the reload is retried
+     *                        by a later request.
+     */
+    public StaleWhileRevalidateCache(Cache delegate, long freshMillis, long graceMillis, Executor refreshExecutor) {
+        this(delegate, freshMillis, graceMillis, refreshExecutor, System::currentTimeMillis);
+    }
+
+    StaleWhileRevalidateCache(Cache delegate, long freshMillis, long graceMillis, Executor refreshExecutor,
+                              LongSupplier clock) {
+        this.delegate = delegate;
+        this.freshMillis = freshMillis;
+        this.graceMillis = graceMillis;
+        this.refreshExecutor = refreshExecutor;
+        this.clock = clock;
+    }
+
+    @Override
+    public String getName() {
+        return delegate.getName();
+    }
+
+    @Override
+    public Object getNativeCache() {
+        return delegate.getNativeCache();
+    }
+
+    @Override
+    public ValueWrapper get(Object key) {
+        final Entry entry = entry(key);
+        return entry != null && isFresh(entry) ? new SimpleValueWrapper(entry.value) : null;
+    }
+
+    @Override
+    @SuppressWarnings("unchecked")
+    public <T> T get(Object key, Class<T> type) {
+        final ValueWrapper value = get(key);
+        if (value != null && type != null && value.get() != null && !type.isInstance(value.get())) {
+            throw new IllegalStateException("Cached value is not of required type [" + type.getName() + "]: " + value.get());
+        }
+        return value != null ? (T) value.get() : null;
+    }
+
+    @Override
+    @SuppressWarnings("unchecked")
+    public <T> T get(Object key, Callable<T> valueLoader) {
+        final Entry entry = entry(key);
+        if (entry != null) {
+            if (isFresh(entry)) {
+                return (T) entry.value;
+            }
+            if (clock.getAsLong() < staleMillis(entry) + graceMillis) {
+                refresh(key, valueLoader);
+                return (T) entry.value;
+            }
+        }
+
+        final long start = clock.getAsLong();
+        final T value;
+        try {
+            value = valueLoader.call();
+        } catch (Exception e) {
+            throw new ValueRetrievalException(key, valueLoader, e);
+        }
+        delegate.put(key, new Entry(value, start));
+        return value;
+    }
+
+    @Override
+    public void put(Object key, Object value) {
+        delegate.put(key, new Entry(value, clock.getAsLong()));
+    }
+
+    @Override
+    public ValueWrapper putIfAbsent(Object key, Object value) {
+        final ValueWrapper existing = delegate.putIfAbsent(key, new Entry(value, clock.getAsLong()));
+        return existing != null ? new SimpleValueWrapper(((Entry) existing.get()).value) : null;
+    }
+
+    @Override
+    public void evict(Object key) {
+        delegate.evict(key);
+    }
+
+    /**
+     * Makes every entry stale, so that each is served for no more than the grace period before it is reloaded.
+     */
+    @Override
+    public void clear() {
+        clearedMillis = clock.getAsLong();
+    }
+
+    private Entry entry(Object key) {
+        final ValueWrapper wrapper = delegate.get(key);
+        return wrapper != null ? (Entry) wrapper.get() : null;
+    }
+
+    private boolean isFresh(Entry entry) {
+        return entry.loadedMillis >= clearedMillis && clock.getAsLong() < entry.loadedMillis + freshMillis;
+    }
+
+    private long staleMillis(Entry entry) {
+        final long expired = entry.loadedMillis + freshMillis;
+        return entry.loadedMillis < clearedMillis ? Math.min(expired, clearedMillis) : expired;
+    }
+
+    private void refresh(Object key, Callable<?> valueLoader) {
+        if (!refreshing.add(key)) {
+            return;
+        }
+        try {
+            refreshExecutor.execute(() -> {
+                // Loaded as of the start of the refresh, so a clear during the refresh still makes the result stale
+                final long start = clock.getAsLong();
+                try {
+                    delegate.put(key, new Entry(valueLoader.call(), start));
+                } catch (Exception e) {
+                    logger.warn("Failed to refresh {} in cache {}: {}", key, getName(),
+                            Throwables.getRootCause(e).toString());
+                } finally {
+                    refreshing.remove(key);
+                }
+            });
+        } catch (RejectedExecutionException e) {
+            logger.debug("Too many refreshes queued; serving {} from cache {} stale", key, getName());
+            refreshing.remove(key);
+        }
+    }
+
+    /**
+     * A cached value with the time it was loaded.
+     */
+    static final class Entry {
+        private final Object value;
+        private final long loadedMillis;
+
+        Entry(Object value, long loadedMillis) {
+            this.value = value;
+            this.loadedMillis = loadedMillis;
+        }
+
+        Object getValue() {
+            return value;
+        }
+    }
+}
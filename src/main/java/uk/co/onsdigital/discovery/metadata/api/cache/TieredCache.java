@@ -0,0 +1,158 @@
+package uk.co.onsdigital.discovery.metadata.api.cache;
+
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.cache.Cache;
+import org.springframework.cache.support.SimpleValueWrapper;
+
+import java.io.IOException;
+import java.util.concurrent.Callable;
+import java.util.function.Predicate;
+
+/**
+ * A cache in two tiers: a heap tier for most responses, and an off-heap tier for serialized responses of at least a
+ * minimum size, which are copied off the heap by an {@link OffHeapStore} when they are cached. The tiers are bounded
+ * separately, and the storage of an off-heap entry is released when it is removed from its tier. If a response cannot
+ * be copied off the heap, it is kept on the heap instead.
+ * <p>
+ * The {@linkplain #getNativeCache() native cache} is that of the heap tier; the off-heap tier is available from
+ * {@link #getOffHeapCache()}.
+ */
+public class TieredCache implements Cache {
+    private static final Logger logger = LoggerFactory.getLogger(TieredCache.class);
+
+    private final Cache heap;
+    private final com.github.benmanes.caffeine.cache.Cache<Object, SerializedResponse> offHeap;
+    private final OffHeapStore store;
+    private final int minOffHeapSize;
+
+    /**
+     * @param heap the heap tier.
+     * @param offHeap the off-heap tier, which must {@linkplain OffHeapStore#release(SerializedResponse) release} the
+     *                responses removed from it.
+     * @param store copies responses off the heap.
+     * @param minOffHeapSize the size in bytes from which responses are stored off the heap.
+     */
+    public TieredCache(Cache heap, com.github.benmanes.caffeine.cache.Cache<Object, SerializedResponse> offHeap,
+                       OffHeapStore store, int minOffHeapSize) {
+        this.heap = heap;
+        this.offHeap = offHeap;
+        this.store = store;
+        this.minOffHeapSize = minOffHeapSize;
+    }
+
+    @Override
+    public String getName() {
+        return heap.getName();
+    }
+
+    @Override
+    public Object getNativeCache() {
+        return heap.getNativeCache();
+    }
+
+    public com.github.benmanes.caffeine.cache.Cache<Object, SerializedResponse> getOffHeapCache() {
+        return offHeap;
+    }
+
+    @Override
+    public ValueWrapper get(Object key) {
+        final ValueWrapper value = heap.get(key);
+        if (value != null) {
+            return value;
+        }
+        final SerializedResponse response = offHeap.getIfPresent(key);
+        return response != null ? new SimpleValueWrapper(response) : null;
+    }
+
+    @Override
+    @SuppressWarnings("unchecked")
+    public <T> T get(Object key, Class<T> type) {
+        final ValueWrapper value = get(key);
+        if (value != null && type != null && value.get() != null && !type.isInstance(value.get())) {
+            throw new IllegalStateException("Cached value is not of required type [" + type.getName() + "]: " + value.get());
+        }
+        return value != null ? (T) value.get() : null;
+    }
+
+    /**
+     * Loads a missing entry without holding a lock, as concurrent loads are already coalesced by
+     * {@link InstrumentedCache}.
+     */
+    @Override
+    @SuppressWarnings("unchecked")
+    public <T> T get(Object key, Callable<T> valueLoader) {
+        final ValueWrapper cached = get(key);
+        if (cached != null) {
+            return (T) cached.get();
+        }
+        final T value;
+        try {
+            value = valueLoader.call();
+        } catch (Exception e) {
+            throw new ValueRetrievalException(key, valueLoader, e);
+        }
+        return (T) store(key, value);
+    }
+
+    @Override
+    public void put(Object key, Object value) {
+        store(key, value);
+    }
+
+    @Override
+    public ValueWrapper putIfAbsent(Object key, Object value) {
+        final ValueWrapper existing = get(key);
+        if (existing == null) {
+            store(key, value);
+        }
+        return existing;
+    }
+
+    @Override
+    public void evict(Object key) {
+        heap.evict(key);
+        offHeap.invalidate(key);
+    }
+
+    @Override
+    public void clear() {
+        heap.clear();
+        offHeap.invalidateAll();
+    }
+
+    /**
+     * Evicts the entries of both tiers whose keys match.
+     */
+    public void evictIf(Predicate<Object> keys) {
+        final Object nativeCache = heap.getNativeCache();
+        if (nativeCache instanceof com.github.benmanes.caffeine.cache.Cache) {
+            ((com.github.benmanes.caffeine.cache.Cache<?, ?>) nativeCache).asMap().keySet().removeIf(keys);
+        } else {
+            heap.clear();
+        }
+        offHeap.asMap().keySet().removeIf(keys);
+    }
+
+    /**
+     * Puts a value into the tier for its size, and removes any previous value from the other tier.
+     *
+     * @return the value as cached, which is the off-heap copy of a large response.
+     */
+    private Object store(Object key, Object value) {
+        if (value instanceof SerializedResponse && ((SerializedResponse) value).size() >= minOffHeapSize) {
+            try {
+                final SerializedResponse copy = store.copy((SerializedResponse) value);
+                offHeap.put(key, copy);
+                heap.evict(key);
+                return copy;
+            } catch (IOException e) {
+                logger.warn("Unable to store {} in cache {} off the heap, keeping it on the heap: {}", key, getName(),
+                        e.toString());
+            }
+        }
+        heap.put(key, value);
+        offHeap.invalidate(key);
+        return value;
+    }
+}
@@ -0,0 +1,42 @@
+package uk.co.onsdigital.discovery.metadata.api.controller;
+
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.cache.Cache;
+import org.springframework.cache.CacheManager;
+import org.springframework.web.bind.annotation.GetMapping;
+import org.springframework.web.bind.annotation.RestController;
+import uk.co.onsdigital.discovery.metadata.api.cache.TieredCache;
+import uk.co.onsdigital.discovery.metadata.api.dto.CacheStatistics;
+
+import java.util.Map;
+import java.util.TreeMap;
+
+/**
+ * Exposes the hit, miss and eviction counters of the response caches so that they can be sized appropriately. The
+ * off-heap tier of a cache is reported separately, as {@code <name>-offheap}.
+ */
+@RestController
+public class CacheStatisticsController {
+
+    private final CacheManager cacheManager;
+
+    @Autowired
+    public CacheStatisticsController(CacheManager cacheManager) {
+        this.cacheManager = cacheManager;
+    }
+
+    @GetMapping("/caches")
+    public Map<String, CacheStatistics> getCacheStatistics() {
+        final Map<String, CacheStatistics> result = new TreeMap<>();
+        for (String name : cacheManager.getCacheNames()) {
+            final Cache cache = cacheManager.getCache(name);
+            if (cache.getNativeCache() instanceof com.github.benmanes.caffeine.cache.Cache) {
+                result.put(name, new CacheStatistics((com.github.benmanes.caffeine.cache.Cache<?, ?>) cache.getNativeCache()));
+            }
+            if (cache instanceof TieredCache) {
+                result.put(name + "-offheap", new CacheStatistics(((TieredCache) cache).getOffHeapCache()));
+            }
+        }
+        return result;
+    }
+}
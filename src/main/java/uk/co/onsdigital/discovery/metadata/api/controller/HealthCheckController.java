@@ -0,0 +1,73 @@
+package uk.co.onsdigital.discovery.metadata.api.controller;
+
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.http.HttpStatus;
+import org.springframework.http.ResponseEntity;
+import org.springframework.web.bind.annotation.GetMapping;
+import org.springframework.web.bind.annotation.RestController;
+import uk.co.onsdigital.discovery.metadata.api.cache.CacheWarmer;
+import uk.co.onsdigital.discovery.metadata.api.dao.ConnectionPoolMonitor;
+import uk.co.onsdigital.discovery.metadata.api.dao.DatabaseHealthProbe;
+import uk.co.onsdigital.discovery.metadata.api.dto.HealthStatus;
+
+import java.util.ArrayList;
+import java.util.List;
+
+/**
+ * Reports whether this node is ready to serve traffic. The health check fails with 503 Service Unavailable while the
+ * caches are still being warmed, while the database is not answering, or while connections take too long to check
+ * out of the pool, so that the load balancer sheds load from the node instead of letting its requests time out.
+ */
+@RestController
+public class HealthCheckController {
+    private static final Logger logger = LoggerFactory.getLogger(HealthCheckController.class);
+
+    private final CacheWarmer cacheWarmer;
+    private final DatabaseHealthProbe databaseHealthProbe;
+    private final ConnectionPoolMonitor connectionPoolMonitor;
+    private final long maxConnectionWaitMillis;
+    private final long maxQueryAgeMillis;
+
+    @Autowired
+    public HealthCheckController(CacheWarmer cacheWarmer, DatabaseHealthProbe databaseHealthProbe,
+                                 ConnectionPoolMonitor connectionPoolMonitor,
+                                 @Value("${health.max.connection.wait.ms:2000}") long maxConnectionWaitMillis,
+                                 @Value("${health.max.query.age.ms:30000}") long maxQueryAgeMillis) {
+        this.cacheWarmer = cacheWarmer;
+        this.databaseHealthProbe = databaseHealthProbe;
+        this.connectionPoolMonitor = connectionPoolMonitor;
+        this.maxConnectionWaitMillis = maxConnectionWaitMillis;
+        this.maxQueryAgeMillis = maxQueryAgeMillis;
+    }
+
+    @GetMapping("/healthcheck")
+    public ResponseEntity<HealthStatus> healthCheck() {
+        logger.debug("Health-check called.");
+        final List<String> problems = new ArrayList<>();
+
+        final boolean cacheWarm = cacheWarmer.isWarm();
+        if (!cacheWarm) {
+            problems.add("Caches are still being warmed");
+        }
+
+        final Long lastSuccess = databaseHealthProbe.getLastSuccessMillis();
+        if (lastSuccess == null || System.currentTimeMillis() - lastSuccess > maxQueryAgeMillis) {
+            problems.add("No successful database query in the last " + maxQueryAgeMillis + " ms");
+        }
+
+        final long connectionWait = databaseHealthProbe.getConnectionWaitMillis();
+        if (connectionWait > maxConnectionWaitMillis) {
+            problems.add("Waited " + connectionWait + " ms for a database connection");
+        }
+
+        final HealthStatus status = new HealthStatus(cacheWarm, lastSuccess, connectionWait,
+                databaseHealthProbe.getLastError(), connectionPoolMonitor.getStatistics(), problems);
+        if (!status.isReady()) {
+            logger.warn("Not ready: {}", problems);
+        }
+        return ResponseEntity.status(status.isReady() ? HttpStatus.OK : HttpStatus.SERVICE_UNAVAILABLE).body(status);
+    }
+}
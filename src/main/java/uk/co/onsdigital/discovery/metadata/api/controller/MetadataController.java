@@ -1,5 +1,7 @@
 package uk.co.onsdigital.discovery.metadata.api.controller;
 
+import com.fasterxml.jackson.core.JsonGenerator;
+import com.fasterxml.jackson.databind.ObjectMapper;
 import org.slf4j.Logger;
 import org.slf4j.LoggerFactory;
 import org.springframework.beans.factory.annotation.Autowired;
@@ -7,20 +9,16 @@ import org.springframework.beans.factory.annotation.Value;
 import org.springframework.boot.SpringApplication;
 import org.springframework.boot.autoconfigure.EnableAutoConfiguration;
 import org.springframework.boot.autoconfigure.SpringBootApplication;
+import org.springframework.boot.autoconfigure.data.jpa.JpaRepositoriesAutoConfiguration;
 import org.springframework.boot.autoconfigure.orm.jpa.HibernateJpaAutoConfiguration;
-import org.springframework.cache.CacheManager;
 import org.springframework.cache.annotation.*;
-import org.springframework.cache.concurrent.ConcurrentMapCacheManager;
-import org.springframework.context.annotation.Bean;
 import org.springframework.context.annotation.ComponentScan;
 import org.springframework.data.domain.Pageable;
 import org.springframework.http.CacheControl;
+import org.springframework.http.HttpHeaders;
 import org.springframework.http.HttpStatus;
+import org.springframework.http.MediaType;
 import org.springframework.http.ResponseEntity;
-import org.springframework.orm.jpa.JpaTransactionManager;
-import org.springframework.scheduling.annotation.EnableScheduling;
-import org.springframework.scheduling.annotation.Scheduled;
-import org.springframework.transaction.PlatformTransactionManager;
 import org.springframework.web.bind.annotation.CrossOrigin;
 import org.springframework.web.bind.annotation.ExceptionHandler;
 import org.springframework.web.bind.annotation.GetMapping;
@@ -29,30 +27,24 @@ import org.springframework.web.bind.annotation.RequestParam;
 import org.springframework.web.bind.annotation.ResponseBody;
 import org.springframework.web.bind.annotation.ResponseStatus;
 import org.springframework.web.bind.annotation.RestController;
-import org.springframework.web.context.annotation.RequestScope;
-import uk.co.onsdigital.discovery.metadata.api.dto.DataResourceResult;
-import uk.co.onsdigital.discovery.metadata.api.dto.ResultPage;
-import uk.co.onsdigital.discovery.metadata.api.dto.common.DimensionMetadata;
-import uk.co.onsdigital.discovery.metadata.api.dto.legacy.LegacyDataSet;
-import uk.co.onsdigital.discovery.metadata.api.dto.legacy.LegacyResultPage;
+import org.springframework.web.context.request.WebRequest;
+import uk.co.onsdigital.discovery.metadata.api.cache.CacheConfiguration;
+import uk.co.onsdigital.discovery.metadata.api.cache.MetadataResponseCache;
+import uk.co.onsdigital.discovery.metadata.api.cache.ResponseContent;
+import uk.co.onsdigital.discovery.metadata.api.cache.SerializedResponse;
 import uk.co.onsdigital.discovery.metadata.api.exception.DataSetNotFoundException;
 import uk.co.onsdigital.discovery.metadata.api.exception.DimensionNotFoundException;
 import uk.co.onsdigital.discovery.metadata.api.exception.NotFoundException;
 import uk.co.onsdigital.discovery.metadata.api.service.DimensionViewType;
 import uk.co.onsdigital.discovery.metadata.api.service.MetadataService;
+import uk.co.onsdigital.discovery.metadata.api.service.OptionFilter;
 
-import javax.persistence.EntityManager;
-import javax.persistence.EntityManagerFactory;
-import javax.persistence.Persistence;
 import javax.servlet.http.HttpServletResponse;
 import java.io.IOException;
-import java.util.HashMap;
 import java.util.List;
-import java.util.Map;
 import java.util.concurrent.TimeUnit;
 
 import static java.lang.Math.max;
-import static java.util.Arrays.asList;
 
 /**
  * Controller for accessing the {@link uk.co.onsdigital.discovery.metadata.api.service.MetadataService} over REST.
@@ -60,9 +52,8 @@ import static java.util.Arrays.asList;
 @RestController
 @SpringBootApplication
 @ComponentScan(basePackages = "uk.co.onsdigital")
-@EnableAutoConfiguration(exclude = {HibernateJpaAutoConfiguration.class})
+@EnableAutoConfiguration(exclude = {HibernateJpaAutoConfiguration.class, JpaRepositoriesAutoConfiguration.class})
 @EnableCaching
-@EnableScheduling
 public class MetadataController {
     private static final Logger logger = LoggerFactory.getLogger(MetadataController.class);
 
@@ -73,197 +64,403 @@ public class MetadataController {
     public static final String DATASETS_TEMP = "datasets-temp";
     public static final String HIERARCHIES_TEMP = "hierarchies-temp";
 
+    private static final String GZIP = "gzip";
+    private static final int MAX_SEARCH_LIMIT = 100;
+
+    private final MetadataResponseCache responseCache;
     private final MetadataService metadataService;
+    private final ObjectMapper objectMapper;
     private final int defaultCacheTimeMinutes;
+    private final int staleWhileRevalidateSeconds;
 
     @Autowired
-    public MetadataController(MetadataService metadataService,
-                              @Value("${default.cache.time.minutes}") int defaultCacheTimeMinutes) {
+    public MetadataController(MetadataResponseCache responseCache, MetadataService metadataService, ObjectMapper objectMapper,
+                              @Value("${default.cache.time.minutes}") int defaultCacheTimeMinutes,
+                              @Value("${" + CacheConfiguration.STALE_WHILE_REVALIDATE_SECONDS + ":60}") int staleWhileRevalidateSeconds) {
+        this.responseCache = responseCache;
         this.metadataService = metadataService;
+        this.objectMapper = objectMapper;
         this.defaultCacheTimeMinutes = defaultCacheTimeMinutes;
+        this.staleWhileRevalidateSeconds = staleWhileRevalidateSeconds;
     }
 
     public static void main(String...args) {
         SpringApplication.run(MetadataController.class, args);
     }
 
-    @GetMapping("/healthcheck")
-    public boolean healthCheck() {
-        logger.debug("Health-check called.");
-        return true;
-    }
-
     @GetMapping("/datasets")
     @CrossOrigin
-    @Cacheable(DATASETS_TEMP)
-    public ResultPage<DataResourceResult> listAvailableVersions(Pageable pageable) {
+    public ResponseEntity<ResponseContent> listAvailableVersions(Pageable pageable,
+                                                        @RequestParam(name = "after", required = false) String after,
+                                                        @RequestParam(name = "totals", defaultValue = "true") boolean totals,
+                                                        WebRequest request) {
+        if (after != null) {
+            return serializedResponse(responseCache.listAvailableDataResourcesAfter(after, max(pageable.getPageSize(), 1), totals),
+                    request, listingCacheControl());
+        }
         // Ensure pageNumber and pageSize are both at least 1
-        logger.debug("Request on /datasets from page " + pageable.getPageNumber() + "and size " + pageable.getPageSize());
-        return metadataService.listAvailableDataResources(max(pageable.getPageNumber(), 1), max(pageable.getPageSize(), 1));
+        return serializedResponse(responseCache.listAvailableDataResources(max(pageable.getPageNumber(), 1), max(pageable.getPageSize(), 1), totals),
+                request, listingCacheControl());
     }
 
     @GetMapping("/versions")
     @CrossOrigin
-    public LegacyResultPage<LegacyDataSet> listAvailableDataSets(Pageable pageable) {
+    public ResponseEntity<ResponseContent> listAvailableDataSets(Pageable pageable,
+                                                        @RequestParam(name = "after", required = false) String after,
+                                                        @RequestParam(name = "totals", defaultValue = "true") boolean totals,
+                                                        WebRequest request) {
+        if (after != null) {
+            return serializedResponse(responseCache.listAvailableVersionsAfter(after, max(pageable.getPageSize(), 1), totals),
+                    request, listingCacheControl());
+        }
         // Ensure pageNumber and pageSize are both at least 1
-        logger.debug("Request on /versions from page " + pageable.getPageNumber() + "and size " + pageable.getPageSize());
-        return metadataService.listAvailableVersions(max(pageable.getPageNumber(), 1), max(pageable.getPageSize(), 1));
+        return serializedResponse(responseCache.listAvailableVersions(max(pageable.getPageNumber(), 1), max(pageable.getPageSize(), 1), totals),
+                request, listingCacheControl());
     }
 
 
     @GetMapping("/versions/{dataSetId}")
     @CrossOrigin
-    @Cacheable(DATASETS_TEMP)
-    public LegacyDataSet findDataSetByUuid(@PathVariable String dataSetId) throws DataSetNotFoundException {
-        logger.debug("Request for a dataset with version: " + dataSetId);
-        return metadataService.findDataSetByUuid(dataSetId);
+    public ResponseEntity<ResponseContent> findDataSetByUuid(@PathVariable String dataSetId, WebRequest request) throws DataSetNotFoundException {
+        return serializedResponse(responseCache.findDataSetByUuid(dataSetId), request, listingCacheControl());
     }
 
     @GetMapping("/datasets/{dataSetId}")
     @CrossOrigin
-    @Cacheable(DATASETS)
-    public DataResourceResult findDataResource(@PathVariable String dataSetId) throws DataSetNotFoundException {
-        logger.debug("Request for a data-resource with id: " + dataSetId);
-        return metadataService.findDataResource(dataSetId);
+    public ResponseEntity<ResponseContent> findDataResource(@PathVariable String dataSetId, WebRequest request) throws DataSetNotFoundException {
+        return serializedResponse(responseCache.findDataResource(dataSetId), request, CacheControl.empty());
     }
 
     @GetMapping("/datasets/{dataSetId}/editions/{edition}/versions/{version}")
     @CrossOrigin
-    @Cacheable(DATASETS)
-    public LegacyDataSet findDataSetByEditionAndVersion(@PathVariable String dataSetId, @PathVariable String edition,
-                                                        @PathVariable int version)
+    public ResponseEntity<ResponseContent> findDataSetByEditionAndVersion(@PathVariable String dataSetId, @PathVariable String edition,
+                                                                 @PathVariable int version, WebRequest request)
             throws DataSetNotFoundException {
-        logger.debug("Request for a dataset with the following data-resource/edition/version: " +
-                String.join("/", new String[]{dataSetId, edition, Integer.toString(version)}));
-        return metadataService.findDataSetByEditionAndVersion(dataSetId, edition, version);
+        return serializedResponse(responseCache.findDataSetByEditionAndVersion(dataSetId, edition, version), request, CacheControl.empty());
     }
 
     @GetMapping("/versions/{dataSetId}/dimensions")
     @CrossOrigin
-    @Cacheable(DIMENSIONS)
-    public List<DimensionMetadata> listDimensionsForDataSetUuid(@PathVariable String dataSetId) throws DataSetNotFoundException {
-        logger.debug("Request for all dimensions of dataset version: " + dataSetId);
-        return metadataService.listDimensionsForDataSetUuid(dataSetId);
+    public ResponseEntity<ResponseContent> listDimensionsForDataSetUuid(@PathVariable String dataSetId, WebRequest request) throws DataSetNotFoundException {
+        return serializedResponse(responseCache.listDimensionsForDataSetUuid(dataSetId), request, CacheControl.empty());
     }
 
     @GetMapping("/datasets/{dataSetId}/editions/{edition}/versions/{version}/dimensions")
     @CrossOrigin
-    @Cacheable(DIMENSIONS)
-    public List<DimensionMetadata> listDimensionsforDataSetEditionVersion(@PathVariable String dataSetId, @PathVariable String edition,
-                                                                          @PathVariable int version)
+    public ResponseEntity<ResponseContent> listDimensionsforDataSetEditionVersion(@PathVariable String dataSetId, @PathVariable String edition,
+                                                                         @PathVariable int version, WebRequest request)
             throws DataSetNotFoundException {
-        logger.debug("Request for all dimensions of a dataset with the following data-resource/edition/version: " +
-                String.join("/", new String[]{dataSetId, edition, Integer.toString(version)}));
-        return metadataService.listDimensionsForDataSetEditionVersion(dataSetId, edition, version);
+        return serializedResponse(responseCache.listDimensionsForDataSetEditionVersion(dataSetId, edition, version), request, CacheControl.empty());
     }
 
     @GetMapping("/versions/{dataSetId}/dimensions/{dimensionId}")
     @CrossOrigin
-    @Cacheable(DIMENSIONS)
-    public ResponseEntity<DimensionMetadata> findDimensionByIdWithDatasetUuid(@PathVariable String dataSetId, @PathVariable String dimensionId,
-                                               @RequestParam(name = "view", defaultValue = "list") String view)
+    public ResponseEntity<ResponseContent> findDimensionByIdWithDatasetUuid(@PathVariable String dataSetId, @PathVariable String dimensionId,
+                                               @RequestParam(name = "view", defaultValue = "list") String view,
+                                               @RequestParam(name = "prefix", required = false) String prefix,
+                                               @RequestParam(name = "levelType", required = false) String levelType,
+                                               @RequestParam(name = "parent", required = false) String parent,
+                                               @RequestParam(name = "offset", required = false) Integer offset,
+                                               @RequestParam(name = "limit", required = false) Integer limit,
+                                               @RequestParam(name = "root", required = false) String root,
+                                               @RequestParam(name = "depth", required = false) Integer depth,
+                                               WebRequest request)
             throws DataSetNotFoundException, DimensionNotFoundException {
-        logger.debug("Request for a dimension for dataset version " + dataSetId + " and dimensionId " + dimensionId);
         final DimensionViewType viewType = DimensionViewType.valueOf(view.toUpperCase());
+        final OptionFilter filter = new OptionFilter(prefix, levelType, parent, offset, limit);
+        if (!filter.isEmpty()) {
+            checkFilterableView(viewType);
+            return serializedResponse(responseCache.findDimensionOptionsWithDatasetUuid(dataSetId, dimensionId, filter),
+                    request, defaultCacheControl());
+        }
+        if (root != null || depth != null) {
+            checkSliceableView(viewType);
+            return serializedResponse(
+                    responseCache.findDimensionSliceWithDatasetUuid(dataSetId, dimensionId, root, sliceDepth(depth)),
+                    request, defaultCacheControl());
+        }
 
-        DimensionMetadata dimensionMetadata = metadataService.findDimensionByIdWithDatasetUuid(dataSetId, dimensionId, viewType);
-        return ResponseEntity.ok()
-                .cacheControl(CacheControl.maxAge(defaultCacheTimeMinutes, TimeUnit.MINUTES))
-                .body(dimensionMetadata);
+        SerializedResponse dimensionMetadata = responseCache.findDimensionByIdWithDatasetUuid(dataSetId, dimensionId, viewType);
+        return serializedResponse(dimensionMetadata, request, defaultCacheControl());
     }
 
     @GetMapping("/datasets/{dataSetId}/editions/{edition}/versions/{version}/dimensions/{dimensionId}")
     @CrossOrigin
-    @Cacheable(DIMENSIONS)
-    public ResponseEntity<DimensionMetadata> findDimensionByIdWithEditionVersion(@PathVariable String dataSetId, @PathVariable String edition,
+    public ResponseEntity<ResponseContent> findDimensionByIdWithEditionVersion(@PathVariable String dataSetId, @PathVariable String edition,
                                                                  @PathVariable int version, @PathVariable String dimensionId,
-                                               @RequestParam(name = "view", defaultValue = "list") String view)
+                                               @RequestParam(name = "view", defaultValue = "list") String view,
+                                               @RequestParam(name = "prefix", required = false) String prefix,
+                                               @RequestParam(name = "levelType", required = false) String levelType,
+                                               @RequestParam(name = "parent", required = false) String parent,
+                                               @RequestParam(name = "offset", required = false) Integer offset,
+                                               @RequestParam(name = "limit", required = false) Integer limit,
+                                               @RequestParam(name = "root", required = false) String root,
+                                               @RequestParam(name = "depth", required = false) Integer depth,
+                                               WebRequest request)
             throws DataSetNotFoundException, DimensionNotFoundException {
-        logger.debug("Request for a dataset with the following data-resource/edition/version: " +
-                String.join("/", new String[]{dataSetId, edition, Integer.toString(version)}));
         final DimensionViewType viewType = DimensionViewType.valueOf(view.toUpperCase());
+        final OptionFilter filter = new OptionFilter(prefix, levelType, parent, offset, limit);
+        if (!filter.isEmpty()) {
+            checkFilterableView(viewType);
+            return serializedResponse(
+                    responseCache.findDimensionOptionsWithEditionVersion(dataSetId, edition, version, dimensionId, filter),
+                    request, defaultCacheControl());
+        }
+        if (root != null || depth != null) {
+            checkSliceableView(viewType);
+            return serializedResponse(
+                    responseCache.findDimensionSliceWithEditionVersion(dataSetId, edition, version, dimensionId, root,
+                            sliceDepth(depth)),
+                    request, defaultCacheControl());
+        }
+
+        SerializedResponse dimensionMetadata = responseCache.findDimensionByIdWithEditionVersion(dataSetId, edition, version, dimensionId, viewType);
+        return serializedResponse(dimensionMetadata, request, defaultCacheControl());
+    }
+
+    @GetMapping("/versions/{dataSetId}/dimensions/{dimensionId}/search")
+    @CrossOrigin
+    public ResponseEntity<ResponseContent> searchDimensionOptionsWithDatasetUuid(@PathVariable String dataSetId,
+                                                                        @PathVariable String dimensionId,
+                                                                        @RequestParam("q") String prefix,
+                                                                        @RequestParam(name = "limit", defaultValue = "10") int limit,
+                                                                        WebRequest request)
+            throws DataSetNotFoundException, DimensionNotFoundException {
+        checkSearchLimit(limit);
+        return serializedResponse(responseCache.searchDimensionOptionsWithDatasetUuid(dataSetId, dimensionId, prefix, limit),
+                request, defaultCacheControl());
+    }
+
+    @GetMapping("/datasets/{dataSetId}/editions/{edition}/versions/{version}/dimensions/{dimensionId}/search")
+    @CrossOrigin
+    public ResponseEntity<ResponseContent> searchDimensionOptionsWithEditionVersion(@PathVariable String dataSetId,
+                                                                           @PathVariable String edition,
+                                                                           @PathVariable int version,
+                                                                           @PathVariable String dimensionId,
+                                                                           @RequestParam("q") String prefix,
+                                                                           @RequestParam(name = "limit", defaultValue = "10") int limit,
+                                                                           WebRequest request)
+            throws DataSetNotFoundException, DimensionNotFoundException {
+        checkSearchLimit(limit);
+        return serializedResponse(
+                responseCache.searchDimensionOptionsWithEditionVersion(dataSetId, edition, version, dimensionId, prefix, limit),
+                request, defaultCacheControl());
+    }
 
-        DimensionMetadata dimensionMetadata = metadataService.findDimensionByIdWithEditionVersion(dataSetId, edition, version, dimensionId, viewType);
-        return ResponseEntity.ok()
-                .cacheControl(CacheControl.maxAge(defaultCacheTimeMinutes, TimeUnit.MINUTES))
-                .body(dimensionMetadata);
+    @GetMapping(value = "/versions/{dataSetId}/dimensions/{dimensionId}", params = "stream=true")
+    @CrossOrigin
+    public void streamDimensionByIdWithDatasetUuid(@PathVariable String dataSetId, @PathVariable String dimensionId,
+                                                   @RequestParam(name = "view", defaultValue = "list") String view,
+                                                   HttpServletResponse response)
+            throws DataSetNotFoundException, DimensionNotFoundException, IOException {
+        checkStreamableView(view);
+
+        try (JsonGenerator generator = streamingResponse(response)) {
+            metadataService.writeDimensionListWithDatasetUuid(dataSetId, dimensionId, generator);
+        }
+    }
+
+    @GetMapping(value = "/datasets/{dataSetId}/editions/{edition}/versions/{version}/dimensions/{dimensionId}", params = "stream=true")
+    @CrossOrigin
+    public void streamDimensionByIdWithEditionVersion(@PathVariable String dataSetId, @PathVariable String edition,
+                                                      @PathVariable int version, @PathVariable String dimensionId,
+                                                      @RequestParam(name = "view", defaultValue = "list") String view,
+                                                      HttpServletResponse response)
+            throws DataSetNotFoundException, DimensionNotFoundException, IOException {
+        checkStreamableView(view);
+
+        try (JsonGenerator generator = streamingResponse(response)) {
+            metadataService.writeDimensionListWithEditionVersion(dataSetId, edition, version, dimensionId, generator);
+        }
+    }
+
+    @GetMapping(value = "/versions/{dataSetId}/dimensions", params = "id")
+    @CrossOrigin
+    public void findDimensionsByIdWithDatasetUuid(@PathVariable String dataSetId,
+                                                  @RequestParam("id") List<String> dimensionIds,
+                                                  @RequestParam(name = "view", defaultValue = "list") String view,
+                                                  HttpServletResponse response)
+            throws DataSetNotFoundException, DimensionNotFoundException, IOException {
+        final DimensionViewType viewType = DimensionViewType.valueOf(view.toUpperCase());
+
+        try (JsonGenerator generator = streamingResponse(response)) {
+            metadataService.writeDimensionsWithDatasetUuid(dataSetId, dimensionIds, viewType, generator);
+        }
+    }
+
+    @GetMapping(value = "/datasets/{dataSetId}/editions/{edition}/versions/{version}/dimensions", params = "id")
+    @CrossOrigin
+    public void findDimensionsByIdWithEditionVersion(@PathVariable String dataSetId, @PathVariable String edition,
+                                                     @PathVariable int version,
+                                                     @RequestParam("id") List<String> dimensionIds,
+                                                     @RequestParam(name = "view", defaultValue = "list") String view,
+                                                     HttpServletResponse response)
+            throws DataSetNotFoundException, DimensionNotFoundException, IOException {
+        final DimensionViewType viewType = DimensionViewType.valueOf(view.toUpperCase());
+
+        try (JsonGenerator generator = streamingResponse(response)) {
+            metadataService.writeDimensionsWithEditionVersion(dataSetId, edition, version, dimensionIds, viewType, generator);
+        }
     }
 
     @GetMapping("/hierarchies")
     @CrossOrigin
-    @Cacheable(HIERARCHIES_TEMP)
-    public List<DimensionMetadata> listHierarchies() {
-        logger.debug("Request on /hierarchies, listing all hierarchies");
-        return metadataService.listHierarchies();
+    public ResponseEntity<ResponseContent> listHierarchies(WebRequest request) {
+        return serializedResponse(responseCache.listHierarchies(), request, CacheControl.empty());
     }
 
     @GetMapping("/hierarchies/{hierarchyId}")
     @CrossOrigin
-    @Cacheable(HIERARCHIES)
-    public ResponseEntity<DimensionMetadata> getHierarchy(@PathVariable String hierarchyId) throws DimensionNotFoundException {
-        logger.debug("Request for hierarchy " + hierarchyId);
-        DimensionMetadata hierarchy = metadataService.getHierarchy(hierarchyId);
-        return ResponseEntity.ok()
-                .cacheControl(CacheControl.maxAge(defaultCacheTimeMinutes, TimeUnit.MINUTES))
-                .body(hierarchy);
+    public ResponseEntity<ResponseContent> getHierarchy(@PathVariable String hierarchyId,
+                                               @RequestParam(name = "root", required = false) String root,
+                                               @RequestParam(name = "depth", required = false) Integer depth,
+                                               WebRequest request) throws DimensionNotFoundException {
+        SerializedResponse hierarchy = root != null || depth != null
+                ? responseCache.getHierarchySlice(hierarchyId, root, sliceDepth(depth))
+                : responseCache.getHierarchy(hierarchyId);
+        return serializedResponse(hierarchy, request, defaultCacheControl());
     }
 
-    @ResponseStatus(code = HttpStatus.BAD_REQUEST)
-    @ResponseBody
-    @ExceptionHandler(IllegalArgumentException.class)
-    public ErrorResponse onIllegalArgumentException(final IllegalArgumentException ex) {
-        return new ErrorResponse(HttpStatus.BAD_REQUEST, ex.getMessage());
+    private CacheControl defaultCacheControl() {
+        return CacheControl.maxAge(defaultCacheTimeMinutes, TimeUnit.MINUTES);
     }
 
-    @ResponseBody
-    @ResponseStatus(code = HttpStatus.NOT_IMPLEMENTED)
-    @ExceptionHandler(UnsupportedOperationException.class)
-    public ErrorResponse onUnsupportedOperation(final UnsupportedOperationException ex) {
-        return new ErrorResponse(HttpStatus.NOT_IMPLEMENTED, ex.getMessage());
+    /**
+     * Lets shared caches serve the dataset listings stale while they revalidate them, as the API itself does.
+     */
+    private CacheControl listingCacheControl() {
+        return staleWhileRevalidateSeconds > 0
+                ? CacheControl.maxAge(0, TimeUnit.SECONDS).staleWhileRevalidate(staleWhileRevalidateSeconds, TimeUnit.SECONDS)
+                : CacheControl.empty();
     }
 
-    @Bean
-    public EntityManagerFactory getEntityManagerFactory() {
-        final Map<String, String> env = new HashMap<>();
-        for (String property : asList("url", "driver", "user", "password")) {
-            String value = System.getenv("DB_" + property.toUpperCase());
-            if (value != null) {
-                env.put("javax.persistence.jdbc." + property, value);
-                if (property.equals("password")) {
-                    value = "*****";
-                }
-                logger.info("Database config from environment: {} = {}", property, value);
-            }
+    private static void checkStreamableView(String view) {
+        if (DimensionViewType.valueOf(view.toUpperCase()) != DimensionViewType.LIST) {
+            throw new IllegalArgumentException("Only the list view can be streamed");
+        }
+    }
+
+    private static void checkFilterableView(DimensionViewType viewType) {
+        if (viewType != DimensionViewType.LIST) {
+            throw new IllegalArgumentException("Only the list view can be filtered");
+        }
+    }
+
+    private static void checkSliceableView(DimensionViewType viewType) {
+        if (viewType != DimensionViewType.HIERARCHY) {
+            throw new IllegalArgumentException("Only the hierarchy view can be sliced");
+        }
+    }
+
+    /**
+     * @return the number of levels to include in a slice of a tree, which is every level below the root if no depth
+     * is given.
+     */
+    private static int sliceDepth(Integer depth) {
+        if (depth != null && depth < 1) {
+            throw new IllegalArgumentException("depth must be >= 1");
+        }
+        return depth != null ? depth : Integer.MAX_VALUE;
+    }
+
+    private static void checkSearchLimit(int limit) {
+        if (limit < 1 || limit > MAX_SEARCH_LIMIT) {
+            throw new IllegalArgumentException("limit must be between 1 and " + MAX_SEARCH_LIMIT);
+        }
+    }
+
+    /**
+     * Prepares a response whose body is written directly as it is generated, bypassing the response cache. The
+     * generator does not touch the response until something is written to it, so the response can still be turned
+     * into an error if the requested dimension does not exist. Closing it does not complete any JSON left open or close
+     * the response, so that if writing fails part way the error is not hidden behind valid-looking JSON, and an error
+     * response can still be sent if nothing has been committed yet.
+     */
+    private JsonGenerator streamingResponse(HttpServletResponse response) throws IOException {
+        response.setContentType(MediaType.APPLICATION_JSON_UTF8_VALUE);
+        response.setHeader(HttpHeaders.CACHE_CONTROL, defaultCacheControl().getHeaderValue());
+        return objectMapper.getFactory().createGenerator(response.getOutputStream())
+                .disable(JsonGenerator.Feature.AUTO_CLOSE_JSON_CONTENT)
+                .disable(JsonGenerator.Feature.AUTO_CLOSE_TARGET);
+    }
+
+    /**
+     * Builds a response that writes pre-serialized JSON straight to the client, using the gzipped copy if the client
+     * accepts it. If the client already has the current representation (according to its {@code If-None-Match}
+     * header) then a 304 Not Modified response is returned without a body.
+     */
+    private ResponseEntity<ResponseContent> serializedResponse(SerializedResponse response, WebRequest request, CacheControl cacheControl) {
+        final boolean gzip = response.getGzippedContent() != null && acceptsGzip(request.getHeader(HttpHeaders.ACCEPT_ENCODING));
+        final String etag = gzip ? response.getGzippedEtag() : response.getEtag();
+        final boolean notModified = isNotModified(request, etag);
+
+        final ResponseEntity.BodyBuilder builder = ResponseEntity.status(notModified ? HttpStatus.NOT_MODIFIED : HttpStatus.OK)
+                .cacheControl(cacheControl)
+                .eTag(etag)
+                .varyBy(HttpHeaders.ACCEPT_ENCODING);
+
+        if (notModified) {
+            return builder.body(null);
         }
 
-        return Persistence.createEntityManagerFactory("data_discovery", env);
+        builder.contentType(MediaType.APPLICATION_JSON_UTF8);
+        if (gzip) {
+            return builder.header(HttpHeaders.CONTENT_ENCODING, GZIP).body(response.getGzippedContent());
+        }
+        return builder.body(response.getContent());
     }
 
-    @Bean
-    @RequestScope
-    public EntityManager getEntityManager(final EntityManagerFactory emf) {
-        return emf.createEntityManager();
+    /**
+     * Checks the {@code If-None-Match} request header against the current entity tag, using the weak comparison
+     * required for conditional GETs.
+     */
+    private static boolean isNotModified(WebRequest request, String etag) {
+        final String ifNoneMatch = request.getHeader(HttpHeaders.IF_NONE_MATCH);
+        if (ifNoneMatch == null) {
+            return false;
+        }
+        for (String candidate : ifNoneMatch.split(",")) {
+            candidate = candidate.trim();
+            if (candidate.startsWith("W/")) {
+                candidate = candidate.substring(2);
+            }
+            if (candidate.equals("*") || candidate.equals(etag)) {
+                return true;
+            }
+        }
+        return false;
     }
 
-    @Bean
-    public PlatformTransactionManager getTransactionManager(final EntityManagerFactory emf) {
-        return new JpaTransactionManager(emf);
+    private static boolean acceptsGzip(String acceptEncoding) {
+        if (acceptEncoding == null) {
+            return false;
+        }
+        for (String coding : acceptEncoding.split(",")) {
+            final String[] parts = coding.trim().split(";");
+            if (GZIP.equalsIgnoreCase(parts[0].trim())) {
+                return parts.length == 1 || !parts[1].trim().matches("q=0(\\.0*)?");
+            }
+        }
+        return false;
     }
 
-    @Bean
-    public CacheManager getCacheManager() {
-        return new ConcurrentMapCacheManager(HIERARCHIES, DIMENSIONS, DATASETS, DATASETS_TEMP, HIERARCHIES_TEMP);
+    @ResponseStatus(code = HttpStatus.BAD_REQUEST)
+    @ResponseBody
+    @ExceptionHandler(IllegalArgumentException.class)
+    public ErrorResponse onIllegalArgumentException(final IllegalArgumentException ex) {
+        return new ErrorResponse(HttpStatus.BAD_REQUEST, ex.getMessage());
     }
 
-    @CacheEvict(allEntries = true, value = {HIERARCHIES_TEMP, DATASETS_TEMP})
-    @Scheduled(fixedRate = 15000)
-    public void evictTemporaryCache() {
-        logger.trace("Evicting temporary caches");
+    @ResponseBody
+    @ResponseStatus(code = HttpStatus.NOT_IMPLEMENTED)
+    @ExceptionHandler(UnsupportedOperationException.class)
+    public ErrorResponse onUnsupportedOperation(final UnsupportedOperationException ex) {
+        return new ErrorResponse(HttpStatus.NOT_IMPLEMENTED, ex.getMessage());
     }
 
     @ExceptionHandler(NotFoundException.class)
     void handleNotFoundException(NotFoundException e, HttpServletResponse response) throws IOException {
-        logger.error(e.getMessage(), e);
+        logger.debug("Not found: {}", e.getMessage());
         response.sendError(HttpStatus.NOT_FOUND.value(), e.getMessage());
     }
 
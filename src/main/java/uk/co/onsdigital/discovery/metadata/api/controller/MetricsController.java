@@ -0,0 +1,76 @@
+package uk.co.onsdigital.discovery.metadata.api.controller;
+
+import com.codahale.metrics.MetricRegistry;
+import com.codahale.metrics.json.MetricsModule;
+import com.fasterxml.jackson.core.JsonProcessingException;
+import com.fasterxml.jackson.databind.ObjectMapper;
+import io.prometheus.client.CollectorRegistry;
+import io.prometheus.client.dropwizard.DropwizardExports;
+import io.prometheus.client.dropwizard.samplebuilder.CustomMappingSampleBuilder;
+import io.prometheus.client.dropwizard.samplebuilder.MapperConfig;
+import io.prometheus.client.exporter.common.TextFormat;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.http.MediaType;
+import org.springframework.web.bind.annotation.GetMapping;
+import org.springframework.web.bind.annotation.RestController;
+
+import javax.servlet.http.HttpServletResponse;
+import java.io.IOException;
+import java.io.Writer;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.TimeUnit;
+
+import static java.util.Arrays.asList;
+
+/**
+ * Exposes the application metrics, such as request latencies, cache hits and connection pool gauges, as JSON from
+ * {@code /metrics} (rates per second, durations in milliseconds) and in the Prometheus text format from
+ * {@code /prometheus} (durations in seconds). For Prometheus, the parts of metric names that vary, such as the route
+ * or cache name, become labels.
+ */
+@RestController
+public class MetricsController {
+
+    static final List<MapperConfig> PROMETHEUS_MAPPINGS = asList(
+            mapping("http.requests.max.*.*", "http_requests_max_seconds", "method", "route"),
+            mapping("http.requests.*.*", "http_requests_seconds", "method", "route"),
+            mapping("http.errors.*.*.*", "http_errors", "method", "route", "status"),
+            mapping("cache.*.hits", "cache_hits", "cache"),
+            mapping("cache.*.misses", "cache_misses", "cache"),
+            mapping("phase.*.*", "phase_seconds", "phase", "operation"));
+
+    private final MetricRegistry metricRegistry;
+    private final ObjectMapper objectMapper;
+    private final CollectorRegistry collectorRegistry;
+
+    @Autowired
+    public MetricsController(MetricRegistry metricRegistry) {
+        this.metricRegistry = metricRegistry;
+        this.objectMapper = new ObjectMapper().registerModule(new MetricsModule(TimeUnit.SECONDS, TimeUnit.MILLISECONDS, false));
+        this.collectorRegistry = new CollectorRegistry();
+        collectorRegistry.register(new DropwizardExports(metricRegistry, new CustomMappingSampleBuilder(PROMETHEUS_MAPPINGS)));
+    }
+
+    @GetMapping(value = "/metrics", produces = MediaType.APPLICATION_JSON_VALUE)
+    public byte[] getMetrics() throws JsonProcessingException {
+        return objectMapper.writeValueAsBytes(metricRegistry);
+    }
+
+    @GetMapping("/prometheus")
+    public void getPrometheusMetrics(HttpServletResponse response) throws IOException {
+        response.setContentType(TextFormat.CONTENT_TYPE_004);
+        try (Writer writer = response.getWriter()) {
+            TextFormat.write004(writer, collectorRegistry.metricFamilySamples());
+        }
+    }
+
+    private static MapperConfig mapping(String match, String name, String... labelNames) {
+        final Map<String, String> labels = new LinkedHashMap<>();
+        for (int i = 0; i < labelNames.length; i++) {
+            labels.put(labelNames[i], "${" + i + "}");
+        }
+        return new MapperConfig(match, name, labels);
+    }
+}
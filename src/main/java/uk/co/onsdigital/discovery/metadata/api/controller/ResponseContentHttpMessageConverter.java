@@ -0,0 +1,79 @@
+package uk.co.onsdigital.discovery.metadata.api.controller;
+
+import org.springframework.http.HttpInputMessage;
+import org.springframework.http.HttpMethod;
+import org.springframework.http.HttpOutputMessage;
+import org.springframework.http.MediaType;
+import org.springframework.http.converter.AbstractHttpMessageConverter;
+import org.springframework.http.converter.HttpMessageNotReadableException;
+import org.springframework.stereotype.Component;
+import org.springframework.web.context.request.RequestAttributes;
+import org.springframework.web.context.request.RequestContextHolder;
+import org.springframework.web.context.request.ServletRequestAttributes;
+import uk.co.onsdigital.discovery.metadata.api.cache.ResponseContent;
+
+import javax.servlet.http.HttpServletRequest;
+import java.io.IOException;
+
+/**
+ * Writes cached response content to the client. Content held in a file is handed to Tomcat to send with
+ * {@code sendfile}, so that it goes from the page cache to the socket without being copied through the JVM, when the
+ * connector supports it (e.g. not over TLS). Other content is written to the response stream.
+ */
+@Component
+public class ResponseContentHttpMessageConverter extends AbstractHttpMessageConverter<ResponseContent> {
+    static final String SENDFILE_SUPPORT = "org.apache.tomcat.sendfile.support";
+    static final String SENDFILE_FILENAME = "org.apache.tomcat.sendfile.filename";
+    static final String SENDFILE_START = "org.apache.tomcat.sendfile.start";
+    static final String SENDFILE_END = "org.apache.tomcat.sendfile.end";
+
+    public ResponseContentHttpMessageConverter() {
+        super(MediaType.ALL);
+    }
+
+    @Override
+    protected boolean supports(Class<?> clazz) {
+        return ResponseContent.class.isAssignableFrom(clazz);
+    }
+
+    @Override
+    protected boolean canRead(MediaType mediaType) {
+        return false;
+    }
+
+    @Override
+    protected ResponseContent readInternal(Class<? extends ResponseContent> clazz, HttpInputMessage inputMessage) {
+        throw new HttpMessageNotReadableException("Response content cannot be read");
+    }
+
+    @Override
+    protected Long getContentLength(ResponseContent content, MediaType contentType) {
+        return (long) content.length();
+    }
+
+    @Override
+    protected void writeInternal(ResponseContent content, HttpOutputMessage outputMessage) throws IOException {
+        final HttpServletRequest request = content.getFile() != null ? sendfileRequest() : null;
+        if (request != null) {
+            request.setAttribute(SENDFILE_FILENAME, content.getFile().toAbsolutePath().toString());
+            request.setAttribute(SENDFILE_START, content.getFileOffset());
+            request.setAttribute(SENDFILE_END, content.getFileOffset() + content.length());
+        } else {
+            content.writeTo(outputMessage.getBody());
+        }
+    }
+
+    /**
+     * @return the current request if Tomcat can send its response with {@code sendfile}, otherwise {@code null}.
+     */
+    private static HttpServletRequest sendfileRequest() {
+        final RequestAttributes attributes = RequestContextHolder.getRequestAttributes();
+        if (!(attributes instanceof ServletRequestAttributes)) {
+            return null;
+        }
+        final HttpServletRequest request = ((ServletRequestAttributes) attributes).getRequest();
+        // A HEAD response has no body, so must not be sent from the file
+        return HttpMethod.GET.matches(request.getMethod()) && Boolean.TRUE.equals(request.getAttribute(SENDFILE_SUPPORT))
+                ? request : null;
+    }
+}
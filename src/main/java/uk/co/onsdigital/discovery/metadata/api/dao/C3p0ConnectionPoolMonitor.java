@@ -0,0 +1,50 @@
+package uk.co.onsdigital.discovery.metadata.api.dao;
+
+import com.mchange.v2.c3p0.C3P0Registry;
+import com.mchange.v2.c3p0.PooledDataSource;
+import com.mchange.v2.c3p0.WrapperConnectionPoolDataSource;
+import com.mchange.v2.c3p0.impl.AbstractPoolBackedDataSource;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import uk.co.onsdigital.discovery.metadata.api.dto.PoolStatistics;
+
+import javax.sql.ConnectionPoolDataSource;
+import java.sql.SQLException;
+
+/**
+ * Reports the state of the c3p0 pools created when {@code db.pool} is {@code c3p0}. The pools are found through the
+ * c3p0 registry, so that the monitor does not depend on how the pool is wrapped.
+ */
+public class C3p0ConnectionPoolMonitor implements ConnectionPoolMonitor {
+    private static final Logger logger = LoggerFactory.getLogger(C3p0ConnectionPoolMonitor.class);
+
+    @Override
+    public PoolStatistics getStatistics() {
+        int busy = 0, idle = 0, total = 0, max = 0, awaiting = 0;
+        boolean found = false;
+        for (Object registered : C3P0Registry.getPooledDataSources()) {
+            final PooledDataSource dataSource = (PooledDataSource) registered;
+            try {
+                busy += dataSource.getNumBusyConnectionsAllUsers();
+                idle += dataSource.getNumIdleConnectionsAllUsers();
+                total += dataSource.getNumConnectionsAllUsers();
+                awaiting += dataSource.getNumThreadsAwaitingCheckoutDefaultUser();
+                max += maxPoolSize(dataSource);
+                found = true;
+            } catch (SQLException e) {
+                logger.warn("Unable to read statistics of connection pool {}: {}", dataSource.getDataSourceName(), e.getMessage());
+            }
+        }
+        return found ? new PoolStatistics(busy, idle, total, max, awaiting) : null;
+    }
+
+    private static int maxPoolSize(PooledDataSource dataSource) {
+        if (dataSource instanceof AbstractPoolBackedDataSource) {
+            final ConnectionPoolDataSource poolDataSource = ((AbstractPoolBackedDataSource) dataSource).getConnectionPoolDataSource();
+            if (poolDataSource instanceof WrapperConnectionPoolDataSource) {
+                return ((WrapperConnectionPoolDataSource) poolDataSource).getMaxPoolSize();
+            }
+        }
+        return 0;
+    }
+}
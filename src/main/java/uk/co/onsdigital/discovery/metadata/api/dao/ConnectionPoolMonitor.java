@@ -0,0 +1,14 @@
+package uk.co.onsdigital.discovery.metadata.api.dao;
+
+import uk.co.onsdigital.discovery.metadata.api.dto.PoolStatistics;
+
+/**
+ * Reports the state of the database connection pool.
+ */
+public interface ConnectionPoolMonitor {
+
+    /**
+     * @return the current state of the pool, or {@code null} if no pool has been started.
+     */
+    PoolStatistics getStatistics();
+}
@@ -0,0 +1,131 @@
+package uk.co.onsdigital.discovery.metadata.api.dao;
+
+import com.codahale.metrics.Gauge;
+import com.codahale.metrics.MetricRegistry;
+import com.mchange.v2.c3p0.ComboPooledDataSource;
+import com.zaxxer.hikari.HikariConfig;
+import com.zaxxer.hikari.HikariDataSource;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.context.annotation.Bean;
+import org.springframework.context.annotation.Configuration;
+import org.springframework.core.env.Environment;
+import uk.co.onsdigital.discovery.metadata.api.dto.PoolStatistics;
+
+import javax.sql.DataSource;
+import java.beans.PropertyVetoException;
+import java.util.concurrent.TimeUnit;
+import java.util.function.ToIntFunction;
+
+/**
+ * Configures the database connection pool that Hibernate draws its connections from. By default this is HikariCP;
+ * setting {@code db.pool} to {@code c3p0} restores the previous pool.
+ * <p>
+ * Both pools report the same metrics under {@value #POOL_NAME}: the {@code pool.Wait} timer for the time taken to
+ * acquire a connection, the {@code pool.ConnectionTimeoutRate} meter for failed acquisitions and gauges for the active,
+ * idle, total and pending connection counts. HikariCP records these itself; for c3p0 they are added by
+ * {@link InstrumentedDataSource}.
+ * <p>
+ * Prepared statements are cached per connection, {@code db.statement.cache.size} of them, which should cover every
+ * named query plus the entity and collection loads that Hibernate generates. HikariCP leaves this to the PostgreSQL
+ * driver, which caches statements without any locking.
+ */
+@Configuration
+public class DataSourceConfiguration {
+    private static final Logger logger = LoggerFactory.getLogger(DataSourceConfiguration.class);
+
+    static final String POOL_HIKARI = "hikari";
+    static final String POOL_C3P0 = "c3p0";
+    static final String POOL_NAME = "metadata-db";
+
+    @Bean(destroyMethod = "close")
+    public DataSource getDataSource(@Value("${db.pool:hikari}") String pool, Environment environment,
+                                    MetricRegistry metricRegistry) throws PropertyVetoException {
+        logger.info("Using {} connection pool for {} as {}", pool, environment.getProperty("db.url"),
+                environment.getProperty("db.user"));
+        switch (pool) {
+            case POOL_HIKARI:
+                final HikariConfig config = hikariConfig(environment);
+                config.setMetricRegistry(metricRegistry);
+                return new HikariDataSource(config);
+            case POOL_C3P0:
+                registerPoolGauges(metricRegistry, new C3p0ConnectionPoolMonitor());
+                return new InstrumentedDataSource(c3p0DataSource(environment), metricRegistry, POOL_NAME);
+            default:
+                throw new IllegalArgumentException("Unknown connection pool: " + pool);
+        }
+    }
+
+    @Bean
+    public ConnectionPoolMonitor getConnectionPoolMonitor(@Value("${db.pool:hikari}") String pool,
+                                                          Environment environment, MetricRegistry metricRegistry) {
+        if (POOL_C3P0.equals(pool)) {
+            return new C3p0ConnectionPoolMonitor();
+        }
+        return new HikariConnectionPoolMonitor(metricRegistry, POOL_NAME, maxPoolSize(environment));
+    }
+
+    static HikariConfig hikariConfig(Environment environment) {
+        final HikariConfig config = new HikariConfig();
+        config.setPoolName(POOL_NAME);
+        config.setDriverClassName(environment.getProperty("db.driver"));
+        config.setJdbcUrl(environment.getProperty("db.url"));
+        config.setUsername(environment.getProperty("db.user"));
+        config.setPassword(environment.getProperty("db.password"));
+        config.setMinimumIdle(environment.getProperty("db.pool.min.size", Integer.class, 5));
+        config.setMaximumPoolSize(maxPoolSize(environment));
+        config.setIdleTimeout(TimeUnit.SECONDS.toMillis(environment.getProperty("db.pool.idle.timeout.seconds", Long.class, 1800L)));
+        config.setConnectionTimeout(environment.getProperty("db.pool.connection.timeout.ms", Long.class, 30000L));
+        config.setLeakDetectionThreshold(TimeUnit.SECONDS.toMillis(environment.getProperty("db.pool.leak.timeout.seconds", Long.class, 90L)));
+        // Start even if the database is down, as c3p0 does, so that the health check can report it
+        config.setInitializationFailFast(false);
+        config.addDataSourceProperty("preparedStatementCacheQueries", statementCacheSize(environment));
+        return config;
+    }
+
+    static ComboPooledDataSource c3p0DataSource(Environment environment) throws PropertyVetoException {
+        final ComboPooledDataSource dataSource = new ComboPooledDataSource(POOL_NAME);
+        dataSource.setDriverClass(environment.getProperty("db.driver"));
+        dataSource.setJdbcUrl(environment.getProperty("db.url"));
+        dataSource.setUser(environment.getProperty("db.user"));
+        dataSource.setPassword(environment.getProperty("db.password"));
+        dataSource.setMinPoolSize(environment.getProperty("db.pool.min.size", Integer.class, 5));
+        dataSource.setInitialPoolSize(dataSource.getMinPoolSize());
+        dataSource.setMaxPoolSize(maxPoolSize(environment));
+        dataSource.setMaxIdleTime(environment.getProperty("db.pool.idle.timeout.seconds", Integer.class, 1800));
+        dataSource.setCheckoutTimeout(environment.getProperty("db.pool.connection.timeout.ms", Integer.class, 30000));
+        dataSource.setUnreturnedConnectionTimeout(environment.getProperty("db.pool.leak.timeout.seconds", Integer.class, 90));
+        // max_statements was a limit for the whole pool, i.e. about one statement per connection
+        dataSource.setMaxStatements(0);
+        dataSource.setMaxStatementsPerConnection(statementCacheSize(environment));
+        dataSource.setNumHelperThreads(6);
+        return dataSource;
+    }
+
+    private static int maxPoolSize(Environment environment) {
+        return environment.getProperty("db.pool.max.size", Integer.class, 50);
+    }
+
+    private static int statementCacheSize(Environment environment) {
+        return environment.getProperty("db.statement.cache.size", Integer.class, 64);
+    }
+
+    /**
+     * Registers the connection count gauges that HikariCP registers itself, so that both pools can be monitored alike.
+     */
+    private static void registerPoolGauges(MetricRegistry metricRegistry, ConnectionPoolMonitor monitor) {
+        registerPoolGauge(metricRegistry, monitor, "TotalConnections", PoolStatistics::getTotalConnections);
+        registerPoolGauge(metricRegistry, monitor, "IdleConnections", PoolStatistics::getIdleConnections);
+        registerPoolGauge(metricRegistry, monitor, "ActiveConnections", PoolStatistics::getBusyConnections);
+        registerPoolGauge(metricRegistry, monitor, "PendingConnections", PoolStatistics::getThreadsAwaitingConnection);
+    }
+
+    private static void registerPoolGauge(MetricRegistry metricRegistry, ConnectionPoolMonitor monitor, String name,
+                                          ToIntFunction<PoolStatistics> value) {
+        metricRegistry.register(MetricRegistry.name(POOL_NAME, "pool", name), (Gauge<Integer>) () -> {
+            final PoolStatistics statistics = monitor.getStatistics();
+            return statistics != null ? value.applyAsInt(statistics) : 0;
+        });
+    }
+}
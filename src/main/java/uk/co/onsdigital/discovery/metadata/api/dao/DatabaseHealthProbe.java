@@ -0,0 +1,116 @@
+package uk.co.onsdigital.discovery.metadata.api.dao;
+
+import org.hibernate.Session;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.stereotype.Component;
+
+import javax.annotation.PostConstruct;
+import javax.annotation.PreDestroy;
+import javax.persistence.EntityManager;
+import javax.persistence.EntityManagerFactory;
+import java.sql.Statement;
+import java.util.concurrent.Executors;
+import java.util.concurrent.ScheduledExecutorService;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Periodically checks out a connection from the pool and runs a trivial query, recording how long the checkout took
+ * and when the database last answered. Probes run on their own thread, so a probe stuck waiting for an exhausted pool
+ * does not hold up other scheduled tasks, and the wait of a probe still in progress is reported as it grows. The query
+ * itself is given {@code health.probe.timeout.seconds} to answer, so a hung database cannot stop later probes.
+ */
+@Component
+public class DatabaseHealthProbe {
+    private static final Logger logger = LoggerFactory.getLogger(DatabaseHealthProbe.class);
+
+    static final String PROBE_QUERY = "select 1";
+
+    private final EntityManagerFactory entityManagerFactory;
+    private final long intervalMillis;
+    private final int timeoutSeconds;
+    private ScheduledExecutorService scheduler;
+
+    private volatile long probeStartedMillis;
+    private volatile long lastConnectionWaitMillis;
+    private volatile Long lastSuccessMillis;
+    private volatile String lastError;
+
+    @Autowired
+    public DatabaseHealthProbe(EntityManagerFactory entityManagerFactory,
+                               @Value("${health.probe.interval.ms:10000}") long intervalMillis,
+                               @Value("${health.probe.timeout.seconds:5}") int timeoutSeconds) {
+        this.entityManagerFactory = entityManagerFactory;
+        this.intervalMillis = intervalMillis;
+        this.timeoutSeconds = timeoutSeconds;
+    }
+
+    @PostConstruct
+    public void start() {
+        scheduler = Executors.newSingleThreadScheduledExecutor(runnable -> {
+            final Thread thread = new Thread(runnable, "database-health-probe");
+            thread.setDaemon(true);
+            return thread;
+        });
+        scheduler.scheduleWithFixedDelay(this::probe, 0, intervalMillis, TimeUnit.MILLISECONDS);
+    }
+
+    @PreDestroy
+    public void stop() {
+        scheduler.shutdownNow();
+    }
+
+    /**
+     * Runs a single probe query.
+     */
+    void probe() {
+        final long start = System.currentTimeMillis();
+        probeStartedMillis = start;
+        final EntityManager entityManager = entityManagerFactory.createEntityManager();
+        try {
+            entityManager.unwrap(Session.class).doWork(connection -> {
+                lastConnectionWaitMillis = System.currentTimeMillis() - start;
+                // No longer waiting for the pool; the time the query takes is not connection wait
+                probeStartedMillis = 0;
+                try (Statement statement = connection.createStatement()) {
+                    statement.setQueryTimeout(timeoutSeconds);
+                    statement.execute(PROBE_QUERY);
+                }
+            });
+            lastSuccessMillis = System.currentTimeMillis();
+            lastError = null;
+        } catch (RuntimeException e) {
+            logger.warn("Database health probe failed: {}", e.getMessage());
+            lastError = e.getMessage();
+        } finally {
+            probeStartedMillis = 0;
+            entityManager.close();
+        }
+    }
+
+    /**
+     * @return when the database last answered a probe, in milliseconds since the epoch, or {@code null} if it never has.
+     */
+    public Long getLastSuccessMillis() {
+        return lastSuccessMillis;
+    }
+
+    /**
+     * @return how long the latest probe waited for a connection. If a probe is still waiting then this is how long it
+     * has waited so far.
+     */
+    public long getConnectionWaitMillis() {
+        final long started = probeStartedMillis;
+        final long waiting = started != 0 ? System.currentTimeMillis() - started : 0;
+        return Math.max(waiting, lastConnectionWaitMillis);
+    }
+
+    /**
+     * @return the error from the latest probe, or {@code null} if it succeeded.
+     */
+    public String getLastError() {
+        return lastError;
+    }
+}
@@ -0,0 +1,41 @@
+package uk.co.onsdigital.discovery.metadata.api.dao;
+
+import com.codahale.metrics.Gauge;
+import com.codahale.metrics.MetricRegistry;
+import uk.co.onsdigital.discovery.metadata.api.dto.PoolStatistics;
+
+/**
+ * Reports the state of a HikariCP pool from the gauges that it registers in the metric registry, as this version of
+ * HikariCP only exposes its pool statistics through metrics and JMX.
+ */
+public class HikariConnectionPoolMonitor implements ConnectionPoolMonitor {
+
+    private final MetricRegistry metricRegistry;
+    private final String poolName;
+    private final int maxPoolSize;
+
+    public HikariConnectionPoolMonitor(MetricRegistry metricRegistry, String poolName, int maxPoolSize) {
+        this.metricRegistry = metricRegistry;
+        this.poolName = poolName;
+        this.maxPoolSize = maxPoolSize;
+    }
+
+    @Override
+    public PoolStatistics getStatistics() {
+        final Integer total = gauge("TotalConnections");
+        if (total == null) {
+            return null;
+        }
+        return new PoolStatistics(intValue(gauge("ActiveConnections")), intValue(gauge("IdleConnections")), total,
+                maxPoolSize, intValue(gauge("PendingConnections")));
+    }
+
+    private Integer gauge(String name) {
+        final Gauge<?> gauge = metricRegistry.getGauges().get(MetricRegistry.name(poolName, "pool", name));
+        return gauge != null ? (Integer) gauge.getValue() : null;
+    }
+
+    private static int intValue(Integer value) {
+        return value != null ? value : 0;
+    }
+}
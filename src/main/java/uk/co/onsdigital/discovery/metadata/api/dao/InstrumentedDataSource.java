@@ -0,0 +1,45 @@
+package uk.co.onsdigital.discovery.metadata.api.dao;
+
+import com.codahale.metrics.Meter;
+import com.codahale.metrics.MetricRegistry;
+import com.codahale.metrics.Timer;
+import com.mchange.v2.c3p0.PooledDataSource;
+import org.springframework.jdbc.datasource.DelegatingDataSource;
+
+import java.sql.Connection;
+import java.sql.SQLException;
+
+/**
+ * Wraps a c3p0 pool to record how long each connection takes to acquire and how often acquiring one fails, under the
+ * same names that HikariCP uses. With a checkout timeout set, a failure is either a timeout or the database refusing
+ * connections.
+ */
+public class InstrumentedDataSource extends DelegatingDataSource implements AutoCloseable {
+
+    private final Timer waitTimer;
+    private final Meter timeoutMeter;
+
+    public InstrumentedDataSource(PooledDataSource targetDataSource, MetricRegistry metricRegistry, String poolName) {
+        super(targetDataSource);
+        this.waitTimer = metricRegistry.timer(MetricRegistry.name(poolName, "pool", "Wait"));
+        this.timeoutMeter = metricRegistry.meter(MetricRegistry.name(poolName, "pool", "ConnectionTimeoutRate"));
+    }
+
+    @Override
+    public Connection getConnection() throws SQLException {
+        final Timer.Context context = waitTimer.time();
+        try {
+            return super.getConnection();
+        } catch (SQLException e) {
+            timeoutMeter.mark();
+            throw e;
+        } finally {
+            context.stop();
+        }
+    }
+
+    @Override
+    public void close() throws SQLException {
+        ((PooledDataSource) getTargetDataSource()).close();
+    }
+}
@@ -0,0 +1,24 @@
+package uk.co.onsdigital.discovery.metadata.api.dao;
+
+import org.hibernate.dialect.PostgreSQL95Dialect;
+import org.hibernate.dialect.function.SQLFunctionTemplate;
+import org.hibernate.type.StandardBasicTypes;
+
+/**
+ * PostgreSQL dialect with the functions used by the metadata API's own queries in META-INF/orm.xml.
+ */
+public class MetadataApiPostgreSQLDialect extends PostgreSQL95Dialect {
+
+    /**
+     * Sort key that orders strings in the database as {@link uk.co.onsdigital.discovery.metadata.api.dto.common.DimensionOption#fold(String)}
+     * orders them in Java: each character is upper-cased then lower-cased, and the result is compared byte by byte
+     * ({@code collate "C"}) rather than by the database's locale. UTF-8 bytes compare in code point order, which is the
+     * order of {@link String#compareTo(String)} unless the strings hold characters beyond U+FFFF. Case mapping
+     * follows the database's character type, which must be a UTF-8 locale for non-ASCII letters to be folded.
+     */
+    public static final String FOLD_SORT_KEY = "fold_sort_key";
+
+    public MetadataApiPostgreSQLDialect() {
+        registerFunction(FOLD_SORT_KEY, new SQLFunctionTemplate(StandardBasicTypes.STRING, "lower(upper(?1)) collate \"C\""));
+    }
+}
@@ -1,10 +1,14 @@
 package uk.co.onsdigital.discovery.metadata.api.dao;
 
+import uk.co.onsdigital.discovery.metadata.api.dto.common.DimensionOption;
 import uk.co.onsdigital.discovery.metadata.api.exception.DataResourceNotFoundExcecption;
 import uk.co.onsdigital.discovery.metadata.api.exception.DataSetNotFoundException;
 import uk.co.onsdigital.discovery.model.*;
 
+import java.util.Collection;
 import java.util.List;
+import java.util.UUID;
+import java.util.stream.Stream;
 
 /**
  * Data Access Object for retrieving metadata from the data discovery database.
@@ -38,6 +42,27 @@ public interface MetadataDao {
      */
     List<DataResource> findDataResourcesPage(int pageNumber, int pageSize);
 
+    /**
+     * Find the available datasets that follow the given dataset, in primary key order. Unlike
+     * {@link #findLegacyDataSetsPage(int, int)} this seeks past the key instead of skipping an offset, so deep pages
+     * are as cheap as the first one, but not necessarily in the same order as those pages.
+     *
+     * @param afterId the id of the last dataset on the previous page, or {@code null} to start from the beginning.
+     * @param limit the maximum number of datasets to return.
+     * @return the datasets following the given id.
+     */
+    List<DataSet> findLegacyDataSetsAfter(UUID afterId, int limit);
+
+    /**
+     * Find the available dataresources that follow the given dataresource, in primary key order rather than in the
+     * order of {@link #findDataResourcesPage(int, int)}.
+     *
+     * @param afterId the id of the last dataresource on the previous page, or {@code null} to start from the beginning.
+     * @param limit the maximum number of dataresources to return.
+     * @return the dataresources following the given id.
+     */
+    List<DataResource> findDataResourcesAfter(String afterId, int limit);
+
     /**
      * Find a particular dataresource by its id and list all the data set editions and versions it has.
      * @param dataResourceId the dataresource id.
@@ -65,6 +90,7 @@ public interface MetadataDao {
 
     /**
      * Load the dimensions for a given dataset based on UUID.
+     * The values of each dimension are join-fetched with their hierarchy entries rather than loaded lazily.
      *
      * @param dataSetId the id of the dataset to load the dimensions for.
      * @return the dimensions defined in the given dataset.
@@ -74,6 +100,7 @@ public interface MetadataDao {
 
     /**
      * Load the dimensions for a given dataset based on edition and version.
+     * The values of each dimension are join-fetched with their hierarchy entries rather than loaded lazily.
      *
      * @param edition the edition of the dataset.
      * @param version the version of the dataset.
@@ -82,6 +109,27 @@ public interface MetadataDao {
      */
     List<Dimension> findDimensionsForDataSet(String dataResourceId, String edition, int version) throws DataSetNotFoundException;
 
+    /**
+     * Load the named dimensions of a dataset that has already been looked up, with their values and hierarchy entries
+     * in a single query. Names that are not dimensions of the dataset are ignored.
+     *
+     * @param dataSetId the id of the dataset.
+     * @param dimensionNames the names of the dimensions to load.
+     * @return the matching dimensions, in no particular order.
+     */
+    List<Dimension> findDimensionsForDataSet(UUID dataSetId, Collection<String> dimensionNames);
+
+    /**
+     * Read the values of a dimension as options, in the same order as the {@code list} view, without loading them all
+     * into memory. The stream holds an open database cursor, so it must be closed after use and consumed within the
+     * current transaction.
+     *
+     * @param dataSetId the id of the dataset.
+     * @param dimensionName the name of the dimension within the dataset.
+     * @return the options of the dimension in list order, or an empty stream if there is no such dimension.
+     */
+    Stream<DimensionOption> streamDimensionOptions(UUID dataSetId, String dimensionName);
+
     /**
      * List all hierarchies defined in the database.
      *
@@ -96,4 +144,21 @@ public interface MetadataDao {
      * @return the entries from the given hierarchy, or an empty list if it does not exist.
      */
     List<HierarchyEntry> findAllEntriesInHierarchy(String hierarchyId);
+
+    /**
+     * Checksums the entries of a hierarchy without loading them, so that a copy of the hierarchy can be checked
+     * against the database. The checksum changes whenever an entry, the order of the entries or the name or type of
+     * the hierarchy changes.
+     *
+     * @param hierarchyId the id of the hierarchy.
+     * @return the checksum, or {@code null} if the hierarchy does not exist or has no entries.
+     */
+    String findHierarchyChecksum(String hierarchyId);
+
+    /**
+     * List all hierarchy level types defined in the database.
+     *
+     * @return the list of all level types.
+     */
+    List<HierarchyLevelType> listAllHierarchyLevelTypes();
 }
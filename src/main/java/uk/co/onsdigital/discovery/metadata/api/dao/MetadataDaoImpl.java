@@ -1,22 +1,65 @@
 package uk.co.onsdigital.discovery.metadata.api.dao;
 
+import org.hibernate.FlushMode;
+import org.hibernate.jpa.QueryHints;
 import org.slf4j.Logger;
 import org.slf4j.LoggerFactory;
 import org.springframework.stereotype.Repository;
 import uk.co.onsdigital.discovery.metadata.api.controller.MetadataController;
+import uk.co.onsdigital.discovery.metadata.api.dto.common.DimensionOption;
 import uk.co.onsdigital.discovery.metadata.api.exception.DataResourceNotFoundExcecption;
 import uk.co.onsdigital.discovery.metadata.api.exception.DataSetNotFoundException;
 import uk.co.onsdigital.discovery.model.*;
 
 import javax.persistence.*;
+import java.util.Collection;
 import java.util.List;
+import java.util.Objects;
 import java.util.UUID;
+import java.util.stream.Stream;
 
 /**
  * Implementation of the MetadataDao using JPA.
  */
 @Repository
 public class MetadataDaoImpl implements MetadataDao {
+    /**
+     * Named query (defined in META-INF/orm.xml) that loads the dimensions of a dataset along with all of their values,
+     * hierarchy entries, hierarchies and level types.
+     */
+    static final String FIND_DIMENSIONS_WITH_VALUES = "MetadataApi.findDimensionsWithValues";
+    static final String DATA_SET_ID_PARAM = "dataSetId";
+
+    /**
+     * Named query (defined in META-INF/orm.xml) that loads only the named dimensions of a dataset, as above.
+     */
+    static final String FIND_DIMENSIONS_WITH_VALUES_BY_NAME = "MetadataApi.findDimensionsWithValuesByName";
+    static final String DIMENSION_NAMES_PARAM = "dimensionNames";
+
+    /**
+     * Named query (defined in META-INF/orm.xml) that reads the values of a dimension as options in list view order.
+     */
+    static final String STREAM_DIMENSION_OPTIONS = "MetadataApi.streamDimensionOptions";
+    static final String DIMENSION_NAME_PARAM = "dimensionName";
+
+    // Keyset pagination queries (defined in META-INF/orm.xml), ordered by primary key rather than in the model's order
+    static final String FIND_DATA_RESOURCES = "MetadataApi.findActiveDataResources";
+    static final String FIND_DATA_RESOURCES_AFTER = "MetadataApi.findActiveDataResourcesAfter";
+    static final String FIND_DATA_SETS = "MetadataApi.findActiveDataSets";
+    static final String FIND_DATA_SETS_AFTER = "MetadataApi.findActiveDataSetsAfter";
+    static final String AFTER_PARAM = "after";
+    static final String STATUS_PARAM = "status";
+
+    /**
+     * Named query (defined in META-INF/orm.xml) that checksums the entries of a hierarchy in the database.
+     */
+    static final String HIERARCHY_CHECKSUM = "MetadataApi.hierarchyChecksum";
+
+    /**
+     * Named query (defined in META-INF/orm.xml) that loads every hierarchy level type.
+     */
+    static final String FIND_ALL_HIERARCHY_LEVEL_TYPES = "MetadataApi.findAllHierarchyLevelTypes";
+
     private final EntityManager entityManager;
     private static final Logger logger = LoggerFactory.getLogger(MetadataDaoImpl.class);
 
@@ -27,18 +70,18 @@ public class MetadataDaoImpl implements MetadataDao {
 
     @Override
     public long countDataSets() {
-        return entityManager.createNamedQuery(DataSet.COUNT_ACTIVE_QUERY, Long.class).getSingleResult();
+        return namedQuery(DataSet.COUNT_ACTIVE_QUERY, Long.class).getSingleResult();
     }
 
     @Override
     public long countDataResources() {
-        return entityManager.createNamedQuery(DataResource.COUNT_ACTIVE, Long.class).getSingleResult();
+        return namedQuery(DataResource.COUNT_ACTIVE, Long.class).getSingleResult();
     }
 
     @Override
     public List<DataSet> findLegacyDataSetsPage(int pageNumber, int pageSize) {
         final int firstPageOffset = (pageNumber - 1) * pageSize;
-        return entityManager.createNamedQuery(DataSet.FIND_ACTIVE_QUERY, DataSet.class)
+        return namedQuery(DataSet.FIND_ACTIVE_QUERY, DataSet.class)
                 .setFirstResult(firstPageOffset).setMaxResults(pageSize).getResultList();
     }
 
@@ -46,15 +89,31 @@ public class MetadataDaoImpl implements MetadataDao {
     @Override
     public List<DataResource> findDataResourcesPage(int pageNumber, int pageSize) {
         final int firstPageOffset = (pageNumber - 1) * pageSize;
-        return entityManager.createNamedQuery(DataResource.FIND_ACTIVE_QUERY, DataResource.class)
+        return namedQuery(DataResource.FIND_ACTIVE_QUERY, DataResource.class)
                 .setFirstResult(firstPageOffset).setMaxResults(pageSize).getResultList();
     }
 
+    @Override
+    public List<DataSet> findLegacyDataSetsAfter(UUID afterId, int limit) {
+        final TypedQuery<DataSet> query = afterId == null
+                ? activeQuery(FIND_DATA_SETS, DataSet.class)
+                : activeQuery(FIND_DATA_SETS_AFTER, DataSet.class).setParameter(AFTER_PARAM, afterId);
+        return query.setMaxResults(limit).getResultList();
+    }
+
+    @Override
+    public List<DataResource> findDataResourcesAfter(String afterId, int limit) {
+        final TypedQuery<DataResource> query = afterId == null
+                ? activeQuery(FIND_DATA_RESOURCES, DataResource.class)
+                : activeQuery(FIND_DATA_RESOURCES_AFTER, DataResource.class).setParameter(AFTER_PARAM, afterId);
+        return query.setMaxResults(limit).getResultList();
+    }
+
     public DataResource findDataResource(String dataResourceId) throws DataResourceNotFoundExcecption {
         final DataResource dataResource = entityManager.find(DataResource.class, dataResourceId);
         if (dataResource == null) {
             String errorMessage = "No such dataResource: " + dataResourceId;
-            logger.error(errorMessage);
+            logger.debug(errorMessage);
             throw new DataResourceNotFoundExcecption(errorMessage);
         }
         return dataResource;
@@ -65,7 +124,7 @@ public class MetadataDaoImpl implements MetadataDao {
         final DataSet dataSet = entityManager.find(DataSet.class, UUID.fromString(dataSetId));
         if (dataSet == null) {
             String errorMessage = "No such dataset with uuid: " + dataSetId;
-            logger.error(errorMessage);
+            logger.debug(errorMessage);
             throw new DataSetNotFoundException(errorMessage);
         }
         return dataSet;
@@ -75,37 +134,105 @@ public class MetadataDaoImpl implements MetadataDao {
     public DataSet findDataSetByEditionAndVersion(String dataResourceId, String edition, int version) throws DataSetNotFoundException {
         try {
             final DataSet dataSet =
-                    entityManager.createNamedQuery(DataSet.FIND_BY_EDITION_VERSION, DataSet.class)
+                    namedQuery(DataSet.FIND_BY_EDITION_VERSION, DataSet.class)
                             .setParameter(DataSet.DATA_RESOURCE_PARAM, dataResourceId)
                             .setParameter(DataSet.EDITION_PARAM, edition)
                             .setParameter(DataSet.VERSION_PARAM, version)
                             .getSingleResult();
             return dataSet;
         } catch (NoResultException e) {
-            String errorMessage = "No such dataset with dataResourceId/edition/version: " + String.join("/", new String[]{dataResourceId, edition, Integer.toString(version)});
-            logger.error(errorMessage);
-            throw new DataSetNotFoundException(errorMessage);        }
+            String errorMessage = "No such dataset with dataResourceId/edition/version: " + dataResourceId + "/" +
+                    edition + "/" + version;
+            logger.debug(errorMessage);
+            throw new DataSetNotFoundException(errorMessage);
+        }
     }
 
     @Override
     public List<Dimension> findDimensionsForDataSet(String dataSetId) throws DataSetNotFoundException {
-        return findDataSetByUuid(dataSetId).getDimensions();
+        return findDimensionsWithValues(findDataSetByUuid(dataSetId));
     }
 
     @Override
     public List<Dimension> findDimensionsForDataSet(String dataResourceId, String edition, int version) throws DataSetNotFoundException {
-        return findDataSetByEditionAndVersion(dataResourceId, edition, version).getDimensions();
+        return findDimensionsWithValues(findDataSetByEditionAndVersion(dataResourceId, edition, version));
+    }
+
+    /**
+     * Loads the dimensions of a dataset, join-fetching their values and hierarchy entries rather than loading them
+     * lazily as each value is rendered. The dataset is looked up first so that a missing dataset can be told apart from
+     * one without any dimensions.
+     */
+    private List<Dimension> findDimensionsWithValues(DataSet dataSet) {
+        return namedQuery(FIND_DIMENSIONS_WITH_VALUES, Dimension.class)
+                .setParameter(DATA_SET_ID_PARAM, dataSet.getId())
+                .getResultList();
+    }
+
+    @Override
+    public List<Dimension> findDimensionsForDataSet(UUID dataSetId, Collection<String> dimensionNames) {
+        return namedQuery(FIND_DIMENSIONS_WITH_VALUES_BY_NAME, Dimension.class)
+                .setParameter(DATA_SET_ID_PARAM, dataSetId)
+                .setParameter(DIMENSION_NAMES_PARAM, dimensionNames)
+                .getResultList();
+    }
+
+    @Override
+    @SuppressWarnings("unchecked")
+    public Stream<DimensionOption> streamDimensionOptions(UUID dataSetId, String dimensionName) {
+        final TypedQuery<DimensionOption> query = namedQuery(STREAM_DIMENSION_OPTIONS, DimensionOption.class)
+                .setParameter(DATA_SET_ID_PARAM, dataSetId)
+                .setParameter(DIMENSION_NAME_PARAM, dimensionName);
+        // JPA 2.1 has no streaming API, so use Hibernate's, which reads from a forward-only cursor
+        return query.unwrap(org.hibernate.query.Query.class).stream();
     }
 
     @Override
     public List<Hierarchy> listAllHierarchies() {
-        return entityManager.createNamedQuery(Hierarchy.FIND_ALL, Hierarchy.class).getResultList();
+        return namedQuery(Hierarchy.FIND_ALL, Hierarchy.class).getResultList();
     }
 
     @Override
     public List<HierarchyEntry> findAllEntriesInHierarchy(String hierarchyId) {
-        return entityManager.createNamedQuery(HierarchyEntry.FIND_BY_HIERARCHY_ID, HierarchyEntry.class)
+        return namedQuery(HierarchyEntry.FIND_BY_HIERARCHY_ID, HierarchyEntry.class)
                 .setParameter(HierarchyEntry.HIERARCHY_ID_PARAM, hierarchyId)
                 .getResultList();
     }
+
+    @Override
+    public String findHierarchyChecksum(String hierarchyId) {
+        final Object[] result = namedQuery(HIERARCHY_CHECKSUM, Object[].class)
+                .setParameter(HierarchyEntry.HIERARCHY_ID_PARAM, hierarchyId)
+                .getSingleResult();
+        final long count = ((Number) result[0]).longValue();
+        if (count == 0) {
+            return null;
+        }
+        final long sum = ((Number) result[1]).longValue();
+        return count + "-" + Long.toHexString(sum) + "-" + Integer.toHexString(Objects.hash(result[2], result[3]));
+    }
+
+    @Override
+    public List<HierarchyLevelType> listAllHierarchyLevelTypes() {
+        return namedQuery(FIND_ALL_HIERARCHY_LEVEL_TYPES, HierarchyLevelType.class).getResultList();
+    }
+
+    /**
+     * Creates a keyset query restricted to completed datasets, as a {@link #namedQuery(String, Class)}.
+     */
+    private <T> TypedQuery<T> activeQuery(String name, Class<T> resultClass) {
+        return namedQuery(name, resultClass).setParameter(STATUS_PARAM, DataSet.STATUS_COMPLETE);
+    }
+
+    /**
+     * Creates a named query whose results are loaded read-only, so Hibernate does not keep a snapshot of every entity
+     * for dirty checking, and which never flushes the session first. Nothing in this API writes to the database.
+     * Entities loaded with {@link EntityManager#find} are made read-only by the read-only transactions of the service
+     * layer instead.
+     */
+    private <T> TypedQuery<T> namedQuery(String name, Class<T> resultClass) {
+        return entityManager.createNamedQuery(name, resultClass)
+                .setHint(QueryHints.HINT_READONLY, true)
+                .setHint(QueryHints.HINT_FLUSH_MODE, FlushMode.MANUAL);
+    }
 }
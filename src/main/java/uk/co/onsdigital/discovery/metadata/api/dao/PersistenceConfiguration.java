@@ -0,0 +1,57 @@
+package uk.co.onsdigital.discovery.metadata.api.dao;
+
+import org.hibernate.cfg.AvailableSettings;
+import org.springframework.context.annotation.Bean;
+import org.springframework.context.annotation.Configuration;
+import org.springframework.orm.jpa.JpaTransactionManager;
+import org.springframework.orm.jpa.SharedEntityManagerCreator;
+import org.springframework.orm.jpa.vendor.HibernateJpaDialect;
+import org.springframework.transaction.PlatformTransactionManager;
+
+import javax.persistence.EntityManager;
+import javax.persistence.EntityManagerFactory;
+import javax.persistence.Persistence;
+import javax.sql.DataSource;
+import java.util.HashMap;
+import java.util.Map;
+
+/**
+ * Configures JPA for the DAO layer. These beans are kept out of the application class, which is also the controller,
+ * so that creating the DAO does not require the controller that (indirectly) depends on it.
+ */
+@Configuration
+public class PersistenceConfiguration {
+
+    /**
+     * Creates the entity manager factory on top of the connection pool from {@link DataSourceConfiguration}, rather
+     * than letting Hibernate create its own pool from persistence.xml.
+     */
+    @Bean
+    public EntityManagerFactory getEntityManagerFactory(final DataSource dataSource) {
+        final Map<String, Object> properties = new HashMap<>();
+        properties.put(AvailableSettings.DATASOURCE, dataSource);
+        return Persistence.createEntityManagerFactory("data_discovery", properties);
+    }
+
+    /**
+     * A thread-safe proxy that delegates to the EntityManager of the current transaction, so that a Hibernate session is
+     * only opened when a service method actually needs the database (i.e. on a cache miss) and is closed as soon as it
+     * returns. Outside a transaction each operation gets its own short-lived EntityManager. The proxy must not be
+     * closed, hence the empty destroy method.
+     */
+    @Bean(destroyMethod = "")
+    public EntityManager getEntityManager(final EntityManagerFactory emf) {
+        return SharedEntityManagerCreator.createSharedEntityManager(emf);
+    }
+
+    /**
+     * Transaction manager for the service layer. The Hibernate dialect makes read-only transactions load entities
+     * read-only, with {@link org.hibernate.FlushMode#MANUAL} and a read-only JDBC connection.
+     */
+    @Bean
+    public PlatformTransactionManager getTransactionManager(final EntityManagerFactory emf) {
+        final JpaTransactionManager transactionManager = new JpaTransactionManager(emf);
+        transactionManager.setJpaDialect(new HibernateJpaDialect());
+        return transactionManager;
+    }
+}
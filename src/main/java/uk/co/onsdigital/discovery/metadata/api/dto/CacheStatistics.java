@@ -0,0 +1,77 @@
+package uk.co.onsdigital.discovery.metadata.api.dto;
+
+import com.github.benmanes.caffeine.cache.Cache;
+import com.github.benmanes.caffeine.cache.Policy;
+import com.github.benmanes.caffeine.cache.stats.CacheStats;
+
+/**
+ * Hit, miss and eviction counters for a single cache, used to size the caches in production.
+ */
+public class CacheStatistics {
+
+    private final long size;
+    private final long weight;
+    private final long maximumWeight;
+    private final long hitCount;
+    private final long missCount;
+    private final double hitRate;
+    private final long evictionCount;
+    private final long evictionWeight;
+
+    public CacheStatistics(Cache<?, ?> cache) {
+        final CacheStats stats = cache.stats();
+        final Policy.Eviction<?, ?> eviction = cache.policy().eviction().orElse(null);
+
+        this.size = cache.estimatedSize();
+        this.weight = eviction != null ? eviction.weightedSize().orElse(size) : size;
+        this.maximumWeight = eviction != null ? eviction.getMaximum() : -1L;
+        this.hitCount = stats.hitCount();
+        this.missCount = stats.missCount();
+        this.hitRate = stats.hitRate();
+        this.evictionCount = stats.evictionCount();
+        this.evictionWeight = stats.evictionWeight();
+    }
+
+    public long getSize() {
+        return size;
+    }
+
+    public long getWeight() {
+        return weight;
+    }
+
+    public long getMaximumWeight() {
+        return maximumWeight;
+    }
+
+    public long getHitCount() {
+        return hitCount;
+    }
+
+    public long getMissCount() {
+        return missCount;
+    }
+
+    public double getHitRate() {
+        return hitRate;
+    }
+
+    public long getEvictionCount() {
+        return evictionCount;
+    }
+
+    public long getEvictionWeight() {
+        return evictionWeight;
+    }
+
+    @Override
+    public String toString() {
+        return "CacheStatistics{" +
+                "size=" + size +
+                ", weight=" + weight +
+                ", hitCount=" + hitCount +
+                ", missCount=" + missCount +
+                ", evictionCount=" + evictionCount +
+                '}';
+    }
+}
@@ -0,0 +1,76 @@
+package uk.co.onsdigital.discovery.metadata.api.dto;
+
+import com.fasterxml.jackson.annotation.JsonInclude;
+
+import java.util.List;
+
+/**
+ * The health of a node, as reported by the health check. A node is ready for traffic only when it has no
+ * {@link #getProblems() problems}.
+ */
+@JsonInclude(JsonInclude.Include.NON_NULL)
+public class HealthStatus {
+
+    private final boolean cacheWarm;
+    private final Long lastSuccessfulQuery;
+    private final long connectionWaitMillis;
+    private final String databaseError;
+    private final PoolStatistics pool;
+    private final List<String> problems;
+
+    public HealthStatus(boolean cacheWarm, Long lastSuccessfulQuery, long connectionWaitMillis, String databaseError,
+                        PoolStatistics pool, List<String> problems) {
+        this.cacheWarm = cacheWarm;
+        this.lastSuccessfulQuery = lastSuccessfulQuery;
+        this.connectionWaitMillis = connectionWaitMillis;
+        this.databaseError = databaseError;
+        this.pool = pool;
+        this.problems = problems;
+    }
+
+    public boolean isReady() {
+        return problems.isEmpty();
+    }
+
+    public boolean isCacheWarm() {
+        return cacheWarm;
+    }
+
+    /**
+     * @return when the database last answered a probe query, in milliseconds since the epoch, or {@code null} if it
+     * never has.
+     */
+    public Long getLastSuccessfulQuery() {
+        return lastSuccessfulQuery;
+    }
+
+    /**
+     * @return how long the latest probe waited for a connection from the pool, including a probe that is still waiting.
+     */
+    public long getConnectionWaitMillis() {
+        return connectionWaitMillis;
+    }
+
+    public String getDatabaseError() {
+        return databaseError;
+    }
+
+    public PoolStatistics getPool() {
+        return pool;
+    }
+
+    public List<String> getProblems() {
+        return problems;
+    }
+
+    @Override
+    public String toString() {
+        return "HealthStatus{" +
+                "cacheWarm=" + cacheWarm +
+                ", lastSuccessfulQuery=" + lastSuccessfulQuery +
+                ", connectionWaitMillis=" + connectionWaitMillis +
+                ", pool=" + pool +
+                ", problems=" + problems +
+                '}';
+    }
+}
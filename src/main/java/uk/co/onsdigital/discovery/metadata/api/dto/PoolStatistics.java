@@ -0,0 +1,65 @@
+package uk.co.onsdigital.discovery.metadata.api.dto;
+
+/**
+ * A snapshot of the database connection pool, reported by the health check.
+ */
+public class PoolStatistics {
+
+    private final int busyConnections;
+    private final int idleConnections;
+    private final int totalConnections;
+    private final int maxConnections;
+    private final int threadsAwaitingConnection;
+
+    public PoolStatistics(int busyConnections, int idleConnections, int totalConnections, int maxConnections,
+                          int threadsAwaitingConnection) {
+        this.busyConnections = busyConnections;
+        this.idleConnections = idleConnections;
+        this.totalConnections = totalConnections;
+        this.maxConnections = maxConnections;
+        this.threadsAwaitingConnection = threadsAwaitingConnection;
+    }
+
+    public int getBusyConnections() {
+        return busyConnections;
+    }
+
+    public int getIdleConnections() {
+        return idleConnections;
+    }
+
+    public int getTotalConnections() {
+        return totalConnections;
+    }
+
+    /**
+     * @return the maximum size of the pool, or 0 if it is not known.
+     */
+    public int getMaxConnections() {
+        return maxConnections;
+    }
+
+    public int getThreadsAwaitingConnection() {
+        return threadsAwaitingConnection;
+    }
+
+    /**
+     * @return the fraction of the maximum pool size that is checked out, or the fraction of open connections if the
+     * maximum is not known.
+     */
+    public double getUtilization() {
+        final int capacity = maxConnections > 0 ? maxConnections : totalConnections;
+        return capacity > 0 ? (double) busyConnections / capacity : 0.0;
+    }
+
+    @Override
+    public String toString() {
+        return "PoolStatistics{" +
+                "busyConnections=" + busyConnections +
+                ", idleConnections=" + idleConnections +
+                ", totalConnections=" + totalConnections +
+                ", maxConnections=" + maxConnections +
+                ", threadsAwaitingConnection=" + threadsAwaitingConnection +
+                '}';
+    }
+}
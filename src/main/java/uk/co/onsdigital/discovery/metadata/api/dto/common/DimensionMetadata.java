@@ -15,6 +15,9 @@ public class DimensionMetadata {
     private String type;
     private boolean hierarchical;
     private List<DimensionOption> options;
+    private Integer totalOptions;
+    private Integer offset;
+    private Integer limit;
 
     @JsonInclude(JsonInclude.Include.NON_NULL)
     public String getId() {
@@ -66,6 +69,37 @@ public class DimensionMetadata {
         this.options = options;
     }
 
+    /**
+     * @return the number of options that matched a filter, of which {@link #getOptions()} is one page, or {@code null}
+     * if the options were not filtered.
+     */
+    @JsonInclude(JsonInclude.Include.NON_NULL)
+    public Integer getTotalOptions() {
+        return totalOptions;
+    }
+
+    public void setTotalOptions(Integer totalOptions) {
+        this.totalOptions = totalOptions;
+    }
+
+    @JsonInclude(JsonInclude.Include.NON_NULL)
+    public Integer getOffset() {
+        return offset;
+    }
+
+    public void setOffset(Integer offset) {
+        this.offset = offset;
+    }
+
+    @JsonInclude(JsonInclude.Include.NON_NULL)
+    public Integer getLimit() {
+        return limit;
+    }
+
+    public void setLimit(Integer limit) {
+        this.limit = limit;
+    }
+
     @Override
     public String toString() {
         return "DimensionMetadata{" +
@@ -2,14 +2,12 @@ package uk.co.onsdigital.discovery.metadata.api.dto.common;
 
 import com.fasterxml.jackson.annotation.JsonInclude;
 import com.fasterxml.jackson.annotation.JsonProperty;
-import com.google.common.collect.ComparisonChain;
-import com.google.common.collect.Ordering;
 import uk.co.onsdigital.discovery.model.*;
 
-import java.util.Comparator;
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.List;
 import java.util.Objects;
-import java.util.SortedSet;
-import java.util.TreeSet;
 import java.util.UUID;
 
 /**
@@ -22,7 +20,15 @@ public class DimensionOption implements Comparable<DimensionOption> {
     private String name;
     private HierarchyLevelType levelType;
     private String hierarchyId;
-    private SortedSet<DimensionOption> children;
+    private List<DimensionOption> children;
+    private Integer childCount;
+
+    // Sort key, computed once so that comparisons do not allocate. Strings are case-folded so that comparing them
+    // with String.compareTo gives the same result as String.CASE_INSENSITIVE_ORDER on the originals.
+    private final Integer level;
+    private final String foldedLevelName;
+    private final String foldedCode;
+    private final String foldedName;
 
     public DimensionOption(UUID id, String code, String name, HierarchyLevelType levelType, String hierarchyId) {
         this.id = id;
@@ -31,6 +37,11 @@ public class DimensionOption implements Comparable<DimensionOption> {
         this.levelType = levelType;
         this.children = null;
         this.hierarchyId = hierarchyId;
+
+        this.level = levelType != null ? levelType.getLevel() : null;
+        this.foldedLevelName = levelType != null ? fold(levelType.getName()) : null;
+        this.foldedCode = fold(code);
+        this.foldedName = fold(name);
     }
 
     public DimensionOption(UUID id, String code, String name) {
@@ -56,10 +67,23 @@ public class DimensionOption implements Comparable<DimensionOption> {
 
     @JsonProperty("options")
     @JsonInclude(JsonInclude.Include.NON_EMPTY)
-    public SortedSet<DimensionOption> getChildren() {
+    public List<DimensionOption> getChildren() {
         return children;
     }
 
+    /**
+     * @return the number of children of this option, whether or not they are included, or {@code null} if the
+     * option was rendered with all of its children.
+     */
+    @JsonInclude(JsonInclude.Include.NON_NULL)
+    public Integer getChildCount() {
+        return childCount;
+    }
+
+    public void setChildCount(Integer childCount) {
+        this.childCount = childCount;
+    }
+
     @JsonProperty("hierarchy_id")
     @JsonInclude(JsonInclude.Include.NON_EMPTY)
     public String getHierarchyId() {
@@ -67,16 +91,46 @@ public class DimensionOption implements Comparable<DimensionOption> {
     }
 
     /**
-     * Adds a new child option to this dimension option, initialising the children set if necessary.
+     * Adds a new child option to this dimension option, initialising the children list if necessary. Children are
+     * kept in the order they were added until {@link #sortHierarchy(List)} is called.
      *
      * @param childOption the child option to add to this node.
-     * @return {@code true} if the child did not already exist in the set of children, otherwise {@code false}.
      */
-    public boolean addChild(DimensionOption childOption) {
+    public void addChild(DimensionOption childOption) {
         if (children == null) {
-            children = new TreeSet<>();
+            children = new ArrayList<>();
         }
-        return children.add(childOption);
+        children.add(childOption);
+    }
+
+    /**
+     * Sorts a hierarchy of options in a single pass once it has been fully built, rather than keeping every level
+     * sorted as options are added. Among siblings that compare as equal only the first one added is kept.
+     *
+     * @param roots the top-level options, in the order they were added.
+     * @return the sorted top-level options. The children of every option are sorted in place.
+     */
+    public static List<DimensionOption> sortHierarchy(List<DimensionOption> roots) {
+        final List<DimensionOption> sorted = sortDistinct(roots);
+        for (DimensionOption option : sorted) {
+            if (option.children != null) {
+                option.children = sortHierarchy(option.children);
+            }
+        }
+        return sorted;
+    }
+
+    private static List<DimensionOption> sortDistinct(List<DimensionOption> options) {
+        final List<DimensionOption> sorted = new ArrayList<>(options);
+        // Stable sort, so the first option added is the first of any run of equal options
+        Collections.sort(sorted);
+        int distinct = 0;
+        for (DimensionOption option : sorted) {
+            if (distinct == 0 || sorted.get(distinct - 1).compareTo(option) != 0) {
+                sorted.set(distinct++, option);
+            }
+        }
+        return distinct == sorted.size() ? sorted : new ArrayList<>(sorted.subList(0, distinct));
     }
 
     @JsonInclude(JsonInclude.Include.NON_DEFAULT)
@@ -86,17 +140,70 @@ public class DimensionOption implements Comparable<DimensionOption> {
     }
 
     /**
-     * Compares dimension options by hierarchy level type (if present) and then alphabetically by name.
+     * Compares dimension options by hierarchy level type (if present) and then alphabetically by code and name. Level
+     * types are ordered by level and then alphabetically by name. All alphabetical comparisons are case-insensitive.
      * <p>
      * {@inheritDoc}
      */
     @Override
     public int compareTo(final DimensionOption that) {
-        return ComparisonChain.start()
-                .compare(this.levelType, that.levelType, LevelTypeComparator.INSTANCE)
-                .compare(this.code, that.code, Ordering.from(String.CASE_INSENSITIVE_ORDER).nullsLast())
-                .compare(this.name, that.name, Ordering.from(String.CASE_INSENSITIVE_ORDER).nullsLast())
-                .result();
+        int result;
+        // Options without a level type come first
+        if (this.levelType == null || that.levelType == null) {
+            result = Boolean.compare(this.levelType != null, that.levelType != null);
+        } else {
+            result = compareNullsFirst(this.level, that.level);
+            if (result == 0) {
+                result = compareNullsFirst(this.foldedLevelName, that.foldedLevelName);
+            }
+        }
+        if (result == 0) {
+            result = compareNullsLast(this.foldedCode, that.foldedCode);
+        }
+        if (result == 0) {
+            result = compareNullsLast(this.foldedName, that.foldedName);
+        }
+        return result;
+    }
+
+    private static <T extends Comparable<T>> int compareNullsFirst(T a, T b) {
+        if (a == null || b == null) {
+            return Boolean.compare(a != null, b != null);
+        }
+        return a.compareTo(b);
+    }
+
+    private static int compareNullsLast(String a, String b) {
+        if (a == null || b == null) {
+            return Boolean.compare(a == null, b == null);
+        }
+        return a.compareTo(b);
+    }
+
+    /**
+     * Case-folds a string so that the natural order of folded strings matches {@link String#CASE_INSENSITIVE_ORDER},
+     * which compares {@code Character.toLowerCase(Character.toUpperCase(c))} for each character.
+     */
+    public static String fold(String value) {
+        if (value == null) {
+            return null;
+        }
+        for (int i = 0; i < value.length(); ++i) {
+            final char c = value.charAt(i);
+            if (foldChar(c) != c) {
+                final char[] folded = value.toCharArray();
+                for (int j = i; j < folded.length; ++j) {
+                    folded[j] = foldChar(folded[j]);
+                }
+                return new String(folded);
+            }
+        }
+        // Already folded
+        return value;
+    }
+
+    private static char foldChar(char c) {
+        return Character.toLowerCase(Character.toUpperCase(c));
     }
 
     @Override
@@ -119,22 +226,4 @@ public class DimensionOption implements Comparable<DimensionOption> {
                 ", children=" + children +
                 '}';
     }
-
-    /**
-     * Orders level types by level and then alphabetically by name (case-insensitive).
-     */
-    private enum LevelTypeComparator implements Comparator<HierarchyLevelType> {
-        INSTANCE;
-
-        @Override
-        public int compare(HierarchyLevelType h1, HierarchyLevelType h2) {
-            if (h1 == null || h2 == null) {
-                return Ordering.arbitrary().nullsFirst().compare(h1, h2);
-            }
-            return ComparisonChain.start()
-                    .compare(h1.getLevel(), h2.getLevel(), Ordering.natural().nullsFirst())
-                    .compare(h1.getName(), h2.getName(), Ordering.from(String.CASE_INSENSITIVE_ORDER).nullsFirst())
-                    .result();
-        }
-    }
 }
@@ -18,31 +18,83 @@ import java.util.List;
 public class LegacyResultPage<T> {
     private final Page<T> page;
     private final LegacyUrlBuilder.PageUrlTemplate pageUrlTemplate;
+    private final LegacyUrlBuilder.CursorUrlTemplate cursorUrlTemplate;
+    private final String nextCursor;
+    private final boolean totalKnown;
 
     public LegacyResultPage(LegacyUrlBuilder.PageUrlTemplate pageUrlTemplate, List<T> content, long total, int pageNumber, int pageSize) {
         this.pageUrlTemplate = pageUrlTemplate;
+        this.cursorUrlTemplate = null;
+        this.nextCursor = null;
+        this.totalKnown = true;
         Pageable pageable = new PageRequest(pageNumber-1, pageSize);
         this.page = new PageImpl<>(content, pageable, total);
     }
 
+    /**
+     * Creates a page of results without counting the total number of results. Such pages do not link to the last page,
+     * and link to the next page whenever this one is full.
+     *
+     * @param pageUrlTemplate template for links to other pages.
+     * @param content the results on this page.
+     * @param pageNumber the number of this page, starting from 1.
+     * @param pageSize the maximum number of results on each page.
+     */
+    public LegacyResultPage(LegacyUrlBuilder.PageUrlTemplate pageUrlTemplate, List<T> content, int pageNumber, int pageSize) {
+        this.pageUrlTemplate = pageUrlTemplate;
+        this.cursorUrlTemplate = null;
+        this.nextCursor = null;
+        this.totalKnown = false;
+        Pageable pageable = new PageRequest(pageNumber-1, pageSize);
+        this.page = new PageImpl<>(content, pageable, pageable.getOffset() + content.size());
+    }
+
+    /**
+     * Creates a page of results that was found by seeking past a cursor rather than by page number. Such pages only
+     * link to the first page and to the next one, as their position in the overall results is not known.
+     *
+     * @param cursorUrlTemplate template for links to the pages that follow a cursor.
+     * @param content the results on this page.
+     * @param total the total number of results, or {@code null} if they were not counted.
+     * @param pageSize the maximum number of results on each page.
+     * @param nextCursor the cursor to the following page, or {@code null} if this is the last page.
+     */
+    public LegacyResultPage(LegacyUrlBuilder.CursorUrlTemplate cursorUrlTemplate, List<T> content, Long total, int pageSize, String nextCursor) {
+        this.pageUrlTemplate = null;
+        this.cursorUrlTemplate = cursorUrlTemplate;
+        this.nextCursor = nextCursor;
+        this.totalKnown = total != null;
+        this.page = new PageImpl<>(content, new PageRequest(0, pageSize), total != null ? total : content.size());
+    }
+
+    private boolean isCursorPage() {
+        return cursorUrlTemplate != null;
+    }
+
     public List<T> getItems() {
         return page.getContent();
     }
 
-    public long getTotal() {
-        return page.getTotalElements();
+    public Long getTotal() {
+        return totalKnown ? page.getTotalElements() : null;
     }
 
     public int getCount() {
         return page.getNumberOfElements();
     }
 
-    public int getPage() {
+    public Integer getPage() {
+        if (isCursorPage()) {
+            return null;
+        }
         // Spring pages are 0-based, which seems a bit unintuitive
         return page.getNumber() + 1;
     }
 
-    public int getTotalPages() {
+    public Integer getTotalPages() {
+        if (isCursorPage() || !totalKnown) {
+            return null;
+        }
         int pages = (int) (getTotal() / getItemsPerPage());
         if (getTotal() % getItemsPerPage() > 0) {
             pages++;
@@ -54,23 +106,41 @@ public class LegacyResultPage<T> {
         return page.getSize();
     }
 
-    public long getStartIndex() {
-        return page.getNumber() * page.getSize();
+    public Long getStartIndex() {
+        if (isCursorPage()) {
+            return null;
+        }
+        return (long) page.getNumber() * page.getSize();
     }
 
     public String getPrev() {
+        if (isCursorPage()) {
+            return null;
+        }
         return getPage() > 1 ? pageUrlTemplate.build(getPage() - 1) : null;
     }
 
     public String getNext() {
+        if (isCursorPage()) {
+            return nextCursor != null ? cursorUrlTemplate.build(nextCursor) : null;
+        }
+        if (!totalKnown) {
+            return getCount() == getItemsPerPage() ? pageUrlTemplate.build(getPage() + 1) : null;
+        }
         return getPage() < getTotalPages() ? pageUrlTemplate.build(getPage() + 1) : null;
     }
 
     public String getFirst() {
+        if (isCursorPage()) {
+            return cursorUrlTemplate.build("");
+        }
         return pageUrlTemplate.build(1);
     }
 
     public String getLast() {
+        if (isCursorPage() || !totalKnown) {
+            return null;
+        }
         return pageUrlTemplate.build(getTotalPages());
     }
 
@@ -4,11 +4,12 @@ import org.springframework.http.HttpStatus;
 import org.springframework.web.bind.annotation.ResponseStatus;
 
 /**
- * Indicates that a resource that was requested was not found in the database.
+ * Indicates that a resource that was requested was not found in the database. This is an expected outcome that is
+ * reported to the client as a 404, so no stack trace is captured.
  */
 @ResponseStatus(HttpStatus.NOT_FOUND)
 public abstract class NotFoundException extends RuntimeException {
     public NotFoundException(String message) {
-        super(message);
+        super(message, null, false, false);
     }
 }
@@ -0,0 +1,24 @@
+package uk.co.onsdigital.discovery.metadata.api.metrics;
+
+import com.codahale.metrics.MetricRegistry;
+import org.springframework.context.annotation.Bean;
+import org.springframework.context.annotation.Configuration;
+import org.springframework.web.servlet.config.annotation.InterceptorRegistry;
+import org.springframework.web.servlet.config.annotation.WebMvcConfigurerAdapter;
+
+/**
+ * Creates the registry that all application metrics are recorded in, and times every request to a controller.
+ */
+@Configuration
+public class MetricsConfiguration extends WebMvcConfigurerAdapter {
+
+    @Bean
+    public MetricRegistry getMetricRegistry() {
+        return new MetricRegistry();
+    }
+
+    @Override
+    public void addInterceptors(InterceptorRegistry registry) {
+        registry.addInterceptor(new RequestMetricsInterceptor(getMetricRegistry()));
+    }
+}
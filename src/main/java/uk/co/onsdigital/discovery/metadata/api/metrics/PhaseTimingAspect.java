@@ -0,0 +1,46 @@
+package uk.co.onsdigital.discovery.metadata.api.metrics;
+
+import com.codahale.metrics.MetricRegistry;
+import com.codahale.metrics.Timer;
+import org.aspectj.lang.ProceedingJoinPoint;
+import org.aspectj.lang.annotation.Around;
+import org.aspectj.lang.annotation.Aspect;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.stereotype.Component;
+
+/**
+ * Times the database and serialization phases of a request, as {@code phase.dao.<method>} and
+ * {@code phase.serialization.<method>}. The conversion of dimension values is timed by the service itself, as
+ * {@code phase.conversion.<view>}, because {@link uk.co.onsdigital.discovery.metadata.api.service.DimensionViewType}
+ * is not a Spring bean. Time spent lazily loading entities during conversion is counted as conversion.
+ */
+@Aspect
+@Component
+public class PhaseTimingAspect {
+
+    private final MetricRegistry metricRegistry;
+
+    @Autowired
+    public PhaseTimingAspect(MetricRegistry metricRegistry) {
+        this.metricRegistry = metricRegistry;
+    }
+
+    @Around("execution(public * uk.co.onsdigital.discovery.metadata.api.dao.MetadataDao.*(..))")
+    public Object timeDao(ProceedingJoinPoint joinPoint) throws Throwable {
+        return time("phase.dao", joinPoint);
+    }
+
+    @Around("execution(public * uk.co.onsdigital.discovery.metadata.api.cache.ResponseSerializer.*(..))")
+    public Object timeSerialization(ProceedingJoinPoint joinPoint) throws Throwable {
+        return time("phase.serialization", joinPoint);
+    }
+
+    private Object time(String phase, ProceedingJoinPoint joinPoint) throws Throwable {
+        final Timer.Context context = metricRegistry.timer(MetricRegistry.name(phase, joinPoint.getSignature().getName())).time();
+        try {
+            return joinPoint.proceed();
+        } finally {
+            context.stop();
+        }
+    }
+}
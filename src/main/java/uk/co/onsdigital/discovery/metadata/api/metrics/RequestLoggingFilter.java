@@ -0,0 +1,72 @@
+package uk.co.onsdigital.discovery.metadata.api.metrics;
+
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.stereotype.Component;
+import org.springframework.web.filter.OncePerRequestFilter;
+import org.springframework.web.servlet.HandlerMapping;
+
+import javax.servlet.FilterChain;
+import javax.servlet.ServletException;
+import javax.servlet.http.HttpServletRequest;
+import javax.servlet.http.HttpServletResponse;
+import java.io.IOException;
+import java.util.Arrays;
+import java.util.HashSet;
+import java.util.Set;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Logs one line for every request once it has completed, as {@code key=value} pairs so that the log can be searched
+ * and aggregated by field, e.g.:
+ * <pre>
+ * method=GET uri=/versions/123/dimensions route=/versions/{dataSetId}/dimensions status=200 durationMs=4
+ * </pre>
+ * The lines are logged at INFO, so setting the level of this logger to WARN turns request logging off entirely.
+ * Requests to the paths in {@code request.log.exclude}, by default the health check that the load balancer polls, are
+ * not logged.
+ */
+@Component
+public class RequestLoggingFilter extends OncePerRequestFilter {
+    private static final Logger logger = LoggerFactory.getLogger(RequestLoggingFilter.class);
+
+    static final String UNMATCHED_ROUTE = "-";
+
+    private final Set<String> excludedPaths;
+
+    public RequestLoggingFilter(@Value("${request.log.exclude:/healthcheck}") String[] excludedPaths) {
+        this.excludedPaths = new HashSet<>(Arrays.asList(excludedPaths));
+    }
+
+    @Override
+    protected boolean shouldNotFilter(HttpServletRequest request) {
+        return !logger.isInfoEnabled() || excludedPaths.contains(request.getRequestURI());
+    }
+
+    @Override
+    protected void doFilterInternal(HttpServletRequest request, HttpServletResponse response, FilterChain filterChain)
+            throws ServletException, IOException {
+        final long start = System.nanoTime();
+        // An exception that escapes the filter chain becomes a 500
+        int status = HttpServletResponse.SC_INTERNAL_SERVER_ERROR;
+        try {
+            filterChain.doFilter(request, response);
+            status = response.getStatus();
+        } finally {
+            final long durationMs = TimeUnit.NANOSECONDS.toMillis(System.nanoTime() - start);
+            logger.info("method={} uri={} route={} status={} durationMs={}", request.getMethod(), uri(request),
+                    route(request), status, durationMs);
+        }
+    }
+
+    private static String uri(HttpServletRequest request) {
+        final String query = request.getQueryString();
+        return query != null ? request.getRequestURI() + "?" + query : request.getRequestURI();
+    }
+
+    private static Object route(HttpServletRequest request) {
+        final Object pattern = request.getAttribute(HandlerMapping.BEST_MATCHING_PATTERN_ATTRIBUTE);
+        return pattern != null ? pattern : UNMATCHED_ROUTE;
+    }
+}
@@ -0,0 +1,80 @@
+package uk.co.onsdigital.discovery.metadata.api.metrics;
+
+import com.codahale.metrics.Gauge;
+import com.codahale.metrics.MetricRegistry;
+import com.codahale.metrics.Timer;
+import org.springframework.web.servlet.HandlerMapping;
+import org.springframework.web.servlet.handler.HandlerInterceptorAdapter;
+
+import javax.servlet.DispatcherType;
+import javax.servlet.http.HttpServletRequest;
+import javax.servlet.http.HttpServletResponse;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ConcurrentMap;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Records the latency of every request by HTTP method and route template (e.g. {@code /versions/{dataSetId}}), rather
+ * than by URL, so that the number of metrics stays bounded:
+ * <ul>
+ *     <li>{@code http.requests.<method>.<route>}: a timer of all requests, including failed ones.</li>
+ *     <li>{@code http.requests.max.<method>.<route>}: the slowest recent request, in seconds.</li>
+ *     <li>{@code http.errors.<method>.<route>.<status>}: a meter of responses with a 4xx or 5xx status.</li>
+ * </ul>
+ */
+public class RequestMetricsInterceptor extends HandlerInterceptorAdapter {
+    private static final String START_ATTRIBUTE = RequestMetricsInterceptor.class.getName() + ".start";
+
+    static final String UNMATCHED_ROUTE = "unmatched";
+
+    private final MetricRegistry metricRegistry;
+    private final ConcurrentMap<String, Timer> timers = new ConcurrentHashMap<>();
+
+    public RequestMetricsInterceptor(MetricRegistry metricRegistry) {
+        this.metricRegistry = metricRegistry;
+    }
+
+    @Override
+    public boolean preHandle(HttpServletRequest request, HttpServletResponse response, Object handler) {
+        // Error pages are rendered as part of the failed request, which is already being timed
+        if (request.getDispatcherType() != DispatcherType.ERROR) {
+            request.setAttribute(START_ATTRIBUTE, System.nanoTime());
+        }
+        return true;
+    }
+
+    @Override
+    public void afterCompletion(HttpServletRequest request, HttpServletResponse response, Object handler, Exception ex) {
+        final Long start = (Long) request.getAttribute(START_ATTRIBUTE);
+        if (start == null) {
+            return;
+        }
+        request.removeAttribute(START_ATTRIBUTE);
+
+        final String name = MetricRegistry.name(request.getMethod(), route(request));
+        timer(name).update(System.nanoTime() - start, TimeUnit.NANOSECONDS);
+
+        // An exception that escapes the handlers becomes a 500 after this point
+        final int status = ex != null && response.getStatus() < 400 ? 500 : response.getStatus();
+        if (status >= 400) {
+            metricRegistry.meter(MetricRegistry.name("http.errors", name, Integer.toString(status))).mark();
+        }
+    }
+
+    private Timer timer(String name) {
+        return timers.computeIfAbsent(name, n -> {
+            final Timer timer = metricRegistry.timer(MetricRegistry.name("http.requests", n));
+            metricRegistry.register(MetricRegistry.name("http.requests.max", n),
+                    (Gauge<Double>) () -> timer.getSnapshot().getMax() / (double) TimeUnit.SECONDS.toNanos(1));
+            return timer;
+        });
+    }
+
+    /**
+     * @return the route template that matched the request, with dots replaced as they separate the parts of metric names.
+     */
+    private static String route(HttpServletRequest request) {
+        final Object pattern = request.getAttribute(HandlerMapping.BEST_MATCHING_PATTERN_ATTRIBUTE);
+        return pattern != null ? pattern.toString().replace('.', '_') : UNMATCHED_ROUTE;
+    }
+}
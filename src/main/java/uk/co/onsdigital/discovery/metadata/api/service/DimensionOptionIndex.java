@@ -0,0 +1,380 @@
+package uk.co.onsdigital.discovery.metadata.api.service;
+
+import uk.co.onsdigital.discovery.metadata.api.dto.common.DimensionOption;
+import uk.co.onsdigital.discovery.model.Dimension;
+import uk.co.onsdigital.discovery.model.DimensionValue;
+
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.BitSet;
+import java.util.Collections;
+import java.util.List;
+import java.util.UUID;
+
+import static uk.co.onsdigital.discovery.metadata.api.dto.common.DimensionOption.fold;
+
+/**
+ * Immutable, array-based index of the options of one dimension of a dataset, in {@link DimensionViewType#LIST} order,
+ * which an {@link OptionFilter} can be evaluated against without converting or sorting any values. Alongside the
+ * options it holds their case-folded codes and names, their level type ids and, for hierarchical dimensions, the
+ * position of each option in the {@link HierarchyIndex} of its hierarchy.
+ * <p>
+ * For prefix searches, every folded code and name is also held in one sorted array, so that the options starting
+ * with a prefix are a contiguous range of it that is found by binary search.
+ * <p>
+ * For slices of the {@link DimensionViewType#HIERARCHY} view, it marks which entries of the hierarchy are part of the
+ * dimension's sparse tree, i.e. are an option or an ancestor of one.
+ */
+public final class DimensionOptionIndex {
+    private static final int NOT_IN_HIERARCHY = -1;
+
+    private final String name;
+    private final String type;
+    private final boolean hierarchical;
+
+    private final DimensionOption[] options;
+    private final String[] foldedCodes;
+    private final String[] foldedNames;
+    private final String[] levelTypeIds;
+
+    // Folded codes and names of every option in String order, and the option that each belongs to
+    private final String[] sortedKeys;
+    private final int[] keyOptions;
+
+    private final HierarchyIndex hierarchy;
+    private final int[] positions;
+
+    // Hierarchy positions of the sparse tree, and the option ordinals ordered by their position for finding ids
+    private final BitSet inTree;
+    private final int[] ordinalsByPosition;
+
+    private DimensionOptionIndex(Dimension dimension, DimensionOption[] options, HierarchyIndex hierarchy, int[] positions) {
+        this.name = dimension.getName();
+        this.type = dimension.getType();
+        this.hierarchical = dimension.isHierarchical();
+        this.options = options;
+        this.hierarchy = hierarchy;
+        this.positions = positions;
+
+        this.foldedCodes = new String[options.length];
+        this.foldedNames = new String[options.length];
+        this.levelTypeIds = new String[options.length];
+        for (int i = 0; i < options.length; ++i) {
+            foldedCodes[i] = fold(options[i].getCode());
+            foldedNames[i] = fold(options[i].getName());
+            levelTypeIds[i] = options[i].getLevelType() != null ? options[i].getLevelType().getId() : null;
+        }
+
+        final List<Integer> keys = new ArrayList<>(2 * options.length);
+        for (int i = 0; i < options.length; ++i) {
+            if (foldedCodes[i] != null) {
+                keys.add(2 * i);
+            }
+            if (foldedNames[i] != null) {
+                keys.add(2 * i + 1);
+            }
+        }
+        // Keys encode the option and whether it is the code or the name; ties are kept in option order
+        keys.sort((a, b) -> keyOf(a).compareTo(keyOf(b)));
+        this.sortedKeys = new String[keys.size()];
+        this.keyOptions = new int[keys.size()];
+        for (int i = 0; i < sortedKeys.length; ++i) {
+            sortedKeys[i] = keyOf(keys.get(i));
+            keyOptions[i] = keys.get(i) / 2;
+        }
+
+        this.inTree = new BitSet(hierarchy != null ? hierarchy.size() : 0);
+        final List<Integer> ordinals = new ArrayList<>(options.length);
+        for (int i = 0; i < options.length; ++i) {
+            if (positions[i] != NOT_IN_HIERARCHY) {
+                ordinals.add(i);
+                for (int p = positions[i]; p != HierarchyIndex.NO_PARENT && !inTree.get(p); p = hierarchy.parentOf(p)) {
+                    inTree.set(p);
+                }
+            }
+        }
+        // Stable sort, so the first of several options for the same entry is found, as in the hierarchy view
+        ordinals.sort((a, b) -> Integer.compare(positions[a], positions[b]));
+        this.ordinalsByPosition = ordinals.stream().mapToInt(Integer::intValue).toArray();
+    }
+
+    private String keyOf(int key) {
+        return (key & 1) == 0 ? foldedCodes[key / 2] : foldedNames[key / 2];
+    }
+
+    /**
+     * Builds the index of a dimension from its values, which must have been loaded with their hierarchy entries.
+     *
+     * @param dimension the dimension with its values.
+     * @param hierarchyIndexes the indexes of the hierarchies that the values may belong to.
+     * @return the index of the dimension's options.
+     */
+    static DimensionOptionIndex build(Dimension dimension, HierarchyIndexCache hierarchyIndexes) {
+        final List<DimensionValue> values = dimension.getValues() != null ? dimension.getValues() : Collections.emptyList();
+        final HierarchyIndex hierarchy = DimensionViewType.findIndex(values, hierarchyIndexes);
+
+        final int size = values.size();
+        final DimensionOption[] unsorted = new DimensionOption[size];
+        final Integer[] order = new Integer[size];
+        for (int i = 0; i < size; ++i) {
+            unsorted[i] = DimensionViewType.convertValueToOption(values.get(i));
+            order[i] = i;
+        }
+        // Stable sort, so that equal options stay in the same order as in the list view
+        Arrays.sort(order, (a, b) -> unsorted[a].compareTo(unsorted[b]));
+
+        final DimensionOption[] options = new DimensionOption[size];
+        final int[] positions = new int[size];
+        for (int i = 0; i < size; ++i) {
+            final DimensionValue value = values.get(order[i]);
+            options[i] = unsorted[order[i]];
+            positions[i] = hierarchy != null && value.getHierarchyEntry() != null
+                    ? hierarchy.indexOf(value.getHierarchyEntry().getId()) : NOT_IN_HIERARCHY;
+        }
+        return new DimensionOptionIndex(dimension, options, hierarchy, positions);
+    }
+
+    public String getName() {
+        return name;
+    }
+
+    public String getType() {
+        return type;
+    }
+
+    public boolean isHierarchical() {
+        return hierarchical;
+    }
+
+    /**
+     * @return the number of options in the dimension.
+     */
+    public int size() {
+        return options.length;
+    }
+
+    /**
+     * Finds the options that match a filter, in list order. Options below a parent code can only be found if all of
+     * the dimension's hierarchical values belong to a single hierarchy.
+     *
+     * @param filter the criteria to match and the page of matching options to return.
+     * @return the requested page of matching options, with the total number of matches.
+     */
+    public Selection select(OptionFilter filter) {
+        final BitSet prefixed = filter.getPrefix() != null ? optionsWithPrefix(fold(filter.getPrefix())) : null;
+        final String levelType = filter.getLevelType();
+        final BitSet parents = filter.getParentCode() != null ? positionsWithCode(filter.getParentCode()) : null;
+        final int offset = filter.getOffset() != null ? filter.getOffset() : 0;
+        final int limit = filter.getLimit() != null ? filter.getLimit() : Integer.MAX_VALUE;
+
+        final List<DimensionOption> page = new ArrayList<>(Math.min(limit, options.length));
+        int total = 0;
+        final int first = prefixed != null ? prefixed.nextSetBit(0) : 0;
+        for (int i = first; i >= 0 && i < options.length; i = prefixed != null ? prefixed.nextSetBit(i + 1) : i + 1) {
+            if ((levelType == null || levelType.equals(levelTypeIds[i]))
+                    && (parents == null || hasAncestorIn(positions[i], parents))) {
+                if (total >= offset && page.size() < limit) {
+                    page.add(options[i]);
+                }
+                ++total;
+            }
+        }
+        return new Selection(page, total);
+    }
+
+    /**
+     * Finds the first options whose code or name starts with a prefix, ignoring case, for typeahead search. Options
+     * are returned in the order of the code or name that matched, so exact and shorter matches come first. Only the
+     * range of matching keys is visited, and only as far as needed to fill the result.
+     *
+     * @param prefix the start of the code or name to look for.
+     * @param limit the maximum number of options to return.
+     * @return up to {@code limit} distinct matching options.
+     */
+    public List<DimensionOption> search(String prefix, int limit) {
+        final String folded = fold(prefix);
+        final int start = firstKeyFrom(folded);
+        final int end = firstKeyAfter(folded);
+        final int size = Math.min(limit, Math.min(end - start, options.length));
+        final List<DimensionOption> matches = new ArrayList<>(size);
+        final int[] matched = new int[size];
+        for (int i = start; i < end && matches.size() < size; ++i) {
+            // An option matches at most twice, by code and by name, so the matches so far are short enough to scan
+            if (!contains(matched, matches.size(), keyOptions[i])) {
+                matched[matches.size()] = keyOptions[i];
+                matches.add(options[keyOptions[i]]);
+            }
+        }
+        return matches;
+    }
+
+    /**
+     * Assembles a slice of the {@link DimensionViewType#HIERARCHY} view: the options below a given entry, down to a
+     * given depth, each with the number of children it has in the view. Entries of the hierarchy that are not options
+     * of the dimension are included for structure, as in the full view. Values outside the hierarchy are top-level
+     * options with no children.
+     *
+     * @param rootCode the code of the entry whose descendants to include, or {@code null} for the top-level options.
+     * @param depth the number of levels to include, at least 1.
+     * @return the top options of the slice, in display order, or {@code null} if no entry with the root code is part
+     * of the view.
+     */
+    public List<DimensionOption> slice(String rootCode, int depth) {
+        final int root = rootCode != null && hierarchy != null ? hierarchy.indexOfCode(rootCode) : HierarchyIndex.NO_PARENT;
+        if (rootCode != null && (root < 0 || !inTree.get(root))) {
+            return null;
+        }
+
+        final List<DimensionOption> slice = new ArrayList<>();
+        if (hierarchy != null) {
+            slice.addAll(hierarchy.toOptions(root, depth, inTree::get, this::optionIdAt));
+        }
+        if (rootCode == null) {
+            for (int i = 0; i < options.length; ++i) {
+                if (positions[i] == NOT_IN_HIERARCHY) {
+                    final DimensionOption flat = new DimensionOption(options[i].getId(), options[i].getCode(),
+                            options[i].getName(), options[i].getLevelType(), options[i].getHierarchyId());
+                    flat.setChildCount(0);
+                    slice.add(flat);
+                }
+            }
+        }
+        return DimensionOption.sortHierarchy(slice);
+    }
+
+    private UUID optionIdAt(int position) {
+        int low = 0;
+        int high = ordinalsByPosition.length;
+        while (low < high) {
+            final int mid = (low + high) >>> 1;
+            if (positions[ordinalsByPosition[mid]] < position) {
+                low = mid + 1;
+            } else {
+                high = mid;
+            }
+        }
+        return low < ordinalsByPosition.length && positions[ordinalsByPosition[low]] == position
+                ? options[ordinalsByPosition[low]].getId() : null;
+    }
+
+    private BitSet optionsWithPrefix(String prefix) {
+        final BitSet matches = new BitSet(options.length);
+        for (int i = firstKeyFrom(prefix), end = firstKeyAfter(prefix); i < end; ++i) {
+            matches.set(keyOptions[i]);
+        }
+        return matches;
+    }
+
+    // Index of the first key that starts with the prefix or sorts after it
+    private int firstKeyFrom(String prefix) {
+        int low = 0;
+        int high = sortedKeys.length;
+        while (low < high) {
+            final int mid = (low + high) >>> 1;
+            if (comparePrefix(sortedKeys[mid], prefix) < 0) {
+                low = mid + 1;
+            } else {
+                high = mid;
+            }
+        }
+        return low;
+    }
+
+    // Index of the first key after those that start with the prefix
+    private int firstKeyAfter(String prefix) {
+        int low = 0;
+        int high = sortedKeys.length;
+        while (low < high) {
+            final int mid = (low + high) >>> 1;
+            if (comparePrefix(sortedKeys[mid], prefix) <= 0) {
+                low = mid + 1;
+            } else {
+                high = mid;
+            }
+        }
+        return low;
+    }
+
+    /**
+     * Compares the start of a key with a prefix, without allocating: zero if the key starts with the prefix, otherwise
+     * the same sign as {@code key.compareTo(prefix)}.
+     */
+    private static int comparePrefix(String key, String prefix) {
+        final int length = Math.min(key.length(), prefix.length());
+        for (int i = 0; i < length; ++i) {
+            final int diff = key.charAt(i) - prefix.charAt(i);
+            if (diff != 0) {
+                return diff;
+            }
+        }
+        return key.length() < prefix.length() ? -1 : 0;
+    }
+
+    private static boolean contains(int[] values, int length, int value) {
+        for (int i = 0; i < length; ++i) {
+            if (values[i] == value) {
+                return true;
+            }
+        }
+        return false;
+    }
+
+    private BitSet positionsWithCode(String code) {
+        final BitSet matches = new BitSet();
+        if (hierarchy != null) {
+            for (int position = 0; position < hierarchy.size(); ++position) {
+                if (code.equals(hierarchy.codeOf(position))) {
+                    matches.set(position);
+                }
+            }
+        }
+        return matches;
+    }
+
+    private boolean hasAncestorIn(int position, BitSet ancestors) {
+        if (position == NOT_IN_HIERARCHY || ancestors.isEmpty()) {
+            return false;
+        }
+        for (int parent = hierarchy.parentOf(position); parent != HierarchyIndex.NO_PARENT; parent = hierarchy.parentOf(parent)) {
+            if (ancestors.get(parent)) {
+                return true;
+            }
+        }
+        return false;
+    }
+
+    /**
+     * A page of the options that matched a filter.
+     */
+    public static final class Selection {
+        private final List<DimensionOption> options;
+        private final int total;
+
+        Selection(List<DimensionOption> options, int total) {
+            this.options = options;
+            this.total = total;
+        }
+
+        /**
+         * @return the matching options on the requested page, in list order.
+         */
+        public List<DimensionOption> getOptions() {
+            return options;
+        }
+
+        /**
+         * @return the number of options that matched, on every page.
+         */
+        public int getTotal() {
+            return total;
+        }
+    }
+
+    @Override
+    public String toString() {
+        return "DimensionOptionIndex{" +
+                "name='" + name + '\'' +
+                ", size=" + options.length +
+                '}';
+    }
+}
@@ -0,0 +1,118 @@
+package uk.co.onsdigital.discovery.metadata.api.service;
+
+import com.github.benmanes.caffeine.cache.Cache;
+import com.github.benmanes.caffeine.cache.Caffeine;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.stereotype.Service;
+import uk.co.onsdigital.discovery.model.Dimension;
+
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.CompletionException;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ConcurrentMap;
+import java.util.concurrent.TimeUnit;
+import java.util.function.Predicate;
+import java.util.function.Supplier;
+
+/**
+ * Holds the {@link DimensionOptionIndex} of recently filtered dimensions, so that each request for a page of options
+ * only has to scan an index rather than load and convert every value of the dimension. The cache is bounded by the
+ * total number of options held, {@code cache.option.index.max.options}, and entries expire like the response caches.
+ */
+@Service
+public class DimensionOptionIndexCache {
+    private static final Logger logger = LoggerFactory.getLogger(DimensionOptionIndexCache.class);
+
+    private final HierarchyIndexCache hierarchyIndexes;
+    private final Cache<Object, DimensionOptionIndex> indexes;
+    private final ConcurrentMap<Object, CompletableFuture<DimensionOptionIndex>> builds = new ConcurrentHashMap<>();
+
+    @Autowired
+    public DimensionOptionIndexCache(HierarchyIndexCache hierarchyIndexes,
+                                     @Value("${cache.option.index.max.options:5000000}") long maxOptions,
+                                     @Value("${cache.expire.after.write.minutes:60}") long expireMinutes) {
+        this.hierarchyIndexes = hierarchyIndexes;
+        this.indexes = Caffeine.newBuilder()
+                .maximumWeight(maxOptions)
+                .<Object, DimensionOptionIndex>weigher((key, index) -> Math.max(1, index.size()))
+                .expireAfterWrite(expireMinutes, TimeUnit.MINUTES)
+                .build();
+    }
+
+    /**
+     * Gets the index of a dimension, building it if it is not cached. Concurrent requests for the same dimension wait
+     * for a single build. The dimension is loaded and converted on the requesting thread, outside the cache, so that it
+     * does not hold up requests for other dimensions.
+     *
+     * @param key identifies the dimension, e.g. by its dataset and name.
+     * @param dimension loads the dimension with its values if it is not cached. Any exception it throws is passed on.
+     * @return the index of the dimension.
+     */
+    public DimensionOptionIndex getIndex(Object key, Supplier<Dimension> dimension) {
+        final DimensionOptionIndex cached = indexes.getIfPresent(key);
+        if (cached != null) {
+            return cached;
+        }
+        final CompletableFuture<DimensionOptionIndex> build = new CompletableFuture<>();
+        final CompletableFuture<DimensionOptionIndex> existing = builds.putIfAbsent(key, build);
+        if (existing != null) {
+            return await(existing);
+        }
+        try {
+            final DimensionOptionIndex index = buildIndex(key, dimension.get());
+            indexes.put(key, index);
+            if (!builds.remove(key, build)) {
+                // Invalidated while it was being built, so it may already be out of date
+                indexes.asMap().remove(key, index);
+            }
+            build.complete(index);
+            return index;
+        } catch (RuntimeException | Error e) {
+            // Not kept, so the next request tries again
+            builds.remove(key, build);
+            build.completeExceptionally(e);
+            throw e;
+        }
+    }
+
+    /**
+     * Discards the indexes whose keys match, so that they are rebuilt on next use.
+     *
+     * @param key selects the keys to discard, as passed to {@link #getIndex(Object, Supplier)}.
+     */
+    public void invalidateIf(Predicate<Object> key) {
+        builds.keySet().removeIf(key);
+        indexes.asMap().keySet().removeIf(key);
+    }
+
+    /**
+     * Discards every index so that they are rebuilt on next use.
+     */
+    public void invalidateAll() {
+        builds.clear();
+        indexes.invalidateAll();
+    }
+
+    private static DimensionOptionIndex await(CompletableFuture<DimensionOptionIndex> build) {
+        try {
+            return build.join();
+        } catch (CompletionException e) {
+            // Waiting requests fail with the same exception as the request that built the index
+            if (e.getCause() instanceof RuntimeException) {
+                throw (RuntimeException) e.getCause();
+            }
+            throw (Error) e.getCause();
+        }
+    }
+
+    private DimensionOptionIndex buildIndex(Object key, Dimension dimension) {
+        final long start = System.currentTimeMillis();
+        final DimensionOptionIndex index = DimensionOptionIndex.build(dimension, hierarchyIndexes);
+        logger.debug("Built option index of {} with {} options in {} ms", key, index.size(),
+                System.currentTimeMillis() - start);
+        return index;
+    }
+}
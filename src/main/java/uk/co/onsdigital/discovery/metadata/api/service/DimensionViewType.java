@@ -7,11 +7,8 @@ import uk.co.onsdigital.discovery.model.HierarchyEntry;
 
 import java.util.ArrayList;
 import java.util.LinkedHashMap;
-import java.util.LinkedHashSet;
 import java.util.List;
 import java.util.Map;
-import java.util.Set;
-import java.util.TreeSet;
 import java.util.UUID;
 import java.util.function.Function;
 
@@ -48,24 +45,32 @@ public enum DimensionViewType {
 
             // Map from dimension value IDs to the created dimension option, for de-duplication
             final Map<UUID, DimensionOption> options = new LinkedHashMap<>();
-            // Set to collect the top-level elements in the hierarchy
-            final Set<DimensionOption> roots = new TreeSet<>();
+            // List to collect the top-level elements in the hierarchy
+            final List<DimensionOption> roots = new ArrayList<>();
 
             for (DimensionValue value : values) {
-                DimensionOption option = option(options, value, value.getHierarchyEntry());
+                final HierarchyEntry entry = value.getHierarchyEntry();
+                if (entry != null && options.containsKey(entry.getId())) {
+                    // Already created, either for a duplicate value or as the parent of an earlier value
+                    continue;
+                }
+
+                DimensionOption option = option(options, value, entry);
                 boolean isNewEntry = true;
 
                 // Walk up the hierarchy creating intermediate levels as required.
                 // If an entry in the hierarchy does not exist in the dataset then we create an "empty" level
                 // that exists only for structure. These empty levels have a null id.
-                if (value.getHierarchyEntry() != null) {
-                    for (HierarchyEntry parentEntry = value.getHierarchyEntry().getParent();
+                if (entry != null) {
+                    for (HierarchyEntry parentEntry = entry.getParent();
                          parentEntry != null && isNewEntry;
                          parentEntry = parentEntry.getParent()) {
+                        // An existing parent has already been linked into the tree
+                        isNewEntry = !options.containsKey(parentEntry.getId());
                         final DimensionValue parentValue = valuesByHierarchyEntryId.get(parentEntry.getId());
                         final DimensionOption parent = option(options, parentValue, parentEntry);
 
-                        isNewEntry = parent.addChild(option);
+                        parent.addChild(option);
                         option = parent;
                     }
                 }
@@ -76,7 +81,69 @@ public enum DimensionViewType {
                 }
             }
 
-            return new ArrayList<>(roots);
+            return DimensionOption.sortHierarchy(roots);
+        }
+
+        @Override
+        List<DimensionOption> convertValues(List<DimensionValue> values, HierarchyIndexCache hierarchyIndexes) {
+            final HierarchyIndex index = findIndex(values, hierarchyIndexes);
+            if (index == null) {
+                return convertValues(values);
+            }
+
+            // Dimension value ids by position in the hierarchy
+            final UUID[] valueIds = new UUID[index.size()];
+            final int[] positions = new int[values.size()];
+            for (int i = 0; i < positions.length; ++i) {
+                final DimensionValue value = values.get(i);
+                positions[i] = value.getHierarchyEntry() != null ? index.indexOf(value.getHierarchyEntry().getId()) : -1;
+                if (positions[i] >= 0 && valueIds[positions[i]] == null) {
+                    valueIds[positions[i]] = value.getId();
+                }
+            }
+
+            // Options by position in the hierarchy, for de-duplication
+            final DimensionOption[] options = new DimensionOption[index.size()];
+            // List to collect the top-level elements in the hierarchy
+            final List<DimensionOption> roots = new ArrayList<>();
+
+            for (int i = 0; i < positions.length; ++i) {
+                int position = positions[i];
+                if (position < 0) {
+                    // Flat value
+                    roots.add(DimensionViewType.convertValueToOption(values.get(i)));
+                    continue;
+                }
+                if (options[position] != null) {
+                    // Already created, either for a duplicate value or as the parent of an earlier value
+                    continue;
+                }
+
+                DimensionOption option = options[position] = index.option(position, valueIds[position]);
+                boolean isNewEntry = true;
+
+                // Walk up the hierarchy creating intermediate levels as required. Entries that do not exist in the
+                // dataset are "empty" levels with a null id.
+                for (int parent = index.parentOf(position);
+                     parent != HierarchyIndex.NO_PARENT && isNewEntry;
+                     parent = index.parentOf(parent)) {
+                    final boolean parentExists = options[parent] != null;
+                    if (!parentExists) {
+                        options[parent] = index.option(parent, valueIds[parent]);
+                    }
+
+                    options[parent].addChild(option);
+                    option = options[parent];
+                    // An existing parent has already been linked into the tree
+                    isNewEntry = !parentExists;
+                }
+
+                if (isNewEntry) {
+                    roots.add(option);
+                }
+            }
+
+            return DimensionOption.sortHierarchy(roots);
         }
 
         private DimensionOption option(Map<UUID, DimensionOption> options, DimensionValue value, HierarchyEntry entry) {
@@ -102,6 +169,44 @@ public enum DimensionViewType {
      */
     abstract List<DimensionOption> convertValues(List<DimensionValue> values);
 
+    /**
+     * Convert the raw dimension values from the database into a list of options to be rendered, using the shared
+     * hierarchy indexes to resolve parent entries where they are needed.
+     */
+    List<DimensionOption> convertValues(List<DimensionValue> values, HierarchyIndexCache hierarchyIndexes) {
+        return convertValues(values);
+    }
+
+
+    /**
+     * Finds the index of the hierarchy that the given values belong to. Returns {@code null} (so the entities
+     * are walked instead) if the values are flat, span several hierarchies, or refer to entries missing from the
+     * index.
+     */
+    static HierarchyIndex findIndex(List<DimensionValue> values, HierarchyIndexCache hierarchyIndexes) {
+        String hierarchyId = null;
+        for (DimensionValue value : values) {
+            final HierarchyEntry entry = value.getHierarchyEntry();
+            if (entry != null && entry.getHierarchy() != null) {
+                final String id = entry.getHierarchy().getId();
+                if (hierarchyId != null && !hierarchyId.equals(id)) {
+                    return null;
+                }
+                hierarchyId = id;
+            }
+        }
+
+        final HierarchyIndex index = hierarchyId != null ? hierarchyIndexes.getIndex(hierarchyId) : null;
+        if (index == null) {
+            return null;
+        }
+        for (DimensionValue value : values) {
+            if (value.getHierarchyEntry() != null && index.indexOf(value.getHierarchyEntry().getId()) < 0) {
+                return null;
+            }
+        }
+        return index;
+    }
 
     /**
      * Converts a dimension value into a dimension option. If the value is hierarchical then the returned
@@ -110,7 +215,7 @@ public enum DimensionViewType {
      * @param dimensionValue the value to convert.
      * @return the equivalent option.
      */
-    private static DimensionOption convertValueToOption(final DimensionValue dimensionValue) {
+    static DimensionOption convertValueToOption(final DimensionValue dimensionValue) {
         return convertEntryToOption(dimensionValue, dimensionValue.getHierarchyEntry());
     }
 
@@ -0,0 +1,326 @@
+package uk.co.onsdigital.discovery.metadata.api.service;
+
+import uk.co.onsdigital.discovery.metadata.api.dto.common.DimensionOption;
+import uk.co.onsdigital.discovery.model.Hierarchy;
+import uk.co.onsdigital.discovery.model.HierarchyEntry;
+import uk.co.onsdigital.discovery.model.HierarchyLevelType;
+
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.UUID;
+import java.util.function.IntFunction;
+import java.util.function.IntPredicate;
+
+/**
+ * Immutable, array-based index of all the entries in a hierarchy. Each entry is identified by its position in the
+ * index, and its parent is held as a position rather than an entity reference, so that trees can be assembled by
+ * walking arrays instead of lazily loading parent entries one at a time.
+ * <p>
+ * The children of every entry are also held, in compressed-row form: the children of the entry at position {@code p}
+ * are {@code children[firstChild[p]]} up to {@code children[firstChild[p + 1]]}, and the root entries are the last
+ * row. A slice of the tree below any entry can then be assembled in time proportional to the slice.
+ */
+public final class HierarchyIndex {
+    /**
+     * Parent position of root entries.
+     */
+    static final int NO_PARENT = -1;
+    /**
+     * Level of entries that have no level type.
+     */
+    static final int NO_LEVEL = -1;
+
+    private final String hierarchyId;
+    private final String hierarchyName;
+    private final String hierarchyType;
+
+    private final UUID[] ids;
+    private final int[] parents;
+    private final String[] codes;
+    private final String[] names;
+    private final int[] levels;
+    private final HierarchyLevelType[] levelTypes;
+
+    private final Map<UUID, Integer> positions;
+    private final Map<String, Integer> codePositions;
+
+    private final int[] firstChild;
+    private final int[] children;
+
+    HierarchyIndex(String hierarchyId, String hierarchyName, String hierarchyType, UUID[] ids, int[] parents,
+                   String[] codes, String[] names, HierarchyLevelType[] levelTypes) {
+        this.hierarchyId = hierarchyId;
+        this.hierarchyName = hierarchyName;
+        this.hierarchyType = hierarchyType;
+        this.ids = ids;
+        this.parents = parents;
+        this.codes = codes;
+        this.names = names;
+        this.levelTypes = levelTypes;
+
+        this.levels = new int[ids.length];
+        this.positions = new HashMap<>(ids.length * 4 / 3 + 1);
+        this.codePositions = new HashMap<>(ids.length * 4 / 3 + 1);
+        for (int i = 0; i < ids.length; ++i) {
+            levels[i] = level(levelTypes[i]);
+            positions.put(ids[i], i);
+            codePositions.putIfAbsent(codes[i], i);
+        }
+
+        // Count the children of each entry (roots in the last row), then place them in display order
+        this.firstChild = new int[ids.length + 2];
+        for (int parent : parents) {
+            ++firstChild[row(parent) + 1];
+        }
+        for (int row = 1; row < firstChild.length; ++row) {
+            firstChild[row] += firstChild[row - 1];
+        }
+        this.children = new int[ids.length];
+        final int[] next = Arrays.copyOf(firstChild, ids.length + 1);
+        for (int i = 0; i < ids.length; ++i) {
+            children[next[row(parents[i])]++] = i;
+        }
+    }
+
+    /**
+     * Builds an index from the entries of a hierarchy. Parents are resolved by id, so uninitialised parent proxies are
+     * never loaded.
+     *
+     * @param hierarchy the hierarchy that the entries belong to.
+     * @param entries all of the entries in the hierarchy, in display order.
+     * @return the index of the hierarchy.
+     */
+    static HierarchyIndex build(Hierarchy hierarchy, List<HierarchyEntry> entries) {
+        final int size = entries.size();
+        final UUID[] ids = new UUID[size];
+        final String[] codes = new String[size];
+        final String[] names = new String[size];
+        final HierarchyLevelType[] levelTypes = new HierarchyLevelType[size];
+        final Map<UUID, Integer> positions = new HashMap<>(size * 4 / 3 + 1);
+
+        for (int i = 0; i < size; ++i) {
+            final HierarchyEntry entry = entries.get(i);
+            ids[i] = entry.getId();
+            codes[i] = entry.getCode();
+            names[i] = entry.getName();
+            levelTypes[i] = entry.getLevelType();
+            positions.put(ids[i], i);
+        }
+
+        final int[] parents = new int[size];
+        for (int i = 0; i < size; ++i) {
+            final HierarchyEntry parent = entries.get(i).getParent();
+            final Integer parentPosition = parent != null ? positions.get(parent.getId()) : null;
+            parents[i] = parentPosition != null ? parentPosition : NO_PARENT;
+        }
+
+        return new HierarchyIndex(hierarchy.getId(), hierarchy.getName(), hierarchy.getType(), ids, parents, codes, names, levelTypes);
+    }
+
+    public String getHierarchyId() {
+        return hierarchyId;
+    }
+
+    public String getHierarchyName() {
+        return hierarchyName;
+    }
+
+    public String getHierarchyType() {
+        return hierarchyType;
+    }
+
+    /**
+     * @return the number of entries in the hierarchy.
+     */
+    public int size() {
+        return ids.length;
+    }
+
+    /**
+     * @param entryId the id of a hierarchy entry.
+     * @return the position of the entry in this index, or a negative number if it is not part of this hierarchy.
+     */
+    public int indexOf(UUID entryId) {
+        final Integer position = positions.get(entryId);
+        return position != null ? position : -1;
+    }
+
+    /**
+     * @param code the code of a hierarchy entry.
+     * @return the position of the first entry with this code, or a negative number if there is none.
+     */
+    public int indexOfCode(String code) {
+        final Integer position = codePositions.get(code);
+        return position != null ? position : -1;
+    }
+
+    /**
+     * @param position the position of an entry, or {@link #NO_PARENT} for the root entries.
+     * @return the number of children of the entry.
+     */
+    public int childCount(int position) {
+        final int row = row(position);
+        return firstChild[row + 1] - firstChild[row];
+    }
+
+    /**
+     * @param position the position of an entry, or {@link #NO_PARENT} for the root entries.
+     * @param i the index of the child, from zero to {@link #childCount(int)}.
+     * @return the position of the child.
+     */
+    public int childOf(int position, int i) {
+        return children[firstChild[row(position)] + i];
+    }
+
+    /**
+     * @return the position of the parent of the given entry, or {@link #NO_PARENT} if it is a root entry.
+     */
+    public int parentOf(int position) {
+        return parents[position];
+    }
+
+    public UUID idOf(int position) {
+        return ids[position];
+    }
+
+    public String codeOf(int position) {
+        return codes[position];
+    }
+
+    public String nameOf(int position) {
+        return names[position];
+    }
+
+    /**
+     * @return the numeric level of the given entry, or {@link #NO_LEVEL} if it has none.
+     */
+    public int levelOf(int position) {
+        return levels[position];
+    }
+
+    public HierarchyLevelType levelTypeOf(int position) {
+        return levelTypes[position];
+    }
+
+    /**
+     * Creates a dimension option for the given entry.
+     *
+     * @param position the position of the entry.
+     * @param optionId the id of the option, or {@code null} if the entry is only present to give structure.
+     * @return the new option, without any children.
+     */
+    DimensionOption option(int position, UUID optionId) {
+        return new DimensionOption(optionId, codes[position], names[position], levelTypes[position], hierarchyId);
+    }
+
+    /**
+     * Assembles the full tree of the hierarchy. Every entry is included and identified by its hierarchy entry id.
+     *
+     * @return the root options of the hierarchy, sorted and with equal siblings removed by
+     *         {@link DimensionOption#sortHierarchy(List)}.
+     */
+    List<DimensionOption> toOptions() {
+        final DimensionOption[] options = new DimensionOption[ids.length];
+        for (int i = 0; i < ids.length; ++i) {
+            options[i] = option(i, ids[i]);
+        }
+
+        final List<DimensionOption> roots = new ArrayList<>();
+        for (int i = 0; i < ids.length; ++i) {
+            if (parents[i] == NO_PARENT) {
+                roots.add(options[i]);
+            } else {
+                options[parents[i]].addChild(options[i]);
+            }
+        }
+        return DimensionOption.sortHierarchy(roots);
+    }
+
+    /**
+     * Assembles a slice of the tree: the entries below a given entry, down to a given depth. Every option in the slice
+     * has its {@linkplain DimensionOption#getChildCount() child count} set to the number of children it shows, or would
+     * show if expanded, so that clients can tell which options can be expanded further.
+     *
+     * @param root the position of the entry whose descendants to include, or {@link #NO_PARENT} to start from the
+     *             root entries.
+     * @param depth the number of levels to include, at least 1.
+     * @param included which entries are part of the tree.
+     * @param optionIds the id of the option for each included entry.
+     * @return the top options of the slice, sorted and with equal siblings removed by
+     *         {@link DimensionOption#sortHierarchy(List)}.
+     */
+    List<DimensionOption> toOptions(int root, int depth, IntPredicate included, IntFunction<UUID> optionIds) {
+        final List<DimensionOption> options = DimensionOption.sortHierarchy(slice(root, depth, included, optionIds));
+        countChildren(options);
+        return options;
+    }
+
+    private List<DimensionOption> slice(int root, int depth, IntPredicate included, IntFunction<UUID> optionIds) {
+        final List<DimensionOption> options = new ArrayList<>();
+        for (int i = 0, count = childCount(root); i < count; ++i) {
+            final int child = childOf(root, i);
+            if (!included.test(child)) {
+                continue;
+            }
+            final DimensionOption option = option(child, optionIds.apply(child));
+            if (depth > 1) {
+                slice(child, depth - 1, included, optionIds).forEach(option::addChild);
+            } else {
+                // The children are not part of the slice, so count those that expanding this option would show
+                option.setChildCount(DimensionOption.sortHierarchy(includedChildren(child, included)).size());
+            }
+            options.add(option);
+        }
+        return options;
+    }
+
+    private List<DimensionOption> includedChildren(int position, IntPredicate included) {
+        final List<DimensionOption> options = new ArrayList<>();
+        for (int i = 0, count = childCount(position); i < count; ++i) {
+            final int child = childOf(position, i);
+            if (included.test(child)) {
+                options.add(option(child, null));
+            }
+        }
+        return options;
+    }
+
+    /**
+     * Sets the child count of every option in a sorted slice that has not already been counted, once equal siblings
+     * have been removed from its children.
+     */
+    private static void countChildren(List<DimensionOption> options) {
+        for (DimensionOption option : options) {
+            if (option.getChildCount() == null) {
+                final List<DimensionOption> children = option.getChildren();
+                option.setChildCount(children != null ? children.size() : 0);
+                if (children != null) {
+                    countChildren(children);
+                }
+            }
+        }
+    }
+
+    private int row(int position) {
+        return position == NO_PARENT ? ids.length : position;
+    }
+
+    private static int level(HierarchyLevelType levelType) {
+        if (levelType == null) {
+            return NO_LEVEL;
+        }
+        final Integer level = levelType.getLevel();
+        return level != null ? level : NO_LEVEL;
+    }
+
+    @Override
+    public String toString() {
+        return "HierarchyIndex{" +
+                "hierarchyId='" + hierarchyId + '\'' +
+                ", size=" + ids.length +
+                '}';
+    }
+}
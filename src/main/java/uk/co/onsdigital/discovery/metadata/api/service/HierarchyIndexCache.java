@@ -0,0 +1,140 @@
+package uk.co.onsdigital.discovery.metadata.api.service;
+
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.stereotype.Service;
+import org.springframework.transaction.annotation.Transactional;
+import org.springframework.util.CollectionUtils;
+import uk.co.onsdigital.discovery.metadata.api.dao.MetadataDao;
+import uk.co.onsdigital.discovery.model.HierarchyEntry;
+import uk.co.onsdigital.discovery.model.HierarchyLevelType;
+
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.CompletionException;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ConcurrentMap;
+import java.util.function.Function;
+import java.util.stream.Collectors;
+
+/**
+ * Holds the {@link HierarchyIndex} of each hierarchy. An index is loaded from the database the first time it is needed
+ * and then shared by every request that renders that hierarchy, either directly or as the hierarchical view of a
+ * dataset dimension.
+ * <p>
+ * When {@link HierarchySnapshots} are enabled, an index whose hierarchy is unchanged in the database since it was last
+ * built is read from its snapshot on local disk rather than from the hierarchy entries.
+ */
+@Service
+public class HierarchyIndexCache {
+    private static final Logger logger = LoggerFactory.getLogger(HierarchyIndexCache.class);
+
+    private final MetadataDao metadataDao;
+    private final HierarchySnapshots snapshots;
+    private final ConcurrentMap<String, CompletableFuture<HierarchyIndex>> indexes = new ConcurrentHashMap<>();
+
+    public HierarchyIndexCache(MetadataDao metadataDao) {
+        this(metadataDao, null);
+    }
+
+    @Autowired
+    public HierarchyIndexCache(MetadataDao metadataDao, HierarchySnapshots snapshots) {
+        this.metadataDao = metadataDao;
+        this.snapshots = snapshots != null && snapshots.isEnabled() ? snapshots : null;
+    }
+
+    /**
+     * Gets the index of the given hierarchy, building it if it has not been loaded yet. Concurrent requests for the
+     * same hierarchy wait for a single build. The build runs on the requesting thread rather than inside the map, so
+     * that it does not hold up requests for other hierarchies.
+     *
+     * @param hierarchyId the id of the hierarchy.
+     * @return the index, or {@code null} if the hierarchy does not exist or has no entries.
+     */
+    @Transactional(readOnly = true)
+    public HierarchyIndex getIndex(String hierarchyId) {
+        final CompletableFuture<HierarchyIndex> build = new CompletableFuture<>();
+        final CompletableFuture<HierarchyIndex> existing = indexes.putIfAbsent(hierarchyId, build);
+        if (existing != null) {
+            return await(existing);
+        }
+        try {
+            final HierarchyIndex index = buildIndex(hierarchyId);
+            if (index == null) {
+                // Not kept, so that a hierarchy that is created later is found
+                indexes.remove(hierarchyId, build);
+            }
+            build.complete(index);
+            return index;
+        } catch (RuntimeException | Error e) {
+            indexes.remove(hierarchyId, build);
+            build.completeExceptionally(e);
+            throw e;
+        }
+    }
+
+    /**
+     * Discards the index of the given hierarchy so that it is rebuilt on next use.
+     *
+     * @param hierarchyId the id of the hierarchy.
+     */
+    public void invalidate(String hierarchyId) {
+        indexes.remove(hierarchyId);
+    }
+
+    /**
+     * Discards every index so that they are rebuilt on next use.
+     */
+    public void invalidateAll() {
+        indexes.clear();
+    }
+
+    private static HierarchyIndex await(CompletableFuture<HierarchyIndex> build) {
+        try {
+            return build.join();
+        } catch (CompletionException e) {
+            // Waiting requests fail with the same exception as the request that built the index
+            if (e.getCause() instanceof RuntimeException) {
+                throw (RuntimeException) e.getCause();
+            }
+            throw (Error) e.getCause();
+        }
+    }
+
+    private HierarchyIndex buildIndex(String hierarchyId) {
+        final long start = System.currentTimeMillis();
+        // The checksum is read before the entries, so a change in between leaves a snapshot that no longer matches
+        final String checksum = snapshots != null ? metadataDao.findHierarchyChecksum(hierarchyId) : null;
+        if (snapshots != null) {
+            if (checksum == null) {
+                return null;
+            }
+            final HierarchyIndex snapshot = snapshots.read(hierarchyId, checksum, levelTypesById());
+            if (snapshot != null) {
+                logger.info("Loaded index of hierarchy {} with {} entries from snapshot in {} ms", hierarchyId,
+                        snapshot.size(), System.currentTimeMillis() - start);
+                return snapshot;
+            }
+        }
+
+        final List<HierarchyEntry> entries = metadataDao.findAllEntriesInHierarchy(hierarchyId);
+        if (CollectionUtils.isEmpty(entries)) {
+            return null;
+        }
+
+        final HierarchyIndex index = HierarchyIndex.build(entries.get(0).getHierarchy(), entries);
+        logger.info("Built index of hierarchy {} with {} entries in {} ms", hierarchyId, index.size(),
+                System.currentTimeMillis() - start);
+        if (snapshots != null) {
+            snapshots.write(index, checksum);
+        }
+        return index;
+    }
+
+    private Map<String, HierarchyLevelType> levelTypesById() {
+        return metadataDao.listAllHierarchyLevelTypes().stream()
+                .collect(Collectors.toMap(HierarchyLevelType::getId, Function.identity()));
+    }
+}
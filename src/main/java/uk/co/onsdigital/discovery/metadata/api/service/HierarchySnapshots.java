@@ -0,0 +1,225 @@
+package uk.co.onsdigital.discovery.metadata.api.service;
+
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.stereotype.Component;
+import uk.co.onsdigital.discovery.model.HierarchyLevelType;
+
+import java.io.BufferedOutputStream;
+import java.io.DataOutputStream;
+import java.io.IOException;
+import java.io.OutputStream;
+import java.io.UnsupportedEncodingException;
+import java.net.URLEncoder;
+import java.nio.ByteBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.Paths;
+import java.nio.file.StandardCopyOption;
+import java.nio.file.StandardOpenOption;
+import java.util.Map;
+import java.util.UUID;
+import java.util.zip.CRC32;
+import java.util.zip.CheckedOutputStream;
+
+/**
+ * Keeps a snapshot of each {@link HierarchyIndex} on local disk, so that a restarted node can load its hierarchies
+ * without reading every entry from the database. Each snapshot records the checksum of the hierarchy in the database
+ * when it was built (see {@link uk.co.onsdigital.discovery.metadata.api.dao.MetadataDao#findHierarchyChecksum}), and
+ * is only used while that still matches. Snapshots are memory-mapped and checked against a CRC-32 of their content when
+ * read, and any snapshot that is stale, corrupt or from another version of this format is ignored and replaced.
+ * <p>
+ * Snapshots are kept in {@code hierarchy.snapshot.directory}, one file per hierarchy. If it is empty, no snapshots are
+ * kept.
+ */
+@Component
+public class HierarchySnapshots {
+    private static final Logger logger = LoggerFactory.getLogger(HierarchySnapshots.class);
+
+    private static final int MAGIC = 0x48495831; // "HIX1"
+    private static final int FORMAT_VERSION = 1;
+    private static final String EXTENSION = ".hix";
+    private static final int NULL_STRING = -1;
+
+    private final Path directory;
+
+    public HierarchySnapshots(@Value("${hierarchy.snapshot.directory:}") String directory) {
+        this.directory = directory.isEmpty() ? null : Paths.get(directory);
+    }
+
+    /**
+     * @return whether snapshots are kept.
+     */
+    public boolean isEnabled() {
+        return directory != null;
+    }
+
+    /**
+     * Reads the snapshot of a hierarchy, if it is still current.
+     *
+     * @param hierarchyId the id of the hierarchy.
+     * @param checksum the current checksum of the hierarchy in the database.
+     * @param levelTypes every level type, by id.
+     * @return the index, or {@code null} if there is no current, valid snapshot.
+     */
+    HierarchyIndex read(String hierarchyId, String checksum, Map<String, HierarchyLevelType> levelTypes) {
+        final Path file = file(hierarchyId);
+        if (!Files.isRegularFile(file)) {
+            return null;
+        }
+        try (FileChannel channel = FileChannel.open(file, StandardOpenOption.READ)) {
+            final ByteBuffer buffer = channel.map(FileChannel.MapMode.READ_ONLY, 0L, channel.size());
+            if (!hasValidCrc(buffer)) {
+                logger.warn("Ignoring corrupt snapshot of hierarchy {}", hierarchyId);
+                return null;
+            }
+            if (buffer.getInt() != MAGIC || buffer.getInt() != FORMAT_VERSION) {
+                logger.info("Ignoring snapshot of hierarchy {} in an unknown format", hierarchyId);
+                return null;
+            }
+            if (!checksum.equals(readString(buffer)) || !hierarchyId.equals(readString(buffer))) {
+                logger.info("Snapshot of hierarchy {} is out of date", hierarchyId);
+                return null;
+            }
+            return readIndex(hierarchyId, buffer, levelTypes);
+        } catch (IOException | RuntimeException e) {
+            logger.warn("Unable to read snapshot of hierarchy {}: {}", hierarchyId, e.toString());
+            return null;
+        }
+    }
+
+    /**
+     * Writes the snapshot of a hierarchy, replacing any previous one.
+     *
+     * @param index the index of the hierarchy.
+     * @param checksum the checksum of the hierarchy in the database, read before the entries of the index.
+     */
+    void write(HierarchyIndex index, String checksum) {
+        final Path file = file(index.getHierarchyId());
+        Path temporary = null;
+        try {
+            Files.createDirectories(directory);
+            temporary = Files.createTempFile(directory, index.getHierarchyId().hashCode() + "-", ".tmp");
+            try (OutputStream stream = Files.newOutputStream(temporary)) {
+                final CheckedOutputStream checked = new CheckedOutputStream(new BufferedOutputStream(stream), new CRC32());
+                final DataOutputStream out = new DataOutputStream(checked);
+                writeIndex(out, index, checksum);
+                out.flush();
+                // The CRC covers everything before it, and is not included in itself
+                new DataOutputStream(stream).writeInt((int) checked.getChecksum().getValue());
+            }
+            // Readers see either the old snapshot or the new one, never a partly written file
+            Files.move(temporary, file, StandardCopyOption.REPLACE_EXISTING, StandardCopyOption.ATOMIC_MOVE);
+        } catch (IOException | RuntimeException e) {
+            logger.warn("Unable to write snapshot of hierarchy {}: {}", index.getHierarchyId(), e.toString());
+            deleteQuietly(temporary);
+        }
+    }
+
+    private static void writeIndex(DataOutputStream out, HierarchyIndex index, String checksum) throws IOException {
+        out.writeInt(MAGIC);
+        out.writeInt(FORMAT_VERSION);
+        writeString(out, checksum);
+        writeString(out, index.getHierarchyId());
+        writeString(out, index.getHierarchyName());
+        writeString(out, index.getHierarchyType());
+        out.writeInt(index.size());
+        for (int i = 0; i < index.size(); ++i) {
+            final UUID id = index.idOf(i);
+            out.writeLong(id.getMostSignificantBits());
+            out.writeLong(id.getLeastSignificantBits());
+            out.writeInt(index.parentOf(i));
+            writeString(out, index.codeOf(i));
+            writeString(out, index.nameOf(i));
+            writeString(out, index.levelTypeOf(i) != null ? index.levelTypeOf(i).getId() : null);
+        }
+    }
+
+    /**
+     * Reads the rest of a snapshot, after the checksum and hierarchy id.
+     *
+     * @return the index, or {@code null} if it refers to a level type that no longer exists.
+     */
+    private static HierarchyIndex readIndex(String hierarchyId, ByteBuffer buffer,
+                                            Map<String, HierarchyLevelType> levelTypes) {
+        final String name = readString(buffer);
+        final String type = readString(buffer);
+        final int size = buffer.getInt();
+        final UUID[] ids = new UUID[size];
+        final int[] parents = new int[size];
+        final String[] codes = new String[size];
+        final String[] names = new String[size];
+        final HierarchyLevelType[] entryLevelTypes = new HierarchyLevelType[size];
+        for (int i = 0; i < size; ++i) {
+            ids[i] = new UUID(buffer.getLong(), buffer.getLong());
+            parents[i] = buffer.getInt();
+            if (parents[i] < HierarchyIndex.NO_PARENT || parents[i] >= size) {
+                throw new IllegalStateException("Invalid parent position " + parents[i]);
+            }
+            codes[i] = readString(buffer);
+            names[i] = readString(buffer);
+            final String levelTypeId = readString(buffer);
+            if (levelTypeId != null) {
+                entryLevelTypes[i] = levelTypes.get(levelTypeId);
+                if (entryLevelTypes[i] == null) {
+                    logger.info("Snapshot of hierarchy {} refers to missing level type {}", hierarchyId, levelTypeId);
+                    return null;
+                }
+            }
+        }
+        return new HierarchyIndex(hierarchyId, name, type, ids, parents, codes, names, entryLevelTypes);
+    }
+
+    private static boolean hasValidCrc(ByteBuffer buffer) {
+        if (buffer.limit() < Integer.BYTES) {
+            return false;
+        }
+        final ByteBuffer content = buffer.duplicate();
+        content.limit(buffer.limit() - Integer.BYTES);
+        final CRC32 crc = new CRC32();
+        crc.update(content);
+        return (int) crc.getValue() == buffer.getInt(buffer.limit() - Integer.BYTES);
+    }
+
+    private static void writeString(DataOutputStream out, String value) throws IOException {
+        if (value == null) {
+            out.writeInt(NULL_STRING);
+        } else {
+            final byte[] bytes = value.getBytes(StandardCharsets.UTF_8);
+            out.writeInt(bytes.length);
+            out.write(bytes);
+        }
+    }
+
+    private static String readString(ByteBuffer buffer) {
+        final int length = buffer.getInt();
+        if (length == NULL_STRING) {
+            return null;
+        }
+        final byte[] bytes = new byte[length];
+        buffer.get(bytes);
+        return new String(bytes, StandardCharsets.UTF_8);
+    }
+
+    private Path file(String hierarchyId) {
+        try {
+            return directory.resolve(URLEncoder.encode(hierarchyId, StandardCharsets.UTF_8.name()) + EXTENSION);
+        } catch (UnsupportedEncodingException e) {
+            // UTF-8 is always supported
+            throw new IllegalStateException(e);
+        }
+    }
+
+    private static void deleteQuietly(Path file) {
+        if (file != null) {
+            try {
+                Files.deleteIfExists(file);
+            } catch (IOException e) {
+                logger.debug("Unable to delete {}: {}", file, e.toString());
+            }
+        }
+    }
+}
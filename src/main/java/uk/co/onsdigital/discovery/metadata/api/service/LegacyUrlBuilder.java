@@ -21,6 +21,7 @@ public class LegacyUrlBuilder {
     private final String baseUrl;
 
     private final UriTemplate pageTemplate;
+    private final UriTemplate cursorTemplate;
     private final UriTemplate dataSetTemplate;
     private final UriTemplate dimensionsTemplate;
     private final UriTemplate dimensionTemplate;
@@ -30,6 +31,7 @@ public class LegacyUrlBuilder {
         this.baseUrl = requireNonNull(baseUrl);
 
         pageTemplate = new UriTemplate(baseUrl + "/versions?page={page}&size={size}");
+        cursorTemplate = new UriTemplate(baseUrl + "/versions?after={after}&size={size}");
         dataSetTemplate = new UriTemplate(baseUrl + "/versions/{dataSetId}");
         dimensionsTemplate = new UriTemplate(baseUrl + "/versions/{dataSetId}/dimensions");
         dimensionTemplate = new UriTemplate(baseUrl + "/versions/{dataSetId}/dimensions/{dimensionId}");
@@ -43,6 +45,22 @@ public class LegacyUrlBuilder {
      * @return a {@link PageUrlTemplate} for building links to individual pages in the result set.
      */
     public PageUrlTemplate datasetsPage(int pageSize) {
+        checkPageSize(pageSize);
+        return pageNumber -> pageTemplate.expand(pageNumber, pageSize).toString();
+    }
+
+    /**
+     * Returns a template function that can be used to construct URLs for the pages that follow a cursor.
+     *
+     * @param pageSize the number of items on each page.
+     * @return a {@link CursorUrlTemplate} for building links to the page after a given cursor.
+     */
+    public CursorUrlTemplate datasetsAfter(int pageSize) {
+        checkPageSize(pageSize);
+        return cursor -> cursorTemplate.expand(cursor, pageSize).toString();
+    }
+
+    private static void checkPageSize(int pageSize) {
         if (pageSize < 1) {
             String errorMsg = "pageSize should be >= 1";
             logger.error(errorMsg);
@@ -53,7 +71,6 @@ public class LegacyUrlBuilder {
             logger.error(errorMsg);
             throw new IllegalArgumentException(errorMsg);
         }
-        return pageNumber -> pageTemplate.expand(pageNumber, pageSize).toString();
     }
 
     /**
@@ -110,6 +127,19 @@ public class LegacyUrlBuilder {
         String build(int pageNumber);
     }
 
+    /**
+     * Simple builder interface for constructing links to the page of results following a cursor.
+     */
+    public interface CursorUrlTemplate {
+        /**
+         * Builds a link to the results after the given cursor.
+         *
+         * @param cursor the opaque cursor, or an empty string to link to the start of the results.
+         * @return a link to that page.
+         */
+        String build(String cursor);
+    }
+
     @Override
     public String toString() {
         return "UrlBuilder{" +
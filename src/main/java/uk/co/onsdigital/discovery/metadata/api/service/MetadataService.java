@@ -1,5 +1,6 @@
 package uk.co.onsdigital.discovery.metadata.api.service;
 
+import com.fasterxml.jackson.core.JsonGenerator;
 import uk.co.onsdigital.discovery.metadata.api.dto.DataResourceResult;
 import uk.co.onsdigital.discovery.metadata.api.dto.ResultPage;
 import uk.co.onsdigital.discovery.metadata.api.dto.legacy.LegacyDataSet;
@@ -8,6 +9,8 @@ import uk.co.onsdigital.discovery.metadata.api.dto.legacy.LegacyResultPage;
 import uk.co.onsdigital.discovery.metadata.api.exception.DataSetNotFoundException;
 import uk.co.onsdigital.discovery.metadata.api.exception.DimensionNotFoundException;
 
+import java.io.IOException;
+import java.util.Collection;
 import java.util.List;
 
 /**
@@ -20,18 +23,42 @@ public interface MetadataService {
      *
      * @param pageNumber the number of the page to return, starting at 1.
      * @param pageSize the number of datasets to include in each page.
+     * @param includeTotal whether to include the total number of dataresources (and a link to the last page).
      * @return all available dataresources.
      */
-    ResultPage listAvailableDataResources(int pageNumber, int pageSize);
+    ResultPage listAvailableDataResources(int pageNumber, int pageSize, boolean includeTotal);
+
+    /**
+     * Return the page of dataresources that follows a cursor from a previous page.
+     *
+     * @param cursor the cursor from the {@code next} link of the previous page, or an empty string for the first page.
+     * @param pageSize the number of datasets to include in each page.
+     * @param includeTotal whether to include the total number of dataresources.
+     * @return the dataresources following the cursor.
+     * @throws IllegalArgumentException if the cursor is not valid.
+     */
+    ResultPage<DataResourceResult> listAvailableDataResourcesAfter(String cursor, int pageSize, boolean includeTotal);
 
     /**
      * Return a page of datasets defined in the database. This is the **legacy** version.
      *
      * @param pageNumber the number of the page to return, starting at 1.
      * @param pageSize the number of datasets to include in each page.
+     * @param includeTotal whether to include the total number of datasets (and a link to the last page).
      * @return all available datasets.
      */
-    LegacyResultPage<LegacyDataSet> listAvailableVersions(int pageNumber, int pageSize);
+    LegacyResultPage<LegacyDataSet> listAvailableVersions(int pageNumber, int pageSize, boolean includeTotal);
+
+    /**
+     * Return the page of datasets that follows a cursor from a previous page. This is the **legacy** version.
+     *
+     * @param cursor the cursor from the {@code next} link of the previous page, or an empty string for the first page.
+     * @param pageSize the number of datasets to include in each page.
+     * @param includeTotal whether to include the total number of datasets.
+     * @return the datasets following the cursor.
+     * @throws IllegalArgumentException if the cursor is not valid.
+     */
+    LegacyResultPage<LegacyDataSet> listAvailableVersionsAfter(String cursor, int pageSize, boolean includeTotal);
 
     /**
      * Find a particular dataset by UUID.
@@ -108,6 +135,177 @@ public interface MetadataService {
     DimensionMetadata findDimensionByIdWithEditionVersion(String datasetId, String edition, int version, String dimensionId, DimensionViewType viewType) throws DataSetNotFoundException,
             DimensionNotFoundException;
 
+    /**
+     * Find the options of a dimension that match a filter, in the order of the {@link DimensionViewType#LIST} view. The
+     * options are selected from a cached index of the dimension rather than by converting every value.
+     *
+     * @param dataSetUuid the id of the dataset.
+     * @param dimensionId the id of the dimension.
+     * @param filter the options to select.
+     * @return the dimension with the selected page of options and the total number of matching options.
+     * @throws DimensionNotFoundException if the dimension does not exist in this dataset.
+     * @throws DataSetNotFoundException if the dataset does not exist.
+     */
+    DimensionMetadata findDimensionOptionsWithDatasetUuid(String dataSetUuid, String dimensionId, OptionFilter filter)
+            throws DataSetNotFoundException, DimensionNotFoundException;
+
+    /**
+     * Find the options of a dimension that match a filter, as for
+     * {@link #findDimensionOptionsWithDatasetUuid(String, String, OptionFilter)}.
+     *
+     * @param datasetId the id of the dataresource.
+     * @param edition the major_label of dimensional_dataset.
+     * @param version the version of a dimensional_dataset.
+     * @param dimensionId the id of the dimension.
+     * @param filter the options to select.
+     * @return the dimension with the selected page of options and the total number of matching options.
+     * @throws DimensionNotFoundException if the dimension does not exist in this dataset.
+     * @throws DataSetNotFoundException if the dataset does not exist.
+     */
+    DimensionMetadata findDimensionOptionsWithEditionVersion(String datasetId, String edition, int version,
+                                                             String dimensionId, OptionFilter filter)
+            throws DataSetNotFoundException, DimensionNotFoundException;
+
+    /**
+     * Find a slice of the {@link DimensionViewType#HIERARCHY} view of a dimension: the options below a given entry,
+     * down to a given depth, each with the number of its children in the view. The slice is assembled from a cached
+     * index of the dimension.
+     *
+     * @param dataSetUuid the id of the dataset.
+     * @param dimensionId the id of the dimension.
+     * @param rootCode the code of the entry whose descendants to include, or {@code null} for the top-level options.
+     * @param depth the number of levels of options to include, at least 1.
+     * @return the dimension with the slice as its options.
+     * @throws DimensionNotFoundException if the dimension does not exist in this dataset, or the root entry is not
+     * part of its hierarchy view.
+     * @throws DataSetNotFoundException if the dataset does not exist.
+     */
+    DimensionMetadata findDimensionSliceWithDatasetUuid(String dataSetUuid, String dimensionId, String rootCode, int depth)
+            throws DataSetNotFoundException, DimensionNotFoundException;
+
+    /**
+     * Find a slice of the {@link DimensionViewType#HIERARCHY} view of a dimension, as for
+     * {@link #findDimensionSliceWithDatasetUuid(String, String, String, int)}.
+     *
+     * @param datasetId the id of the dataresource.
+     * @param edition the major_label of dimensional_dataset.
+     * @param version the version of a dimensional_dataset.
+     * @param dimensionId the id of the dimension.
+     * @param rootCode the code of the entry whose descendants to include, or {@code null} for the top-level options.
+     * @param depth the number of levels of options to include, at least 1.
+     * @return the dimension with the slice as its options.
+     * @throws DimensionNotFoundException if the dimension does not exist in this dataset, or the root entry is not
+     * part of its hierarchy view.
+     * @throws DataSetNotFoundException if the dataset does not exist.
+     */
+    DimensionMetadata findDimensionSliceWithEditionVersion(String datasetId, String edition, int version,
+                                                           String dimensionId, String rootCode, int depth)
+            throws DataSetNotFoundException, DimensionNotFoundException;
+
+    /**
+     * Find the first options of a dimension whose code or name starts with a prefix, ignoring case, for typeahead
+     * search. The options are found in a cached index of the dimension, in the order of the code or name that matched.
+     *
+     * @param dataSetUuid the id of the dataset.
+     * @param dimensionId the id of the dimension.
+     * @param prefix the start of the code or name to search for.
+     * @param limit the maximum number of options to return.
+     * @return the dimension with the matching options.
+     * @throws DimensionNotFoundException if the dimension does not exist in this dataset.
+     * @throws DataSetNotFoundException if the dataset does not exist.
+     */
+    DimensionMetadata searchDimensionOptionsWithDatasetUuid(String dataSetUuid, String dimensionId, String prefix, int limit)
+            throws DataSetNotFoundException, DimensionNotFoundException;
+
+    /**
+     * Find the first options of a dimension whose code or name starts with a prefix, as for
+     * {@link #searchDimensionOptionsWithDatasetUuid(String, String, String, int)}.
+     *
+     * @param datasetId the id of the dataresource.
+     * @param edition the major_label of dimensional_dataset.
+     * @param version the version of a dimensional_dataset.
+     * @param dimensionId the id of the dimension.
+     * @param prefix the start of the code or name to search for.
+     * @param limit the maximum number of options to return.
+     * @return the dimension with the matching options.
+     * @throws DimensionNotFoundException if the dimension does not exist in this dataset.
+     * @throws DataSetNotFoundException if the dataset does not exist.
+     */
+    DimensionMetadata searchDimensionOptionsWithEditionVersion(String datasetId, String edition, int version,
+                                                               String dimensionId, String prefix, int limit)
+            throws DataSetNotFoundException, DimensionNotFoundException;
+
+    /**
+     * Writes the same JSON as {@link #findDimensionByIdWithDatasetUuid(String, String, DimensionViewType)} with the
+     * {@link DimensionViewType#LIST} view, but reads the options from the database in order and writes each one as it
+     * is read, so that memory use does not depend on the size of the dimension. Nothing is written if the dataset or
+     * dimension does not exist.
+     *
+     * @param dataSetUuid the id of the dataset.
+     * @param dimensionId the id of the dimension to write.
+     * @param generator the generator to write the dimension to.
+     * @throws DimensionNotFoundException if the dimension does not exist in this dataset.
+     * @throws DataSetNotFoundException if the dataset does not exist.
+     * @throws IOException if the dimension cannot be written.
+     */
+    void writeDimensionListWithDatasetUuid(String dataSetUuid, String dimensionId, JsonGenerator generator)
+            throws DataSetNotFoundException, DimensionNotFoundException, IOException;
+
+    /**
+     * Writes the same JSON as {@link #findDimensionByIdWithEditionVersion(String, String, int, String, DimensionViewType)}
+     * with the {@link DimensionViewType#LIST} view, streaming the options from the database as for
+     * {@link #writeDimensionListWithDatasetUuid(String, String, JsonGenerator)}.
+     *
+     * @param datasetId the id of the dataresource.
+     * @param edition the major_label of dimensional_dataset.
+     * @param version the version of a dimensional_dataset.
+     * @param dimensionId the id of the dimension to write.
+     * @param generator the generator to write the dimension to.
+     * @throws DimensionNotFoundException if the dimension does not exist in this dataset.
+     * @throws DataSetNotFoundException if the dataset does not exist.
+     * @throws IOException if the dimension cannot be written.
+     */
+    void writeDimensionListWithEditionVersion(String datasetId, String edition, int version, String dimensionId,
+                                              JsonGenerator generator)
+            throws DataSetNotFoundException, DimensionNotFoundException, IOException;
+
+    /**
+     * Writes several dimensions of a dataset as a JSON array, each one the same as it would be from
+     * {@link #findDimensionByIdWithDatasetUuid(String, String, DimensionViewType)}, in the order requested. The dataset
+     * is looked up once and the requested dimensions are loaded together, so this costs little more than fetching a
+     * single dimension. Nothing is written if the dataset or any of the dimensions does not exist.
+     *
+     * @param dataSetUuid the id of the dataset.
+     * @param dimensionIds the ids of the dimensions to write. Duplicates are only written once.
+     * @param viewType the view to render the options of each dimension with.
+     * @param generator the generator to write the dimensions to.
+     * @throws DimensionNotFoundException if any of the dimensions does not exist in this dataset.
+     * @throws DataSetNotFoundException if the dataset does not exist.
+     * @throws IOException if the dimensions cannot be written.
+     */
+    void writeDimensionsWithDatasetUuid(String dataSetUuid, Collection<String> dimensionIds, DimensionViewType viewType,
+                                        JsonGenerator generator)
+            throws DataSetNotFoundException, DimensionNotFoundException, IOException;
+
+    /**
+     * Writes several dimensions of a dataset as a JSON array, each one the same as it would be from
+     * {@link #findDimensionByIdWithEditionVersion(String, String, int, String, DimensionViewType)}, loading them as for
+     * {@link #writeDimensionsWithDatasetUuid(String, Collection, DimensionViewType, JsonGenerator)}.
+     *
+     * @param datasetId the id of the dataresource.
+     * @param edition the major_label of dimensional_dataset.
+     * @param version the version of a dimensional_dataset.
+     * @param dimensionIds the ids of the dimensions to write. Duplicates are only written once.
+     * @param viewType the view to render the options of each dimension with.
+     * @param generator the generator to write the dimensions to.
+     * @throws DimensionNotFoundException if any of the dimensions does not exist in this dataset.
+     * @throws DataSetNotFoundException if the dataset does not exist.
+     * @throws IOException if the dimensions cannot be written.
+     */
+    void writeDimensionsWithEditionVersion(String datasetId, String edition, int version, Collection<String> dimensionIds,
+                                           DimensionViewType viewType, JsonGenerator generator)
+            throws DataSetNotFoundException, DimensionNotFoundException, IOException;
+
     /**
      * Lists all hierarchies defined in the database as pseudo-dimensions.
      *
@@ -125,4 +323,16 @@ public interface MetadataService {
      */
     DimensionMetadata getHierarchy(String hierarchyId) throws DimensionNotFoundException;
 
+    /**
+     * Gets a slice of a hierarchy as a psuedo-dimension: the entries below a given entry, down to a given depth. Each
+     * entry has the number of its children, so that clients can expand the tree one entry at a time.
+     *
+     * @param hierarchyId the id of the hierarchy.
+     * @param rootCode the code of the entry whose descendants to include, or {@code null} for the top-level entries.
+     * @param depth the number of levels of entries to include, at least 1.
+     * @return the hierarchy as a dimension with the slice as its options.
+     * @throws DimensionNotFoundException if the hierarchy or root entry does not exist.
+     */
+    DimensionMetadata getHierarchySlice(String hierarchyId, String rootCode, int depth) throws DimensionNotFoundException;
+
 }
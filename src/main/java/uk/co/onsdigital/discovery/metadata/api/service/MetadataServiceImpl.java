@@ -1,12 +1,17 @@
 package uk.co.onsdigital.discovery.metadata.api.service;
 
+import com.codahale.metrics.MetricRegistry;
+import com.codahale.metrics.Timer;
+import com.fasterxml.jackson.core.JsonGenerator;
+import com.fasterxml.jackson.core.JsonParser;
+import com.fasterxml.jackson.core.JsonToken;
+import com.fasterxml.jackson.databind.util.TokenBuffer;
 import org.apache.commons.lang3.ObjectUtils;
 import org.apache.commons.lang3.StringUtils;
 import org.slf4j.Logger;
 import org.slf4j.LoggerFactory;
 import org.springframework.stereotype.Service;
 import org.springframework.transaction.annotation.Transactional;
-import org.springframework.util.CollectionUtils;
 import uk.co.onsdigital.discovery.metadata.api.dao.MetadataDao;
 import uk.co.onsdigital.discovery.metadata.api.dto.*;
 import uk.co.onsdigital.discovery.metadata.api.dto.common.DimensionMetadata;
@@ -17,7 +22,9 @@ import uk.co.onsdigital.discovery.metadata.api.exception.DataSetNotFoundExceptio
 import uk.co.onsdigital.discovery.metadata.api.exception.DimensionNotFoundException;
 import uk.co.onsdigital.discovery.model.*;
 
+import java.io.IOException;
 import java.util.*;
+import java.util.stream.Stream;
 
 import static java.util.stream.Collectors.toList;
 import static org.apache.commons.lang3.StringUtils.defaultIfEmpty;
@@ -33,18 +40,27 @@ public class MetadataServiceImpl implements MetadataService {
     private final MetadataDao metadataDao;
     private final LegacyUrlBuilder legacyUrlBuilder;
     private final UrlBuilder urlBuilder;
-
-    MetadataServiceImpl(MetadataDao metadataDao, UrlBuilder urlBuilder, LegacyUrlBuilder legacyUrlBuilder) {
+    private final HierarchyIndexCache hierarchyIndexes;
+    private final ResultCountCache resultCounts;
+    private final DimensionOptionIndexCache optionIndexes;
+    private final MetricRegistry metricRegistry;
+
+    MetadataServiceImpl(MetadataDao metadataDao, UrlBuilder urlBuilder, LegacyUrlBuilder legacyUrlBuilder,
+                        HierarchyIndexCache hierarchyIndexes, ResultCountCache resultCounts,
+                        DimensionOptionIndexCache optionIndexes, MetricRegistry metricRegistry) {
         logger.info("Initialising metadata service. Base URL: {}", legacyUrlBuilder);
 
         this.metadataDao = metadataDao;
         this.legacyUrlBuilder = legacyUrlBuilder;
         this.urlBuilder = urlBuilder;
+        this.hierarchyIndexes = hierarchyIndexes;
+        this.resultCounts = resultCounts;
+        this.optionIndexes = optionIndexes;
+        this.metricRegistry = metricRegistry;
     }
 
     @Transactional(readOnly = true)
-    public ResultPage<DataResourceResult> listAvailableDataResources(int pageNumber, int pageSize) {
-        final long totalDataSets = metadataDao.countDataResources();
+    public ResultPage<DataResourceResult> listAvailableDataResources(int pageNumber, int pageSize, boolean includeTotal) {
         final List<DataResource> dbDataSets = metadataDao.findDataResourcesPage(pageNumber, pageSize);
         final List<DataResourceResult> resultDataSets = new ArrayList<>(dbDataSets.size());
 
@@ -52,12 +68,33 @@ public class MetadataServiceImpl implements MetadataService {
             resultDataSets.add(convertDataResource(dataResource));
         }
 
-        return new ResultPage<>(urlBuilder.datasetsPage(pageSize), resultDataSets, totalDataSets, pageNumber, pageSize);
+        if (!includeTotal) {
+            return new ResultPage<>(urlBuilder.datasetsPage(pageSize), resultDataSets, pageNumber, pageSize);
+        }
+        return new ResultPage<>(urlBuilder.datasetsPage(pageSize), resultDataSets, resultCounts.countDataResources(), pageNumber, pageSize);
+    }
+
+    @Override
+    @Transactional(readOnly = true)
+    public ResultPage<DataResourceResult> listAvailableDataResourcesAfter(String cursor, int pageSize, boolean includeTotal) {
+        final UrlBuilder.CursorUrlTemplate cursorUrlTemplate = urlBuilder.datasetsAfter(pageSize);
+        final String afterId = PageCursor.decode(cursor);
+        final Long totalDataSets = includeTotal ? resultCounts.countDataResources() : null;
+        // Fetch one extra result to find out whether there is a next page
+        final List<DataResource> dbDataSets = metadataDao.findDataResourcesAfter(afterId, pageSize + 1);
+        final boolean hasNext = dbDataSets.size() > pageSize;
+        final List<DataResourceResult> resultDataSets = new ArrayList<>(pageSize);
+
+        for (DataResource dataResource : dbDataSets.subList(0, Math.min(pageSize, dbDataSets.size()))) {
+            resultDataSets.add(convertDataResource(dataResource));
+        }
+
+        final String nextCursor = hasNext ? PageCursor.encode(dbDataSets.get(pageSize - 1).getId()) : null;
+        return new ResultPage<>(cursorUrlTemplate, resultDataSets, totalDataSets, pageSize, nextCursor);
     }
 
     @Transactional(readOnly = true)
-    public LegacyResultPage<LegacyDataSet> listAvailableVersions(int pageNumber, int pageSize) {
-        final long totalDataSets = metadataDao.countDataSets();
+    public LegacyResultPage<LegacyDataSet> listAvailableVersions(int pageNumber, int pageSize, boolean includeTotal) {
         final List<DataSet> dbDataSets = metadataDao.findLegacyDataSetsPage(pageNumber, pageSize);
         final List<LegacyDataSet> resultDataSets = new ArrayList<>(dbDataSets.size());
 
@@ -65,7 +102,31 @@ public class MetadataServiceImpl implements MetadataService {
             resultDataSets.add(legacyConvertDataSet(dbDataSet, false));
         }
 
-        return new LegacyResultPage<>(legacyUrlBuilder.datasetsPage(pageSize), resultDataSets, totalDataSets, pageNumber, pageSize);
+        if (!includeTotal) {
+            return new LegacyResultPage<>(legacyUrlBuilder.datasetsPage(pageSize), resultDataSets, pageNumber, pageSize);
+        }
+        return new LegacyResultPage<>(legacyUrlBuilder.datasetsPage(pageSize), resultDataSets, resultCounts.countDataSets(),
+                pageNumber, pageSize);
+    }
+
+    @Override
+    @Transactional(readOnly = true)
+    public LegacyResultPage<LegacyDataSet> listAvailableVersionsAfter(String cursor, int pageSize, boolean includeTotal) {
+        final LegacyUrlBuilder.CursorUrlTemplate cursorUrlTemplate = legacyUrlBuilder.datasetsAfter(pageSize);
+        final String afterKey = PageCursor.decode(cursor);
+        final UUID afterId = afterKey != null ? UUID.fromString(afterKey) : null;
+        final Long totalDataSets = includeTotal ? resultCounts.countDataSets() : null;
+        // Fetch one extra result to find out whether there is a next page
+        final List<DataSet> dbDataSets = metadataDao.findLegacyDataSetsAfter(afterId, pageSize + 1);
+        final boolean hasNext = dbDataSets.size() > pageSize;
+        final List<LegacyDataSet> resultDataSets = new ArrayList<>(pageSize);
+
+        for (DataSet dbDataSet : dbDataSets.subList(0, Math.min(pageSize, dbDataSets.size()))) {
+            resultDataSets.add(legacyConvertDataSet(dbDataSet, false));
+        }
+
+        final String nextCursor = hasNext ? PageCursor.encode(dbDataSets.get(pageSize - 1).getId().toString()) : null;
+        return new LegacyResultPage<>(cursorUrlTemplate, resultDataSets, totalDataSets, pageSize, nextCursor);
     }
 
     @Transactional(readOnly = true)
@@ -73,6 +134,8 @@ public class MetadataServiceImpl implements MetadataService {
         return legacyConvertDataSet(metadataDao.findDataSetByUuid(dataSetUuid), true);
     }
 
+    @Override
+    @Transactional(readOnly = true)
     public DataResourceResult findDataResource(String dataResourceId) throws DataSetNotFoundException {
         return convertDataResource(metadataDao.findDataResource(dataResourceId));
     }
@@ -91,6 +154,7 @@ public class MetadataServiceImpl implements MetadataService {
     }
 
     @Override
+    @Transactional(readOnly = true)
     public List<DimensionMetadata> listDimensionsForDataSetEditionVersion(String dataResourceId, String edition, int version) throws DataSetNotFoundException {
         return metadataDao.findDimensionsForDataSet(dataResourceId, edition, version).stream()
                 .map(d -> convertDimension(dataResourceId, edition, version, d, DimensionViewType.LIST))
@@ -103,10 +167,117 @@ public class MetadataServiceImpl implements MetadataService {
     }
 
     @Override
+    @Transactional(readOnly = true)
     public DimensionMetadata findDimensionByIdWithEditionVersion(String dataSetId, String edition, int version, String dimensionId, DimensionViewType viewType) throws DataSetNotFoundException, DimensionNotFoundException {
         return convertDimension(dataSetId, edition, version, findByName(metadataDao.findDimensionsForDataSet(dataSetId, edition, version), dimensionId), viewType);
     }
 
+    // Not transactional, so that selecting from a cached index does not take a database connection. The dataset and
+    // dimension are each loaded by a single query, which needs no transaction.
+    @Override
+    public DimensionMetadata findDimensionOptionsWithDatasetUuid(String dataSetUuid, String dimensionId, OptionFilter filter)
+            throws DataSetNotFoundException, DimensionNotFoundException {
+        final DimensionOptionIndex index = optionIndexes.getIndex(Arrays.asList(dataSetUuid, dimensionId),
+                () -> findDimension(metadataDao.findDataSetByUuid(dataSetUuid), dimensionId));
+        return selectOptions(index, filter, legacyUrlBuilder.dimension(dataSetUuid, dimensionId));
+    }
+
+    @Override
+    public DimensionMetadata findDimensionOptionsWithEditionVersion(String dataSetId, String edition, int version,
+                                                                    String dimensionId, OptionFilter filter)
+            throws DataSetNotFoundException, DimensionNotFoundException {
+        final DimensionOptionIndex index = optionIndexes.getIndex(Arrays.asList(dataSetId, edition, version, dimensionId),
+                () -> findDimension(metadataDao.findDataSetByEditionAndVersion(dataSetId, edition, version), dimensionId));
+        return selectOptions(index, filter, urlBuilder.dimension(dataSetId, edition, version, dimensionId));
+    }
+
+    // Not transactional, for the same reason as findDimensionOptionsWithDatasetUuid, and sharing its index
+    @Override
+    public DimensionMetadata findDimensionSliceWithDatasetUuid(String dataSetUuid, String dimensionId, String rootCode,
+                                                               int depth)
+            throws DataSetNotFoundException, DimensionNotFoundException {
+        final DimensionOptionIndex index = optionIndexes.getIndex(Arrays.asList(dataSetUuid, dimensionId),
+                () -> findDimension(metadataDao.findDataSetByUuid(dataSetUuid), dimensionId));
+        return sliceOptions(index, rootCode, depth, legacyUrlBuilder.dimension(dataSetUuid, dimensionId));
+    }
+
+    @Override
+    public DimensionMetadata findDimensionSliceWithEditionVersion(String dataSetId, String edition, int version,
+                                                                  String dimensionId, String rootCode, int depth)
+            throws DataSetNotFoundException, DimensionNotFoundException {
+        final DimensionOptionIndex index = optionIndexes.getIndex(Arrays.asList(dataSetId, edition, version, dimensionId),
+                () -> findDimension(metadataDao.findDataSetByEditionAndVersion(dataSetId, edition, version), dimensionId));
+        return sliceOptions(index, rootCode, depth, urlBuilder.dimension(dataSetId, edition, version, dimensionId));
+    }
+
+    // Not transactional, for the same reason as findDimensionOptionsWithDatasetUuid, and sharing its index
+    @Override
+    public DimensionMetadata searchDimensionOptionsWithDatasetUuid(String dataSetUuid, String dimensionId, String prefix,
+                                                                   int limit)
+            throws DataSetNotFoundException, DimensionNotFoundException {
+        final DimensionOptionIndex index = optionIndexes.getIndex(Arrays.asList(dataSetUuid, dimensionId),
+                () -> findDimension(metadataDao.findDataSetByUuid(dataSetUuid), dimensionId));
+        return searchOptions(index, prefix, limit, legacyUrlBuilder.dimension(dataSetUuid, dimensionId));
+    }
+
+    @Override
+    public DimensionMetadata searchDimensionOptionsWithEditionVersion(String dataSetId, String edition, int version,
+                                                                      String dimensionId, String prefix, int limit)
+            throws DataSetNotFoundException, DimensionNotFoundException {
+        final DimensionOptionIndex index = optionIndexes.getIndex(Arrays.asList(dataSetId, edition, version, dimensionId),
+                () -> findDimension(metadataDao.findDataSetByEditionAndVersion(dataSetId, edition, version), dimensionId));
+        return searchOptions(index, prefix, limit, urlBuilder.dimension(dataSetId, edition, version, dimensionId));
+    }
+
+    @Override
+    @Transactional(readOnly = true)
+    public void writeDimensionListWithDatasetUuid(String dataSetUuid, String dimensionId, JsonGenerator generator)
+            throws DataSetNotFoundException, DimensionNotFoundException, IOException {
+        final DataSet dataSet = metadataDao.findDataSetByUuid(dataSetUuid);
+        // Only the dimension itself is needed here, so use the lazy collection rather than fetching every value
+        final Dimension dimension = findByName(dataSet.getDimensions(), dimensionId);
+        writeDimensionList(dataSet, legacyConvertDimension(dataSetUuid, dimension, DimensionViewType.NONE), generator);
+    }
+
+    @Override
+    @Transactional(readOnly = true)
+    public void writeDimensionListWithEditionVersion(String dataSetId, String edition, int version, String dimensionId,
+                                                     JsonGenerator generator)
+            throws DataSetNotFoundException, DimensionNotFoundException, IOException {
+        final DataSet dataSet = metadataDao.findDataSetByEditionAndVersion(dataSetId, edition, version);
+        final Dimension dimension = findByName(dataSet.getDimensions(), dimensionId);
+        writeDimensionList(dataSet, convertDimension(dataSetId, edition, version, dimension, DimensionViewType.NONE), generator);
+    }
+
+    @Override
+    @Transactional(readOnly = true)
+    public void writeDimensionsWithDatasetUuid(String dataSetUuid, Collection<String> dimensionIds,
+                                               DimensionViewType viewType, JsonGenerator generator)
+            throws DataSetNotFoundException, DimensionNotFoundException, IOException {
+        final DataSet dataSet = metadataDao.findDataSetByUuid(dataSetUuid);
+        final List<Dimension> dimensions = findAllByName(dataSet, dimensionIds);
+        generator.writeStartArray();
+        for (Dimension dimension : dimensions) {
+            generator.writeObject(legacyConvertDimension(dataSetUuid, dimension, viewType));
+        }
+        generator.writeEndArray();
+    }
+
+    @Override
+    @Transactional(readOnly = true)
+    public void writeDimensionsWithEditionVersion(String dataSetId, String edition, int version,
+                                                  Collection<String> dimensionIds, DimensionViewType viewType,
+                                                  JsonGenerator generator)
+            throws DataSetNotFoundException, DimensionNotFoundException, IOException {
+        final DataSet dataSet = metadataDao.findDataSetByEditionAndVersion(dataSetId, edition, version);
+        final List<Dimension> dimensions = findAllByName(dataSet, dimensionIds);
+        generator.writeStartArray();
+        for (Dimension dimension : dimensions) {
+            generator.writeObject(convertDimension(dataSetId, edition, version, dimension, viewType));
+        }
+        generator.writeEndArray();
+    }
+
     @Override
     @Transactional(readOnly = true)
     public List<DimensionMetadata> listHierarchies() {
@@ -116,17 +287,66 @@ public class MetadataServiceImpl implements MetadataService {
     @Override
     @Transactional(readOnly = true)
     public DimensionMetadata getHierarchy(String hierarchyId) throws DimensionNotFoundException {
-        final List<HierarchyEntry> entries = metadataDao.findAllEntriesInHierarchy(hierarchyId);
-        if (CollectionUtils.isEmpty(entries)) {
+        final HierarchyIndex index = hierarchyIndexes.getIndex(hierarchyId);
+        if (index == null) {
+            throw new DimensionNotFoundException("No such hierarchy: " + hierarchyId);
+        }
+
+        final DimensionMetadata dimension = convertHierarchyToDimension(index.getHierarchyId(), index.getHierarchyName(),
+                index.getHierarchyType());
+        final Timer.Context context = conversionTimer("index").time();
+        try {
+            dimension.setOptions(index.toOptions());
+        } finally {
+            context.stop();
+        }
+        return dimension;
+    }
+
+    // Not transactional: the index is usually cached, and otherwise builds itself in its own transaction
+    @Override
+    public DimensionMetadata getHierarchySlice(String hierarchyId, String rootCode, int depth) throws DimensionNotFoundException {
+        final HierarchyIndex index = hierarchyIndexes.getIndex(hierarchyId);
+        if (index == null) {
             throw new DimensionNotFoundException("No such hierarchy: " + hierarchyId);
         }
+        final int root = rootCode != null ? index.indexOfCode(rootCode) : HierarchyIndex.NO_PARENT;
+        if (root < 0 && rootCode != null) {
+            throw new DimensionNotFoundException("No such entry in hierarchy " + hierarchyId + ": " + rootCode);
+        }
 
-        final DimensionMetadata dimension = convertHierarchyToDimension(entries.get(0).getHierarchy());
-        final List<DimensionOption> options = convertHierarchyEntries(entries);
-        dimension.setOptions(options);
+        final DimensionMetadata dimension = convertHierarchyToDimension(index.getHierarchyId(), index.getHierarchyName(),
+                index.getHierarchyType());
+        dimension.setOptions(index.toOptions(root, depth, position -> true, index::idOf));
         return dimension;
     }
 
+    /**
+     * Writes a dimension (rendered without options) followed by its options in list order, one at a time as they are
+     * read from the database. The fields of the dimension are serialized exactly as for a normal response.
+     */
+    private void writeDimensionList(DataSet dataSet, DimensionMetadata dimension, JsonGenerator generator) throws IOException {
+        final TokenBuffer fields = new TokenBuffer(generator.getCodec(), false);
+        generator.getCodec().writeValue(fields, dimension);
+
+        // Copy the fields of the dimension (which has no options, so none are written) into an object left open for them
+        final JsonParser parser = fields.asParser();
+        parser.nextToken();
+        generator.writeStartObject();
+        while (parser.nextToken() == JsonToken.FIELD_NAME) {
+            generator.copyCurrentStructure(parser);
+        }
+
+        generator.writeArrayFieldStart("options");
+        try (Stream<DimensionOption> options = metadataDao.streamDimensionOptions(dataSet.getId(), dimension.getName())) {
+            for (Iterator<DimensionOption> it = options.iterator(); it.hasNext(); ) {
+                generator.writeObject(it.next());
+            }
+        }
+        generator.writeEndArray();
+        generator.writeEndObject();
+    }
+
     /**
      * Converts a dataset from the database into an API {@link LegacyDataSet} object. This is the legacy display.
      *
@@ -143,7 +363,8 @@ public class MetadataServiceImpl implements MetadataService {
         dataSet.setDimensionsUrl(legacyUrlBuilder.dimensions(dataSet.getId()));
 
         if (includeDimensions) {
-            final List<DimensionMetadata> dimensions = metadataDao.findDimensionsForDataSet(dataSet.getId()).stream()
+            // Dimension values are not rendered here, so use the lazy collection rather than fetching every value
+            final List<DimensionMetadata> dimensions = dbDataSet.getDimensions().stream()
                     .map(d -> legacyConvertDimension(dataSet.getId(), d, DimensionViewType.NONE))
                     .collect(toList());
             dataSet.setDimensions(dimensions);
@@ -171,7 +392,7 @@ public class MetadataServiceImpl implements MetadataService {
         ddSet.setDatasetId(dbDataSet.getDataResource().getId());
 
         if (includeDimensions) {
-            final List<DimensionMetadata> dimensions = metadataDao.findDimensionsForDataSet(ddSet.getId()).stream()
+            final List<DimensionMetadata> dimensions = dbDataSet.getDimensions().stream()
                     .map(d -> convertDimension(dbDataSet.getDataResource().getId(), dbDataSet.getMajorLabel(), dbDataSet.getMinorVersion(), d, DimensionViewType.NONE))
                     .collect(toList());
             ddSet.setDimensions(dimensions);
@@ -243,6 +464,74 @@ public class MetadataServiceImpl implements MetadataService {
         return dimensions.stream().filter(d -> name.equals(d.getName())).findAny().orElseThrow(() -> new DimensionNotFoundException(name));
     }
 
+    /**
+     * Loads the named dimensions of a dataset, with their values, in a single query and returns them in the order they
+     * were named. Each dimension is only returned once, however many times it is named.
+     */
+    private List<Dimension> findAllByName(DataSet dataSet, Collection<String> names) throws DimensionNotFoundException {
+        final Set<String> uniqueNames = new LinkedHashSet<>(names);
+        if (uniqueNames.isEmpty()) {
+            return Collections.emptyList();
+        }
+
+        final Map<String, Dimension> dimensionsByName = new HashMap<>();
+        for (Dimension dimension : metadataDao.findDimensionsForDataSet(dataSet.getId(), uniqueNames)) {
+            dimensionsByName.put(dimension.getName(), dimension);
+        }
+
+        final List<Dimension> dimensions = new ArrayList<>(uniqueNames.size());
+        for (String name : uniqueNames) {
+            final Dimension dimension = dimensionsByName.get(name);
+            if (dimension == null) {
+                throw new DimensionNotFoundException(name);
+            }
+            dimensions.add(dimension);
+        }
+        return dimensions;
+    }
+
+    private Dimension findDimension(DataSet dataSet, String name) throws DimensionNotFoundException {
+        return findByName(metadataDao.findDimensionsForDataSet(dataSet.getId(), Collections.singleton(name)), name);
+    }
+
+    private static DimensionMetadata selectOptions(DimensionOptionIndex index, OptionFilter filter, String url) {
+        final DimensionMetadata result = indexedDimension(index, url);
+        final DimensionOptionIndex.Selection selection = index.select(filter);
+        result.setOptions(selection.getOptions());
+        result.setTotalOptions(selection.getTotal());
+        result.setOffset(filter.getOffset() != null ? filter.getOffset() : 0);
+        result.setLimit(filter.getLimit());
+        return result;
+    }
+
+    private static DimensionMetadata sliceOptions(DimensionOptionIndex index, String rootCode, int depth, String url)
+            throws DimensionNotFoundException {
+        final List<DimensionOption> slice = index.slice(rootCode, depth);
+        if (slice == null) {
+            throw new DimensionNotFoundException("No such option in dimension " + index.getName() + ": " + rootCode);
+        }
+        final DimensionMetadata result = indexedDimension(index, url);
+        result.setOptions(slice);
+        return result;
+    }
+
+    private static DimensionMetadata searchOptions(DimensionOptionIndex index, String prefix, int limit, String url) {
+        final DimensionMetadata result = indexedDimension(index, url);
+        result.setOptions(index.search(prefix, limit));
+        result.setLimit(limit);
+        return result;
+    }
+
+    private static DimensionMetadata indexedDimension(DimensionOptionIndex index, String url) {
+        final DimensionMetadata result = new DimensionMetadata();
+        result.setId(index.getName());
+        result.setName(index.getName());
+        result.setUrl(url);
+        result.setHierarchical(index.isHierarchical());
+        result.setType(index.getType());
+        return result;
+    }
+
     private DimensionMetadata legacyConvertDimension(String dataSetId, Dimension dimension, DimensionViewType viewType) {
         return setDimensionWithUrl(dimension, viewType, legacyUrlBuilder.dimension(dataSetId, dimension.getName()));
     }
@@ -260,30 +549,33 @@ public class MetadataServiceImpl implements MetadataService {
 
         result.setHierarchical(dimension.isHierarchical());
         result.setType(dimension.getType());
-        result.setOptions(viewType.convertValues(dimension.getValues()));
+        final Timer.Context context = conversionTimer(viewType.name().toLowerCase()).time();
+        try {
+            result.setOptions(viewType.convertValues(dimension.getValues(), hierarchyIndexes));
+        } finally {
+            context.stop();
+        }
 
         return result;
     }
 
+    private Timer conversionTimer(String view) {
+        return metricRegistry.timer(MetricRegistry.name("phase.conversion", view));
+    }
+
     private DimensionMetadata convertHierarchyToDimension(Hierarchy hierarchy) {
+        return convertHierarchyToDimension(hierarchy.getId(), hierarchy.getName(), hierarchy.getType());
+    }
+
+    private DimensionMetadata convertHierarchyToDimension(String id, String name, String type) {
         final DimensionMetadata dimension = new DimensionMetadata();
-        dimension.setId(hierarchy.getId());
-        dimension.setName(hierarchy.getName());
-        dimension.setType(hierarchy.getType());
+        dimension.setId(id);
+        dimension.setName(name);
+        dimension.setType(type);
         dimension.setHierarchical(true);
-        dimension.setUrl(legacyUrlBuilder.hierarchy(hierarchy.getId()));
+        dimension.setUrl(legacyUrlBuilder.hierarchy(id));
 
         return dimension;
     }
 
-    private List<DimensionOption> convertHierarchyEntries(Collection<HierarchyEntry> entries) {
-        return DimensionViewType.HIERARCHY.convertValues(entries.stream().map(this::valueFromHierarchyEntry).collect(toList()));
-    }
-
-    private DimensionValue valueFromHierarchyEntry(final HierarchyEntry entry) {
-        final DimensionValue value = new DimensionValue();
-        value.setHierarchyEntry(entry);
-        return value;
-    }
-
 }
@@ -0,0 +1,79 @@
+package uk.co.onsdigital.discovery.metadata.api.service;
+
+/**
+ * Selects a page of the options of a dimension, in {@link DimensionViewType#LIST} order. Each criterion is optional,
+ * and an option must match all of the criteria that are given.
+ */
+public final class OptionFilter {
+    private final String prefix;
+    private final String levelType;
+    private final String parentCode;
+    private final Integer offset;
+    private final Integer limit;
+
+    /**
+     * @param prefix only include options whose code or name starts with this, ignoring case.
+     * @param levelType only include options at the hierarchy level type with this id.
+     * @param parentCode only include options below the hierarchy entry with this code, at any depth.
+     * @param offset the number of matching options to skip.
+     * @param limit the maximum number of matching options to include.
+     * @throws IllegalArgumentException if the offset is negative or the limit is less than 1.
+     */
+    public OptionFilter(String prefix, String levelType, String parentCode, Integer offset, Integer limit) {
+        if (offset != null && offset < 0) {
+            throw new IllegalArgumentException("offset must be >= 0");
+        }
+        if (limit != null && limit < 1) {
+            throw new IllegalArgumentException("limit must be >= 1");
+        }
+        this.prefix = prefix;
+        this.levelType = levelType;
+        this.parentCode = parentCode;
+        this.offset = offset;
+        this.limit = limit;
+    }
+
+    public String getPrefix() {
+        return prefix;
+    }
+
+    public String getLevelType() {
+        return levelType;
+    }
+
+    public String getParentCode() {
+        return parentCode;
+    }
+
+    /**
+     * @return the number of matching options to skip, or {@code null} if none are skipped.
+     */
+    public Integer getOffset() {
+        return offset;
+    }
+
+    /**
+     * @return the maximum number of options to include, or {@code null} for all of them.
+     */
+    public Integer getLimit() {
+        return limit;
+    }
+
+    /**
+     * @return whether no criteria are given, i.e. every option is selected.
+     */
+    public boolean isEmpty() {
+        return prefix == null && levelType == null && parentCode == null && offset == null && limit == null;
+    }
+
+    @Override
+    public String toString() {
+        return "OptionFilter{" +
+                "prefix='" + prefix + '\'' +
+                ", levelType='" + levelType + '\'' +
+                ", parentCode='" + parentCode + '\'' +
+                ", offset=" + offset +
+                ", limit=" + limit +
+                '}';
+    }
+}
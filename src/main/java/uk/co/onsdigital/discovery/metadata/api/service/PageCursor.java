@@ -0,0 +1,39 @@
+package uk.co.onsdigital.discovery.metadata.api.service;
+
+import java.nio.charset.StandardCharsets;
+import java.util.Base64;
+
+/**
+ * Encodes and decodes the opaque {@code after} cursors used for keyset pagination. A cursor holds the key of the last
+ * item on the previous page, so that the next page can be found by seeking past it rather than by skipping an offset.
+ */
+final class PageCursor {
+
+    private PageCursor() {
+        // Utility class
+    }
+
+    /**
+     * @param key the key of the last item on a page.
+     * @return the cursor to the page following that item.
+     */
+    static String encode(String key) {
+        return Base64.getUrlEncoder().withoutPadding().encodeToString(key.getBytes(StandardCharsets.UTF_8));
+    }
+
+    /**
+     * @param cursor a cursor previously returned by {@link #encode(String)}, or an empty string for the first page.
+     * @return the key to seek past, or {@code null} to start from the first item.
+     * @throws IllegalArgumentException if the cursor is not valid.
+     */
+    static String decode(String cursor) {
+        if (cursor == null || cursor.isEmpty()) {
+            return null;
+        }
+        try {
+            return new String(Base64.getUrlDecoder().decode(cursor), StandardCharsets.UTF_8);
+        } catch (IllegalArgumentException e) {
+            throw new IllegalArgumentException("Invalid cursor: " + cursor, e);
+        }
+    }
+}
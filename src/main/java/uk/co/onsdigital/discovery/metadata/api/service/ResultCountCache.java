@@ -0,0 +1,56 @@
+package uk.co.onsdigital.discovery.metadata.api.service;
+
+import com.google.common.base.Supplier;
+import com.google.common.base.Suppliers;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.stereotype.Component;
+import uk.co.onsdigital.discovery.metadata.api.dao.MetadataDao;
+
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Holds the total number of dataresources and datasets shown on listing pages, so that fetching a page does not also
+ * need to run a count query. Counts are reloaded at most once per expiry period, or after {@link #invalidate()}.
+ */
+@Component
+public class ResultCountCache {
+    private final MetadataDao metadataDao;
+    private final long expireSeconds;
+
+    private volatile Supplier<Long> dataResourceCount;
+    private volatile Supplier<Long> dataSetCount;
+
+    @Autowired
+    public ResultCountCache(MetadataDao metadataDao, @Value("${cache.counts.expire.seconds:60}") long expireSeconds) {
+        this.metadataDao = metadataDao;
+        this.expireSeconds = expireSeconds;
+        invalidate();
+    }
+
+    /**
+     * @return the number of available dataresources, as of at most the expiry period ago.
+     */
+    public long countDataResources() {
+        return dataResourceCount.get();
+    }
+
+    /**
+     * @return the number of available datasets, as of at most the expiry period ago.
+     */
+    public long countDataSets() {
+        return dataSetCount.get();
+    }
+
+    /**
+     * Discards the cached counts so that they are reloaded on next use.
+     */
+    public void invalidate() {
+        dataResourceCount = memoize(metadataDao::countDataResources);
+        dataSetCount = memoize(metadataDao::countDataSets);
+    }
+
+    private Supplier<Long> memoize(Supplier<Long> count) {
+        return expireSeconds > 0 ? Suppliers.memoizeWithExpiration(count, expireSeconds, TimeUnit.SECONDS) : count;
+    }
+}
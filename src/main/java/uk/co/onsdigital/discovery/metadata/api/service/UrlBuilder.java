@@ -21,6 +21,7 @@ public class UrlBuilder {
     private final String baseUrl;
 
     private final UriTemplate pageTemplate;
+    private final UriTemplate cursorTemplate;
     private final UriTemplate dataSetTemplate;
     private final UriTemplate dimensionalDataSetTemplate;
     private final UriTemplate dimensionsTemplate;
@@ -31,6 +32,7 @@ public class UrlBuilder {
         this.baseUrl = requireNonNull(baseUrl);
 
         pageTemplate = new UriTemplate(baseUrl + "/datasets?page={page}&size={size}");
+        cursorTemplate = new UriTemplate(baseUrl + "/datasets?after={after}&size={size}");
         dataSetTemplate = new UriTemplate(baseUrl + "/datasets/{dataSetId}");
         dimensionalDataSetTemplate = new UriTemplate(baseUrl + "/datasets/{dataSetId}/editions/{edition}/versions/{version}");
         dimensionsTemplate = new UriTemplate(baseUrl + "/datasets/{dataSetId}/editions/{edition}/versions/{version}/dimensions");
@@ -45,6 +47,22 @@ public class UrlBuilder {
      * @return a {@link PageUrlTemplate} for building links to individual pages in the result set.
      */
     public PageUrlTemplate datasetsPage(int pageSize) {
+        checkPageSize(pageSize);
+        return pageNumber -> pageTemplate.expand(pageNumber, pageSize).toString();
+    }
+
+    /**
+     * Returns a template function that can be used to construct URLs for the pages that follow a cursor.
+     *
+     * @param pageSize the number of items on each page.
+     * @return a {@link CursorUrlTemplate} for building links to the page after a given cursor.
+     */
+    public CursorUrlTemplate datasetsAfter(int pageSize) {
+        checkPageSize(pageSize);
+        return cursor -> cursorTemplate.expand(cursor, pageSize).toString();
+    }
+
+    private static void checkPageSize(int pageSize) {
         if (pageSize < 1) {
             String errorMessage = "pageSize must be at least 1";
             logger.error(errorMessage);
@@ -53,7 +71,6 @@ public class UrlBuilder {
         if (pageSize > MAX_PAGE_SIZE) {
             throw new IllegalArgumentException("pageSize must be <= " + MAX_PAGE_SIZE);
         }
-        return pageNumber -> pageTemplate.expand(pageNumber, pageSize).toString();
     }
 
     /**
@@ -122,6 +139,19 @@ public class UrlBuilder {
         String build(int pageNumber);
     }
 
+    /**
+     * Simple builder interface for constructing links to the page of results following a cursor.
+     */
+    public interface CursorUrlTemplate {
+        /**
+         * Builds a link to the results after the given cursor.
+         *
+         * @param cursor the opaque cursor, or an empty string to link to the start of the results.
+         * @return a link to that page.
+         */
+        String build(String cursor);
+    }
+
     @Override
     public String toString() {
         return "UrlBuilder{" +
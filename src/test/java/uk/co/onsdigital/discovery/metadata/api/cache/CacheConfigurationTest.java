@@ -0,0 +1,131 @@
+package uk.co.onsdigital.discovery.metadata.api.cache;
+
+import com.fasterxml.jackson.databind.ObjectMapper;
+import com.github.benmanes.caffeine.cache.Cache;
+import org.springframework.beans.factory.InitializingBean;
+import org.springframework.cache.CacheManager;
+import org.springframework.cache.concurrent.ConcurrentMapCache;
+import org.springframework.http.ResponseEntity;
+import org.springframework.mock.env.MockEnvironment;
+import org.testng.annotations.Test;
+import uk.co.onsdigital.discovery.metadata.api.dto.common.DimensionMetadata;
+
+import java.util.concurrent.TimeUnit;
+
+import static org.assertj.core.api.Assertions.assertThat;
+import static uk.co.onsdigital.discovery.metadata.api.cache.CacheConfiguration.CACHE_NAMES;
+
+public class CacheConfigurationTest {
+
+    private final CacheConfiguration cacheConfiguration = new CacheConfiguration();
+    private final ObjectMapper objectMapper = new ObjectMapper();
+
+    @Test
+    public void caffeineCachesShouldBeBoundedByConfiguredWeight() throws Exception {
+        MockEnvironment environment = new MockEnvironment()
+                .withProperty("cache.max.weight.mb", "2")
+                .withProperty("cache.hierarchies.max.weight.mb", "5");
+
+        CacheManager cacheManager = createCacheManager(CacheConfiguration.PROVIDER_CAFFEINE, environment);
+
+        assertThat(cacheManager.getCacheNames()).containsOnlyElementsOf(CACHE_NAMES);
+        assertThat(maximumWeight(cacheManager, "hierarchies")).isEqualTo(5L * 1024 * 1024);
+        assertThat(maximumWeight(cacheManager, "datasets")).isEqualTo(2L * 1024 * 1024);
+    }
+
+    @Test
+    public void datasetListingsShouldBeServedStaleWhileRevalidating() throws Exception {
+        MockEnvironment environment = new MockEnvironment()
+                .withProperty("cache.expire.after.write.minutes", "2")
+                .withProperty(CacheConfiguration.STALE_WHILE_REVALIDATE_SECONDS, "30");
+
+        CacheManager cacheManager = createCacheManager(CacheConfiguration.PROVIDER_CAFFEINE, environment);
+
+        assertThat(cacheManager.getCache("datasets-temp")).isInstanceOf(StaleWhileRevalidateCache.class);
+        assertThat(cacheManager.getCache("datasets")).isNotInstanceOf(StaleWhileRevalidateCache.class);
+        assertThat(expireAfterWriteSeconds(cacheManager, "datasets-temp")).isEqualTo(150L);
+        assertThat(expireAfterWriteSeconds(cacheManager, "datasets")).isEqualTo(120L);
+    }
+
+    @Test
+    public void cachesWithOffHeapWeightShouldBeTiered() throws Exception {
+        MockEnvironment environment = new MockEnvironment()
+                .withProperty("cache.hierarchies.offheap.max.weight.mb", "3");
+
+        CacheManager cacheManager = createCacheManager(CacheConfiguration.PROVIDER_CAFFEINE, environment);
+
+        assertThat(cacheManager.getCache("hierarchies")).isInstanceOf(TieredCache.class);
+        assertThat(((TieredCache) cacheManager.getCache("hierarchies")).getOffHeapCache().policy().eviction().get().getMaximum())
+                .isEqualTo(3L * 1024 * 1024);
+        assertThat(cacheManager.getCache("dimensions")).isNotInstanceOf(TieredCache.class);
+    }
+
+    @Test
+    public void offHeapTiersShouldBeScaledDownToFitTheStore() throws Exception {
+        MockEnvironment environment = new MockEnvironment()
+                .withProperty("cache.hierarchies.offheap.max.weight.mb", "4")
+                .withProperty("cache.dimensions.offheap.max.weight.mb", "2");
+        OffHeapStore store = new OffHeapStore(null) {
+            @Override
+            public long capacity() {
+                return 3L * 1024 * 1024;
+            }
+        };
+
+        CacheManager cacheManager = createCacheManager(CacheConfiguration.PROVIDER_CAFFEINE, environment, store);
+
+        assertThat(((TieredCache) cacheManager.getCache("hierarchies")).getOffHeapCache().policy().eviction().get().getMaximum())
+                .isEqualTo(2L * 1024 * 1024);
+        assertThat(((TieredCache) cacheManager.getCache("dimensions")).getOffHeapCache().policy().eviction().get().getMaximum())
+                .isEqualTo(1024L * 1024);
+    }
+
+    @Test
+    public void concurrentMapProviderShouldBeSelectable() throws Exception {
+        CacheManager cacheManager = createCacheManager(CacheConfiguration.PROVIDER_CONCURRENT_MAP, new MockEnvironment());
+
+        assertThat(cacheManager.getCache("hierarchies")).isInstanceOf(ConcurrentMapCache.class);
+    }
+
+    @Test(expectedExceptions = IllegalArgumentException.class)
+    public void unknownProviderShouldBeRejected() throws Exception {
+        createCacheManager("memcached", new MockEnvironment());
+    }
+
+    @Test
+    public void weigherShouldUseSerializedSizeOfResponseBody() throws Exception {
+        DimensionMetadata dimension = new DimensionMetadata();
+        dimension.setName("test");
+        SerializedSizeWeigher weigher = new SerializedSizeWeigher(objectMapper);
+
+        int expected = objectMapper.writeValueAsBytes(dimension).length;
+
+        assertThat(weigher.weigh("key", dimension)).isEqualTo(expected);
+        assertThat(weigher.weigh("key", ResponseEntity.ok(dimension))).isEqualTo(expected);
+        assertThat(weigher.weigh("key", new StaleWhileRevalidateCache.Entry(dimension, 0L))).isEqualTo(expected);
+    }
+
+    private CacheManager createCacheManager(String provider, MockEnvironment environment) throws Exception {
+        return createCacheManager(provider, environment, new OffHeapStore(null));
+    }
+
+    private CacheManager createCacheManager(String provider, MockEnvironment environment, OffHeapStore store)
+            throws Exception {
+        CacheManager cacheManager = cacheConfiguration.getCacheManager(provider, environment, objectMapper, Runnable::run,
+                store);
+        if (cacheManager instanceof InitializingBean) {
+            ((InitializingBean) cacheManager).afterPropertiesSet();
+        }
+        return cacheManager;
+    }
+
+    private static long maximumWeight(CacheManager cacheManager, String name) {
+        Cache<?, ?> nativeCache = (Cache<?, ?>) cacheManager.getCache(name).getNativeCache();
+        return nativeCache.policy().eviction().get().getMaximum();
+    }
+
+    private static long expireAfterWriteSeconds(CacheManager cacheManager, String name) {
+        Cache<?, ?> nativeCache = (Cache<?, ?>) cacheManager.getCache(name).getNativeCache();
+        return nativeCache.policy().expireAfterWrite().get().getExpiresAfter(TimeUnit.SECONDS);
+    }
+}
@@ -0,0 +1,62 @@
+package uk.co.onsdigital.discovery.metadata.api.cache;
+
+import org.springframework.mock.env.MockEnvironment;
+import org.testng.annotations.BeforeMethod;
+import org.testng.annotations.Test;
+
+import java.util.Arrays;
+
+import static org.mockito.Mockito.mock;
+import static org.mockito.Mockito.timeout;
+import static org.mockito.Mockito.times;
+import static org.mockito.Mockito.verify;
+import static org.mockito.Mockito.verifyNoMoreInteractions;
+
+public class CacheInvalidationListenerTest {
+
+    private CacheInvalidator invalidator;
+    private CacheInvalidationListener listener;
+
+    @BeforeMethod
+    public void createListener() {
+        invalidator = mock(CacheInvalidator.class);
+        listener = new CacheInvalidationListener(invalidator, new MockEnvironment(), true, "metadata_changed", 1000, 1000);
+    }
+
+    @Test
+    public void shouldInvalidateNamedDataSets() {
+        listener.handle("dataset:resource1, 0a1b2c3d-0000-0000-0000-000000000001");
+
+        verify(invalidator).invalidateDataSets(Arrays.asList("resource1", "0a1b2c3d-0000-0000-0000-000000000001"));
+        verifyNoMoreInteractions(invalidator);
+    }
+
+    @Test
+    public void shouldInvalidateNamedHierarchy() {
+        listener.handle("hierarchy:geography");
+
+        verify(invalidator).invalidateHierarchy("geography");
+        verifyNoMoreInteractions(invalidator);
+    }
+
+    @Test
+    public void shouldInvalidateEverythingForUnknownChanges() {
+        listener.handle("dataset:");
+        listener.handle("something else");
+        listener.handle(null);
+
+        verify(invalidator, times(3)).invalidateAll();
+        verifyNoMoreInteractions(invalidator);
+    }
+
+    @Test
+    public void shouldDiscardListingsPeriodicallyWhenDisabled() {
+        listener = new CacheInvalidationListener(invalidator, new MockEnvironment(), false, "metadata_changed", 1000, 10);
+        listener.start();
+        try {
+            verify(invalidator, timeout(1000).atLeast(2)).invalidateListings();
+        } finally {
+            listener.stop();
+        }
+    }
+}
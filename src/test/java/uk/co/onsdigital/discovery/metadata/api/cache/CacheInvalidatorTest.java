@@ -0,0 +1,120 @@
+package uk.co.onsdigital.discovery.metadata.api.cache;
+
+import com.github.benmanes.caffeine.cache.Caffeine;
+import org.springframework.cache.CacheManager;
+import org.springframework.cache.caffeine.CaffeineCache;
+import org.springframework.cache.concurrent.ConcurrentMapCache;
+import org.springframework.cache.support.SimpleCacheManager;
+import org.testng.annotations.BeforeMethod;
+import org.testng.annotations.Test;
+import uk.co.onsdigital.discovery.metadata.api.service.DimensionOptionIndexCache;
+import uk.co.onsdigital.discovery.metadata.api.service.HierarchyIndexCache;
+import uk.co.onsdigital.discovery.metadata.api.service.ResultCountCache;
+
+import java.util.Arrays;
+import java.util.List;
+import java.util.Map;
+
+import static org.assertj.core.api.Assertions.assertThat;
+import static org.mockito.Matchers.any;
+import static org.mockito.Mockito.mock;
+import static org.mockito.Mockito.never;
+import static org.mockito.Mockito.verify;
+import static uk.co.onsdigital.discovery.metadata.api.controller.MetadataController.DATASETS;
+import static uk.co.onsdigital.discovery.metadata.api.controller.MetadataController.DATASETS_TEMP;
+import static uk.co.onsdigital.discovery.metadata.api.controller.MetadataController.DIMENSIONS;
+import static uk.co.onsdigital.discovery.metadata.api.controller.MetadataController.HIERARCHIES;
+import static uk.co.onsdigital.discovery.metadata.api.controller.MetadataController.HIERARCHIES_TEMP;
+
+public class CacheInvalidatorTest {
+
+    private CacheManager cacheManager;
+    private HierarchyIndexCache hierarchyIndexes;
+    private DimensionOptionIndexCache optionIndexes;
+    private ResultCountCache resultCounts;
+    private CacheInvalidator invalidator;
+
+    @BeforeMethod
+    public void createCaches() {
+        final SimpleCacheManager caches = new SimpleCacheManager();
+        caches.setCaches(Arrays.asList(
+                new CaffeineCache(DATASETS, Caffeine.newBuilder().build()),
+                new CaffeineCache(DIMENSIONS, Caffeine.newBuilder().build()),
+                new ConcurrentMapCache(HIERARCHIES),
+                new ConcurrentMapCache(DATASETS_TEMP),
+                new ConcurrentMapCache(HIERARCHIES_TEMP)));
+        caches.afterPropertiesSet();
+        cacheManager = caches;
+
+        hierarchyIndexes = mock(HierarchyIndexCache.class);
+        optionIndexes = mock(DimensionOptionIndexCache.class);
+        resultCounts = mock(ResultCountCache.class);
+        invalidator = new CacheInvalidator(cacheManager, hierarchyIndexes, optionIndexes, resultCounts);
+    }
+
+    @Test
+    public void shouldOnlyEvictEntriesOfChangedDataSets() {
+        put(DATASETS, key("resource1"), key("resource1", "2016", 1), key("resource2", "2016", 1));
+        put(DIMENSIONS, key("uuid1"), key("uuid1", "geography", "LIST"), key("uuid2"));
+        put(HIERARCHIES, key("geography"));
+        put(DATASETS_TEMP, key("listAvailableVersions", 1, 20, true));
+
+        invalidator.invalidateDataSets(Arrays.asList("resource1", "uuid1"));
+
+        assertThat(keys(DATASETS)).containsOnly(key("resource2", "2016", 1));
+        assertThat(keys(DIMENSIONS)).containsOnly(key("uuid2"));
+        assertThat(keys(HIERARCHIES)).containsOnly(key("geography"));
+        assertThat(keys(DATASETS_TEMP)).isEmpty();
+        verify(optionIndexes).invalidateIf(any());
+        verify(resultCounts).invalidate();
+        verify(hierarchyIndexes, never()).invalidate(any());
+    }
+
+    @Test
+    public void shouldEvictChangedHierarchyAndDimensionsThatMayUseIt() {
+        put(HIERARCHIES, key("geography"), key("geography", "K02000001", 1), key("time"));
+        put(DIMENSIONS, key("uuid1"));
+        put(DATASETS, key("resource1"));
+
+        invalidator.invalidateHierarchy("geography");
+
+        assertThat(keys(HIERARCHIES)).containsOnly(key("time"));
+        assertThat(keys(DIMENSIONS)).isEmpty();
+        assertThat(keys(DATASETS)).containsOnly(key("resource1"));
+        verify(hierarchyIndexes).invalidate("geography");
+        verify(optionIndexes).invalidateAll();
+    }
+
+    @Test
+    public void shouldInvalidateEverything() {
+        put(DATASETS, key("resource1"));
+        put(HIERARCHIES, key("geography"));
+
+        invalidator.invalidateAll();
+
+        assertThat(keys(DATASETS)).isEmpty();
+        assertThat(keys(HIERARCHIES)).isEmpty();
+        verify(hierarchyIndexes).invalidateAll();
+        verify(optionIndexes).invalidateAll();
+        verify(resultCounts).invalidate();
+    }
+
+    private void put(String cacheName, List<?>... keys) {
+        for (List<?> key : keys) {
+            cacheManager.getCache(cacheName).put(key, "value");
+        }
+    }
+
+    @SuppressWarnings("unchecked")
+    private List<Object> keys(String cacheName) {
+        final Object nativeCache = cacheManager.getCache(cacheName).getNativeCache();
+        if (nativeCache instanceof com.github.benmanes.caffeine.cache.Cache) {
+            return Arrays.asList(((com.github.benmanes.caffeine.cache.Cache<Object, ?>) nativeCache).asMap().keySet().toArray());
+        }
+        return Arrays.asList(((Map<Object, ?>) nativeCache).keySet().toArray());
+    }
+
+    private static List<?> key(Object... params) {
+        return (List<?>) new ParameterListKeyGenerator().generate(null, null, params);
+    }
+}
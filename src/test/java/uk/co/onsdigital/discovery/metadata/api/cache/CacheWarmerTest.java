@@ -0,0 +1,74 @@
+package uk.co.onsdigital.discovery.metadata.api.cache;
+
+import org.springframework.http.HttpStatus;
+import org.springframework.http.MediaType;
+import org.springframework.test.web.client.MockRestServiceServer;
+import org.springframework.web.client.RestTemplate;
+import org.testng.annotations.BeforeMethod;
+import org.testng.annotations.Test;
+
+import static org.assertj.core.api.Assertions.assertThat;
+import static org.springframework.test.web.client.match.MockRestRequestMatchers.requestTo;
+import static org.springframework.test.web.client.response.MockRestResponseCreators.withStatus;
+import static org.springframework.test.web.client.response.MockRestResponseCreators.withSuccess;
+
+public class CacheWarmerTest {
+    private static final String BASE_URL = "http://localhost:20099";
+
+    private RestTemplate restTemplate;
+    private MockRestServiceServer server;
+
+    @BeforeMethod
+    public void createServer() {
+        restTemplate = new RestTemplate();
+        server = MockRestServiceServer.bindTo(restTemplate).ignoreExpectOrder(true).build();
+        // The mock server is not thread-safe, but the warmer makes requests from several threads at once
+        final Object lock = new Object();
+        restTemplate.getInterceptors().add((request, body, execution) -> {
+            synchronized (lock) {
+                return execution.execute(request, body);
+            }
+        });
+    }
+
+    @Test
+    public void shouldRequestHierarchiesAndLatestDimensionsOfEveryDataset() throws Exception {
+        CacheWarmer cacheWarmer = new CacheWarmer(restTemplate, true, 1, 1);
+        expect("/hierarchies", "[{\"id\":\"H1\"}]");
+        expect("/hierarchies/H1", "{}");
+        expect("/datasets?after=&size=100&totals=false",
+                "{\"items\":[{\"datasetId\":\"D1\",\"latest\":{\"edition\":\"2016\",\"version\":\"2\"}},{\"datasetId\":\"D2\"}]," +
+                        "\"next\":\"http://public.example.org/datasets?after=abc&size=100\"}");
+        expect("/datasets?after=abc&size=100&totals=false", "{\"items\":[]}");
+        expect("/datasets/D1/editions/2016/versions/2/dimensions", "[{\"name\":\"geography\"}]");
+        expect("/datasets/D1/editions/2016/versions/2/dimensions/geography", "{}");
+
+        assertThat(cacheWarmer.isWarm()).isFalse();
+        cacheWarmer.warmUp(BASE_URL);
+
+        assertThat(cacheWarmer.isWarm()).isTrue();
+        server.verify();
+    }
+
+    @Test
+    public void shouldBeWarmEvenIfRequestsFail() throws Exception {
+        CacheWarmer cacheWarmer = new CacheWarmer(restTemplate, true, 1, 1);
+        server.expect(requestTo(BASE_URL + "/hierarchies")).andRespond(withStatus(HttpStatus.INTERNAL_SERVER_ERROR));
+        server.expect(requestTo(BASE_URL + "/datasets?after=&size=100&totals=false"))
+                .andRespond(withStatus(HttpStatus.SERVICE_UNAVAILABLE));
+
+        cacheWarmer.warmUp(BASE_URL);
+
+        assertThat(cacheWarmer.isWarm()).isTrue();
+        server.verify();
+    }
+
+    @Test
+    public void shouldBeWarmImmediatelyIfDisabled() throws Exception {
+        assertThat(new CacheWarmer(restTemplate, false, 1, 1).isWarm()).isTrue();
+    }
+
+    private void expect(String path, String json) {
+        server.expect(requestTo(BASE_URL + path)).andRespond(withSuccess(json, MediaType.APPLICATION_JSON));
+    }
+}
@@ -0,0 +1,155 @@
+package uk.co.onsdigital.discovery.metadata.api.cache;
+
+import com.codahale.metrics.MetricRegistry;
+import com.github.benmanes.caffeine.cache.Caffeine;
+import org.springframework.cache.Cache;
+import org.springframework.cache.caffeine.CaffeineCache;
+import org.springframework.cache.concurrent.ConcurrentMapCache;
+import org.testng.annotations.BeforeMethod;
+import org.testng.annotations.DataProvider;
+import org.testng.annotations.Test;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
+
+import static org.assertj.core.api.Assertions.assertThat;
+import static org.assertj.core.api.Assertions.assertThatThrownBy;
+
+public class InstrumentedCacheTest {
+
+    private MetricRegistry metricRegistry;
+    private InstrumentedCache cache;
+
+    @BeforeMethod
+    public void createCache() {
+        metricRegistry = new MetricRegistry();
+        cache = new InstrumentedCache(new ConcurrentMapCache("test"), metricRegistry);
+    }
+
+    @Test
+    public void shouldCountHitsAndMisses() throws Exception {
+        assertThat(cache.get("key")).isNull();
+        cache.put("key", "value");
+        assertThat(cache.get("key").get()).isEqualTo("value");
+        assertThat(cache.get("key", String.class)).isEqualTo("value");
+
+        assertThat(metricRegistry.meter("cache.test.hits").getCount()).isEqualTo(2);
+        assertThat(metricRegistry.meter("cache.test.misses").getCount()).isEqualTo(1);
+    }
+
+    @Test
+    public void shouldCountLoadsAsMisses() throws Exception {
+        assertThat(cache.get("key", () -> "loaded")).isEqualTo("loaded");
+        assertThat(cache.get("key", () -> "reloaded")).isEqualTo("loaded");
+
+        assertThat(metricRegistry.meter("cache.test.hits").getCount()).isEqualTo(1);
+        assertThat(metricRegistry.meter("cache.test.misses").getCount()).isEqualTo(1);
+    }
+
+    @Test
+    public void shouldCoalesceConcurrentLoadsOfSameKey() throws Exception {
+        final CountDownLatch loading = new CountDownLatch(1);
+        final CountDownLatch release = new CountDownLatch(1);
+        final AtomicInteger loads = new AtomicInteger();
+        final ExecutorService executor = Executors.newFixedThreadPool(4);
+        try {
+            final Future<String> first = executor.submit(() -> cache.get("key", () -> {
+                loads.incrementAndGet();
+                loading.countDown();
+                release.await();
+                return "loaded";
+            }));
+            loading.await();
+            final List<Future<String>> waiting = new ArrayList<>();
+            for (int i = 0; i < 3; ++i) {
+                waiting.add(executor.submit(() -> cache.get("key", () -> "loaded again")));
+            }
+            // Wait until every other request is waiting for the first load
+            while (metricRegistry.meter("cache.test.coalesced").getCount() < 3) {
+                Thread.sleep(1);
+            }
+            release.countDown();
+
+            assertThat(first.get()).isEqualTo("loaded");
+            for (Future<String> request : waiting) {
+                assertThat(request.get()).isEqualTo("loaded");
+            }
+            assertThat(loads.get()).isEqualTo(1);
+            assertThat(metricRegistry.meter("cache.test.misses").getCount()).isEqualTo(1);
+        } finally {
+            executor.shutdownNow();
+        }
+    }
+
+    @Test
+    public void shouldPassLoadFailureToWaitingRequests() throws Exception {
+        final CountDownLatch loading = new CountDownLatch(1);
+        final CountDownLatch release = new CountDownLatch(1);
+        final ExecutorService executor = Executors.newFixedThreadPool(2);
+        try {
+            final Future<String> first = executor.submit(() -> cache.get("key", () -> {
+                loading.countDown();
+                release.await();
+                throw new IllegalStateException("failed");
+            }));
+            loading.await();
+            final Future<String> waiting = executor.submit(() -> cache.get("key", () -> "loaded"));
+            while (metricRegistry.meter("cache.test.coalesced").getCount() < 1) {
+                Thread.sleep(1);
+            }
+            release.countDown();
+
+            assertThatThrownBy(first::get).hasRootCauseInstanceOf(IllegalStateException.class);
+            assertThatThrownBy(waiting::get).hasRootCauseInstanceOf(IllegalStateException.class);
+            // Nothing was cached, so the next request loads again
+            assertThat(cache.get("key", () -> "loaded")).isEqualTo("loaded");
+        } finally {
+            executor.shutdownNow();
+        }
+    }
+
+    @Test
+    public void shouldWrapCheckedLoadFailure() throws Exception {
+        assertThatThrownBy(() -> cache.get("key", () -> {
+            throw new Exception("failed");
+        })).isInstanceOf(Cache.ValueRetrievalException.class).hasCauseInstanceOf(Exception.class);
+    }
+
+    @DataProvider
+    public Object[][] providers() {
+        return new Object[][] {
+                { new ConcurrentMapCache("test") },
+                { new CaffeineCache("test", Caffeine.newBuilder().build()) }
+        };
+    }
+
+    @Test(dataProvider = "providers")
+    public void shouldNotBlockLoadsOfOtherKeys(Cache provider) throws Exception {
+        final InstrumentedCache cache = new InstrumentedCache(provider, metricRegistry);
+        final CountDownLatch loading = new CountDownLatch(1);
+        final CountDownLatch release = new CountDownLatch(1);
+        final ExecutorService executor = Executors.newFixedThreadPool(2);
+        try {
+            final Future<String> slow = executor.submit(() -> cache.get("a", () -> {
+                loading.countDown();
+                release.await();
+                return "slow";
+            }));
+            loading.await();
+            final Future<String> other = executor.submit(() -> cache.get("b", () -> "fast"));
+
+            assertThat(other.get(5, TimeUnit.SECONDS)).isEqualTo("fast");
+            release.countDown();
+            assertThat(slow.get()).isEqualTo("slow");
+        } finally {
+            release.countDown();
+            executor.shutdownNow();
+        }
+    }
+}
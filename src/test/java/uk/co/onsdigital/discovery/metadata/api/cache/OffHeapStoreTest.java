@@ -0,0 +1,106 @@
+package uk.co.onsdigital.discovery.metadata.api.cache;
+
+import com.fasterxml.jackson.databind.ObjectMapper;
+import org.testng.annotations.AfterMethod;
+import org.testng.annotations.BeforeMethod;
+import org.testng.annotations.Test;
+
+import java.io.ByteArrayOutputStream;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.Collections;
+
+import static org.assertj.core.api.Assertions.assertThat;
+
+public class OffHeapStoreTest {
+
+    private final ResponseSerializer serializer = new ResponseSerializer(new ObjectMapper(), true);
+
+    private Path directory;
+
+    @BeforeMethod
+    public void createDirectory() throws Exception {
+        directory = Files.createTempDirectory("offheap");
+    }
+
+    @AfterMethod
+    public void deleteDirectory() throws Exception {
+        Files.deleteIfExists(directory);
+    }
+
+    @Test
+    public void shouldCopyResponsesIntoDirectBuffers() throws Exception {
+        final SerializedResponse response = serializer.serialize(Collections.nCopies(1000, "value"));
+
+        final SerializedResponse copy = new OffHeapStore(null).copy(response);
+
+        assertThat(copy.getContent().isOffHeap()).isTrue();
+        assertThat(copy.getContent().getFile()).isNull();
+        assertThat(copy.getContent().toByteArray()).isEqualTo(response.getContent().toByteArray());
+        assertThat(copy.getGzippedContent().toByteArray()).isEqualTo(response.getGzippedContent().toByteArray());
+        assertThat(copy.getEtag()).isEqualTo(response.getEtag());
+        assertThat(copy.size()).isEqualTo(response.size());
+    }
+
+    @Test
+    public void shouldCopyResponsesIntoMappedFiles() throws Exception {
+        final SerializedResponse response = serializer.serialize(Collections.nCopies(1000, "value"));
+        final OffHeapStore store = new OffHeapStore(directory);
+
+        final SerializedResponse copy = store.copy(response);
+
+        final ResponseContent content = copy.getContent();
+        final ResponseContent gzippedContent = copy.getGzippedContent();
+        assertThat(content.isOffHeap()).isTrue();
+        assertThat(content.getFile()).isEqualTo(gzippedContent.getFile()).startsWith(directory);
+        assertThat(content.getFileOffset()).isZero();
+        assertThat(gzippedContent.getFileOffset()).isEqualTo(content.length());
+        assertThat(Files.size(content.getFile())).isEqualTo(copy.size());
+
+        final ByteArrayOutputStream out = new ByteArrayOutputStream();
+        gzippedContent.writeTo(out);
+        assertThat(out.toByteArray()).isEqualTo(response.getGzippedContent().toByteArray());
+        assertThat(content.toByteArray()).isEqualTo(response.getContent().toByteArray());
+
+        store.close();
+        assertThat(content.getFile()).doesNotExist();
+    }
+
+    @Test
+    public void shouldNotDeleteReleasedFilesImmediately() throws Exception {
+        final OffHeapStore store = new OffHeapStore(directory);
+        final SerializedResponse copy = store.copy(serializer.serialize("value"));
+
+        store.release(copy);
+
+        // A response may still be being sent from the file
+        assertThat(copy.getContent().getFile()).exists();
+        store.close();
+    }
+
+    @Test
+    public void shouldDeleteReleasedFilesWithoutFurtherReleases() throws Exception {
+        final OffHeapStore store = new OffHeapStore(directory, 10L);
+        final SerializedResponse copy = store.copy(serializer.serialize("value"));
+
+        store.release(copy);
+
+        try {
+            for (int i = 0; i < 500 && Files.exists(copy.getContent().getFile()); ++i) {
+                Thread.sleep(10L);
+            }
+            assertThat(copy.getContent().getFile()).doesNotExist();
+        } finally {
+            store.close();
+        }
+    }
+
+    @Test
+    public void shouldOnlyLimitCapacityOfDirectBuffers() throws Exception {
+        final OffHeapStore store = new OffHeapStore(directory);
+
+        assertThat(new OffHeapStore(null).capacity()).isPositive().isLessThan(Long.MAX_VALUE);
+        assertThat(store.capacity()).isEqualTo(Long.MAX_VALUE);
+        store.close();
+    }
+}
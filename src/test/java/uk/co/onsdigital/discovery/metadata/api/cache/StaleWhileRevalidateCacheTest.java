@@ -0,0 +1,121 @@
+package uk.co.onsdigital.discovery.metadata.api.cache;
+
+import org.springframework.cache.Cache;
+import org.springframework.cache.concurrent.ConcurrentMapCache;
+import org.testng.annotations.BeforeMethod;
+import org.testng.annotations.Test;
+
+import java.util.ArrayDeque;
+import java.util.Queue;
+import java.util.concurrent.RejectedExecutionException;
+import java.util.concurrent.atomic.AtomicInteger;
+
+import static org.assertj.core.api.Assertions.assertThat;
+import static org.assertj.core.api.Assertions.assertThatThrownBy;
+
+public class StaleWhileRevalidateCacheTest {
+
+    private static final long FRESH = 1000;
+    private static final long GRACE = 500;
+
+    private long now;
+    private Queue<Runnable> refreshes;
+    private StaleWhileRevalidateCache cache;
+
+    @BeforeMethod
+    public void createCache() {
+        now = 10_000;
+        refreshes = new ArrayDeque<>();
+        cache = new StaleWhileRevalidateCache(new ConcurrentMapCache("test"), FRESH, GRACE, refreshes::add, () -> now);
+    }
+
+    @Test
+    public void shouldServeFreshEntriesWithoutLoading() throws Exception {
+        cache.get("key", () -> "loaded");
+        now += FRESH - 1;
+
+        assertThat(cache.get("key", () -> "reloaded")).isEqualTo("loaded");
+        assertThat(cache.get("key").get()).isEqualTo("loaded");
+        assertThat(refreshes).isEmpty();
+    }
+
+    @Test
+    public void shouldServeStaleEntryWhileRefreshing() throws Exception {
+        final AtomicInteger loads = new AtomicInteger();
+        cache.get("key", () -> "loaded");
+        now += FRESH;
+
+        assertThat(cache.get("key", () -> "reloaded" + loads.incrementAndGet())).isEqualTo("loaded");
+        assertThat(cache.get("key", () -> "reloaded" + loads.incrementAndGet())).isEqualTo("loaded");
+        assertThat(cache.get("key")).isNull();
+
+        // Only one refresh is queued for the key
+        assertThat(refreshes).hasSize(1);
+        refreshes.poll().run();
+
+        assertThat(cache.get("key", () -> "unused")).isEqualTo("reloaded1");
+        assertThat(loads.get()).isEqualTo(1);
+    }
+
+    @Test
+    public void shouldLoadWhenGracePeriodHasPassed() throws Exception {
+        cache.get("key", () -> "loaded");
+        now += FRESH + GRACE;
+
+        assertThat(cache.get("key", () -> "reloaded")).isEqualTo("reloaded");
+        assertThat(refreshes).isEmpty();
+    }
+
+    @Test
+    public void clearShouldMakeEntriesStale() throws Exception {
+        cache.get("key", () -> "loaded");
+        now += 10;
+        cache.clear();
+
+        assertThat(cache.get("key")).isNull();
+        assertThat(cache.get("key", () -> "reloaded")).isEqualTo("loaded");
+        refreshes.poll().run();
+        assertThat(cache.get("key").get()).isEqualTo("reloaded");
+
+        // The grace period runs from the clear, not from when the entry would have expired
+        cache.put("other", "value");
+        now += 1;
+        cache.clear();
+        now += GRACE;
+        assertThat(cache.get("other", () -> "reloaded")).isEqualTo("reloaded");
+    }
+
+    @Test
+    public void shouldKeepStaleEntryIfRefreshFails() throws Exception {
+        cache.get("key", () -> "loaded");
+        now += FRESH;
+
+        cache.get("key", () -> {
+            throw new IllegalStateException("database unavailable");
+        });
+        refreshes.poll().run();
+
+        assertThat(cache.get("key", () -> "reloaded")).isEqualTo("loaded");
+        assertThat(refreshes).hasSize(1);
+    }
+
+    @Test
+    public void shouldServeStaleEntryIfRefreshIsRejected() throws Exception {
+        final Cache delegate = new ConcurrentMapCache("test");
+        cache = new StaleWhileRevalidateCache(delegate, FRESH, GRACE, runnable -> {
+            throw new RejectedExecutionException();
+        }, () -> now);
+        cache.get("key", () -> "loaded");
+        now += FRESH;
+
+        assertThat(cache.get("key", () -> "reloaded")).isEqualTo("loaded");
+        assertThat(cache.get("key", () -> "reloaded")).isEqualTo("loaded");
+    }
+
+    @Test
+    public void shouldPropagateLoadFailures() {
+        assertThatThrownBy(() -> cache.get("key", () -> {
+            throw new IllegalStateException("database unavailable");
+        })).isInstanceOf(Cache.ValueRetrievalException.class).hasCauseInstanceOf(IllegalStateException.class);
+    }
+}
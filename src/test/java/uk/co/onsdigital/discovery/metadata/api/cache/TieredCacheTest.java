@@ -0,0 +1,110 @@
+package uk.co.onsdigital.discovery.metadata.api.cache;
+
+import com.fasterxml.jackson.databind.ObjectMapper;
+import com.github.benmanes.caffeine.cache.Caffeine;
+import org.springframework.cache.concurrent.ConcurrentMapCache;
+import org.testng.annotations.BeforeMethod;
+import org.testng.annotations.Test;
+
+import java.io.IOException;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Collections;
+import java.util.List;
+
+import static org.assertj.core.api.Assertions.assertThat;
+
+public class TieredCacheTest {
+
+    private static final int MIN_OFF_HEAP_SIZE = 1024;
+
+    private final ResponseSerializer serializer = new ResponseSerializer(new ObjectMapper(), false);
+
+    private ConcurrentMapCache heap;
+    private com.github.benmanes.caffeine.cache.Cache<Object, SerializedResponse> offHeap;
+    private List<SerializedResponse> released;
+    private TieredCache cache;
+
+    @BeforeMethod
+    public void createCache() throws Exception {
+        heap = new ConcurrentMapCache("test");
+        released = Collections.synchronizedList(new ArrayList<>());
+        final OffHeapStore store = new OffHeapStore(null) {
+            @Override
+            public void release(SerializedResponse response) {
+                released.add(response);
+            }
+        };
+        offHeap = Caffeine.newBuilder()
+                .executor(Runnable::run)
+                .<Object, SerializedResponse>removalListener((key, response, cause) -> store.release(response))
+                .build();
+        cache = new TieredCache(heap, offHeap, store, MIN_OFF_HEAP_SIZE);
+    }
+
+    @Test
+    public void shouldKeepSmallResponsesOnTheHeap() {
+        final SerializedResponse small = serializer.serialize("small");
+
+        cache.put("key", small);
+
+        assertThat(heap.get("key").get()).isSameAs(small);
+        assertThat(offHeap.getIfPresent("key")).isNull();
+        assertThat(cache.get("key").get()).isSameAs(small);
+    }
+
+    @Test
+    public void shouldMoveLargeResponsesOffTheHeap() {
+        final SerializedResponse large = serializer.serialize(Collections.nCopies(1000, "large"));
+
+        final SerializedResponse cached = cache.get("key", () -> large);
+
+        assertThat(cached.getContent().isOffHeap()).isTrue();
+        assertThat(cached.getContent().toByteArray()).isEqualTo(large.getContent().toByteArray());
+        assertThat(heap.get("key")).isNull();
+        assertThat(cache.get("key", SerializedResponse.class)).isSameAs(cached);
+        assertThat(cache.get("key", () -> large)).isSameAs(cached);
+    }
+
+    @Test
+    public void shouldReleaseResponsesRemovedFromOffHeapTier() {
+        cache.put("key", serializer.serialize(Collections.nCopies(1000, "large")));
+        final SerializedResponse cached = offHeap.getIfPresent("key");
+
+        cache.put("key", serializer.serialize("small"));
+
+        assertThat(offHeap.getIfPresent("key")).isNull();
+        assertThat(released).containsExactly(cached);
+    }
+
+    @Test
+    public void shouldEvictFromBothTiers() {
+        cache.put(Arrays.asList("a", 1), serializer.serialize("small"));
+        cache.put(Arrays.asList("a", 2), serializer.serialize(Collections.nCopies(1000, "large")));
+        cache.put(Arrays.asList("b", 1), serializer.serialize(Collections.nCopies(1000, "large")));
+
+        cache.evictIf(key -> ((List<?>) key).get(0).equals("a"));
+
+        assertThat(cache.get(Arrays.asList("a", 1))).isNull();
+        assertThat(cache.get(Arrays.asList("a", 2))).isNull();
+        assertThat(cache.get(Arrays.asList("b", 1))).isNotNull();
+
+        cache.clear();
+        assertThat(cache.get(Arrays.asList("b", 1))).isNull();
+    }
+
+    @Test
+    public void shouldKeepResponseOnTheHeapIfItCannotBeCopied() throws Exception {
+        cache = new TieredCache(heap, offHeap, new OffHeapStore(null) {
+            @Override
+            public SerializedResponse copy(SerializedResponse response) throws IOException {
+                throw new IOException("No space left on device");
+            }
+        }, MIN_OFF_HEAP_SIZE);
+        final SerializedResponse large = serializer.serialize(Collections.nCopies(1000, "large"));
+
+        cache.put("key", large);
+
+        assertThat(cache.get("key").get()).isSameAs(large);
+    }
+}
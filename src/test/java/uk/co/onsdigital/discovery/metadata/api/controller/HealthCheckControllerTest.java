@@ -0,0 +1,88 @@
+package uk.co.onsdigital.discovery.metadata.api.controller;
+
+import org.mockito.Mock;
+import org.mockito.MockitoAnnotations;
+import org.springframework.http.HttpStatus;
+import org.springframework.http.ResponseEntity;
+import org.testng.annotations.BeforeMethod;
+import org.testng.annotations.Test;
+import uk.co.onsdigital.discovery.metadata.api.cache.CacheWarmer;
+import uk.co.onsdigital.discovery.metadata.api.dao.ConnectionPoolMonitor;
+import uk.co.onsdigital.discovery.metadata.api.dao.DatabaseHealthProbe;
+import uk.co.onsdigital.discovery.metadata.api.dto.HealthStatus;
+import uk.co.onsdigital.discovery.metadata.api.dto.PoolStatistics;
+
+import static org.assertj.core.api.Assertions.assertThat;
+import static org.mockito.Mockito.when;
+
+public class HealthCheckControllerTest {
+    private static final long MAX_CONNECTION_WAIT = 2000;
+    private static final long MAX_QUERY_AGE = 30000;
+
+    @Mock
+    private CacheWarmer cacheWarmer;
+
+    @Mock
+    private DatabaseHealthProbe databaseHealthProbe;
+
+    @Mock
+    private ConnectionPoolMonitor connectionPoolMonitor;
+
+    private HealthCheckController healthCheckController;
+
+    @BeforeMethod
+    public void createController() {
+        MockitoAnnotations.initMocks(this);
+        healthCheckController = new HealthCheckController(cacheWarmer, databaseHealthProbe, connectionPoolMonitor,
+                MAX_CONNECTION_WAIT, MAX_QUERY_AGE);
+
+        // Healthy by default
+        when(cacheWarmer.isWarm()).thenReturn(true);
+        when(databaseHealthProbe.getLastSuccessMillis()).thenReturn(System.currentTimeMillis());
+        when(databaseHealthProbe.getConnectionWaitMillis()).thenReturn(5L);
+        when(connectionPoolMonitor.getStatistics()).thenReturn(new PoolStatistics(10, 5, 15, 50, 0));
+    }
+
+    @Test
+    public void shouldBeReadyWhenWarmAndDatabaseResponsive() throws Exception {
+        ResponseEntity<HealthStatus> response = healthCheckController.healthCheck();
+
+        assertThat(response.getStatusCode()).isEqualTo(HttpStatus.OK);
+        assertThat(response.getBody().isReady()).isTrue();
+        assertThat(response.getBody().getPool().getUtilization()).isEqualTo(0.2);
+    }
+
+    @Test
+    public void shouldNotBeReadyWhileWarmingCaches() throws Exception {
+        when(cacheWarmer.isWarm()).thenReturn(false);
+
+        assertNotReady(healthCheckController.healthCheck());
+    }
+
+    @Test
+    public void shouldNotBeReadyIfDatabaseHasNeverAnswered() throws Exception {
+        when(databaseHealthProbe.getLastSuccessMillis()).thenReturn(null);
+
+        assertNotReady(healthCheckController.healthCheck());
+    }
+
+    @Test
+    public void shouldNotBeReadyIfDatabaseHasStoppedAnswering() throws Exception {
+        when(databaseHealthProbe.getLastSuccessMillis()).thenReturn(System.currentTimeMillis() - MAX_QUERY_AGE - 1000);
+
+        assertNotReady(healthCheckController.healthCheck());
+    }
+
+    @Test
+    public void shouldNotBeReadyIfConnectionWaitExceedsThreshold() throws Exception {
+        when(databaseHealthProbe.getConnectionWaitMillis()).thenReturn(MAX_CONNECTION_WAIT + 1);
+
+        assertNotReady(healthCheckController.healthCheck());
+    }
+
+    private static void assertNotReady(ResponseEntity<HealthStatus> response) {
+        assertThat(response.getStatusCode()).isEqualTo(HttpStatus.SERVICE_UNAVAILABLE);
+        assertThat(response.getBody().isReady()).isFalse();
+        assertThat(response.getBody().getProblems()).hasSize(1);
+    }
+}
@@ -1,18 +1,42 @@
 package uk.co.onsdigital.discovery.metadata.api.controller;
 
+import com.fasterxml.jackson.core.JsonGenerator;
+import com.fasterxml.jackson.databind.ObjectMapper;
 import org.springframework.beans.factory.annotation.Autowired;
 import org.springframework.cache.CacheManager;
 import org.springframework.cache.annotation.EnableCaching;
 import org.springframework.cache.concurrent.ConcurrentMapCacheManager;
 import org.springframework.context.annotation.Bean;
 import org.springframework.context.annotation.Configuration;
+import org.springframework.data.domain.PageRequest;
+import org.springframework.data.domain.Pageable;
+import org.springframework.http.HttpHeaders;
+import org.springframework.http.HttpStatus;
+import org.springframework.http.MediaType;
 import org.springframework.http.ResponseEntity;
+import org.springframework.mock.web.MockHttpServletRequest;
+import org.springframework.mock.web.MockHttpServletResponse;
 import org.springframework.test.context.testng.AbstractTestNGSpringContextTests;
+import org.springframework.util.DigestUtils;
+import org.springframework.util.StreamUtils;
+import org.springframework.web.context.request.ServletWebRequest;
+import org.springframework.web.context.request.WebRequest;
 import org.testng.Assert;
 import org.testng.annotations.Test;
+import uk.co.onsdigital.discovery.metadata.api.cache.MetadataResponseCache;
+import uk.co.onsdigital.discovery.metadata.api.cache.ResponseContent;
+import uk.co.onsdigital.discovery.metadata.api.cache.ResponseSerializer;
 import uk.co.onsdigital.discovery.metadata.api.dto.common.DimensionMetadata;
 import uk.co.onsdigital.discovery.metadata.api.service.DimensionViewType;
 import uk.co.onsdigital.discovery.metadata.api.service.MetadataService;
+import uk.co.onsdigital.discovery.metadata.api.service.OptionFilter;
+
+import java.io.ByteArrayInputStream;
+import java.io.IOException;
+import java.io.InputStream;
+import java.util.Arrays;
+import java.util.Collections;
+import java.util.zip.GZIPInputStream;
 
 import static org.mockito.Mockito.*;
 
@@ -27,10 +51,17 @@ public class MetadataControllerTest extends AbstractTestNGSpringContextTests {
 
         public static final int defaultCacheTimeMinutes = 3;
         public static final int defaultCacheTimeSeconds = defaultCacheTimeMinutes * 60;
+        public static final int staleWhileRevalidateSeconds = 30;
 
         @Bean
         public MetadataController getMetadataController() {
-            return new MetadataController(getMetadataService(), defaultCacheTimeMinutes);
+            return new MetadataController(getMetadataResponseCache(), getMetadataService(), new ObjectMapper(), defaultCacheTimeMinutes,
+                    staleWhileRevalidateSeconds);
+        }
+
+        @Bean
+        public MetadataResponseCache getMetadataResponseCache() {
+            return new MetadataResponseCache(getMetadataService(), new ResponseSerializer(new ObjectMapper(), true));
         }
 
         @Bean
@@ -40,7 +71,7 @@ public class MetadataControllerTest extends AbstractTestNGSpringContextTests {
 
         @Bean
         public CacheManager getCacheManager() {
-            return new ConcurrentMapCacheManager("hierarchies", "dimensions");
+            return new ConcurrentMapCacheManager("hierarchies", "dimensions", "datasets-temp");
         }
     }
 
@@ -51,8 +82,8 @@ public class MetadataControllerTest extends AbstractTestNGSpringContextTests {
         String hierarchyId = "hierarchy1";
 
         // When we call getHierarchy multiple times
-        metadataController.getHierarchy(hierarchyId);
-        metadataController.getHierarchy(hierarchyId);
+        metadataController.getHierarchy(hierarchyId, null, null, request());
+        metadataController.getHierarchy(hierarchyId, null, null, request());
 
         // Then the metadata service is called only once as it is cached after the first call.
         verify(metadataService, times(1)).getHierarchy(hierarchyId);
@@ -65,7 +96,7 @@ public class MetadataControllerTest extends AbstractTestNGSpringContextTests {
         String hierarchyId = "hierarchy1";
 
         // When we call getHierarchy
-        ResponseEntity<DimensionMetadata> response = metadataController.getHierarchy(hierarchyId);
+        ResponseEntity<ResponseContent> response = metadataController.getHierarchy(hierarchyId, null, null, request());
 
         // Then the response contains cache control headers
         String actual = response.getHeaders().get("Cache-Control").get(0);
@@ -82,8 +113,8 @@ public class MetadataControllerTest extends AbstractTestNGSpringContextTests {
         String view = "HIERARCHY";
 
         // When we call findDimensionByIdWithDatasetUuid multiple times
-        metadataController.findDimensionByIdWithDatasetUuid(datasetId, dimensionId, view);
-        metadataController.findDimensionByIdWithDatasetUuid(datasetId, dimensionId, view);
+        metadataController.findDimensionByIdWithDatasetUuid(datasetId, dimensionId, view, null, null, null, null, null, null, null, request());
+        metadataController.findDimensionByIdWithDatasetUuid(datasetId, dimensionId, view, null, null, null, null, null, null, null, request());
 
         // Then the metadata service is called only once as it is cached after the first call.
         verify(metadataService, times(1)).findDimensionByIdWithDatasetUuid(datasetId, dimensionId, DimensionViewType.HIERARCHY);
@@ -98,7 +129,7 @@ public class MetadataControllerTest extends AbstractTestNGSpringContextTests {
         String view = "HIERARCHY";
 
         // When we call findDimensionByIdWithDatasetUuid
-        ResponseEntity<DimensionMetadata> response = metadataController.findDimensionByIdWithDatasetUuid(datasetId, dimensionId, view);
+        ResponseEntity<ResponseContent> response = metadataController.findDimensionByIdWithDatasetUuid(datasetId, dimensionId, view, null, null, null, null, null, null, null, request());
 
         // Then the response contains cache control headers
         String actual = response.getHeaders().get("Cache-Control").get(0);
@@ -117,8 +148,8 @@ public class MetadataControllerTest extends AbstractTestNGSpringContextTests {
         String view = "HIERARCHY";
 
         // When we call findDimensionByIdWithEditionVersion multiple times
-        metadataController.findDimensionByIdWithEditionVersion(datasetId, edition, version, dimensionId, view);
-        metadataController.findDimensionByIdWithEditionVersion(datasetId, edition, version, dimensionId, view);
+        metadataController.findDimensionByIdWithEditionVersion(datasetId, edition, version, dimensionId, view, null, null, null, null, null, null, null, request());
+        metadataController.findDimensionByIdWithEditionVersion(datasetId, edition, version, dimensionId, view, null, null, null, null, null, null, null, request());
 
         // Then the metadata service is called only once as it is cached after the first call.
         verify(metadataService, times(1))
@@ -136,11 +167,300 @@ public class MetadataControllerTest extends AbstractTestNGSpringContextTests {
         String view = "HIERARCHY";
 
         // When we call findDimensionByIdWithEditionVersion multiple times
-        ResponseEntity<DimensionMetadata> response = metadataController.findDimensionByIdWithEditionVersion(datasetId, edition, version, dimensionId, view);
+        ResponseEntity<ResponseContent> response = metadataController.findDimensionByIdWithEditionVersion(datasetId, edition, version, dimensionId, view, null, null, null, null, null, null, null, request());
 
         // Then the response contains cache control headers
         String actual = response.getHeaders().get("Cache-Control").get(0);
         String expected = String.format("max-age=%d", Config.defaultCacheTimeSeconds);
         Assert.assertEquals(actual, expected);
     }
+
+    @Test
+    public void getHierarchyShouldReturnSerializedJson() throws Exception {
+
+        // Given a hierarchy returned by the metadata service
+        String hierarchyId = "hierarchy2";
+        DimensionMetadata hierarchy = new DimensionMetadata();
+        hierarchy.setId(hierarchyId);
+        when(metadataService.getHierarchy(hierarchyId)).thenReturn(hierarchy);
+
+        // When we call getHierarchy
+        ResponseEntity<ResponseContent> response = metadataController.getHierarchy(hierarchyId, null, null, request());
+
+        // Then the response body is the JSON for the hierarchy
+        Assert.assertEquals(response.getHeaders().getContentType(), MediaType.APPLICATION_JSON_UTF8);
+        Assert.assertEquals(response.getBody().toByteArray(), new ObjectMapper().writeValueAsBytes(hierarchy));
+    }
+
+    @Test
+    public void getHierarchyShouldReturnGzippedJsonIfAccepted() throws Exception {
+
+        // Given a hierarchy large enough to be compressed
+        String hierarchyId = "hierarchy3";
+        DimensionMetadata hierarchy = new DimensionMetadata();
+        hierarchy.setId(hierarchyId);
+        hierarchy.setName(String.join("", Collections.nCopies(2000, "x")));
+        when(metadataService.getHierarchy(hierarchyId)).thenReturn(hierarchy);
+
+        // When we call getHierarchy accepting gzip
+        ResponseEntity<ResponseContent> response = metadataController.getHierarchy(hierarchyId, null, null, request(HttpHeaders.ACCEPT_ENCODING, "deflate, gzip;q=1.0"));
+
+        // Then the response body is the compressed JSON for the hierarchy
+        Assert.assertEquals(response.getHeaders().getFirst(HttpHeaders.CONTENT_ENCODING), "gzip");
+        try (InputStream in = new GZIPInputStream(new ByteArrayInputStream(response.getBody().toByteArray()))) {
+            Assert.assertEquals(StreamUtils.copyToByteArray(in), new ObjectMapper().writeValueAsBytes(hierarchy));
+        }
+    }
+
+    @Test
+    public void getHierarchyShouldReturnStrongEtag() throws Exception {
+
+        // Given a hierarchy returned by the metadata service
+        String hierarchyId = "hierarchy4";
+        DimensionMetadata hierarchy = new DimensionMetadata();
+        hierarchy.setId(hierarchyId);
+        when(metadataService.getHierarchy(hierarchyId)).thenReturn(hierarchy);
+
+        // When we call getHierarchy
+        ResponseEntity<ResponseContent> response = metadataController.getHierarchy(hierarchyId, null, null, request());
+
+        // Then the response has an ETag derived from its content
+        String expected = '"' + DigestUtils.md5DigestAsHex(response.getBody().toByteArray()) + '"';
+        Assert.assertEquals(response.getHeaders().getETag(), expected);
+    }
+
+    @Test
+    public void getHierarchyShouldReturnNotModifiedIfEtagMatches() throws Exception {
+
+        // Given a hierarchy that a client has already downloaded
+        String hierarchyId = "hierarchy5";
+        String etag = metadataController.getHierarchy(hierarchyId, null, null, request()).getHeaders().getETag();
+
+        // When the client makes a conditional request
+        ResponseEntity<ResponseContent> response = metadataController.getHierarchy(hierarchyId, null, null, request(HttpHeaders.IF_NONE_MATCH, "\"other\", " + etag));
+
+        // Then it receives 304 Not Modified without a body, and the metadata service is not called again
+        Assert.assertEquals(response.getStatusCode(), HttpStatus.NOT_MODIFIED);
+        Assert.assertEquals(response.getHeaders().getETag(), etag);
+        Assert.assertNull(response.getBody());
+        verify(metadataService, times(1)).getHierarchy(hierarchyId);
+    }
+
+    @Test
+    public void listAvailableVersionsShouldReturnNotModifiedIfEtagMatches() throws Exception {
+
+        // Given a page of datasets that a client has already downloaded
+        Pageable pageable = new PageRequest(1, 20);
+        String etag = metadataController.listAvailableVersions(pageable, null, true, request()).getHeaders().getETag();
+
+        // When the client makes a conditional request
+        ResponseEntity<ResponseContent> response = metadataController.listAvailableVersions(pageable, null, true, request(HttpHeaders.IF_NONE_MATCH, etag));
+
+        // Then it receives 304 Not Modified, and the metadata service is only called once
+        Assert.assertEquals(response.getStatusCode(), HttpStatus.NOT_MODIFIED);
+        verify(metadataService, times(1)).listAvailableDataResources(1, 20, true);
+    }
+
+    @Test
+    public void listingsShouldAllowStaleWhileRevalidate() {
+
+        // When we list datasets
+        ResponseEntity<ResponseContent> response = metadataController.listAvailableDataSets(new PageRequest(3, 7), null, true, request());
+
+        // Then shared caches may serve the listing stale while they revalidate it
+        String actual = response.getHeaders().getCacheControl();
+        String expected = String.format("max-age=0, stale-while-revalidate=%d", Config.staleWhileRevalidateSeconds);
+        Assert.assertEquals(actual, expected);
+    }
+
+    @Test
+    public void streamDimensionShouldWriteJsonDirectlyToTheResponse() throws Exception {
+
+        // Given a dimension that the metadata service writes as it is read
+        String datasetId = "datasetId";
+        String dimensionId = "dimensionId";
+        doAnswer(invocation -> {
+            JsonGenerator generator = (JsonGenerator) invocation.getArguments()[2];
+            generator.writeStartObject();
+            generator.writeEndObject();
+            return null;
+        }).when(metadataService).writeDimensionListWithDatasetUuid(eq(datasetId), eq(dimensionId), any(JsonGenerator.class));
+
+        // When we stream the dimension
+        MockHttpServletResponse response = new MockHttpServletResponse();
+        metadataController.streamDimensionByIdWithDatasetUuid(datasetId, dimensionId, "list", response);
+
+        // Then the JSON is written to the response, uncached, with the usual headers
+        Assert.assertEquals(response.getContentAsString(), "{}");
+        Assert.assertEquals(response.getContentType(), MediaType.APPLICATION_JSON_UTF8_VALUE);
+        Assert.assertEquals(response.getHeader(HttpHeaders.CACHE_CONTROL), String.format("max-age=%d", Config.defaultCacheTimeSeconds));
+    }
+
+    @Test
+    public void streamDimensionShouldCloseGeneratorWithoutCompletingJsonIfWritingFails() throws Exception {
+
+        // Given a dimension whose options fail part way through
+        doAnswer(invocation -> {
+            JsonGenerator generator = (JsonGenerator) invocation.getArguments()[2];
+            generator.writeStartObject();
+            generator.writeArrayFieldStart("options");
+            throw new IOException("Connection reset");
+        }).when(metadataService).writeDimensionListWithDatasetUuid(eq("datasetId"), eq("dimensionId"), any(JsonGenerator.class));
+
+        // When we stream the dimension
+        MockHttpServletResponse response = new MockHttpServletResponse();
+        try {
+            metadataController.streamDimensionByIdWithDatasetUuid("datasetId", "dimensionId", "list", response);
+            Assert.fail("Expected the failure to be passed on");
+        } catch (IOException e) {
+            Assert.assertEquals(e.getMessage(), "Connection reset");
+        }
+
+        // Then what was written is flushed, but not closed off as if it were complete
+        Assert.assertEquals(response.getContentAsString(), "{\"options\":[");
+    }
+
+    @Test(expectedExceptions = IllegalArgumentException.class)
+    public void streamDimensionShouldOnlySupportListView() throws Exception {
+        metadataController.streamDimensionByIdWithDatasetUuid("datasetId", "dimensionId", "hierarchy", new MockHttpServletResponse());
+    }
+
+    @Test
+    public void bulkDimensionsShouldBeWrittenDirectlyToTheResponse() throws Exception {
+
+        // Given several dimensions that the metadata service writes as a single array
+        doAnswer(invocation -> {
+            JsonGenerator generator = (JsonGenerator) invocation.getArguments()[5];
+            generator.writeStartArray();
+            generator.writeEndArray();
+            return null;
+        }).when(metadataService).writeDimensionsWithEditionVersion(eq("datasetId"), eq("2016"), eq(1),
+                eq(Arrays.asList("geography", "time")), eq(DimensionViewType.HIERARCHY), any(JsonGenerator.class));
+
+        // When we request them together
+        MockHttpServletResponse response = new MockHttpServletResponse();
+        metadataController.findDimensionsByIdWithEditionVersion("datasetId", "2016", 1, Arrays.asList("geography", "time"),
+                "hierarchy", response);
+
+        // Then the JSON is written to the response with the usual headers
+        Assert.assertEquals(response.getContentAsString(), "[]");
+        Assert.assertEquals(response.getContentType(), MediaType.APPLICATION_JSON_UTF8_VALUE);
+        Assert.assertEquals(response.getHeader(HttpHeaders.CACHE_CONTROL), String.format("max-age=%d", Config.defaultCacheTimeSeconds));
+    }
+
+    @Test
+    public void bulkDimensionsShouldCloseGeneratorWithoutCompletingJsonIfWritingFails() throws Exception {
+
+        // Given several dimensions, the second of which fails to convert
+        doAnswer(invocation -> {
+            JsonGenerator generator = (JsonGenerator) invocation.getArguments()[3];
+            generator.writeStartArray();
+            generator.writeStartObject();
+            generator.writeEndObject();
+            throw new IllegalStateException("Conversion failed");
+        }).when(metadataService).writeDimensionsWithDatasetUuid(eq("datasetId"), eq(Arrays.asList("geography", "time")),
+                eq(DimensionViewType.LIST), any(JsonGenerator.class));
+
+        // When we request them together
+        MockHttpServletResponse response = new MockHttpServletResponse();
+        try {
+            metadataController.findDimensionsByIdWithDatasetUuid("datasetId", Arrays.asList("geography", "time"), "list", response);
+            Assert.fail("Expected the failure to be passed on");
+        } catch (IllegalStateException e) {
+            Assert.assertEquals(e.getMessage(), "Conversion failed");
+        }
+
+        // Then what was written is flushed, but the array is not closed off as if it were complete
+        Assert.assertEquals(response.getContentAsString(), "[{}");
+    }
+
+    @Test
+    public void filteredDimensionOptionsShouldNotBeCached() throws Exception {
+
+        // Given a filter on the options of a dimension
+        when(metadataService.findDimensionOptionsWithEditionVersion(eq("datasetId"), eq("2016"), eq(1), eq("geography"),
+                any(OptionFilter.class))).thenReturn(new DimensionMetadata());
+
+        // When we request the same page twice
+        metadataController.findDimensionByIdWithEditionVersion("datasetId", "2016", 1, "geography", "list",
+                "lon", null, null, 0, 50, null, null, request());
+        ResponseEntity<ResponseContent> response = metadataController.findDimensionByIdWithEditionVersion("datasetId", "2016", 1,
+                "geography", "list", "lon", null, null, 0, 50, null, null, request());
+
+        // Then each request is answered by the metadata service, with the usual headers
+        Assert.assertEquals(response.getStatusCode(), HttpStatus.OK);
+        Assert.assertNotNull(response.getHeaders().getETag());
+        verify(metadataService, times(2)).findDimensionOptionsWithEditionVersion(eq("datasetId"), eq("2016"), eq(1),
+                eq("geography"), any(OptionFilter.class));
+    }
+
+    @Test(expectedExceptions = IllegalArgumentException.class)
+    public void dimensionOptionsShouldOnlyBeFilteredInListView() throws Exception {
+        metadataController.findDimensionByIdWithDatasetUuid("datasetId", "geography", "hierarchy", "lon", null, null,
+                null, null, null, null, request());
+    }
+
+    @Test
+    public void hierarchySlicesShouldBeCachedSeparately() throws Exception {
+        when(metadataService.getHierarchySlice("slicedHierarchy", "code1", 1)).thenReturn(new DimensionMetadata());
+
+        metadataController.getHierarchy("slicedHierarchy", "code1", 1, request());
+        metadataController.getHierarchy("slicedHierarchy", "code1", 1, request());
+        ResponseEntity<ResponseContent> response = metadataController.getHierarchy("slicedHierarchy", "code1", 1, request());
+
+        Assert.assertEquals(response.getStatusCode(), HttpStatus.OK);
+        verify(metadataService, times(1)).getHierarchySlice("slicedHierarchy", "code1", 1);
+        verify(metadataService, never()).getHierarchy("slicedHierarchy");
+    }
+
+    @Test
+    public void dimensionSliceShouldDefaultToAllLevels() throws Exception {
+        when(metadataService.findDimensionSliceWithDatasetUuid("datasetId", "geography", "code1", Integer.MAX_VALUE))
+                .thenReturn(new DimensionMetadata());
+
+        metadataController.findDimensionByIdWithDatasetUuid("datasetId", "geography", "hierarchy", null, null, null,
+                null, null, "code1", null, request());
+
+        verify(metadataService).findDimensionSliceWithDatasetUuid("datasetId", "geography", "code1", Integer.MAX_VALUE);
+    }
+
+    @Test(expectedExceptions = IllegalArgumentException.class)
+    public void dimensionOptionsShouldOnlyBeSlicedInHierarchyView() throws Exception {
+        metadataController.findDimensionByIdWithEditionVersion("datasetId", "2016", 1, "geography", "list", null, null,
+                null, null, null, "code1", 1, request());
+    }
+
+    @Test(expectedExceptions = IllegalArgumentException.class)
+    public void sliceDepthShouldBePositive() throws Exception {
+        metadataController.getHierarchy("hierarchy1", null, 0, request());
+    }
+
+    @Test
+    public void dimensionSearchShouldNotBeCached() throws Exception {
+        when(metadataService.searchDimensionOptionsWithDatasetUuid("datasetId", "geography", "lon", 10))
+                .thenReturn(new DimensionMetadata());
+
+        metadataController.searchDimensionOptionsWithDatasetUuid("datasetId", "geography", "lon", 10, request());
+        ResponseEntity<ResponseContent> response = metadataController.searchDimensionOptionsWithDatasetUuid("datasetId",
+                "geography", "lon", 10, request());
+
+        Assert.assertEquals(response.getStatusCode(), HttpStatus.OK);
+        verify(metadataService, times(2)).searchDimensionOptionsWithDatasetUuid("datasetId", "geography", "lon", 10);
+    }
+
+    @Test(expectedExceptions = IllegalArgumentException.class)
+    public void dimensionSearchLimitShouldBeBounded() throws Exception {
+        metadataController.searchDimensionOptionsWithEditionVersion("datasetId", "2016", 1, "geography", "lon", 1000,
+                request());
+    }
+
+    private static WebRequest request() {
+        return new ServletWebRequest(new MockHttpServletRequest());
+    }
+
+    private static WebRequest request(String header, String value) {
+        MockHttpServletRequest request = new MockHttpServletRequest();
+        request.addHeader(header, value);
+        return new ServletWebRequest(request);
+    }
 }
@@ -0,0 +1,40 @@
+package uk.co.onsdigital.discovery.metadata.api.controller;
+
+import com.codahale.metrics.MetricRegistry;
+import io.prometheus.client.exporter.common.TextFormat;
+import org.springframework.mock.web.MockHttpServletResponse;
+import org.testng.annotations.Test;
+
+import java.util.concurrent.TimeUnit;
+
+import static org.assertj.core.api.Assertions.assertThat;
+
+public class MetricsControllerTest {
+
+    @Test
+    public void shouldExportMetricsWithLabelsForPrometheus() throws Exception {
+        MetricRegistry metricRegistry = new MetricRegistry();
+        metricRegistry.timer("http.requests.GET./versions/{dataSetId}").update(250, TimeUnit.MILLISECONDS);
+        metricRegistry.meter("cache.datasets-temp.hits").mark(3);
+        metricRegistry.counter("unmapped.counter").inc();
+        MockHttpServletResponse response = new MockHttpServletResponse();
+
+        new MetricsController(metricRegistry).getPrometheusMetrics(response);
+
+        assertThat(response.getContentType()).startsWith(TextFormat.CONTENT_TYPE_004.substring(0, 10));
+        assertThat(response.getContentAsString())
+                .contains("http_requests_seconds_count{method=\"GET\",route=\"/versions/{dataSetId}\",} 1.0")
+                .contains("cache_hits_total{cache=\"datasets-temp\",} 3.0")
+                .contains("unmapped_counter 1.0");
+    }
+
+    @Test
+    public void shouldExportMetricsAsJson() throws Exception {
+        MetricRegistry metricRegistry = new MetricRegistry();
+        metricRegistry.counter("requests").inc();
+
+        String json = new String(new MetricsController(metricRegistry).getMetrics(), "UTF-8");
+
+        assertThat(json).contains("\"requests\":{\"count\":1}");
+    }
+}
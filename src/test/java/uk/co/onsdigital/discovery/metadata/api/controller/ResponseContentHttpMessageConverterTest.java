@@ -0,0 +1,98 @@
+package uk.co.onsdigital.discovery.metadata.api.controller;
+
+import com.fasterxml.jackson.databind.ObjectMapper;
+import org.springframework.http.MediaType;
+import org.springframework.http.server.ServletServerHttpResponse;
+import org.springframework.mock.web.MockHttpServletRequest;
+import org.springframework.mock.web.MockHttpServletResponse;
+import org.springframework.web.context.request.RequestContextHolder;
+import org.springframework.web.context.request.ServletRequestAttributes;
+import org.testng.annotations.AfterMethod;
+import org.testng.annotations.BeforeMethod;
+import org.testng.annotations.Test;
+import uk.co.onsdigital.discovery.metadata.api.cache.OffHeapStore;
+import uk.co.onsdigital.discovery.metadata.api.cache.ResponseContent;
+import uk.co.onsdigital.discovery.metadata.api.cache.ResponseSerializer;
+import uk.co.onsdigital.discovery.metadata.api.cache.SerializedResponse;
+
+import java.nio.file.Files;
+import java.util.Collections;
+
+import static org.assertj.core.api.Assertions.assertThat;
+import static uk.co.onsdigital.discovery.metadata.api.controller.ResponseContentHttpMessageConverter.SENDFILE_END;
+import static uk.co.onsdigital.discovery.metadata.api.controller.ResponseContentHttpMessageConverter.SENDFILE_FILENAME;
+import static uk.co.onsdigital.discovery.metadata.api.controller.ResponseContentHttpMessageConverter.SENDFILE_START;
+import static uk.co.onsdigital.discovery.metadata.api.controller.ResponseContentHttpMessageConverter.SENDFILE_SUPPORT;
+
+public class ResponseContentHttpMessageConverterTest {
+
+    private final ResponseContentHttpMessageConverter converter = new ResponseContentHttpMessageConverter();
+    private final ResponseSerializer serializer = new ResponseSerializer(new ObjectMapper(), true);
+
+    private MockHttpServletRequest request;
+    private MockHttpServletResponse response;
+    private OffHeapStore store;
+
+    @BeforeMethod
+    public void setUp() throws Exception {
+        request = new MockHttpServletRequest("GET", "/hierarchies/test");
+        response = new MockHttpServletResponse();
+        RequestContextHolder.setRequestAttributes(new ServletRequestAttributes(request));
+        store = new OffHeapStore(Files.createTempDirectory("offheap"));
+    }
+
+    @AfterMethod
+    public void tearDown() {
+        RequestContextHolder.resetRequestAttributes();
+        store.close();
+    }
+
+    @Test
+    public void shouldWriteContentWithLength() throws Exception {
+        final SerializedResponse serialized = serializer.serialize(Collections.nCopies(1000, "value"));
+
+        write(serialized.getContent());
+
+        assertThat(response.getContentAsByteArray()).isEqualTo(serialized.getContent().toByteArray());
+        assertThat(response.getContentLength()).isEqualTo(serialized.getContent().length());
+    }
+
+    @Test
+    public void shouldWriteFileContentIfSendfileIsNotSupported() throws Exception {
+        final SerializedResponse serialized = store.copy(serializer.serialize(Collections.nCopies(1000, "value")));
+
+        write(serialized.getGzippedContent());
+
+        assertThat(response.getContentAsByteArray()).isEqualTo(serialized.getGzippedContent().toByteArray());
+        assertThat(request.getAttribute(SENDFILE_FILENAME)).isNull();
+    }
+
+    @Test
+    public void shouldSendFileContentWithSendfile() throws Exception {
+        request.setAttribute(SENDFILE_SUPPORT, Boolean.TRUE);
+        final SerializedResponse serialized = store.copy(serializer.serialize(Collections.nCopies(1000, "value")));
+        final ResponseContent gzipped = serialized.getGzippedContent();
+
+        write(gzipped);
+
+        assertThat(response.getContentAsByteArray()).isEmpty();
+        assertThat(response.getContentLength()).isEqualTo(gzipped.length());
+        assertThat(request.getAttribute(SENDFILE_FILENAME)).isEqualTo(gzipped.getFile().toAbsolutePath().toString());
+        assertThat(request.getAttribute(SENDFILE_START)).isEqualTo((long) serialized.getContent().length());
+        assertThat(request.getAttribute(SENDFILE_END)).isEqualTo((long) serialized.size());
+    }
+
+    @Test
+    public void shouldNotUseSendfileForHeadRequests() throws Exception {
+        request.setMethod("HEAD");
+        request.setAttribute(SENDFILE_SUPPORT, Boolean.TRUE);
+
+        write(store.copy(serializer.serialize("value")).getContent());
+
+        assertThat(request.getAttribute(SENDFILE_FILENAME)).isNull();
+    }
+
+    private void write(ResponseContent content) throws Exception {
+        converter.write(content, MediaType.APPLICATION_JSON_UTF8, new ServletServerHttpResponse(response));
+    }
+}
@@ -0,0 +1,65 @@
+package uk.co.onsdigital.discovery.metadata.api.dao;
+
+import com.codahale.metrics.MetricRegistry;
+import com.mchange.v2.c3p0.ComboPooledDataSource;
+import com.zaxxer.hikari.HikariConfig;
+import org.springframework.mock.env.MockEnvironment;
+import org.testng.annotations.Test;
+
+import static org.assertj.core.api.Assertions.assertThat;
+
+public class DataSourceConfigurationTest {
+
+    private final MockEnvironment environment = new MockEnvironment()
+            .withProperty("db.driver", "org.postgresql.Driver")
+            .withProperty("db.url", "jdbc:postgresql://db.example.org:5432/data_discovery")
+            .withProperty("db.user", "user")
+            .withProperty("db.password", "secret")
+            .withProperty("db.pool.max.size", "20")
+            .withProperty("db.pool.connection.timeout.ms", "1500")
+            .withProperty("db.statement.cache.size", "32");
+
+    @Test
+    public void hikariShouldBeConfiguredFromEnvironment() throws Exception {
+        HikariConfig config = DataSourceConfiguration.hikariConfig(environment);
+
+        assertThat(config.getPoolName()).isEqualTo(DataSourceConfiguration.POOL_NAME);
+        assertThat(config.getJdbcUrl()).isEqualTo("jdbc:postgresql://db.example.org:5432/data_discovery");
+        assertThat(config.getUsername()).isEqualTo("user");
+        assertThat(config.getPassword()).isEqualTo("secret");
+        assertThat(config.getMaximumPoolSize()).isEqualTo(20);
+        assertThat(config.getMinimumIdle()).isEqualTo(5);
+        assertThat(config.getConnectionTimeout()).isEqualTo(1500L);
+        assertThat(config.isInitializationFailFast()).isFalse();
+        assertThat(config.getDataSourceProperties()).containsEntry("preparedStatementCacheQueries", 32);
+    }
+
+    @Test
+    public void c3p0ShouldCacheStatementsPerConnection() throws Exception {
+        ComboPooledDataSource dataSource = DataSourceConfiguration.c3p0DataSource(environment);
+        try {
+            assertThat(dataSource.getJdbcUrl()).isEqualTo("jdbc:postgresql://db.example.org:5432/data_discovery");
+            assertThat(dataSource.getMaxPoolSize()).isEqualTo(20);
+            assertThat(dataSource.getCheckoutTimeout()).isEqualTo(1500);
+            assertThat(dataSource.getMaxStatements()).isEqualTo(0);
+            assertThat(dataSource.getMaxStatementsPerConnection()).isEqualTo(32);
+        } finally {
+            dataSource.close();
+        }
+    }
+
+    @Test(expectedExceptions = IllegalArgumentException.class)
+    public void shouldRejectUnknownPool() throws Exception {
+        new DataSourceConfiguration().getDataSource("dbcp", environment, new MetricRegistry());
+    }
+
+    @Test
+    public void shouldMonitorSelectedPool() throws Exception {
+        DataSourceConfiguration configuration = new DataSourceConfiguration();
+
+        assertThat(configuration.getConnectionPoolMonitor(DataSourceConfiguration.POOL_HIKARI, environment, new MetricRegistry()))
+                .isInstanceOf(HikariConnectionPoolMonitor.class);
+        assertThat(configuration.getConnectionPoolMonitor(DataSourceConfiguration.POOL_C3P0, environment, new MetricRegistry()))
+                .isInstanceOf(C3p0ConnectionPoolMonitor.class);
+    }
+}
@@ -0,0 +1,101 @@
+package uk.co.onsdigital.discovery.metadata.api.dao;
+
+import org.hibernate.Session;
+import org.hibernate.jdbc.Work;
+import org.mockito.Mock;
+import org.mockito.MockitoAnnotations;
+import org.testng.annotations.BeforeMethod;
+import org.testng.annotations.Test;
+
+import javax.persistence.EntityManager;
+import javax.persistence.EntityManagerFactory;
+import javax.persistence.PersistenceException;
+import java.sql.Connection;
+import java.sql.Statement;
+import java.util.ArrayList;
+import java.util.List;
+
+import static org.assertj.core.api.Assertions.assertThat;
+import static org.mockito.Matchers.any;
+import static org.mockito.Mockito.doAnswer;
+import static org.mockito.Mockito.doThrow;
+import static org.mockito.Mockito.verify;
+import static org.mockito.Mockito.when;
+
+public class DatabaseHealthProbeTest {
+
+    @Mock
+    private EntityManagerFactory mockEntityManagerFactory;
+
+    @Mock
+    private EntityManager mockEntityManager;
+
+    @Mock
+    private Session mockSession;
+
+    @Mock
+    private Connection mockConnection;
+
+    @Mock
+    private Statement mockStatement;
+
+    private DatabaseHealthProbe probe;
+
+    @BeforeMethod
+    public void createProbe() throws Exception {
+        MockitoAnnotations.initMocks(this);
+        when(mockEntityManagerFactory.createEntityManager()).thenReturn(mockEntityManager);
+        when(mockEntityManager.unwrap(Session.class)).thenReturn(mockSession);
+        when(mockConnection.createStatement()).thenReturn(mockStatement);
+        probe = new DatabaseHealthProbe(mockEntityManagerFactory, 10000, 5);
+    }
+
+    @Test
+    public void shouldRecordSuccessfulQuery() throws Exception {
+        doAnswer(invocation -> {
+            ((Work) invocation.getArguments()[0]).execute(mockConnection);
+            return null;
+        }).when(mockSession).doWork(any(Work.class));
+
+        assertThat(probe.getLastSuccessMillis()).isNull();
+        probe.probe();
+
+        verify(mockStatement).setQueryTimeout(5);
+        verify(mockStatement).execute(DatabaseHealthProbe.PROBE_QUERY);
+        verify(mockEntityManager).close();
+        assertThat(probe.getLastSuccessMillis()).isNotNull();
+        assertThat(probe.getLastError()).isNull();
+        assertThat(probe.getConnectionWaitMillis()).isGreaterThanOrEqualTo(0);
+    }
+
+    @Test
+    public void shouldNotCountQueryTimeAsConnectionWait() throws Exception {
+        doAnswer(invocation -> {
+            ((Work) invocation.getArguments()[0]).execute(mockConnection);
+            return null;
+        }).when(mockSession).doWork(any(Work.class));
+        final List<Long> waitsDuringQuery = new ArrayList<>();
+        when(mockStatement.execute(DatabaseHealthProbe.PROBE_QUERY)).thenAnswer(invocation -> {
+            Thread.sleep(200);
+            waitsDuringQuery.add(probe.getConnectionWaitMillis());
+            return true;
+        });
+
+        probe.probe();
+
+        assertThat(waitsDuringQuery).hasSize(1);
+        assertThat(waitsDuringQuery.get(0)).isLessThan(200L);
+        assertThat(probe.getConnectionWaitMillis()).isLessThan(200L);
+    }
+
+    @Test
+    public void shouldRecordFailedQuery() throws Exception {
+        doThrow(new PersistenceException("connection refused")).when(mockSession).doWork(any(Work.class));
+
+        probe.probe();
+
+        verify(mockEntityManager).close();
+        assertThat(probe.getLastSuccessMillis()).isNull();
+        assertThat(probe.getLastError()).isEqualTo("connection refused");
+    }
+}
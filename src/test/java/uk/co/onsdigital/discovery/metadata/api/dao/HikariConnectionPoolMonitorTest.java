@@ -0,0 +1,46 @@
+package uk.co.onsdigital.discovery.metadata.api.dao;
+
+import com.codahale.metrics.Gauge;
+import com.codahale.metrics.MetricRegistry;
+import org.testng.annotations.BeforeMethod;
+import org.testng.annotations.Test;
+import uk.co.onsdigital.discovery.metadata.api.dto.PoolStatistics;
+
+import static org.assertj.core.api.Assertions.assertThat;
+
+public class HikariConnectionPoolMonitorTest {
+
+    private MetricRegistry metricRegistry;
+    private HikariConnectionPoolMonitor monitor;
+
+    @BeforeMethod
+    public void createMonitor() {
+        metricRegistry = new MetricRegistry();
+        monitor = new HikariConnectionPoolMonitor(metricRegistry, "test", 10);
+    }
+
+    @Test
+    public void shouldReportNothingBeforePoolStarts() throws Exception {
+        assertThat(monitor.getStatistics()).isNull();
+    }
+
+    @Test
+    public void shouldReadPoolGauges() throws Exception {
+        register("TotalConnections", 6);
+        register("ActiveConnections", 4);
+        register("IdleConnections", 2);
+        register("PendingConnections", 1);
+
+        PoolStatistics statistics = monitor.getStatistics();
+
+        assertThat(statistics.getTotalConnections()).isEqualTo(6);
+        assertThat(statistics.getBusyConnections()).isEqualTo(4);
+        assertThat(statistics.getIdleConnections()).isEqualTo(2);
+        assertThat(statistics.getThreadsAwaitingConnection()).isEqualTo(1);
+        assertThat(statistics.getMaxConnections()).isEqualTo(10);
+    }
+
+    private void register(String name, int value) {
+        metricRegistry.register("test.pool." + name, (Gauge<Integer>) () -> value);
+    }
+}
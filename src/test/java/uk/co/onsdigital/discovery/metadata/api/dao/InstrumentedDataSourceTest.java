@@ -0,0 +1,67 @@
+package uk.co.onsdigital.discovery.metadata.api.dao;
+
+import com.codahale.metrics.MetricRegistry;
+import com.mchange.v2.c3p0.PooledDataSource;
+import org.mockito.Mock;
+import org.mockito.MockitoAnnotations;
+import org.testng.annotations.BeforeMethod;
+import org.testng.annotations.Test;
+
+import java.sql.Connection;
+import java.sql.SQLException;
+
+import static org.assertj.core.api.Assertions.assertThat;
+import static org.assertj.core.api.Assertions.fail;
+import static org.mockito.Mockito.verify;
+import static org.mockito.Mockito.when;
+
+public class InstrumentedDataSourceTest {
+
+    @Mock
+    private PooledDataSource mockPool;
+
+    @Mock
+    private Connection mockConnection;
+
+    private MetricRegistry metricRegistry;
+    private InstrumentedDataSource dataSource;
+
+    @BeforeMethod
+    public void createDataSource() {
+        MockitoAnnotations.initMocks(this);
+        metricRegistry = new MetricRegistry();
+        dataSource = new InstrumentedDataSource(mockPool, metricRegistry, "test");
+    }
+
+    @Test
+    public void shouldTimeConnectionAcquisition() throws Exception {
+        when(mockPool.getConnection()).thenReturn(mockConnection);
+
+        assertThat(dataSource.getConnection()).isSameAs(mockConnection);
+
+        assertThat(metricRegistry.timer("test.pool.Wait").getCount()).isEqualTo(1);
+        assertThat(metricRegistry.meter("test.pool.ConnectionTimeoutRate").getCount()).isEqualTo(0);
+    }
+
+    @Test
+    public void shouldCountFailedAcquisitions() throws Exception {
+        when(mockPool.getConnection()).thenThrow(new SQLException("timed out"));
+
+        try {
+            dataSource.getConnection();
+            fail("Expected SQLException");
+        } catch (SQLException expected) {
+            // expected
+        }
+
+        assertThat(metricRegistry.timer("test.pool.Wait").getCount()).isEqualTo(1);
+        assertThat(metricRegistry.meter("test.pool.ConnectionTimeoutRate").getCount()).isEqualTo(1);
+    }
+
+    @Test
+    public void shouldClosePool() throws Exception {
+        dataSource.close();
+
+        verify(mockPool).close();
+    }
+}
@@ -1,20 +1,39 @@
 package uk.co.onsdigital.discovery.metadata.api.dao;
 
+import org.hibernate.FlushMode;
+import org.hibernate.jpa.QueryHints;
 import org.mockito.Mock;
 import org.mockito.MockitoAnnotations;
 import org.testng.annotations.BeforeMethod;
 import org.testng.annotations.Test;
+import org.w3c.dom.Element;
+import org.w3c.dom.NodeList;
+import uk.co.onsdigital.discovery.metadata.api.dto.common.DimensionOption;
 import uk.co.onsdigital.discovery.metadata.api.exception.DataSetNotFoundException;
 import uk.co.onsdigital.discovery.model.DataResource;
 import uk.co.onsdigital.discovery.model.DataSet;
+import uk.co.onsdigital.discovery.model.Dimension;
+import uk.co.onsdigital.discovery.model.DimensionValue;
+import uk.co.onsdigital.discovery.model.HierarchyEntry;
 
 import javax.persistence.EntityManager;
 import javax.persistence.TypedQuery;
+import javax.xml.parsers.DocumentBuilderFactory;
+import java.io.InputStream;
+import java.util.ArrayList;
 import java.util.List;
 import java.util.UUID;
+import java.util.stream.Collectors;
+import java.util.stream.Stream;
 
 import static java.util.Arrays.asList;
 import static org.assertj.core.api.Assertions.assertThat;
+import static org.mockito.Matchers.any;
+import static org.mockito.Matchers.anyString;
+import static org.mockito.Mockito.mock;
+import static org.mockito.Mockito.never;
+import static org.mockito.Mockito.verify;
+import static org.mockito.Mockito.verifyNoMoreInteractions;
 import static org.mockito.Mockito.when;
 
 public class MetadataDaoTest {
@@ -28,14 +47,39 @@ public class MetadataDaoTest {
     @Mock
     private TypedQuery<DataResource> mockDataResourceQuery;
 
+    @Mock
+    private TypedQuery<Dimension> mockDimensionQuery;
+
+    @Mock
+    private TypedQuery<DimensionOption> mockDimensionOptionQuery;
+
+    @Mock
+    private org.hibernate.query.Query<DimensionOption> mockHibernateQuery;
+
+    @Mock
+    private TypedQuery<Object[]> mockChecksumQuery;
+
     private MetadataDao metadataDao;
 
     @BeforeMethod
     public void createDao() {
         MockitoAnnotations.initMocks(this);
+        stubQueryHints();
         metadataDao = new MetadataDaoImpl(mockEntityManager);
     }
 
+    private void stubQueryHints() {
+        when(mockDimensionalDataSetQuery.setHint(anyString(), any())).thenReturn(mockDimensionalDataSetQuery);
+        when(mockDataResourceQuery.setHint(anyString(), any())).thenReturn(mockDataResourceQuery);
+        when(mockDimensionQuery.setHint(anyString(), any())).thenReturn(mockDimensionQuery);
+        when(mockDimensionOptionQuery.setHint(anyString(), any())).thenReturn(mockDimensionOptionQuery);
+        when(mockChecksumQuery.setHint(anyString(), any())).thenReturn(mockChecksumQuery);
+        when(mockDimensionalDataSetQuery.setParameter(MetadataDaoImpl.STATUS_PARAM, DataSet.STATUS_COMPLETE))
+                .thenReturn(mockDimensionalDataSetQuery);
+        when(mockDataResourceQuery.setParameter(MetadataDaoImpl.STATUS_PARAM, DataSet.STATUS_COMPLETE))
+                .thenReturn(mockDataResourceQuery);
+    }
+
     @Test
     public void shouldReturnAllDataSetsFromDatabase() throws Exception {
         List<DataSet> dataSets = asList(new DataSet(), new DataSet());
@@ -63,6 +107,50 @@ public class MetadataDaoTest {
     }
 
 
+    @Test
+    public void shouldCountActiveDataSetsAndDataResourcesWithTheModelQueries() throws Exception {
+        mockCountQuery(DataSet.COUNT_ACTIVE_QUERY, 2L);
+        mockCountQuery(DataResource.COUNT_ACTIVE, 1L);
+
+        assertThat(metadataDao.countDataSets()).isEqualTo(2L);
+        assertThat(metadataDao.countDataResources()).isEqualTo(1L);
+    }
+
+    @Test
+    public void shouldStartKeysetPagesWithTheBaseQuery() throws Exception {
+        when(mockEntityManager.createNamedQuery(MetadataDaoImpl.FIND_DATA_SETS, DataSet.class)).thenReturn(mockDimensionalDataSetQuery);
+        when(mockDimensionalDataSetQuery.setMaxResults(10)).thenReturn(mockDimensionalDataSetQuery);
+
+        metadataDao.findLegacyDataSetsAfter(null, 10);
+
+        verify(mockDimensionalDataSetQuery).setParameter(MetadataDaoImpl.STATUS_PARAM, DataSet.STATUS_COMPLETE);
+        verify(mockEntityManager, never()).createNamedQuery(MetadataDaoImpl.FIND_DATA_SETS_AFTER, DataSet.class);
+    }
+
+    @Test
+    public void shouldSeekPastTheLastDataResource() throws Exception {
+        when(mockEntityManager.createNamedQuery(MetadataDaoImpl.FIND_DATA_RESOURCES_AFTER, DataResource.class)).thenReturn(mockDataResourceQuery);
+        when(mockDataResourceQuery.setParameter(MetadataDaoImpl.AFTER_PARAM, "cpi")).thenReturn(mockDataResourceQuery);
+        when(mockDataResourceQuery.setMaxResults(10)).thenReturn(mockDataResourceQuery);
+
+        metadataDao.findDataResourcesAfter("cpi", 10);
+
+        verify(mockDataResourceQuery).setParameter(MetadataDaoImpl.STATUS_PARAM, DataSet.STATUS_COMPLETE);
+        verify(mockDataResourceQuery).setParameter(MetadataDaoImpl.AFTER_PARAM, "cpi");
+    }
+
+    @Test
+    public void shouldLoadQueryResultsReadOnlyWithoutFlushing() throws Exception {
+        when(mockEntityManager.createNamedQuery(DataSet.FIND_ACTIVE_QUERY, DataSet.class)).thenReturn(mockDimensionalDataSetQuery);
+        when(mockDimensionalDataSetQuery.setFirstResult(0)).thenReturn(mockDimensionalDataSetQuery);
+        when(mockDimensionalDataSetQuery.setMaxResults(10)).thenReturn(mockDimensionalDataSetQuery);
+
+        metadataDao.findLegacyDataSetsPage(1, 10);
+
+        verify(mockDimensionalDataSetQuery).setHint(QueryHints.HINT_READONLY, true);
+        verify(mockDimensionalDataSetQuery).setHint(QueryHints.HINT_FLUSH_MODE, FlushMode.MANUAL);
+    }
+
     @Test(expectedExceptions = DataSetNotFoundException.class)
     public void shouldFailIfDataSetNotFound() throws Exception {
         metadataDao.findDataSetByUuid(UUID.randomUUID().toString());
@@ -79,8 +167,144 @@ public class MetadataDaoTest {
         assertThat(result).isEqualTo(dataSet);
     }
 
+    @Test
+    public void shouldLoadNamedDimensionsInOneQuery() throws Exception {
+        final UUID dataSetId = UUID.randomUUID();
+        final List<String> names = asList("geography", "time");
+        final List<Dimension> dimensions = asList(new Dimension(null, "time", values(1)),
+                new Dimension(null, "geography", values(10)));
+        when(mockEntityManager.createNamedQuery(MetadataDaoImpl.FIND_DIMENSIONS_WITH_VALUES_BY_NAME, Dimension.class))
+                .thenReturn(mockDimensionQuery);
+        when(mockDimensionQuery.setParameter(MetadataDaoImpl.DATA_SET_ID_PARAM, dataSetId)).thenReturn(mockDimensionQuery);
+        when(mockDimensionQuery.setParameter(MetadataDaoImpl.DIMENSION_NAMES_PARAM, names)).thenReturn(mockDimensionQuery);
+        when(mockDimensionQuery.getResultList()).thenReturn(dimensions);
+
+        assertThat(metadataDao.findDimensionsForDataSet(dataSetId, names)).isEqualTo(dimensions);
+        verify(mockEntityManager).createNamedQuery(MetadataDaoImpl.FIND_DIMENSIONS_WITH_VALUES_BY_NAME, Dimension.class);
+        verifyNoMoreInteractions(mockEntityManager);
+    }
+
+    @Test
+    public void shouldStreamDimensionOptionsFromCursor() throws Exception {
+        final UUID dataSetId = UUID.randomUUID();
+        final List<DimensionOption> options = asList(new DimensionOption(UUID.randomUUID(), "a", "a"),
+                new DimensionOption(UUID.randomUUID(), "b", "b"));
+
+        when(mockEntityManager.createNamedQuery(MetadataDaoImpl.STREAM_DIMENSION_OPTIONS, DimensionOption.class))
+                .thenReturn(mockDimensionOptionQuery);
+        when(mockDimensionOptionQuery.setParameter(MetadataDaoImpl.DATA_SET_ID_PARAM, dataSetId)).thenReturn(mockDimensionOptionQuery);
+        when(mockDimensionOptionQuery.setParameter(MetadataDaoImpl.DIMENSION_NAME_PARAM, "geography")).thenReturn(mockDimensionOptionQuery);
+        when(mockDimensionOptionQuery.unwrap(org.hibernate.query.Query.class)).thenReturn(mockHibernateQuery);
+        when(mockHibernateQuery.stream()).thenReturn(options.stream());
+
+        try (Stream<DimensionOption> result = metadataDao.streamDimensionOptions(dataSetId, "geography")) {
+            assertThat(result.collect(Collectors.toList())).isEqualTo(options);
+        }
+        // The options are never loaded as a list
+        verify(mockDimensionOptionQuery, never()).getResultList();
+    }
+
+    @Test(expectedExceptions = DataSetNotFoundException.class)
+    public void shouldFailToLoadDimensionsIfDataSetNotFound() throws Exception {
+        metadataDao.findDimensionsForDataSet(UUID.randomUUID().toString());
+    }
+
     @Test(expectedExceptions = IllegalArgumentException.class)
     public void shouldRejectInvalidDataSetIds() throws Exception {
         metadataDao.findDataSetByUuid("not a uuid");
     }
-}
\ No newline at end of file
+
+    @Test
+    public void shouldChecksumHierarchyEntries() throws Exception {
+        final String checksum = checksum(new Object[]{3L, 42L, "Geography", "geography"});
+
+        assertThat(checksum).startsWith("3-2a-");
+        // Renaming the hierarchy changes the checksum
+        assertThat(checksum(new Object[]{3L, 42L, "Geography 2016", "geography"})).isNotEqualTo(checksum);
+    }
+
+    @Test
+    public void shouldNotChecksumMissingHierarchy() throws Exception {
+        assertThat(checksum(new Object[]{0L, null, null, null})).isNull();
+    }
+
+    @Test
+    public void shouldChecksumEntriesWithNullFields() throws Exception {
+        // An entry with a null display order, say, would otherwise hash to null and be left out of the sum
+        final List<String> hashed = concatArguments(namedQueryText(MetadataDaoImpl.HIERARCHY_CHECKSUM));
+
+        assertThat(hashed).contains("coalesce(str(e.displayOrder), '')", "coalesce(str(p.id), '')");
+        for (String argument : hashed) {
+            assertThat(argument).matches("'.*'|str\\(e\\.id\\)|coalesce\\(.*, ''\\)");
+        }
+    }
+
+    private String checksum(Object[] row) {
+        stubChecksumQuery("geography", row);
+        return metadataDao.findHierarchyChecksum("geography");
+    }
+
+    private void stubChecksumQuery(String hierarchyId, Object[] row) {
+        when(mockEntityManager.createNamedQuery(MetadataDaoImpl.HIERARCHY_CHECKSUM, Object[].class)).thenReturn(mockChecksumQuery);
+        when(mockChecksumQuery.setParameter(HierarchyEntry.HIERARCHY_ID_PARAM, hierarchyId)).thenReturn(mockChecksumQuery);
+        when(mockChecksumQuery.getSingleResult()).thenReturn(row);
+    }
+
+    @SuppressWarnings("unchecked")
+    private void mockCountQuery(String name, long count) {
+        final TypedQuery<Long> mockCountQuery = mock(TypedQuery.class);
+        when(mockCountQuery.setHint(anyString(), any())).thenReturn(mockCountQuery);
+        when(mockCountQuery.getSingleResult()).thenReturn(count);
+        when(mockEntityManager.createNamedQuery(name, Long.class)).thenReturn(mockCountQuery);
+    }
+
+    private static String namedQueryText(String name) throws Exception {
+        try (InputStream orm = MetadataDaoTest.class.getResourceAsStream("/META-INF/orm.xml")) {
+            final NodeList queries = DocumentBuilderFactory.newInstance().newDocumentBuilder().parse(orm)
+                    .getElementsByTagName("named-query");
+            for (int i = 0; i < queries.getLength(); ++i) {
+                final Element query = (Element) queries.item(i);
+                if (name.equals(query.getAttribute("name"))) {
+                    return query.getElementsByTagName("query").item(0).getTextContent();
+                }
+            }
+        }
+        throw new IllegalArgumentException("No named query " + name);
+    }
+
+    /**
+     * Splits the arguments of the first concat() in a query.
+     */
+    private static List<String> concatArguments(String query) {
+        final List<String> arguments = new ArrayList<>();
+        final int start = query.indexOf("concat(") + "concat(".length();
+        int depth = 0;
+        boolean quoted = false;
+        StringBuilder argument = new StringBuilder();
+        for (int i = start; depth >= 0; ++i) {
+            final char c = query.charAt(i);
+            if (c == '\'') {
+                quoted = !quoted;
+            } else if (!quoted && c == '(') {
+                ++depth;
+            } else if (!quoted && c == ')') {
+                --depth;
+            }
+            if (!quoted && (depth < 0 || (depth == 0 && c == ','))) {
+                arguments.add(argument.toString().trim().replaceAll("\\s+", " "));
+                argument = new StringBuilder();
+            } else {
+                argument.append(c);
+            }
+        }
+        return arguments;
+    }
+
+    private static DimensionValue[] values(int numberOfValues) {
+        final DimensionValue[] values = new DimensionValue[numberOfValues];
+        for (int i = 0; i < numberOfValues; ++i) {
+            values[i] = new DimensionValue("value" + i);
+        }
+        return values;
+    }
+}
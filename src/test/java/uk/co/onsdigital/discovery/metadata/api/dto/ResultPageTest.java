@@ -30,6 +30,26 @@ public class ResultPageTest {
 
     }
 
+    @Test
+    public void cursorPagesShouldOnlyLinkToFirstAndNextPages() throws Exception {
+        ResultPage<String> page = new ResultPage<>(cursor -> "after=" + cursor, Collections.singletonList("a"), 10L, 1, "next");
+
+        assertThat(page.getFirst()).isEqualTo("after=");
+        assertThat(page.getNext()).isEqualTo("after=next");
+        assertThat(page.getPrev()).isNull();
+        assertThat(page.getLast()).isNull();
+        assertThat(page.getPage()).isNull();
+        assertThat(page.getTotalPages()).isNull();
+        assertThat(page.getCount()).isEqualTo(1);
+    }
+
+    @Test
+    public void lastCursorPageShouldNotLinkToNextPage() throws Exception {
+        ResultPage<String> page = new ResultPage<>(cursor -> "after=" + cursor, Collections.singletonList("a"), 10L, 1, null);
+
+        assertThat(page.getNext()).isNull();
+    }
+
     private ResultPage createResultPage(int total, int pageSize) {
         return new ResultPage(mockTemplate, Collections.emptyList(), total, 1, pageSize);
     }
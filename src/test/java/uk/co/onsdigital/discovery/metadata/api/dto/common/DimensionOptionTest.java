@@ -0,0 +1,74 @@
+package uk.co.onsdigital.discovery.metadata.api.dto.common;
+
+import org.testng.annotations.Test;
+import uk.co.onsdigital.discovery.model.HierarchyLevelType;
+
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.List;
+import java.util.UUID;
+
+import static org.assertj.core.api.Assertions.assertThat;
+
+public class DimensionOptionTest {
+    private static final List<String> SAMPLES = Arrays.asList("", "a", "A", "b", "B", "ab", "aB", "Ab", "a1", "_", "[",
+            "\u00e9", "\u00c9", "\u00df", "\u01c5", "\u01c6", "\u01c4", "\u0131", "I", "i", "\u0130", "\u03a9", "\u03c9", "\u03a9mega", "zz", "Zz");
+
+    @Test
+    public void foldedStringsShouldCompareLikeCaseInsensitiveOrder() {
+        for (String a : SAMPLES) {
+            for (String b : SAMPLES) {
+                assertThat(Integer.signum(DimensionOption.fold(a).compareTo(DimensionOption.fold(b))))
+                        .as("%s vs %s", a, b)
+                        .isEqualTo(Integer.signum(String.CASE_INSENSITIVE_ORDER.compare(a, b)));
+            }
+        }
+    }
+
+    @Test
+    public void foldShouldReturnSameInstanceWhenAlreadyFolded() {
+        String folded = "already folded 123";
+        assertThat(DimensionOption.fold(folded)).isSameAs(folded);
+    }
+
+    @Test
+    public void shouldOrderByLevelTypeThenCodeThenName() {
+        HierarchyLevelType level1 = levelType(1, "Region");
+        HierarchyLevelType level2 = levelType(2, "County");
+
+        DimensionOption flat = new DimensionOption(UUID.randomUUID(), "Z", "z");
+        DimensionOption a = new DimensionOption(UUID.randomUUID(), "b", "x", level1, "H");
+        DimensionOption b = new DimensionOption(UUID.randomUUID(), "B", "y", level1, "H");
+        DimensionOption c = new DimensionOption(UUID.randomUUID(), "a", "z", level2, "H");
+        DimensionOption noCode = new DimensionOption(UUID.randomUUID(), null, "a", level1, "H");
+
+        List<DimensionOption> sorted = DimensionOption.sortHierarchy(Arrays.asList(c, noCode, b, flat, a));
+
+        assertThat(sorted).containsExactly(flat, a, b, noCode, c);
+    }
+
+    @Test
+    public void sortHierarchyShouldKeepFirstOfEqualSiblings() {
+        DimensionOption parent = new DimensionOption(UUID.randomUUID(), "P", "parent");
+        DimensionOption first = new DimensionOption(UUID.randomUUID(), "c", "child");
+        DimensionOption duplicate = new DimensionOption(UUID.randomUUID(), "C", "CHILD");
+        DimensionOption other = new DimensionOption(UUID.randomUUID(), "a", "other");
+        parent.addChild(first);
+        parent.addChild(duplicate);
+        parent.addChild(other);
+
+        List<DimensionOption> roots = DimensionOption.sortHierarchy(new ArrayList<>(Arrays.asList(parent)));
+
+        assertThat(roots).containsExactly(parent);
+        assertThat(parent.getChildren()).hasSize(2);
+        assertThat(parent.getChildren().get(0)).isSameAs(other);
+        assertThat(parent.getChildren().get(1)).isSameAs(first);
+    }
+
+    private static HierarchyLevelType levelType(int level, String name) {
+        HierarchyLevelType levelType = new HierarchyLevelType();
+        levelType.setLevel(level);
+        levelType.setName(name);
+        return levelType;
+    }
+}
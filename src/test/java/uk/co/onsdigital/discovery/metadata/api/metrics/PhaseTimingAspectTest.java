@@ -0,0 +1,48 @@
+package uk.co.onsdigital.discovery.metadata.api.metrics;
+
+import com.codahale.metrics.MetricRegistry;
+import com.fasterxml.jackson.databind.ObjectMapper;
+import org.springframework.aop.aspectj.annotation.AspectJProxyFactory;
+import org.testng.annotations.BeforeMethod;
+import org.testng.annotations.Test;
+import uk.co.onsdigital.discovery.metadata.api.cache.ResponseSerializer;
+import uk.co.onsdigital.discovery.metadata.api.dao.MetadataDao;
+
+import static org.assertj.core.api.Assertions.assertThat;
+import static org.mockito.Mockito.mock;
+
+public class PhaseTimingAspectTest {
+
+    private MetricRegistry metricRegistry;
+
+    @BeforeMethod
+    public void createRegistry() {
+        metricRegistry = new MetricRegistry();
+    }
+
+    @Test
+    public void shouldTimeDaoMethods() throws Exception {
+        MetadataDao dao = proxy(mock(MetadataDao.class));
+
+        dao.listAllHierarchies();
+        dao.listAllHierarchies();
+
+        assertThat(metricRegistry.timer("phase.dao.listAllHierarchies").getCount()).isEqualTo(2);
+    }
+
+    @Test
+    public void shouldTimeSerialization() throws Exception {
+        ResponseSerializer serializer = proxy(new ResponseSerializer(new ObjectMapper(), true));
+
+        serializer.serialize("body");
+
+        assertThat(metricRegistry.timer("phase.serialization.serialize").getCount()).isEqualTo(1);
+    }
+
+    private <T> T proxy(T target) {
+        AspectJProxyFactory factory = new AspectJProxyFactory(target);
+        factory.setProxyTargetClass(!(target instanceof MetadataDao));
+        factory.addAspect(new PhaseTimingAspect(metricRegistry));
+        return factory.getProxy();
+    }
+}
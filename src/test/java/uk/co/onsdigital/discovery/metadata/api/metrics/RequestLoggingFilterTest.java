@@ -0,0 +1,78 @@
+package uk.co.onsdigital.discovery.metadata.api.metrics;
+
+import ch.qos.logback.classic.Logger;
+import ch.qos.logback.classic.spi.ILoggingEvent;
+import ch.qos.logback.core.read.ListAppender;
+import org.slf4j.LoggerFactory;
+import org.springframework.mock.web.MockFilterChain;
+import org.springframework.mock.web.MockHttpServletRequest;
+import org.springframework.mock.web.MockHttpServletResponse;
+import org.springframework.web.servlet.HandlerMapping;
+import org.testng.annotations.AfterMethod;
+import org.testng.annotations.BeforeMethod;
+import org.testng.annotations.Test;
+
+import javax.servlet.ServletException;
+import javax.servlet.http.HttpServletResponse;
+
+import static org.assertj.core.api.Assertions.assertThat;
+import static org.assertj.core.api.Assertions.assertThatThrownBy;
+
+public class RequestLoggingFilterTest {
+
+    private final Logger logger = (Logger) LoggerFactory.getLogger(RequestLoggingFilter.class);
+
+    private ListAppender<ILoggingEvent> appender;
+    private RequestLoggingFilter filter;
+
+    @BeforeMethod
+    public void attachAppender() {
+        appender = new ListAppender<>();
+        appender.start();
+        logger.addAppender(appender);
+        filter = new RequestLoggingFilter(new String[] {"/healthcheck"});
+    }
+
+    @AfterMethod
+    public void detachAppender() {
+        logger.detachAppender(appender);
+    }
+
+    @Test
+    public void shouldLogOneLinePerRequest() throws Exception {
+        MockHttpServletRequest request = new MockHttpServletRequest("GET", "/versions/123");
+        request.setQueryString("view=hierarchy");
+        MockHttpServletResponse response = new MockHttpServletResponse();
+
+        filter.doFilter(request, response, (req, res) -> {
+            req.setAttribute(HandlerMapping.BEST_MATCHING_PATTERN_ATTRIBUTE, "/versions/{dataSetId}");
+            ((HttpServletResponse) res).setStatus(404);
+        });
+
+        assertThat(appender.list).hasSize(1);
+        assertThat(appender.list.get(0).getFormattedMessage())
+                .startsWith("method=GET uri=/versions/123?view=hierarchy route=/versions/{dataSetId} status=404 durationMs=");
+    }
+
+    @Test
+    public void shouldLogFailedRequestsAsServerErrors() throws Exception {
+        MockHttpServletRequest request = new MockHttpServletRequest("GET", "/hierarchies");
+        MockHttpServletResponse response = new MockHttpServletResponse();
+
+        assertThatThrownBy(() -> filter.doFilter(request, response, (req, res) -> {
+            throw new ServletException("failed");
+        })).isInstanceOf(ServletException.class);
+
+        assertThat(appender.list).hasSize(1);
+        assertThat(appender.list.get(0).getFormattedMessage())
+                .startsWith("method=GET uri=/hierarchies route=" + RequestLoggingFilter.UNMATCHED_ROUTE + " status=500 ");
+    }
+
+    @Test
+    public void shouldNotLogExcludedPaths() throws Exception {
+        filter.doFilter(new MockHttpServletRequest("GET", "/healthcheck"), new MockHttpServletResponse(),
+                new MockFilterChain());
+
+        assertThat(appender.list).isEmpty();
+    }
+}
@@ -0,0 +1,88 @@
+package uk.co.onsdigital.discovery.metadata.api.metrics;
+
+import com.codahale.metrics.MetricRegistry;
+import org.springframework.mock.web.MockHttpServletRequest;
+import org.springframework.mock.web.MockHttpServletResponse;
+import org.springframework.web.servlet.HandlerMapping;
+import org.testng.annotations.BeforeMethod;
+import org.testng.annotations.Test;
+
+import javax.servlet.DispatcherType;
+
+import static org.assertj.core.api.Assertions.assertThat;
+
+public class RequestMetricsInterceptorTest {
+
+    private MetricRegistry metricRegistry;
+    private RequestMetricsInterceptor interceptor;
+
+    @BeforeMethod
+    public void createInterceptor() {
+        metricRegistry = new MetricRegistry();
+        interceptor = new RequestMetricsInterceptor(metricRegistry);
+    }
+
+    @Test
+    public void shouldTimeRequestsByRouteTemplate() throws Exception {
+        handle("/versions/{dataSetId}", 200, null);
+        handle("/versions/{dataSetId}", 200, null);
+
+        assertThat(metricRegistry.timer("http.requests.GET./versions/{dataSetId}").getCount()).isEqualTo(2);
+        assertThat(metricRegistry.getGauges()).containsKey("http.requests.max.GET./versions/{dataSetId}");
+        assertThat(metricRegistry.getMeters()).isEmpty();
+    }
+
+    @Test
+    public void shouldCountErrorsByStatus() throws Exception {
+        handle("/versions/{dataSetId}", 404, null);
+        handle("/versions/{dataSetId}", 200, new IllegalStateException("failed"));
+
+        assertThat(metricRegistry.timer("http.requests.GET./versions/{dataSetId}").getCount()).isEqualTo(2);
+        assertThat(metricRegistry.meter("http.errors.GET./versions/{dataSetId}.404").getCount()).isEqualTo(1);
+        assertThat(metricRegistry.meter("http.errors.GET./versions/{dataSetId}.500").getCount()).isEqualTo(1);
+    }
+
+    @Test
+    public void shouldGroupRequestsWithoutRoute() throws Exception {
+        handle(null, 404, null);
+
+        assertThat(metricRegistry.timer("http.requests.GET." + RequestMetricsInterceptor.UNMATCHED_ROUTE).getCount()).isEqualTo(1);
+    }
+
+    @Test
+    public void shouldNotTimeErrorPagesSeparately() throws Exception {
+        MockHttpServletRequest request = new MockHttpServletRequest("GET", "/versions/123");
+        MockHttpServletResponse response = new MockHttpServletResponse();
+        request.setAttribute(HandlerMapping.BEST_MATCHING_PATTERN_ATTRIBUTE, "/versions/{dataSetId}");
+        interceptor.preHandle(request, response, null);
+        response.setStatus(500);
+        interceptor.afterCompletion(request, response, null, null);
+
+        // The error page is then rendered by a second dispatch of the same request
+        request.setDispatcherType(DispatcherType.ERROR);
+        request.setAttribute(HandlerMapping.BEST_MATCHING_PATTERN_ATTRIBUTE, "/error");
+        interceptor.preHandle(request, response, null);
+        interceptor.afterCompletion(request, response, null, null);
+
+        assertThat(metricRegistry.getTimers().keySet()).containsExactly("http.requests.GET./versions/{dataSetId}");
+    }
+
+    @Test
+    public void shouldReplaceDotsInRoute() throws Exception {
+        handle("/datasets.*", 200, null);
+
+        assertThat(metricRegistry.timer("http.requests.GET./datasets_*").getCount()).isEqualTo(1);
+    }
+
+    private void handle(String route, int status, Exception ex) throws Exception {
+        MockHttpServletRequest request = new MockHttpServletRequest("GET", "/anything");
+        MockHttpServletResponse response = new MockHttpServletResponse();
+        if (route != null) {
+            request.setAttribute(HandlerMapping.BEST_MATCHING_PATTERN_ATTRIBUTE, route);
+        }
+
+        interceptor.preHandle(request, response, null);
+        response.setStatus(status);
+        interceptor.afterCompletion(request, response, null, ex);
+    }
+}
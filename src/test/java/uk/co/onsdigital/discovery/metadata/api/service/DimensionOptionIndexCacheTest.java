@@ -0,0 +1,103 @@
+package uk.co.onsdigital.discovery.metadata.api.service;
+
+import org.testng.annotations.AfterMethod;
+import org.testng.annotations.BeforeMethod;
+import org.testng.annotations.Test;
+import uk.co.onsdigital.discovery.metadata.api.dao.MetadataDao;
+import uk.co.onsdigital.discovery.model.Dimension;
+import uk.co.onsdigital.discovery.model.DimensionValue;
+
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.function.Supplier;
+
+import static org.assertj.core.api.Assertions.assertThat;
+import static org.assertj.core.api.Assertions.fail;
+import static org.mockito.Mockito.mock;
+
+public class DimensionOptionIndexCacheTest {
+
+    private DimensionOptionIndexCache indexes;
+    private ExecutorService executor;
+
+    @BeforeMethod
+    public void setup() {
+        indexes = new DimensionOptionIndexCache(new HierarchyIndexCache(mock(MetadataDao.class)), 1000, 60);
+        executor = Executors.newFixedThreadPool(2);
+    }
+
+    @AfterMethod
+    public void shutdown() {
+        executor.shutdownNow();
+    }
+
+    @Test
+    public void shouldNotBlockOtherDimensionsWhileBuilding() throws Exception {
+        final CountDownLatch loading = new CountDownLatch(1);
+        final CountDownLatch release = new CountDownLatch(1);
+        final AtomicInteger loads = new AtomicInteger();
+        final Supplier<Dimension> slowDimension = () -> {
+            loads.incrementAndGet();
+            loading.countDown();
+            try {
+                release.await(10, TimeUnit.SECONDS);
+            } catch (InterruptedException e) {
+                Thread.currentThread().interrupt();
+            }
+            return dimension("slow");
+        };
+
+        final Future<DimensionOptionIndex> slow = executor.submit(() -> indexes.getIndex("slow", slowDimension));
+        final Future<DimensionOptionIndex> waiting = executor.submit(() -> {
+            loading.await(10, TimeUnit.SECONDS);
+            return indexes.getIndex("slow", slowDimension);
+        });
+        assertThat(loading.await(10, TimeUnit.SECONDS)).isTrue();
+
+        assertThat(indexes.getIndex("fast", () -> dimension("fast")).size()).isEqualTo(2);
+        release.countDown();
+        assertThat(waiting.get(10, TimeUnit.SECONDS)).isSameAs(slow.get(10, TimeUnit.SECONDS));
+        assertThat(loads.get()).isEqualTo(1);
+    }
+
+    @Test
+    public void shouldRetryFailedBuilds() throws Exception {
+        try {
+            indexes.getIndex("geography", () -> {
+                throw new IllegalStateException("Connection refused");
+            });
+            fail("Expected the build to fail");
+        } catch (IllegalStateException e) {
+            assertThat(e).hasMessage("Connection refused");
+        }
+
+        assertThat(indexes.getIndex("geography", () -> dimension("geography")).size()).isEqualTo(2);
+    }
+
+    @Test
+    public void shouldRebuildInvalidatedIndexes() throws Exception {
+        final DimensionOptionIndex index = indexes.getIndex("geography", () -> dimension("geography"));
+
+        indexes.invalidateIf("geography"::equals);
+
+        assertThat(indexes.getIndex("geography", () -> dimension("geography"))).isNotSameAs(index);
+    }
+
+    @Test
+    public void shouldNotKeepIndexInvalidatedWhileBuilding() throws Exception {
+        final DimensionOptionIndex index = indexes.getIndex("geography", () -> {
+            indexes.invalidateIf("geography"::equals);
+            return dimension("geography");
+        });
+
+        assertThat(indexes.getIndex("geography", () -> dimension("geography"))).isNotSameAs(index);
+    }
+
+    private static Dimension dimension(String name) {
+        return new Dimension(null, name, new DimensionValue("A"), new DimensionValue("B"));
+    }
+}
@@ -0,0 +1,191 @@
+package uk.co.onsdigital.discovery.metadata.api.service;
+
+import org.testng.annotations.BeforeMethod;
+import org.testng.annotations.Test;
+import uk.co.onsdigital.discovery.metadata.api.dao.MetadataDao;
+import uk.co.onsdigital.discovery.metadata.api.dto.common.DimensionOption;
+import uk.co.onsdigital.discovery.model.Dimension;
+import uk.co.onsdigital.discovery.model.DimensionValue;
+import uk.co.onsdigital.discovery.model.Hierarchy;
+import uk.co.onsdigital.discovery.model.HierarchyEntry;
+import uk.co.onsdigital.discovery.model.HierarchyLevelType;
+
+import java.util.Arrays;
+import java.util.List;
+
+import static java.util.stream.Collectors.toList;
+import static org.assertj.core.api.Assertions.assertThat;
+import static org.assertj.core.api.Assertions.tuple;
+import static org.mockito.Mockito.mock;
+import static org.mockito.Mockito.when;
+import static uk.co.onsdigital.discovery.metadata.api.service.HierarchyFixtures.entry;
+import static uk.co.onsdigital.discovery.metadata.api.service.HierarchyFixtures.levelType;
+
+public class DimensionOptionIndexTest {
+    private static final HierarchyLevelType COUNTRY = levelType("CTRY", 0);
+    private static final HierarchyLevelType REGION = levelType("RGN", 1);
+    private static final HierarchyLevelType CITY = levelType("CITY", 2);
+
+    private HierarchyIndexCache hierarchyIndexes;
+    private Dimension dimension;
+
+    @BeforeMethod
+    public void createDimension() {
+        // UK > England > (London, Manchester), UK > Wales > Cardiff
+        final Hierarchy hierarchy = new Hierarchy();
+        hierarchy.setId("geography");
+        final HierarchyEntry uk = entry(hierarchy, null, COUNTRY, "K02000001", "United Kingdom");
+        final HierarchyEntry england = entry(hierarchy, uk, REGION, "E92000001", "England");
+        final HierarchyEntry wales = entry(hierarchy, uk, REGION, "W92000004", "Wales");
+        final HierarchyEntry london = entry(hierarchy, england, CITY, "E12000007", "London");
+        final HierarchyEntry manchester = entry(hierarchy, england, CITY, "E08000003", "Manchester");
+        final HierarchyEntry cardiff = entry(hierarchy, wales, CITY, "W06000015", "Cardiff");
+
+        final MetadataDao dao = mock(MetadataDao.class);
+        when(dao.findAllEntriesInHierarchy("geography")).thenReturn(Arrays.asList(uk, england, wales, london, manchester, cardiff));
+        hierarchyIndexes = new HierarchyIndexCache(dao);
+
+        dimension = new Dimension(null, "geography");
+        for (HierarchyEntry entry : Arrays.asList(cardiff, london, wales, manchester, england)) {
+            final DimensionValue value = new DimensionValue(entry.getCode());
+            value.setHierarchyEntry(entry);
+            dimension.getValues().add(value);
+        }
+    }
+
+    @Test
+    public void shouldHoldOptionsInListViewOrder() {
+        final DimensionOptionIndex index = DimensionOptionIndex.build(dimension, hierarchyIndexes);
+        final DimensionOptionIndex.Selection selection = index.select(new OptionFilter(null, null, null, null, null));
+
+        assertThat(selection.getTotal()).isEqualTo(5);
+        assertThat(selection.getOptions()).isEqualTo(DimensionViewType.LIST.convertValues(dimension.getValues()));
+    }
+
+    @Test
+    public void shouldMatchPrefixOfCodeOrNameIgnoringCase() {
+        final DimensionOptionIndex index = DimensionOptionIndex.build(dimension, hierarchyIndexes);
+
+        assertThat(names(index.select(new OptionFilter("man", null, null, null, null)))).containsExactly("Manchester");
+        assertThat(names(index.select(new OptionFilter("e", null, null, null, null))))
+                .containsExactly("England", "Manchester", "London");
+    }
+
+    @Test
+    public void shouldMatchLevelType() {
+        final DimensionOptionIndex index = DimensionOptionIndex.build(dimension, hierarchyIndexes);
+
+        assertThat(names(index.select(new OptionFilter(null, "RGN", null, null, null)))).containsExactly("England", "Wales");
+    }
+
+    @Test
+    public void shouldMatchDescendantsOfParent() {
+        final DimensionOptionIndex index = DimensionOptionIndex.build(dimension, hierarchyIndexes);
+
+        assertThat(names(index.select(new OptionFilter(null, null, "E92000001", null, null))))
+                .containsExactly("Manchester", "London");
+        // The parent need not be an option of the dimension itself
+        assertThat(index.select(new OptionFilter(null, null, "K02000001", null, null)).getTotal()).isEqualTo(5);
+        assertThat(index.select(new OptionFilter(null, null, "unknown", null, null)).getTotal()).isZero();
+    }
+
+    @Test
+    public void shouldCombineCriteriaAndPage() {
+        final DimensionOptionIndex index = DimensionOptionIndex.build(dimension, hierarchyIndexes);
+
+        final DimensionOptionIndex.Selection selection = index.select(new OptionFilter(null, "CITY", "K02000001", 1, 1));
+        assertThat(selection.getTotal()).isEqualTo(3);
+        assertThat(names(selection)).containsExactly("London");
+        assertThat(index.select(new OptionFilter(null, null, null, 10, 5)).getOptions()).isEmpty();
+    }
+
+    @Test
+    public void shouldNotMatchParentInFlatDimension() {
+        final Dimension flat = new Dimension(null, "time", new DimensionValue("2016"), new DimensionValue("2017"));
+        final DimensionOptionIndex index = DimensionOptionIndex.build(flat, hierarchyIndexes);
+
+        assertThat(index.select(new OptionFilter("2017", null, null, null, null)).getTotal()).isEqualTo(1);
+        assertThat(index.select(new OptionFilter(null, null, "2016", null, null)).getTotal()).isZero();
+    }
+
+    @Test
+    public void shouldSearchCodesAndNamesInKeyOrder() {
+        final DimensionOptionIndex index = DimensionOptionIndex.build(dimension, hierarchyIndexes);
+
+        // Codes sort before names, and an option matching by both is only returned once
+        assertThat(index.search("E", 10)).extracting("name").containsExactly("Manchester", "London", "England");
+        assertThat(index.search("w", 10)).extracting("name").containsExactly("Cardiff", "Wales");
+        assertThat(index.search("LONDON", 10)).extracting("code").containsExactly("E12000007");
+        assertThat(index.search("lonx", 10)).isEmpty();
+        assertThat(index.search("zzz", 10)).isEmpty();
+    }
+
+    @Test
+    public void shouldLimitSearchResults() {
+        final DimensionOptionIndex index = DimensionOptionIndex.build(dimension, hierarchyIndexes);
+
+        assertThat(index.search("e", 2)).extracting("name").containsExactly("Manchester", "London");
+        assertThat(index.search("", 100)).hasSize(5);
+    }
+
+    @Test
+    public void shouldNotReturnOptionTwiceWhenCodeAndNameMatch() {
+        final Dimension time = new Dimension(null, "time", new DimensionValue("2016"), new DimensionValue("2017"));
+        final DimensionOptionIndex index = DimensionOptionIndex.build(time, hierarchyIndexes);
+
+        assertThat(index.search("201", 10)).extracting("code").containsExactly("2016", "2017");
+        assertThat(index.select(new OptionFilter("201", null, null, null, null)).getTotal()).isEqualTo(2);
+    }
+
+    @Test
+    public void shouldSliceSparseHierarchyView() {
+        final DimensionOptionIndex index = DimensionOptionIndex.build(dimension, hierarchyIndexes);
+
+        // The UK is not an option of the dimension, but is included for structure
+        final List<DimensionOption> top = index.slice(null, 1);
+        assertThat(top).extracting("code", "childCount", "empty").containsExactly(tuple("K02000001", 2, true));
+        assertThat(top.get(0).getChildren()).isNullOrEmpty();
+
+        final List<DimensionOption> regions = index.slice("K02000001", 1);
+        assertThat(regions).extracting("name", "childCount").containsExactly(tuple("England", 2), tuple("Wales", 1));
+        assertThat(regions.get(0).getId()).isEqualTo(dimension.getValues().get(4).getId());
+
+        assertThat(index.slice("E92000001", 5)).extracting("name").containsExactly("Manchester", "London");
+        assertThat(index.slice("E08000003", 1)).isEmpty();
+    }
+
+    @Test
+    public void shouldMatchFullHierarchyViewWhenSliceIsUnlimited() {
+        final DimensionOptionIndex index = DimensionOptionIndex.build(dimension, hierarchyIndexes);
+
+        assertThat(index.slice(null, Integer.MAX_VALUE))
+                .isEqualTo(DimensionViewType.HIERARCHY.convertValues(dimension.getValues(), hierarchyIndexes));
+        assertThat(index.slice(null, Integer.MAX_VALUE).get(0).getChildren().get(0).getChildren())
+                .extracting("name").containsExactly("Manchester", "London");
+    }
+
+    @Test
+    public void shouldNotSliceBelowEntryOutsideView() {
+        final DimensionOptionIndex index = DimensionOptionIndex.build(dimension, hierarchyIndexes);
+        final Dimension flat = new Dimension(null, "time", new DimensionValue("2016"), new DimensionValue("2017"));
+
+        assertThat(index.slice("unknown", 1)).isNull();
+        assertThat(DimensionOptionIndex.build(flat, hierarchyIndexes).slice(null, 1))
+                .extracting("code", "childCount").containsExactly(tuple("2016", 0), tuple("2017", 0));
+        assertThat(DimensionOptionIndex.build(flat, hierarchyIndexes).slice("2016", 1)).isNull();
+    }
+
+    @Test(expectedExceptions = IllegalArgumentException.class)
+    public void shouldRejectNegativeOffset() {
+        new OptionFilter(null, null, null, -1, null);
+    }
+
+    @Test(expectedExceptions = IllegalArgumentException.class)
+    public void shouldRejectZeroLimit() {
+        new OptionFilter(null, null, null, null, 0);
+    }
+
+    private static List<String> names(DimensionOptionIndex.Selection selection) {
+        return selection.getOptions().stream().map(DimensionOption::getName).collect(toList());
+    }
+}
@@ -1,6 +1,7 @@
 package uk.co.onsdigital.discovery.metadata.api.service;
 
 import org.testng.annotations.Test;
+import uk.co.onsdigital.discovery.metadata.api.dao.MetadataDao;
 import uk.co.onsdigital.discovery.metadata.api.dto.common.DimensionOption;
 import uk.co.onsdigital.discovery.model.*;
 
@@ -8,6 +9,7 @@ import java.util.ArrayList;
 import java.util.Arrays;
 import java.util.Collection;
 import java.util.HashMap;
+import java.util.Iterator;
 import java.util.List;
 import java.util.Map;
 import java.util.Random;
@@ -18,6 +20,9 @@ import static java.util.Collections.singletonList;
 import static java.util.function.Function.identity;
 import static java.util.stream.Collectors.toMap;
 import static org.assertj.core.api.Assertions.assertThat;
+import static org.mockito.Mockito.mock;
+import static org.mockito.Mockito.verifyZeroInteractions;
+import static org.mockito.Mockito.when;
 import static org.springframework.util.CollectionUtils.isEmpty;
 
 public class DimensionViewTypeTest {
@@ -148,6 +153,82 @@ public class DimensionViewTypeTest {
         assertAllChildrenAreSorted(options);
     }
 
+    @Test
+    public void viewTypeHierarchyWithIndexShouldMatchEntityWalk() throws Exception {
+        final Map<String, HierarchyEntry> hierarchy = getTestHierarchy();
+        final List<DimensionValue> values = getTestDimensionValues(hierarchy);
+        // Only include some of the entries so that empty levels are created
+        final List<DimensionValue> sparseValues = new ArrayList<>();
+        for (int i = 0; i < values.size(); i += 3) {
+            sparseValues.add(values.get(i));
+        }
+        final HierarchyIndexCache indexes = indexCache(new ArrayList<>(hierarchy.values()));
+
+        final List<DimensionOption> expected = DimensionViewType.HIERARCHY.convertValues(sparseValues);
+        final List<DimensionOption> actual = DimensionViewType.HIERARCHY.convertValues(sparseValues, indexes);
+
+        assertSameTree(actual, expected);
+        assertAllChildrenAreSorted(actual);
+    }
+
+    @Test
+    public void viewTypeHierarchyWithIndexShouldCreateEmptyLevelsWhenMissingInData() throws Exception {
+        final HierarchyEntry england = getEnglandHierarchy();
+        final DimensionValue value = new DimensionValue("testValue");
+        value.setHierarchyEntry(england);
+        final List<HierarchyEntry> entries = Arrays.asList(england.getParent().getParent(), england.getParent(), england);
+        final Hierarchy hierarchy = new Hierarchy();
+        hierarchy.setId("UKH");
+        entries.forEach(entry -> entry.setHierarchy(hierarchy));
+        final HierarchyIndexCache indexes = indexCache(entries);
+
+        final List<DimensionOption> roots = DimensionViewType.HIERARCHY.convertValues(singletonList(value), indexes);
+
+        assertThat(roots).hasSize(1);
+        DimensionOption uk = roots.get(0);
+        assertThat(uk.getCode()).isEqualTo("UK");
+        assertThat(uk.isEmpty()).isTrue();
+        DimensionOption ew = uk.getChildren().iterator().next();
+        assertThat(ew.getCode()).isEqualTo("EW");
+        assertThat(ew.isEmpty()).isTrue();
+        DimensionOption eng = ew.getChildren().iterator().next();
+        assertThat(eng.getCode()).isEqualTo("E");
+        assertThat(eng.getId()).isEqualTo(value.getId());
+        assertThat(eng.getChildren()).isNullOrEmpty();
+    }
+
+    @Test
+    public void viewTypeHierarchyWithIndexShouldFallBackForFlatDimensions() throws Exception {
+        final List<DimensionValue> values = getTestDimensionValues(emptyMap());
+        final MetadataDao dao = mock(MetadataDao.class);
+
+        final List<DimensionOption> options = DimensionViewType.HIERARCHY.convertValues(values, new HierarchyIndexCache(dao));
+
+        assertThat(options).hasSize(values.size());
+        verifyZeroInteractions(dao);
+    }
+
+    private static HierarchyIndexCache indexCache(List<HierarchyEntry> entries) {
+        final String hierarchyId = entries.get(0).getHierarchy().getId();
+        final MetadataDao dao = mock(MetadataDao.class);
+        when(dao.findAllEntriesInHierarchy(hierarchyId)).thenReturn(entries);
+        return new HierarchyIndexCache(dao);
+    }
+
+    private static void assertSameTree(Collection<DimensionOption> actual, Collection<DimensionOption> expected) {
+        if (isEmpty(expected)) {
+            assertThat(actual).isNullOrEmpty();
+            return;
+        }
+        assertThat(actual).hasSameSizeAs(expected);
+        final Iterator<DimensionOption> expectedIt = expected.iterator();
+        for (DimensionOption option : actual) {
+            final DimensionOption expectedOption = expectedIt.next();
+            assertThat(option).isEqualToComparingOnlyGivenFields(expectedOption, "id", "code", "name", "levelType", "hierarchyId");
+            assertSameTree(option.getChildren(), expectedOption.getChildren());
+        }
+    }
+
     private void assertAllChildrenAreSorted(List<DimensionOption> options) {
         assertThat(options).isSorted();
         for (DimensionOption option : options) {
@@ -0,0 +1,45 @@
+package uk.co.onsdigital.discovery.metadata.api.service;
+
+import org.springframework.test.util.ReflectionTestUtils;
+import uk.co.onsdigital.discovery.model.Hierarchy;
+import uk.co.onsdigital.discovery.model.HierarchyEntry;
+import uk.co.onsdigital.discovery.model.HierarchyLevelType;
+
+import java.util.ArrayList;
+import java.util.UUID;
+
+/**
+ * Builds hierarchy entities for the tests of the hierarchy and option indexes.
+ */
+final class HierarchyFixtures {
+
+    private HierarchyFixtures() {
+    }
+
+    static HierarchyLevelType levelType(String id, int level) {
+        final HierarchyLevelType levelType = new HierarchyLevelType();
+        ReflectionTestUtils.setField(levelType, "id", id);
+        levelType.setName(id);
+        levelType.setLevel(level);
+        return levelType;
+    }
+
+    /**
+     * Creates an entry with a random id, and adds it to the children of its parent.
+     */
+    static HierarchyEntry entry(Hierarchy hierarchy, HierarchyEntry parent, HierarchyLevelType levelType, String code,
+                                String name) {
+        final HierarchyEntry entry = new HierarchyEntry();
+        entry.setId(UUID.randomUUID());
+        entry.setHierarchy(hierarchy);
+        entry.setParent(parent);
+        entry.setLevelType(levelType);
+        entry.setCode(code);
+        entry.setName(name);
+        entry.setChildren(new ArrayList<>());
+        if (parent != null) {
+            parent.getChildren().add(entry);
+        }
+        return entry;
+    }
+}
@@ -0,0 +1,109 @@
+package uk.co.onsdigital.discovery.metadata.api.service;
+
+import org.mockito.Mock;
+import org.mockito.MockitoAnnotations;
+import org.testng.annotations.AfterMethod;
+import org.testng.annotations.BeforeMethod;
+import org.testng.annotations.Test;
+import uk.co.onsdigital.discovery.metadata.api.dao.MetadataDao;
+import uk.co.onsdigital.discovery.model.Hierarchy;
+import uk.co.onsdigital.discovery.model.HierarchyEntry;
+
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.List;
+import java.util.UUID;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+import java.util.concurrent.TimeUnit;
+
+import static org.assertj.core.api.Assertions.assertThat;
+import static org.assertj.core.api.Assertions.fail;
+import static org.mockito.Mockito.times;
+import static org.mockito.Mockito.verify;
+import static org.mockito.Mockito.when;
+
+public class HierarchyIndexCacheTest {
+
+    @Mock
+    private MetadataDao mockDao;
+
+    private HierarchyIndexCache indexes;
+    private ExecutorService executor;
+
+    @BeforeMethod
+    public void setup() {
+        MockitoAnnotations.initMocks(this);
+        indexes = new HierarchyIndexCache(mockDao);
+        executor = Executors.newFixedThreadPool(2);
+    }
+
+    @AfterMethod
+    public void shutdown() {
+        executor.shutdownNow();
+    }
+
+    @Test
+    public void shouldNotBlockOtherHierarchiesWhileBuilding() throws Exception {
+        final CountDownLatch loading = new CountDownLatch(1);
+        final CountDownLatch release = new CountDownLatch(1);
+        when(mockDao.findAllEntriesInHierarchy("slow")).thenAnswer(invocation -> {
+            loading.countDown();
+            release.await(10, TimeUnit.SECONDS);
+            return entries("slow");
+        });
+        when(mockDao.findAllEntriesInHierarchy("fast")).thenReturn(entries("fast"));
+
+        final Future<HierarchyIndex> slow = executor.submit(() -> indexes.getIndex("slow"));
+        final Future<HierarchyIndex> waiting = executor.submit(() -> {
+            loading.await(10, TimeUnit.SECONDS);
+            return indexes.getIndex("slow");
+        });
+        assertThat(loading.await(10, TimeUnit.SECONDS)).isTrue();
+
+        assertThat(indexes.getIndex("fast").getHierarchyId()).isEqualTo("fast");
+        release.countDown();
+        assertThat(waiting.get(10, TimeUnit.SECONDS)).isSameAs(slow.get(10, TimeUnit.SECONDS));
+        verify(mockDao, times(1)).findAllEntriesInHierarchy("slow");
+    }
+
+    @Test
+    public void shouldRetryFailedBuilds() throws Exception {
+        when(mockDao.findAllEntriesInHierarchy("geography"))
+                .thenThrow(new IllegalStateException("Connection refused"))
+                .thenReturn(entries("geography"));
+
+        try {
+            indexes.getIndex("geography");
+            fail("Expected the build to fail");
+        } catch (IllegalStateException e) {
+            assertThat(e).hasMessage("Connection refused");
+        }
+
+        assertThat(indexes.getIndex("geography")).isNotNull();
+    }
+
+    @Test
+    public void shouldNotKeepMissingHierarchies() throws Exception {
+        when(mockDao.findAllEntriesInHierarchy("geography"))
+                .thenReturn(Collections.emptyList())
+                .thenReturn(entries("geography"));
+
+        assertThat(indexes.getIndex("geography")).isNull();
+        assertThat(indexes.getIndex("geography")).isNotNull();
+    }
+
+    private static List<HierarchyEntry> entries(String hierarchyId) {
+        final Hierarchy hierarchy = new Hierarchy();
+        hierarchy.setId(hierarchyId);
+        final HierarchyEntry entry = new HierarchyEntry();
+        entry.setId(UUID.randomUUID());
+        entry.setHierarchy(hierarchy);
+        entry.setCode("K02000001");
+        entry.setName("United Kingdom");
+        entry.setChildren(new ArrayList<>());
+        return Collections.singletonList(entry);
+    }
+}
@@ -0,0 +1,161 @@
+package uk.co.onsdigital.discovery.metadata.api.service;
+
+import org.testng.annotations.AfterMethod;
+import org.testng.annotations.BeforeMethod;
+import org.testng.annotations.Test;
+import uk.co.onsdigital.discovery.metadata.api.dao.MetadataDao;
+import uk.co.onsdigital.discovery.model.Hierarchy;
+import uk.co.onsdigital.discovery.model.HierarchyEntry;
+import uk.co.onsdigital.discovery.model.HierarchyLevelType;
+
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.Arrays;
+import java.util.Collections;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.stream.Stream;
+
+import static org.assertj.core.api.Assertions.assertThat;
+import static org.mockito.Matchers.anyString;
+import static org.mockito.Mockito.mock;
+import static org.mockito.Mockito.never;
+import static org.mockito.Mockito.verify;
+import static org.mockito.Mockito.when;
+import static uk.co.onsdigital.discovery.metadata.api.service.HierarchyFixtures.entry;
+import static uk.co.onsdigital.discovery.metadata.api.service.HierarchyFixtures.levelType;
+
+public class HierarchySnapshotsTest {
+    private static final String HIERARCHY_ID = "geography/2016";
+    private static final String CHECKSUM = "3-1a2b3c-4d5e";
+
+    private final HierarchyLevelType country = levelType("CTRY", 0);
+    private final HierarchyLevelType region = levelType("RGN", 1);
+
+    private Path directory;
+    private HierarchySnapshots snapshots;
+    private List<HierarchyEntry> entries;
+
+    @BeforeMethod
+    public void createSnapshots() throws Exception {
+        directory = Files.createTempDirectory("hierarchies");
+        snapshots = new HierarchySnapshots(directory.toString());
+
+        final Hierarchy hierarchy = new Hierarchy();
+        hierarchy.setId(HIERARCHY_ID);
+        hierarchy.setName("Geography");
+        hierarchy.setType("geography");
+        final HierarchyEntry uk = entry(hierarchy, null, country, "K02000001", "United Kingdom");
+        final HierarchyEntry england = entry(hierarchy, uk, region, "E92000001", "England");
+        final HierarchyEntry wales = entry(hierarchy, uk, null, "W92000004", null);
+        entries = Arrays.asList(uk, england, wales);
+    }
+
+    @AfterMethod
+    public void deleteDirectory() throws Exception {
+        try (Stream<Path> files = Files.list(directory)) {
+            for (Path file : (Iterable<Path>) files::iterator) {
+                Files.delete(file);
+            }
+        }
+        Files.delete(directory);
+    }
+
+    @Test
+    public void shouldLoadUnchangedHierarchyFromSnapshot() {
+        final HierarchyIndex built = new HierarchyIndexCache(dao(CHECKSUM), snapshots).getIndex(HIERARCHY_ID);
+
+        final MetadataDao dao = dao(CHECKSUM);
+        final HierarchyIndex loaded = new HierarchyIndexCache(dao, snapshots).getIndex(HIERARCHY_ID);
+
+        verify(dao, never()).findAllEntriesInHierarchy(anyString());
+        assertSameIndex(loaded, built);
+    }
+
+    @Test
+    public void shouldRebuildChangedHierarchy() {
+        new HierarchyIndexCache(dao(CHECKSUM), snapshots).getIndex(HIERARCHY_ID);
+
+        final MetadataDao dao = dao("4-5e6f-4d5e");
+        new HierarchyIndexCache(dao, snapshots).getIndex(HIERARCHY_ID);
+
+        verify(dao).findAllEntriesInHierarchy(HIERARCHY_ID);
+        assertThat(snapshots.read(HIERARCHY_ID, CHECKSUM, levelTypes())).isNull();
+        assertThat(snapshots.read(HIERARCHY_ID, "4-5e6f-4d5e", levelTypes())).isNotNull();
+    }
+
+    @Test
+    public void shouldIgnoreCorruptSnapshot() throws Exception {
+        snapshots.write(HierarchyIndex.build(entries.get(0).getHierarchy(), entries), CHECKSUM);
+        final Path file = Files.list(directory).findFirst().get();
+        final byte[] content = Files.readAllBytes(file);
+        content[content.length / 2] ^= 1;
+        Files.write(file, content);
+
+        assertThat(snapshots.read(HIERARCHY_ID, CHECKSUM, levelTypes())).isNull();
+    }
+
+    @Test
+    public void shouldIgnoreTruncatedSnapshot() throws Exception {
+        snapshots.write(HierarchyIndex.build(entries.get(0).getHierarchy(), entries), CHECKSUM);
+        final Path file = Files.list(directory).findFirst().get();
+        Files.write(file, Arrays.copyOf(Files.readAllBytes(file), 2));
+
+        assertThat(snapshots.read(HIERARCHY_ID, CHECKSUM, levelTypes())).isNull();
+    }
+
+    @Test
+    public void shouldIgnoreSnapshotWithMissingLevelType() {
+        snapshots.write(HierarchyIndex.build(entries.get(0).getHierarchy(), entries), CHECKSUM);
+
+        assertThat(snapshots.read(HIERARCHY_ID, CHECKSUM, Collections.singletonMap("CTRY", country))).isNull();
+    }
+
+    @Test
+    public void shouldNotBuildIndexForMissingHierarchy() {
+        final MetadataDao dao = mock(MetadataDao.class);
+
+        assertThat(new HierarchyIndexCache(dao, snapshots).getIndex("missing")).isNull();
+        verify(dao, never()).findAllEntriesInHierarchy(anyString());
+    }
+
+    @Test
+    public void shouldNotKeepSnapshotsWithoutDirectory() {
+        final MetadataDao dao = dao(CHECKSUM);
+
+        new HierarchyIndexCache(dao, new HierarchySnapshots("")).getIndex(HIERARCHY_ID);
+
+        verify(dao, never()).findHierarchyChecksum(anyString());
+        assertThat(directory.toFile().list()).isEmpty();
+    }
+
+    private MetadataDao dao(String checksum) {
+        final MetadataDao dao = mock(MetadataDao.class);
+        when(dao.findHierarchyChecksum(HIERARCHY_ID)).thenReturn(checksum);
+        when(dao.findAllEntriesInHierarchy(HIERARCHY_ID)).thenReturn(entries);
+        when(dao.listAllHierarchyLevelTypes()).thenReturn(Arrays.asList(country, region));
+        return dao;
+    }
+
+    private Map<String, HierarchyLevelType> levelTypes() {
+        final Map<String, HierarchyLevelType> levelTypes = new HashMap<>();
+        levelTypes.put(country.getId(), country);
+        levelTypes.put(region.getId(), region);
+        return levelTypes;
+    }
+
+    private static void assertSameIndex(HierarchyIndex actual, HierarchyIndex expected) {
+        assertThat(actual.getHierarchyId()).isEqualTo(expected.getHierarchyId());
+        assertThat(actual.getHierarchyName()).isEqualTo(expected.getHierarchyName());
+        assertThat(actual.getHierarchyType()).isEqualTo(expected.getHierarchyType());
+        assertThat(actual.size()).isEqualTo(expected.size());
+        for (int i = 0; i < expected.size(); ++i) {
+            assertThat(actual.idOf(i)).isEqualTo(expected.idOf(i));
+            assertThat(actual.parentOf(i)).isEqualTo(expected.parentOf(i));
+            assertThat(actual.codeOf(i)).isEqualTo(expected.codeOf(i));
+            assertThat(actual.nameOf(i)).isEqualTo(expected.nameOf(i));
+            assertThat(actual.levelTypeOf(i)).isSameAs(expected.levelTypeOf(i));
+        }
+    }
+}
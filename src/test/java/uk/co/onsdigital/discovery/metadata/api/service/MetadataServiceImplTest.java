@@ -1,5 +1,6 @@
 package uk.co.onsdigital.discovery.metadata.api.service;
 
+import com.codahale.metrics.MetricRegistry;
 import org.mockito.Mock;
 import org.mockito.MockitoAnnotations;
 import org.testng.annotations.BeforeMethod;
@@ -34,7 +35,10 @@ public class MetadataServiceImplTest {
     @BeforeMethod
     public void setUp() throws Exception {
         MockitoAnnotations.initMocks(this);
-        testObj = new MetadataServiceImpl(metadataDaoMock, urlBuilderMock, legacyUrlBuilderMock);
+        HierarchyIndexCache hierarchyIndexes = new HierarchyIndexCache(metadataDaoMock);
+        testObj = new MetadataServiceImpl(metadataDaoMock, urlBuilderMock, legacyUrlBuilderMock, hierarchyIndexes,
+                new ResultCountCache(metadataDaoMock, 0), new DimensionOptionIndexCache(hierarchyIndexes, 1000, 60),
+                new MetricRegistry());
     }
 
     @Test
@@ -56,7 +60,7 @@ public class MetadataServiceImplTest {
 
         when(metadataDaoMock.findDataResourcesPage(1,1)).thenReturn(Arrays.asList(dataResource));
 
-        ResultPage<DataResourceResult> result = testObj.listAvailableDataResources(1, 1);
+        ResultPage<DataResourceResult> result = testObj.listAvailableDataResources(1, 1, true);
 
         assertThat(result).isNotNull();
         assertThat(result.getItems()).isNotNull();
@@ -1,5 +1,8 @@
 package uk.co.onsdigital.discovery.metadata.api.service;
 
+import com.codahale.metrics.MetricRegistry;
+import com.fasterxml.jackson.core.JsonGenerator;
+import com.fasterxml.jackson.databind.ObjectMapper;
 import org.mockito.Mock;
 import org.mockito.MockitoAnnotations;
 import org.testng.annotations.BeforeMethod;
@@ -18,14 +21,28 @@ import uk.co.onsdigital.discovery.model.Hierarchy;
 import uk.co.onsdigital.discovery.model.HierarchyEntry;
 import uk.co.onsdigital.discovery.model.HierarchyLevelType;
 
+import java.io.StringWriter;
+import java.nio.charset.StandardCharsets;
 import java.util.ArrayList;
 import java.util.Arrays;
 import java.util.Collections;
+import java.util.Comparator;
+import java.util.LinkedHashSet;
 import java.util.List;
 import java.util.UUID;
+import java.util.concurrent.atomic.AtomicBoolean;
+import java.util.stream.Stream;
 
 import static java.util.Collections.singletonList;
 import static org.assertj.core.api.Assertions.assertThat;
+import static org.assertj.core.api.Assertions.fail;
+import static org.assertj.core.api.Assertions.tuple;
+import static org.mockito.Matchers.anyCollectionOf;
+import static org.mockito.Matchers.eq;
+import static org.mockito.Mockito.mock;
+import static org.mockito.Mockito.never;
+import static org.mockito.Mockito.verify;
+import static org.mockito.Mockito.verifyZeroInteractions;
 import static org.mockito.Mockito.when;
 import static org.springframework.util.CollectionUtils.isEmpty;
 
@@ -42,7 +59,10 @@ public class MetadataServiceTest {
     @BeforeMethod
     public void createMetadataService() {
         MockitoAnnotations.initMocks(this);
-        metadataService = new MetadataServiceImpl(mockDao, new UrlBuilder(BASE_URL), new LegacyUrlBuilder(BASE_URL));
+        HierarchyIndexCache hierarchyIndexes = new HierarchyIndexCache(mockDao);
+        metadataService = new MetadataServiceImpl(mockDao, new UrlBuilder(BASE_URL), new LegacyUrlBuilder(BASE_URL),
+                hierarchyIndexes, new ResultCountCache(mockDao, 0), new DimensionOptionIndexCache(hierarchyIndexes, 1000, 60),
+                new MetricRegistry());
     }
 
     @Test
@@ -56,7 +76,7 @@ public class MetadataServiceTest {
         when(mockDao.findLegacyDataSetsPage(pageNumber, resultPerPage)).thenReturn(dbDataSets);
         when(mockDao.countDataSets()).thenReturn(total);
 
-        LegacyResultPage<LegacyDataSet> result = metadataService.listAvailableVersions(pageNumber, resultPerPage);
+        LegacyResultPage<LegacyDataSet> result = metadataService.listAvailableVersions(pageNumber, resultPerPage, true);
 
         assertThat(result).isNotNull()
                 .hasFieldOrPropertyWithValue("total", total)
@@ -67,11 +87,54 @@ public class MetadataServiceTest {
         assertThat(result.getItems()).isNotNull().hasSize(dbDataSets.size());
     }
 
+    @Test
+    public void shouldNotCountDataSetsIfTotalNotRequested() throws Exception {
+        when(mockDao.findLegacyDataSetsPage(1, 2)).thenReturn(Arrays.asList(
+                dbDataSet(UUID.randomUUID(), "", ""),
+                dbDataSet(UUID.randomUUID(), "", "")));
+
+        LegacyResultPage<LegacyDataSet> result = metadataService.listAvailableVersions(1, 2, false);
+
+        assertThat(result.getTotal()).isNull();
+        assertThat(result.getLast()).isNull();
+        // A full page may be followed by another one
+        assertThat(result.getNext()).isEqualTo(BASE_URL + "/versions?page=2&size=2");
+        verify(mockDao, never()).countDataSets();
+    }
+
+    @Test
+    public void shouldLinkToNextPageWithCursor() throws Exception {
+        List<DataSet> dbDataSets = Arrays.asList(
+                dbDataSet(UUID.randomUUID(), "", ""),
+                dbDataSet(UUID.randomUUID(), "", ""),
+                dbDataSet(UUID.randomUUID(), "", ""));
+        when(mockDao.findLegacyDataSetsAfter(null, 3)).thenReturn(dbDataSets);
+
+        LegacyResultPage<LegacyDataSet> firstPage = metadataService.listAvailableVersionsAfter("", 2, true);
+
+        assertThat(firstPage.getItems()).hasSize(2);
+        assertThat(firstPage.getNext()).startsWith(BASE_URL + "/versions?after=").endsWith("&size=2");
+
+        // The next page seeks past the last dataset on the first page
+        String cursor = firstPage.getNext().replaceAll(".*after=([^&]*).*", "$1");
+        when(mockDao.findLegacyDataSetsAfter(dbDataSets.get(1).getId(), 3)).thenReturn(dbDataSets.subList(2, 3));
+
+        LegacyResultPage<LegacyDataSet> secondPage = metadataService.listAvailableVersionsAfter(cursor, 2, true);
+
+        assertThat(secondPage.getItems()).hasSize(1);
+        assertThat(secondPage.getNext()).isNull();
+    }
+
+    @Test(expectedExceptions = IllegalArgumentException.class)
+    public void shouldRejectInvalidCursor() throws Exception {
+        metadataService.listAvailableVersionsAfter("not a cursor!", 10, true);
+    }
+
     @Test
     public void shouldConstructCorrectURLs() throws Exception {
         when(mockDao.findLegacyDataSetsPage(1, 5)).thenReturn(singletonList(dbDataSet(UUID.fromString(DATASET_ID), "", "")));
 
-        List<LegacyDataSet> result = metadataService.listAvailableVersions(1, 5).getItems();
+        List<LegacyDataSet> result = metadataService.listAvailableVersions(1, 5, true).getItems();
 
         assertThat(result).hasSize(1);
         assertThat(result.iterator().next().getUrl()).isEqualTo(BASE_URL + "/versions/" + DATASET_ID);
@@ -85,7 +148,7 @@ public class MetadataServiceTest {
         DataSet dbDataSet = dbDataSet(dataSetId, title, description);
         when(mockDao.findLegacyDataSetsPage(1, 10)).thenReturn(singletonList(dbDataSet));
 
-        List<LegacyDataSet> result = metadataService.listAvailableVersions(1, 10).getItems();
+        List<LegacyDataSet> result = metadataService.listAvailableVersions(1, 10, true).getItems();
 
         assertThat(result).hasSize(1);
         LegacyDataSet dataSet = result.iterator().next();
@@ -238,6 +301,287 @@ public class MetadataServiceTest {
         assertThat(secondChild.getChildren()).isNullOrEmpty();
     }
 
+    @Test
+    public void shouldSliceHierarchyBelowRootToDepth() throws Exception {
+        String hierarchyId = "testHierarchy";
+        Hierarchy hierarchy = hierarchy(hierarchyId, "test type", "test name");
+        HierarchyEntry entry1 = entry(hierarchy, 0, "code1", "name1");
+        HierarchyEntry entry2 = entry(hierarchy, 1, "code2", "name2");
+        HierarchyEntry entry3 = entry(hierarchy, 2, "code3", "name3");
+        HierarchyEntry entry4 = entry(hierarchy, 1, "code4", "name4");
+        entry2.setParent(entry1); entry1.getChildren().add(entry2);
+        entry3.setParent(entry2); entry2.getChildren().add(entry3);
+        entry4.setParent(entry1); entry1.getChildren().add(entry4);
+        when(mockDao.findAllEntriesInHierarchy(hierarchyId)).thenReturn(Arrays.asList(entry4, entry3, entry1, entry2));
+
+        DimensionMetadata top = metadataService.getHierarchySlice(hierarchyId, null, 1);
+        DimensionMetadata below = metadataService.getHierarchySlice(hierarchyId, "code1", 1);
+        DimensionMetadata subtree = metadataService.getHierarchySlice(hierarchyId, "code1", Integer.MAX_VALUE);
+
+        assertThat(top).isEqualToComparingOnlyGivenFields(hierarchy, "id", "name", "type");
+        assertThat(top.getOptions()).extracting("code", "childCount").containsExactly(tuple("code1", 2));
+        assertThat(top.getOptions().get(0).getChildren()).isNullOrEmpty();
+        assertThat(below.getOptions()).extracting("code", "childCount")
+                .containsExactly(tuple("code2", 1), tuple("code4", 0));
+        assertThat(below.getOptions().get(0).getChildren()).isNullOrEmpty();
+        assertThat(below.getOptions().get(0).getId()).isEqualTo(entry2.getId());
+        assertThat(subtree.getOptions().get(0).getChildren()).extracting("code").containsExactly("code3");
+    }
+
+    @Test
+    public void shouldCountOnlyDistinctChildrenInSlice() throws Exception {
+        String hierarchyId = "testHierarchy";
+        Hierarchy hierarchy = hierarchy(hierarchyId, "test type", "test name");
+        HierarchyEntry entry1 = entry(hierarchy, 0, "code1", "name1");
+        HierarchyEntry entry2 = entry(hierarchy, 1, "code2", "name2");
+        HierarchyEntry duplicate = entry(hierarchy, 1, "CODE2", "NAME2");
+        HierarchyEntry entry3 = entry(hierarchy, 1, "code3", "name3");
+        for (HierarchyEntry child : Arrays.asList(entry2, duplicate, entry3)) {
+            child.setParent(entry1); entry1.getChildren().add(child);
+        }
+        when(mockDao.findAllEntriesInHierarchy(hierarchyId)).thenReturn(Arrays.asList(entry1, entry2, duplicate, entry3));
+
+        DimensionMetadata top = metadataService.getHierarchySlice(hierarchyId, null, 1);
+        DimensionMetadata subtree = metadataService.getHierarchySlice(hierarchyId, null, 2);
+
+        assertThat(top.getOptions()).extracting("code", "childCount").containsExactly(tuple("code1", 2));
+        assertThat(subtree.getOptions()).extracting("code", "childCount").containsExactly(tuple("code1", 2));
+        assertThat(subtree.getOptions().get(0).getChildren()).extracting("code", "childCount")
+                .containsExactly(tuple("code2", 0), tuple("code3", 0));
+    }
+
+    @Test(expectedExceptions = DimensionNotFoundException.class)
+    public void shouldRejectSliceBelowUnknownEntry() throws Exception {
+        Hierarchy hierarchy = hierarchy("testHierarchy", "test type", "test name");
+        when(mockDao.findAllEntriesInHierarchy("testHierarchy")).thenReturn(singletonList(entry(hierarchy, 0, "code1", "name1")));
+
+        metadataService.getHierarchySlice("testHierarchy", "unknown", 1);
+    }
+
+    @Test
+    public void streamedDimensionShouldMatchBufferedListView() throws Exception {
+        DataSet dataSet = new DataSet();
+        dataSet.setId(UUID.fromString(DATASET_ID));
+        Hierarchy hierarchy = hierarchy("H", "test", "test hierarchy");
+        Dimension dimension = new Dimension(dataSet, "geography", new DimensionValue("b"), new DimensionValue("A"));
+        dimension.getValues().add(new DimensionValue("E1"));
+        dimension.getValues().get(2).setHierarchyEntry(entry(hierarchy, 1, "E1", "England"));
+        dimension.setType("test");
+        dataSet.setDimensions(singletonList(dimension));
+        when(mockDao.findDimensionsForDataSet(DATASET_ID)).thenReturn(singletonList(dimension));
+        when(mockDao.findDataSetByUuid(DATASET_ID)).thenReturn(dataSet);
+
+        // The database returns the options in list order
+        DimensionMetadata buffered = metadataService.findDimensionByIdWithDatasetUuid(DATASET_ID, "geography", DimensionViewType.LIST);
+        when(mockDao.streamDimensionOptions(dataSet.getId(), "geography")).thenReturn(buffered.getOptions().stream());
+
+        ObjectMapper objectMapper = new ObjectMapper();
+        StringWriter streamed = new StringWriter();
+        try (JsonGenerator generator = objectMapper.getFactory().createGenerator(streamed)) {
+            metadataService.writeDimensionListWithDatasetUuid(DATASET_ID, "geography", generator);
+        }
+
+        assertThat(streamed.toString()).isEqualTo(objectMapper.writeValueAsString(buffered));
+    }
+
+    @Test
+    public void streamedDimensionShouldMatchBufferedListViewForMixedCaseAndMissingCodes() throws Exception {
+        DataSet dataSet = new DataSet();
+        dataSet.setId(UUID.fromString(DATASET_ID));
+        Hierarchy hierarchy = hierarchy("H", "test", "test hierarchy");
+        Dimension dimension = new Dimension(dataSet, "geography");
+        for (String value : Arrays.asList("b", "A", "_x", "Zeta", "\u00e9cosse", "Eire", "[a]", "a-b", "ab", "\u00c9COSSE")) {
+            dimension.getValues().add(new DimensionValue(value));
+        }
+        for (HierarchyEntry entry : Arrays.asList(entry(hierarchy, 1, "e2", "England"), entry(hierarchy, 1, "E1", "Wales"),
+                entry(hierarchy, 1, null, "Scotland"), entry(hierarchy, 1, null, null))) {
+            DimensionValue value = new DimensionValue("ignored");
+            value.setHierarchyEntry(entry);
+            dimension.getValues().add(value);
+        }
+        dimension.setType("test");
+        dataSet.setDimensions(singletonList(dimension));
+        when(mockDao.findDimensionsForDataSet(DATASET_ID)).thenReturn(singletonList(dimension));
+        when(mockDao.findDataSetByUuid(DATASET_ID)).thenReturn(dataSet);
+        when(mockDao.streamDimensionOptions(dataSet.getId(), "geography")).thenReturn(streamLikeDatabase(dimension));
+
+        DimensionMetadata buffered = metadataService.findDimensionByIdWithDatasetUuid(DATASET_ID, "geography", DimensionViewType.LIST);
+        ObjectMapper objectMapper = new ObjectMapper();
+        StringWriter streamed = new StringWriter();
+        try (JsonGenerator generator = objectMapper.getFactory().createGenerator(streamed)) {
+            metadataService.writeDimensionListWithDatasetUuid(DATASET_ID, "geography", generator);
+        }
+
+        assertThat(streamed.toString()).isEqualTo(objectMapper.writeValueAsString(buffered));
+    }
+
+    /**
+     * Reads the options of a dimension as MetadataApi.streamDimensionOptions does: an entry's code and name are used
+     * even if null, and strings are ordered by the UTF-8 bytes of lower(upper(...)) applied to each character.
+     */
+    private static Stream<DimensionOption> streamLikeDatabase(Dimension dimension) {
+        final Comparator<String> foldSortKey = Comparator.nullsLast(Comparator.comparing(
+                (String value) -> sqlFold(value).getBytes(StandardCharsets.UTF_8), MetadataServiceTest::compareUnsigned));
+        final Comparator<DimensionOption> order = Comparator
+                .comparing((DimensionOption option) -> option.getLevelType() != null)
+                .thenComparing(option -> option.getLevelType() != null ? option.getLevelType().getLevel() : null,
+                        Comparator.nullsFirst(Comparator.naturalOrder()))
+                .thenComparing(option -> option.getLevelType() != null ? option.getLevelType().getName() : null,
+                        Comparator.nullsFirst(foldSortKey))
+                .thenComparing(DimensionOption::getCode, foldSortKey)
+                .thenComparing(DimensionOption::getName, foldSortKey);
+        return dimension.getValues().stream()
+                .map(value -> value.getHierarchyEntry() == null
+                        ? new DimensionOption(value.getId(), value.getValue(), value.getValue())
+                        : new DimensionOption(value.getId(), value.getHierarchyEntry().getCode(),
+                        value.getHierarchyEntry().getName(), value.getHierarchyEntry().getLevelType(), "H"))
+                .sorted(order);
+    }
+
+    private static String sqlFold(String value) {
+        final StringBuilder folded = new StringBuilder(value.length());
+        value.codePoints().forEach(c -> folded.appendCodePoint(Character.toLowerCase(Character.toUpperCase(c))));
+        return folded.toString();
+    }
+
+    private static int compareUnsigned(byte[] a, byte[] b) {
+        for (int i = 0; i < Math.min(a.length, b.length); ++i) {
+            final int result = Integer.compare(a[i] & 0xff, b[i] & 0xff);
+            if (result != 0) {
+                return result;
+            }
+        }
+        return Integer.compare(a.length, b.length);
+    }
+
+    @Test
+    public void shouldCloseOptionStreamIfWritingFails() throws Exception {
+        DataSet dataSet = new DataSet();
+        dataSet.setId(UUID.fromString(DATASET_ID));
+        Dimension dimension = new Dimension(dataSet, "geography", new DimensionValue("A"));
+        dimension.setType("test");
+        dataSet.setDimensions(singletonList(dimension));
+        when(mockDao.findDataSetByUuid(DATASET_ID)).thenReturn(dataSet);
+        AtomicBoolean closed = new AtomicBoolean();
+        when(mockDao.streamDimensionOptions(dataSet.getId(), "geography")).thenReturn(
+                Stream.of(new DimensionOption(null, "A", "A")).onClose(() -> closed.set(true)).peek(option -> {
+                    throw new IllegalStateException("Cursor failed");
+                }));
+
+        try (JsonGenerator generator = new ObjectMapper().getFactory().createGenerator(new StringWriter())) {
+            metadataService.writeDimensionListWithDatasetUuid(DATASET_ID, "geography", generator);
+            fail("Expected the failure to be passed on");
+        } catch (IllegalStateException e) {
+            assertThat(e).hasMessage("Cursor failed");
+        }
+
+        // The database cursor is released
+        assertThat(closed.get()).isTrue();
+    }
+
+    @Test(expectedExceptions = DimensionNotFoundException.class)
+    public void shouldNotStreamIfDimensionNotFound() throws Exception {
+        DataSet dataSet = new DataSet();
+        dataSet.setId(UUID.fromString(DATASET_ID));
+        dataSet.setDimensions(Collections.emptyList());
+        when(mockDao.findDataSetByUuid(DATASET_ID)).thenReturn(dataSet);
+        JsonGenerator generator = mock(JsonGenerator.class);
+
+        try {
+            metadataService.writeDimensionListWithDatasetUuid(DATASET_ID, "geography", generator);
+        } finally {
+            verifyZeroInteractions(generator);
+        }
+    }
+
+    @Test
+    public void bulkDimensionsShouldMatchIndividualDimensionsInRequestedOrder() throws Exception {
+        DataSet dataSet = new DataSet();
+        dataSet.setId(UUID.fromString(DATASET_ID));
+        Dimension geography = new Dimension(dataSet, "geography", new DimensionValue("b"), new DimensionValue("A"));
+        Dimension time = new Dimension(dataSet, "time", new DimensionValue("2016"));
+        when(mockDao.findDataSetByUuid(DATASET_ID)).thenReturn(dataSet);
+        when(mockDao.findDimensionsForDataSet(DATASET_ID)).thenReturn(Arrays.asList(geography, time));
+        when(mockDao.findDimensionsForDataSet(dataSet.getId(), new LinkedHashSet<>(Arrays.asList("time", "geography"))))
+                .thenReturn(Arrays.asList(geography, time));
+
+        ObjectMapper objectMapper = new ObjectMapper();
+        StringWriter bulk = new StringWriter();
+        try (JsonGenerator generator = objectMapper.getFactory().createGenerator(bulk)) {
+            metadataService.writeDimensionsWithDatasetUuid(DATASET_ID, Arrays.asList("time", "geography", "time"),
+                    DimensionViewType.LIST, generator);
+        }
+
+        List<DimensionMetadata> individual = Arrays.asList(
+                metadataService.findDimensionByIdWithDatasetUuid(DATASET_ID, "time", DimensionViewType.LIST),
+                metadataService.findDimensionByIdWithDatasetUuid(DATASET_ID, "geography", DimensionViewType.LIST));
+        assertThat(bulk.toString()).isEqualTo(objectMapper.writeValueAsString(individual));
+        // One lookup of the dataset and one query for the dimensions, however many are requested
+        verify(mockDao).findDataSetByUuid(DATASET_ID);
+        verify(mockDao).findDimensionsForDataSet(eq(dataSet.getId()), anyCollectionOf(String.class));
+    }
+
+    @Test(expectedExceptions = DimensionNotFoundException.class)
+    public void shouldNotWriteBulkDimensionsIfAnyIsNotFound() throws Exception {
+        DataSet dataSet = new DataSet();
+        dataSet.setId(UUID.fromString(DATASET_ID));
+        when(mockDao.findDataSetByUuid(DATASET_ID)).thenReturn(dataSet);
+        when(mockDao.findDimensionsForDataSet(dataSet.getId(), new LinkedHashSet<>(Arrays.asList("geography", "time"))))
+                .thenReturn(singletonList(new Dimension(dataSet, "geography", new DimensionValue("A"))));
+        JsonGenerator generator = mock(JsonGenerator.class);
+
+        try {
+            metadataService.writeDimensionsWithDatasetUuid(DATASET_ID, Arrays.asList("geography", "time"),
+                    DimensionViewType.LIST, generator);
+        } finally {
+            verifyZeroInteractions(generator);
+        }
+    }
+
+    @Test
+    public void filteredOptionsShouldBeSelectedFromCachedIndex() throws Exception {
+        DataSet dataSet = new DataSet();
+        dataSet.setId(UUID.fromString(DATASET_ID));
+        Dimension time = new Dimension(dataSet, "time", new DimensionValue("2017"), new DimensionValue("2016"),
+                new DimensionValue("2015"));
+        when(mockDao.findDataSetByUuid(DATASET_ID)).thenReturn(dataSet);
+        when(mockDao.findDimensionsForDataSet(dataSet.getId(), Collections.singleton("time"))).thenReturn(singletonList(time));
+
+        DimensionMetadata firstPage = metadataService.findDimensionOptionsWithDatasetUuid(DATASET_ID, "time",
+                new OptionFilter(null, null, null, null, 2));
+        DimensionMetadata matching = metadataService.findDimensionOptionsWithDatasetUuid(DATASET_ID, "time",
+                new OptionFilter("2017", null, null, null, null));
+
+        assertThat(firstPage.getOptions()).extracting("code").containsExactly("2015", "2016");
+        assertThat(firstPage.getTotalOptions()).isEqualTo(3);
+        assertThat(firstPage.getOffset()).isEqualTo(0);
+        assertThat(firstPage.getLimit()).isEqualTo(2);
+        assertThat(firstPage.getUrl()).isEqualTo(BASE_URL + "/versions/" + DATASET_ID + "/dimensions/time");
+        assertThat(matching.getOptions()).extracting("code").containsExactly("2017");
+        // The dimension is only loaded for the first request
+        verify(mockDao).findDataSetByUuid(DATASET_ID);
+        verify(mockDao).findDimensionsForDataSet(eq(dataSet.getId()), anyCollectionOf(String.class));
+    }
+
+    @Test
+    public void searchShouldShareCachedIndexWithFilters() throws Exception {
+        DataSet dataSet = new DataSet();
+        dataSet.setId(UUID.fromString(DATASET_ID));
+        Dimension time = new Dimension(dataSet, "time", new DimensionValue("2017"), new DimensionValue("2016"),
+                new DimensionValue("2006"));
+        when(mockDao.findDataSetByUuid(DATASET_ID)).thenReturn(dataSet);
+        when(mockDao.findDimensionsForDataSet(dataSet.getId(), Collections.singleton("time"))).thenReturn(singletonList(time));
+
+        metadataService.findDimensionOptionsWithDatasetUuid(DATASET_ID, "time", new OptionFilter(null, null, null, null, 1));
+        DimensionMetadata result = metadataService.searchDimensionOptionsWithDatasetUuid(DATASET_ID, "time", "201", 10);
+
+        assertThat(result.getOptions()).extracting("code").containsExactly("2016", "2017");
+        assertThat(result.getLimit()).isEqualTo(10);
+        assertThat(result.getTotalOptions()).isNull();
+        assertThat(result.getUrl()).isEqualTo(BASE_URL + "/versions/" + DATASET_ID + "/dimensions/time");
+        verify(mockDao).findDimensionsForDataSet(eq(dataSet.getId()), anyCollectionOf(String.class));
+    }
+
     private static void assertDataSetEqualsDbModel(final LegacyDataSet actual, final DataSet expected) {
         assertThat(actual.getId()).isEqualTo(expected.getId().toString());
     }
@@ -0,0 +1,57 @@
+package uk.co.onsdigital.discovery.metadata.api.service;
+
+import org.mockito.Mock;
+import org.mockito.MockitoAnnotations;
+import org.testng.annotations.BeforeMethod;
+import org.testng.annotations.Test;
+import uk.co.onsdigital.discovery.metadata.api.dao.MetadataDao;
+
+import static org.assertj.core.api.Assertions.assertThat;
+import static org.mockito.Mockito.times;
+import static org.mockito.Mockito.verify;
+import static org.mockito.Mockito.when;
+
+public class ResultCountCacheTest {
+
+    @Mock
+    private MetadataDao mockDao;
+
+    @BeforeMethod
+    public void setup() {
+        MockitoAnnotations.initMocks(this);
+        when(mockDao.countDataSets()).thenReturn(42L, 43L);
+        when(mockDao.countDataResources()).thenReturn(7L);
+    }
+
+    @Test
+    public void shouldOnlyCountOnceWithinExpiryPeriod() throws Exception {
+        ResultCountCache counts = new ResultCountCache(mockDao, 60);
+
+        assertThat(counts.countDataSets()).isEqualTo(42L);
+        assertThat(counts.countDataSets()).isEqualTo(42L);
+        assertThat(counts.countDataResources()).isEqualTo(7L);
+        assertThat(counts.countDataResources()).isEqualTo(7L);
+
+        verify(mockDao, times(1)).countDataSets();
+        verify(mockDao, times(1)).countDataResources();
+    }
+
+    @Test
+    public void shouldCountAgainAfterInvalidation() throws Exception {
+        ResultCountCache counts = new ResultCountCache(mockDao, 60);
+
+        assertThat(counts.countDataSets()).isEqualTo(42L);
+        counts.invalidate();
+        assertThat(counts.countDataSets()).isEqualTo(43L);
+    }
+
+    @Test
+    public void shouldAlwaysCountIfCachingDisabled() throws Exception {
+        ResultCountCache counts = new ResultCountCache(mockDao, 0);
+
+        counts.countDataSets();
+        counts.countDataSets();
+
+        verify(mockDao, times(2)).countDataSets();
+    }
+}
@@ -20,6 +20,17 @@ public class UrlBuilderTest {
         assertThat(urlBuilder.datasetsPage(5).build(4)).isEqualTo(BASE_URL + "/datasets?page=4&size=5");
     }
 
+    @Test
+    public void shouldConstructCorrectCursorLinks() {
+        assertThat(urlBuilder.datasetsAfter(5).build("abc")).isEqualTo(BASE_URL + "/datasets?after=abc&size=5");
+        assertThat(urlBuilder.datasetsAfter(5).build("")).isEqualTo(BASE_URL + "/datasets?after=&size=5");
+    }
+
+    @Test(expectedExceptions = IllegalArgumentException.class)
+    public void shouldRejectCursorPageSizeTooLarge() {
+        urlBuilder.datasetsAfter(UrlBuilder.MAX_PAGE_SIZE + 1);
+    }
+
     @Test(expectedExceptions = IllegalArgumentException.class)
     public void shouldRejectPageSizeOfZero() {
         urlBuilder.datasetsPage(0);